@@ -62,6 +62,12 @@ public interface BookKeeperServerStats {
     String READ_ENTRY_LONG_POLL_PRE_WAIT = "READ_ENTRY_LONG_POLL_PRE_WAIT";
     String READ_ENTRY_LONG_POLL_WAIT = "READ_ENTRY_LONG_POLL_WAIT";
     String READ_ENTRY_LONG_POLL_READ = "READ_ENTRY_LONG_POLL_READ";
+    String READ_ENTRY_LONG_POLL_FANOUT = "READ_ENTRY_LONG_POLL_FANOUT";
+    String READ_ENTRY_LONG_POLL_NOTIFY = "READ_ENTRY_LONG_POLL_NOTIFY";
+    String READ_ENTRY_STREAM_PUSH = "READ_ENTRY_STREAM_PUSH";
+    String READ_ENTRY_STREAM_SUBSCRIPTIONS = "READ_ENTRY_STREAM_SUBSCRIPTIONS";
+    String FAIR_SCHEDULER_QUEUE_LATENCY = "FAIR_SCHEDULER_QUEUE_LATENCY";
+    String FAIR_SCHEDULER_REJECTED = "FAIR_SCHEDULER_REJECTED";
     String WRITE_LAC_REQUEST = "WRITE_LAC_REQUEST";
     String WRITE_LAC = "WRITE_LAC";
     String READ_LAC_REQUEST = "READ_LAC_REQUEST";
@@ -94,6 +100,7 @@ public interface BookKeeperServerStats {
     String ADD_ENTRY_IN_PROGRESS = "ADD_ENTRY_IN_PROGRESS";
     String ADD_ENTRY_BLOCKED = "ADD_ENTRY_BLOCKED";
     String ADD_ENTRY_BLOCKED_WAIT = "ADD_ENTRY_BLOCKED_WAIT";
+    String ADD_ENTRY_PACED = "ADD_ENTRY_PACED";
     String READ_ENTRY_IN_PROGRESS = "READ_ENTRY_IN_PROGRESS";
     String READ_ENTRY_BLOCKED = "READ_ENTRY_BLOCKED";
     String READ_ENTRY_BLOCKED_WAIT = "READ_ENTRY_BLOCKED_WAIT";
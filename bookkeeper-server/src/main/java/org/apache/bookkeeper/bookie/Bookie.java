@@ -58,6 +58,8 @@ public interface Bookie {
     ByteBuf readEntry(long ledgerId, long entryId)
             throws IOException, NoLedgerException, BookieException;
     long readLastAddConfirmed(long ledgerId) throws IOException, BookieException;
+    boolean isCatchUpRead(long ledgerId, long entryId);
+    long getWriteThrottleDelayNanos();
     PrimitiveIterator.OfLong getListOfEntriesOfLedger(long ledgerId) throws IOException, NoLedgerException;
 
     /**
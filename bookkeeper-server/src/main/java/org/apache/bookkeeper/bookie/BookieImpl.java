@@ -1171,6 +1171,14 @@ public class BookieImpl implements Bookie {
         return handle.getLastAddConfirmed();
     }
 
+    public boolean isCatchUpRead(long ledgerId, long entryId) {
+        return ledgerStorage.isCatchUpRead(ledgerId, entryId);
+    }
+
+    public long getWriteThrottleDelayNanos() {
+        return ledgerStorage.getWriteThrottleDelayNanos();
+    }
+
     public boolean waitForLastAddConfirmedUpdate(long ledgerId,
                                                  long previousLAC,
                                                  Watcher<LastAddConfirmedUpdateNotification> watcher)
@@ -119,12 +119,22 @@ public class EntryMemTable implements AutoCloseable{
     */
     public EntryMemTable(final ServerConfiguration conf, final CheckpointSource source,
                          final StatsLogger statsLogger) {
+        this(conf, source, statsLogger, true);
+    }
+
+    /**
+     * Constructor.
+     * @param conf Server configuration
+     * @param useSkipList whether the entries are kept in the skip list, or by the subclass
+     */
+    EntryMemTable(final ServerConfiguration conf, final CheckpointSource source,
+                  final StatsLogger statsLogger, boolean useSkipList) {
         this.checkpointSource = source;
-        this.kvmap = newSkipList();
+        this.kvmap = useSkipList ? newSkipList() : EntrySkipList.EMPTY_VALUE;
         this.snapshot = EntrySkipList.EMPTY_VALUE;
         this.conf = conf;
         this.size = new AtomicLong(0);
-        this.allocator = new SkipListArena(conf);
+        this.allocator = useSkipList ? new SkipListArena(conf) : null;
         this.previousFlushSucceeded = new AtomicBoolean(true);
         // skip list size limit
         this.skipListSizeLimit = conf.getSkipListSizeLimit();
@@ -317,8 +327,7 @@ public class EntryMemTable implements AutoCloseable{
 
             this.lock.readLock().lock();
             try {
-                EntryKeyValue toAdd = cloneWithAllocator(ledgerId, entryId, entry);
-                size = internalAdd(toAdd);
+                size = internalAdd(ledgerId, entryId, entry);
                 if (size == 0) {
                     skipListSemaphore.release(len);
                 }
@@ -338,6 +347,16 @@ public class EntryMemTable implements AutoCloseable{
         }
     }
 
+    /**
+     * Copy the entry into the memtable, without taking the lock.
+     * Callers should ensure they already have the read lock taken.
+     *
+     * @return the size of the added entry, or 0 if the entry is already in the memtable.
+     */
+    long internalAdd(long ledgerId, long entryId, final ByteBuffer entry) throws IOException {
+        return internalAdd(cloneWithAllocator(ledgerId, entryId, entry));
+    }
+
     /**
     * Internal version of add() that doesn't clone KVs with the
     * allocator, and doesn't take the lock.
@@ -383,16 +402,12 @@ public class EntryMemTable implements AutoCloseable{
      * @return the entry kv or null if none found.
      */
     public EntryKeyValue getEntry(long ledgerId, long entryId) throws IOException {
-        EntryKey key = new EntryKey(ledgerId, entryId);
         EntryKeyValue value = null;
         long startTimeNanos = MathUtils.nowInNano();
         boolean success = false;
         this.lock.readLock().lock();
         try {
-            value = this.kvmap.get(key);
-            if (value == null) {
-                value = this.snapshot.get(key);
-            }
+            value = internalGet(ledgerId, entryId);
             success = true;
         } finally {
             this.lock.readLock().unlock();
@@ -414,16 +429,12 @@ public class EntryMemTable implements AutoCloseable{
      * @return the entry kv or null if none found.
      */
     public EntryKeyValue getLastEntry(long ledgerId) throws IOException {
-        EntryKey result = null;
-        EntryKey key = new EntryKey(ledgerId, Long.MAX_VALUE);
+        EntryKeyValue result = null;
         long startTimeNanos = MathUtils.nowInNano();
         boolean success = false;
         this.lock.readLock().lock();
         try {
-            result = this.kvmap.floorKey(key);
-            if (result == null || result.getLedgerId() != ledgerId) {
-                result = this.snapshot.floorKey(key);
-            }
+            result = internalGetLast(ledgerId);
             success = true;
         } finally {
             this.lock.readLock().unlock();
@@ -436,6 +447,32 @@ public class EntryMemTable implements AutoCloseable{
             }
         }
 
+        return result;
+    }
+
+    /**
+     * Find the entry with given key, without taking the lock.
+     * Callers should ensure they already have the read lock taken.
+     */
+    EntryKeyValue internalGet(long ledgerId, long entryId) {
+        EntryKey key = new EntryKey(ledgerId, entryId);
+        EntryKeyValue value = this.kvmap.get(key);
+        if (value == null) {
+            value = this.snapshot.get(key);
+        }
+        return value;
+    }
+
+    /**
+     * Find the last entry with the given ledger key, without taking the lock.
+     * Callers should ensure they already have the read lock taken.
+     */
+    EntryKeyValue internalGetLast(long ledgerId) {
+        EntryKey key = new EntryKey(ledgerId, Long.MAX_VALUE);
+        EntryKey result = this.kvmap.floorKey(key);
+        if (result == null || result.getLedgerId() != ledgerId) {
+            result = this.snapshot.floorKey(key);
+        }
         if (result == null || result.getLedgerId() != ledgerId) {
             return null;
         }
@@ -153,6 +153,29 @@ public interface LedgerStorage {
      */
     long getLastAddConfirmed(long ledgerId) throws IOException, BookieException;
 
+    /**
+     * Whether reading an entry catches up with a ledger, i.e. the entry is far behind the last
+     * entry recently added to the ledger, rather than tailing it. It doesn't read the storage.
+     *
+     * @param ledgerId ledger id.
+     * @param entryId entry id.
+     * @return true if the read is a catch-up read, false if it is a tail read or the storage
+     *         can't tell the reads apart
+     */
+    default boolean isCatchUpRead(long ledgerId, long entryId) {
+        return false;
+    }
+
+    /**
+     * Get the time a new add would be delayed by the storage, to pace the adds while the storage
+     * falls behind.
+     *
+     * @return the delay in nanoseconds, 0 if the adds aren't paced
+     */
+    default long getWriteThrottleDelayNanos() {
+        return 0;
+    }
+
     /**
      * Wait for last add confirmed update.
      *
@@ -0,0 +1,441 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.bookkeeper.bookie.Bookie.NoLedgerException;
+import org.apache.bookkeeper.bookie.CheckpointSource.Checkpoint;
+import org.apache.bookkeeper.common.util.MathUtils;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.stats.StatsLogger;
+import org.apache.bookkeeper.util.IteratorUtility;
+import org.apache.bookkeeper.util.collections.ConcurrentLongHashMap;
+
+/**
+ * An EntryMemTable which keeps the entries off-heap.
+ *
+ * <p>The payloads of the entries are copied into direct memory chunks, and each ledger keeps
+ * a primitive index of its entries, sorted by entry id, pointing into the chunks. So the
+ * memtable holds a few objects per ledger instead of a few objects per entry. The index of a
+ * ledger is an append array, since the entries of a ledger are mostly added in sequence;
+ * entries added out of order are inserted in place.
+ *
+ * <p>The snapshot and flush semantics are the same as EntryMemTable's. The chunks of a
+ * snapshot are released once it has been flushed, and the entries returned by
+ * {@link #getEntry(long, long)} and {@link #getLastEntry(long)} are copied on heap.
+ */
+@Slf4j
+class OffHeapEntryMemTable extends EntryMemTable {
+
+    /**
+     * The entries of a ledger in an {@link EntryArena}, sorted by entry id.
+     */
+    static class LedgerEntries {
+        private static final int INITIAL_CAPACITY = 16;
+
+        private long[] entryIds = new long[INITIAL_CAPACITY];
+        private long[] locations = new long[INITIAL_CAPACITY];
+        private int[] lengths = new int[INITIAL_CAPACITY];
+        private int count = 0;
+
+        /**
+         * @return the position of the entry, or -(insertion point) - 1 if it isn't there
+         */
+        private int indexOf(long entryId) {
+            if (count > 0 && entryIds[count - 1] < entryId) {
+                return -count - 1;
+            }
+            return Arrays.binarySearch(entryIds, 0, count, entryId);
+        }
+
+        synchronized boolean contains(long entryId) {
+            return indexOf(entryId) >= 0;
+        }
+
+        /**
+         * @return false if the entry was already there
+         */
+        synchronized boolean add(long entryId, long location, int length) {
+            int idx = indexOf(entryId);
+            if (idx >= 0) {
+                return false;
+            }
+            idx = -idx - 1;
+            if (count == entryIds.length) {
+                int newCapacity = count * 2;
+                entryIds = Arrays.copyOf(entryIds, newCapacity);
+                locations = Arrays.copyOf(locations, newCapacity);
+                lengths = Arrays.copyOf(lengths, newCapacity);
+            }
+            if (idx < count) {
+                System.arraycopy(entryIds, idx, entryIds, idx + 1, count - idx);
+                System.arraycopy(locations, idx, locations, idx + 1, count - idx);
+                System.arraycopy(lengths, idx, lengths, idx + 1, count - idx);
+            }
+            entryIds[idx] = entryId;
+            locations[idx] = location;
+            lengths[idx] = length;
+            count++;
+            return true;
+        }
+
+        synchronized int size() {
+            return count;
+        }
+
+        synchronized long[] copyOfEntryIds() {
+            return Arrays.copyOf(entryIds, count);
+        }
+    }
+
+    /**
+     * The off-heap chunks and the index of the entries added since a checkpoint.
+     */
+    static class EntryArena {
+        static final EntryArena EMPTY_VALUE = new EntryArena(Checkpoint.MAX, 0);
+
+        final Checkpoint cp;
+        private final int chunkSize;
+        private final ConcurrentLongHashMap<LedgerEntries> ledgers =
+                ConcurrentLongHashMap.<LedgerEntries>newBuilder().build();
+
+        // the chunks are only appended, under the arena lock, and published by replacing the array
+        private volatile ByteBuf[] chunks = new ByteBuf[0];
+        private int chunkOffset = 0;
+        private boolean released = false;
+
+        EntryArena(Checkpoint cp, int chunkSize) {
+            this.cp = cp;
+            this.chunkSize = chunkSize;
+        }
+
+        int compareTo(final Checkpoint cp) {
+            return this.cp.compareTo(cp);
+        }
+
+        boolean isEmpty() {
+            return ledgers.isEmpty();
+        }
+
+        /**
+         * Copy the entry into the arena.
+         *
+         * @return the size of the entry, or 0 if the entry is already in the arena
+         */
+        long add(long ledgerId, long entryId, ByteBuffer entry) {
+            LedgerEntries entries = ledgers.computeIfAbsent(ledgerId, k -> new LedgerEntries());
+            // the duplicate check and the allocation are done under the ledger lock, so a duplicate entry
+            // added concurrently doesn't waste space in the arena
+            synchronized (entries) {
+                if (entries.contains(entryId)) {
+                    return 0;
+                }
+                int len = entry.remaining();
+                long location = allocate(len);
+                // the allocated region is owned by this call, so the copy doesn't need the arena lock
+                chunks[chunkIndex(location)].setBytes(chunkOffset(location), entry.duplicate());
+                entries.add(entryId, location, len);
+                return len;
+            }
+        }
+
+        private synchronized long allocate(int len) {
+            ByteBuf[] cur = chunks;
+            if (cur.length == 0 || chunkOffset + len > chunkSize) {
+                // too large entries get a chunk of their own
+                int capacity = Math.max(len, chunkSize);
+                ByteBuf[] newChunks = Arrays.copyOf(cur, cur.length + 1);
+                newChunks[cur.length] = Unpooled.directBuffer(capacity, capacity);
+                chunks = newChunks;
+                chunkOffset = 0;
+            }
+            long location = location(chunks.length - 1, chunkOffset);
+            chunkOffset += len;
+            return location;
+        }
+
+        private static long location(int chunkIndex, int offset) {
+            return ((long) chunkIndex << 32) | offset;
+        }
+
+        private static int chunkIndex(long location) {
+            return (int) (location >>> 32);
+        }
+
+        private static int chunkOffset(long location) {
+            return (int) location;
+        }
+
+        private ByteBuf slice(long location, int length) {
+            return chunks[chunkIndex(location)].slice(chunkOffset(location), length);
+        }
+
+        EntryKeyValue get(long ledgerId, long entryId) {
+            LedgerEntries entries = ledgers.get(ledgerId);
+            if (entries == null) {
+                return null;
+            }
+            long location;
+            int length;
+            synchronized (entries) {
+                int idx = entries.indexOf(entryId);
+                if (idx < 0) {
+                    return null;
+                }
+                location = entries.locations[idx];
+                length = entries.lengths[idx];
+            }
+            return copyOnHeap(ledgerId, entryId, location, length);
+        }
+
+        EntryKeyValue getLast(long ledgerId) {
+            LedgerEntries entries = ledgers.get(ledgerId);
+            if (entries == null) {
+                return null;
+            }
+            long entryId;
+            long location;
+            int length;
+            synchronized (entries) {
+                if (entries.count == 0) {
+                    return null;
+                }
+                int idx = entries.count - 1;
+                entryId = entries.entryIds[idx];
+                location = entries.locations[idx];
+                length = entries.lengths[idx];
+            }
+            return copyOnHeap(ledgerId, entryId, location, length);
+        }
+
+        private EntryKeyValue copyOnHeap(long ledgerId, long entryId, long location, int length) {
+            byte[] data = new byte[length];
+            chunks[chunkIndex(location)].getBytes(chunkOffset(location), data);
+            return new EntryKeyValue(ledgerId, entryId, data, 0, length);
+        }
+
+        long[] getEntryIds(long ledgerId) {
+            LedgerEntries entries = ledgers.get(ledgerId);
+            return entries == null ? new long[0] : entries.copyOfEntryIds();
+        }
+
+        List<Long> sortedLedgerIds() {
+            List<Long> ledgerIds = ledgers.keys();
+            Collections.sort(ledgerIds);
+            return ledgerIds;
+        }
+
+        /**
+         * Release the chunks of the arena. Callers should ensure no one is reading from it.
+         */
+        synchronized void release() {
+            if (released) {
+                return;
+            }
+            released = true;
+            for (ByteBuf chunk : chunks) {
+                chunk.release();
+            }
+            chunks = new ByteBuf[0];
+        }
+    }
+
+    volatile EntryArena activeArena;
+
+    // Snapshot of the active arena. Made for flusher.
+    volatile EntryArena snapshotArena;
+
+    public OffHeapEntryMemTable(final ServerConfiguration conf, final CheckpointSource source,
+                                final StatsLogger statsLogger) {
+        super(conf, source, statsLogger, false);
+        this.activeArena = newArena();
+        this.snapshotArena = EntryArena.EMPTY_VALUE;
+    }
+
+    private EntryArena newArena() {
+        return new EntryArena(checkpointSource.newCheckpoint(), conf.getSkipListArenaChunkSize());
+    }
+
+    @Override
+    void dump() {
+        for (EntryArena arena : new EntryArena[] { activeArena, snapshotArena }) {
+            for (long ledgerId : arena.sortedLedgerIds()) {
+                for (long entryId : arena.getEntryIds(ledgerId)) {
+                    log.info("{}", new EntryKey(ledgerId, entryId));
+                }
+            }
+        }
+    }
+
+    @Override
+    Checkpoint snapshot(Checkpoint oldCp) throws IOException {
+        Checkpoint cp = null;
+        // No-op if snapshot currently has entries
+        if (this.snapshotArena.isEmpty() && this.activeArena.compareTo(oldCp) < 0) {
+            final long startTimeNanos = MathUtils.nowInNano();
+            this.lock.writeLock().lock();
+            try {
+                if (this.snapshotArena.isEmpty() && !this.activeArena.isEmpty()
+                        && this.activeArena.compareTo(oldCp) < 0) {
+                    this.snapshotArena = this.activeArena;
+                    this.activeArena = newArena();
+                    // get the checkpoint of the memtable.
+                    cp = this.activeArena.cp;
+                    // Reset heap to not include any keys
+                    this.size.set(0);
+                }
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+
+            if (null != cp) {
+                memTableStats.getSnapshotStats()
+                    .registerSuccessfulEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+            } else {
+                memTableStats.getSnapshotStats()
+                    .registerFailedEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+            }
+        }
+        return cp;
+    }
+
+    /**
+     * Flush the snapshot ledger by ledger, in (ledgerId, entryId) order, handing the off-heap
+     * slices of the entries to the flusher, and release it.
+     */
+    @Override
+    long flushSnapshot(final SkipListFlusher flusher, Checkpoint checkpoint) throws IOException {
+        long size = 0;
+        if (this.snapshotArena.compareTo(checkpoint) < 0) {
+            synchronized (this) {
+                EntryArena arena = this.snapshotArena;
+                if (arena.compareTo(checkpoint) < 0) {
+                    for (long ledgerId : arena.sortedLedgerIds()) {
+                        LedgerEntries entries = arena.ledgers.get(ledgerId);
+                        // the snapshot isn't modified anymore, so its index can be read without locking
+                        boolean ledgerDeleted = false;
+                        for (int i = 0; i < entries.size(); i++) {
+                            size += entries.lengths[i];
+                            if (!ledgerDeleted) {
+                                try {
+                                    flusher.process(ledgerId, entries.entryIds[i],
+                                            arena.slice(entries.locations[i], entries.lengths[i]));
+                                } catch (NoLedgerException exception) {
+                                    ledgerDeleted = true;
+                                }
+                            }
+                        }
+                    }
+                    memTableStats.getFlushBytesCounter().addCount(size);
+                    clearSnapshot(arena);
+                }
+            }
+        }
+
+        skipListSemaphore.release((int) size);
+        return size;
+    }
+
+    private void clearSnapshot(final EntryArena arena) {
+        // Caller makes sure that arena not empty
+        assert !arena.isEmpty();
+        this.lock.writeLock().lock();
+        try {
+            assert this.snapshotArena == arena;
+            this.snapshotArena = EntryArena.EMPTY_VALUE;
+            // no reader can access the arena once the write lock is taken
+            arena.release();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    long internalAdd(long ledgerId, long entryId, final ByteBuffer entry) throws IOException {
+        long sizeChange = activeArena.add(ledgerId, entryId, entry);
+        if (sizeChange > 0) {
+            size.addAndGet(sizeChange);
+        }
+        return sizeChange;
+    }
+
+    @Override
+    EntryKeyValue internalGet(long ledgerId, long entryId) {
+        EntryKeyValue value = this.activeArena.get(ledgerId, entryId);
+        if (value == null) {
+            value = this.snapshotArena.get(ledgerId, entryId);
+        }
+        return value;
+    }
+
+    @Override
+    EntryKeyValue internalGetLast(long ledgerId) {
+        EntryKeyValue value = this.activeArena.getLast(ledgerId);
+        if (value == null) {
+            value = this.snapshotArena.getLast(ledgerId);
+        }
+        return value;
+    }
+
+    @Override
+    boolean isEmpty() {
+        return size.get() == 0 && snapshotArena.isEmpty();
+    }
+
+    /*
+     * returns the primitive long iterator of entries of a ledger available in
+     * this memtable, in ascending order. The iterator is over a copy of the
+     * entry ids taken when this method is called.
+     */
+    @Override
+    PrimitiveIterator.OfLong getListOfEntriesOfLedger(long ledgerId) {
+        long[] entriesInArena;
+        long[] entriesInSnapshot;
+        this.lock.readLock().lock();
+        try {
+            entriesInArena = this.activeArena.getEntryIds(ledgerId);
+            entriesInSnapshot = this.snapshotArena.getEntryIds(ledgerId);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        return IteratorUtility.mergePrimitiveLongIterator(Arrays.stream(entriesInArena).iterator(),
+                Arrays.stream(entriesInSnapshot).iterator());
+    }
+
+    @Override
+    public void close() throws Exception {
+        this.lock.writeLock().lock();
+        try {
+            this.activeArena.release();
+            this.snapshotArena.release();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+}
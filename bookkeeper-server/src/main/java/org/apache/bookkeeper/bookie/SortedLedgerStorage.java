@@ -114,6 +114,8 @@ public class SortedLedgerStorage
 
         if (conf.isEntryLogPerLedgerEnabled()) {
             this.memTable = new EntryMemTableWithParallelFlusher(conf, checkpointSource, statsLogger);
+        } else if (conf.isEntryMemTableOffHeapEnabled()) {
+            this.memTable = new OffHeapEntryMemTable(conf, checkpointSource, statsLogger);
         } else {
             this.memTable = new EntryMemTable(conf, checkpointSource, statsLogger);
         }
@@ -22,6 +22,8 @@ package org.apache.bookkeeper.bookie.storage.ldb;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import lombok.experimental.UtilityClass;
 
 /**
@@ -29,6 +31,10 @@ import lombok.experimental.UtilityClass;
  *
  * <p>Group size decides how many longs are included in the tuples and key size controls how many items to use for
  * comparison.
+ *
+ * <p>The parallel sort partitions the array like the sequential sort, and sorts the partitions in parallel in a
+ * fork-join pool, down to partitions of {@code PARALLEL_SORT_THRESHOLD} items. It sorts in place, like the
+ * sequential sort, so it needs no extra memory.
  */
 @UtilityClass
 public class ArrayGroupSort {
@@ -37,6 +43,8 @@ public class ArrayGroupSort {
 
     private static final int GROUP_SIZE = 4;
 
+    private static final int PARALLEL_SORT_THRESHOLD = 8192 * GROUP_SIZE;
+
     public void sort(long[] array) {
         sort(array, 0, array.length);
     }
@@ -46,8 +54,43 @@ public class ArrayGroupSort {
         quickSort(array, offset, (length + offset - GROUP_SIZE));
     }
 
+    public static void parallelSort(long[] array, int offset, int length, ForkJoinPool pool) {
+        checkArgument(length % GROUP_SIZE == 0, "Array length must be multiple of 4");
+        if (length < PARALLEL_SORT_THRESHOLD || pool.getParallelism() <= 1) {
+            quickSort(array, offset, (length + offset - GROUP_SIZE));
+            return;
+        }
+        pool.invoke(new QuickSortTask(array, offset, (length + offset - GROUP_SIZE)));
+    }
+
     ////// Private
 
+    private static class QuickSortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] array;
+        private final int low;
+        private final int high;
+
+        QuickSortTask(long[] array, int low, int high) {
+            this.array = array;
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        protected void compute() {
+            if (high - low < PARALLEL_SORT_THRESHOLD) {
+                quickSort(array, low, high);
+                return;
+            }
+
+            int pivotIdx = partition(array, low, high);
+            invokeAll(new QuickSortTask(array, low, pivotIdx - GROUP_SIZE),
+                    new QuickSortTask(array, pivotIdx + GROUP_SIZE, high));
+        }
+    }
+
     private static void quickSort(long[] array, int low, int high) {
         if (low >= high) {
             return;
@@ -41,6 +41,8 @@ import java.util.Map;
 import java.util.PrimitiveIterator.OfLong;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.bookie.BookieException;
@@ -107,6 +109,30 @@ public class DbLedgerStorage implements LedgerStorage {
     // the default value is -1. this feature(limit of read ahead bytes) is disabled
     private static final int DEFAULT_READ_AHEAD_CACHE_BATCH_BYTES_SIZE = -1;
 
+    // the catch-up reads read ahead into their own cache, the default value is 0. this feature is disabled
+    static final String CATCH_UP_READ_CACHE_MAX_SIZE_MB = "dbStorage_catchUpReadCacheMaxSizeMb";
+    static final String CATCH_UP_READ_AHEAD_BATCH_SIZE = "dbStorage_catchUpReadAheadBatchSize";
+    static final long DEFAULT_CATCH_UP_READ_CACHE_MAX_SIZE_MB = 0;
+    static final int DEFAULT_CATCH_UP_READ_AHEAD_BATCH_SIZE = 1000;
+
+    // the adaptive read ahead grows the batch of the ledgers read sequentially, from the min batch size
+    // up to the read ahead batch size, and reads ahead asynchronously. the default value is false
+    static final String READ_AHEAD_ADAPTIVE_ENABLED = "dbStorage_readAheadAdaptiveEnabled";
+    static final String READ_AHEAD_MIN_BATCH_SIZE = "dbStorage_readAheadMinBatchSize";
+    static final int DEFAULT_READ_AHEAD_MIN_BATCH_SIZE = 8;
+
+    // the gradual write throttling paces the writes once the write cache is filled past the threshold, instead
+    // of blocking them when the write cache is full. the default value is false
+    static final String GRADUAL_WRITE_THROTTLING_ENABLED = "dbStorage_gradualWriteThrottlingEnabled";
+    static final String GRADUAL_WRITE_THROTTLING_THRESHOLD = "dbStorage_gradualWriteThrottlingThreshold";
+    static final double DEFAULT_GRADUAL_WRITE_THROTTLING_THRESHOLD = 0.75;
+    static final long MAX_GRADUAL_WRITE_THROTTLING_DELAY_MILLIS = 100;
+
+    // the parallelism of the sort of the write cache being flushed, shared by the ledger directories. the
+    // default value is the number of processors minus one, as for the common pool. 1 sorts on the flush thread
+    static final String FLUSH_SORT_PARALLELISM = "dbStorage_flushSortParallelism";
+    static final int DEFAULT_FLUSH_SORT_PARALLELISM = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
     private static final long DEFAULT_DIRECT_IO_TOTAL_WRITEBUFFER_SIZE_MB =
         (long) (0.125 * PlatformDependent.estimateMaxDirectMemory())
             / MB;
@@ -126,6 +152,7 @@ public class DbLedgerStorage implements LedgerStorage {
 
     private ExecutorService entryLoggerWriteExecutor = null;
     private ExecutorService entryLoggerFlushExecutor = null;
+    private ForkJoinPool flushSortPool = null;
 
     protected ByteBufAllocator allocator;
 
@@ -177,6 +204,15 @@ public class DbLedgerStorage implements LedgerStorage {
         long readAheadCacheBatchBytesSize = conf.getInt(READ_AHEAD_CACHE_BATCH_BYTES_SIZE,
                 DEFAULT_READ_AHEAD_CACHE_BATCH_BYTES_SIZE);
 
+        int flushSortParallelism = conf.getInt(FLUSH_SORT_PARALLELISM, DEFAULT_FLUSH_SORT_PARALLELISM);
+        if (flushSortParallelism > 1) {
+            flushSortPool = new ForkJoinPool(flushSortParallelism, pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("DbStorageFlushSort-" + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+        }
+
         ledgerStorageList = Lists.newArrayList();
         for (int i = 0; i < ledgerDirsManager.getAllLedgerDirs().size(); i++) {
             File ledgerDir = ledgerDirsManager.getAllLedgerDirs().get(i);
@@ -285,7 +321,8 @@ public class DbLedgerStorage implements LedgerStorage {
             throws IOException {
         return new SingleDirectoryDbLedgerStorage(conf, ledgerManager, ledgerDirsManager, indexDirsManager, entryLogger,
                                                   statsLogger, allocator, writeCacheSize, readCacheSize,
-                                                  readAheadCacheBatchSize, readAheadCacheBatchBytesSize);
+                                                  readAheadCacheBatchSize, readAheadCacheBatchBytesSize,
+                                                  flushSortPool);
     }
 
     @Override
@@ -318,6 +355,9 @@ public class DbLedgerStorage implements LedgerStorage {
         if (entryLoggerFlushExecutor != null) {
             entryLoggerFlushExecutor.shutdown();
         }
+        if (flushSortPool != null) {
+            flushSortPool.shutdown();
+        }
     }
 
     @Override
@@ -366,6 +406,20 @@ public class DbLedgerStorage implements LedgerStorage {
         return getLedgerStorage(ledgerId).getLastAddConfirmed(ledgerId);
     }
 
+    @Override
+    public boolean isCatchUpRead(long ledgerId, long entryId) {
+        return getLedgerStorage(ledgerId).isCatchUpRead(ledgerId, entryId);
+    }
+
+    @Override
+    public long getWriteThrottleDelayNanos() {
+        long delayNanos = 0;
+        for (SingleDirectoryDbLedgerStorage ls : ledgerStorageList) {
+            delayNanos = Math.max(delayNanos, ls.getWriteThrottleDelayNanos());
+        }
+        return delayNanos;
+    }
+
     @Override
     public boolean waitForLastAddConfirmedUpdate(long ledgerId, long previousLAC,
             Watcher<LastAddConfirmedUpdateNotification> watcher) throws IOException {
@@ -52,9 +52,13 @@ class DbLedgerStorageStats {
     private static final String WRITE_CACHE_MISSES = "write-cache-misses";
     private static final String READ_CACHE_HITS = "read-cache-hits";
     private static final String READ_CACHE_MISSES = "read-cache-misses";
+    private static final String CATCH_UP_READ_CACHE_HITS = "catch-up-read-cache-hits";
+    private static final String CATCH_UP_READ_CACHE_MISSES = "catch-up-read-cache-misses";
     private static final String READAHEAD_BATCH_COUNT = "readahead-batch-count";
     private static final String READAHEAD_BATCH_SIZE = "readahead-batch-size";
     private static final String READAHEAD_TIME = "readahead-time";
+    private static final String READAHEAD_HITS = "readahead-hits";
+    private static final String READAHEAD_WASTED = "readahead-wasted";
     private static final String FLUSH = "flush";
     private static final String FLUSH_ENTRYLOG = "flush-entrylog";
     private static final String FLUSH_LOCATIONS_INDEX = "flush-locations-index";
@@ -66,6 +70,8 @@ class DbLedgerStorageStats {
     // throttled-write-requests is deprecated, use new metric: throttled-write
     private static final String THROTTLED_WRITE = "throttled-write";
     private static final String REJECTED_WRITE_REQUESTS = "rejected-write-requests";
+    private static final String PACED_WRITE = "paced-write";
+    private static final String EARLY_FLUSH_REQUESTS = "early-flush-requests";
     private static final String WRITE_CACHE_SIZE = "write-cache-size";
     private static final String WRITE_CACHE_COUNT = "write-cache-count";
     private static final String READ_CACHE_SIZE = "read-cache-size";
@@ -119,6 +125,18 @@ class DbLedgerStorageStats {
         parent = READ_ENTRY
     )
     private final Counter readCacheMissCounter;
+    @StatsDoc(
+        name = CATCH_UP_READ_CACHE_HITS,
+        help = "number of catch-up read cache hits",
+        parent = READ_ENTRY
+    )
+    private final Counter catchUpReadCacheHitCounter;
+    @StatsDoc(
+        name = CATCH_UP_READ_CACHE_MISSES,
+        help = "number of catch-up read cache misses",
+        parent = READ_ENTRY
+    )
+    private final Counter catchUpReadCacheMissCounter;
     @StatsDoc(
         name = READAHEAD_BATCH_COUNT,
         help = "the distribution of num of entries to read in one readahead batch"
@@ -134,6 +152,16 @@ class DbLedgerStorageStats {
             help = "Time spent on readahead operations"
     )
     private final Counter readAheadTime;
+    @StatsDoc(
+        name = READAHEAD_HITS,
+        help = "number of entries read ahead by the adaptive readahead and then read from the cache"
+    )
+    private final Counter readAheadHitCounter;
+    @StatsDoc(
+        name = READAHEAD_WASTED,
+        help = "number of entries read ahead by the adaptive readahead and abandoned without being read"
+    )
+    private final Counter readAheadWastedCounter;
     @StatsDoc(
         name = FLUSH,
         help = "operation stats of flushing write cache to entry log files"
@@ -174,6 +202,16 @@ class DbLedgerStorageStats {
         help = "The number of requests rejected due to write cache is full"
     )
     private final Counter rejectedWriteRequests;
+    @StatsDoc(
+        name = PACED_WRITE,
+        help = "The delays of the writes paced by the gradual write throttling while the write cache fills up"
+    )
+    private final OpStatsLogger pacedWriteStats;
+    @StatsDoc(
+        name = EARLY_FLUSH_REQUESTS,
+        help = "The number of flushes triggered by the gradual write throttling before the write cache is full"
+    )
+    private final Counter earlyFlushRequests;
 
     @StatsDoc(
         name = WRITE_CACHE_SIZE,
@@ -207,11 +245,15 @@ class DbLedgerStorageStats {
         readFromEntryLogTime = stats.getThreadScopedCounter(READ_ENTRYLOG_TIME);
         readCacheHitCounter = stats.getCounter(READ_CACHE_HITS);
         readCacheMissCounter = stats.getCounter(READ_CACHE_MISSES);
+        catchUpReadCacheHitCounter = stats.getCounter(CATCH_UP_READ_CACHE_HITS);
+        catchUpReadCacheMissCounter = stats.getCounter(CATCH_UP_READ_CACHE_MISSES);
         writeCacheHitCounter = stats.getCounter(WRITE_CACHE_HITS);
         writeCacheMissCounter = stats.getCounter(WRITE_CACHE_MISSES);
         readAheadBatchCountStats = stats.getOpStatsLogger(READAHEAD_BATCH_COUNT);
         readAheadBatchSizeStats = stats.getOpStatsLogger(READAHEAD_BATCH_SIZE);
         readAheadTime = stats.getThreadScopedCounter(READAHEAD_TIME);
+        readAheadHitCounter = stats.getCounter(READAHEAD_HITS);
+        readAheadWastedCounter = stats.getCounter(READAHEAD_WASTED);
         flushStats = stats.getOpStatsLogger(FLUSH);
         flushEntryLogStats = stats.getOpStatsLogger(FLUSH_ENTRYLOG);
         flushLocationIndexStats = stats.getOpStatsLogger(FLUSH_LOCATIONS_INDEX);
@@ -221,6 +263,8 @@ class DbLedgerStorageStats {
         throttledWriteRequests = stats.getThreadScopedCounter(THROTTLED_WRITE_REQUESTS);
         throttledWriteStats = stats.getOpStatsLogger(THROTTLED_WRITE);
         rejectedWriteRequests = stats.getThreadScopedCounter(REJECTED_WRITE_REQUESTS);
+        pacedWriteStats = stats.getOpStatsLogger(PACED_WRITE);
+        earlyFlushRequests = stats.getCounter(EARLY_FLUSH_REQUESTS);
 
         writeCacheSizeGauge = new Gauge<Long>() {
             @Override
@@ -0,0 +1,168 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.stats.Counter;
+
+/**
+ * The read-ahead window of a ledger.
+ *
+ * <p>The window tracks the reads of the ledger to tell the sequential reads apart from the random
+ * ones. While the ledger is read sequentially, the entries are read ahead before the reader gets to
+ * them, and the window doubles every time, up to the max size. A random read shrinks the window back
+ * to the min size, and the entries read ahead and not read yet are accounted as wasted.
+ */
+class ReadAheadWindow {
+
+    /**
+     * A range of entries to read ahead.
+     */
+    static final class Range {
+        final long firstEntryId;
+        final int numEntries;
+        // the location of the first entry, 0 if unknown
+        final long firstEntryLocation;
+        private final long generation;
+
+        private Range(long firstEntryId, int numEntries, long firstEntryLocation, long generation) {
+            this.firstEntryId = firstEntryId;
+            this.numEntries = numEntries;
+            this.firstEntryLocation = firstEntryLocation;
+            this.generation = generation;
+        }
+    }
+
+    private final int minSize;
+    private final int maxSize;
+    private final Counter hitCounter;
+    private final Counter wastedCounter;
+
+    // guarded by this
+    private int size;
+    private long lastReadEntryId = Long.MIN_VALUE;
+    // the entries read ahead, from the first one inclusive to the end exclusive
+    private long firstReadAheadEntryId = Long.MIN_VALUE;
+    private long endReadAheadEntryId = Long.MIN_VALUE;
+    // no read ahead until the reader gets past the last entry stored, when a read-ahead came back short
+    private long exhaustedEntryId = Long.MIN_VALUE;
+    private boolean readAheadInProgress = false;
+    // bumped by the random reads, to drop the read-ahead in progress
+    private long generation = 0;
+
+    private volatile long lastAccessNanos;
+
+    ReadAheadWindow(int minSize, int maxSize, Counter hitCounter, Counter wastedCounter) {
+        this.minSize = Math.max(1, Math.min(minSize, maxSize));
+        this.maxSize = Math.max(this.minSize, maxSize);
+        this.hitCounter = hitCounter;
+        this.wastedCounter = wastedCounter;
+        this.size = this.minSize;
+        this.lastAccessNanos = System.nanoTime();
+    }
+
+    /**
+     * Record a read of an entry of the ledger.
+     *
+     * @param entryId the entry read
+     * @param nextEntryLocation the location of the entry following the entry read, 0 if unknown
+     * @param cached whether the entry was found in the read caches
+     * @return the range of entries to read ahead, or null if none
+     */
+    synchronized Range onRead(long entryId, long nextEntryLocation, boolean cached) {
+        lastAccessNanos = System.nanoTime();
+        boolean readAhead = entryId >= firstReadAheadEntryId && entryId < endReadAheadEntryId;
+        if (readAhead && cached) {
+            hitCounter.inc();
+        }
+
+        boolean sequential = readAhead || entryId == lastReadEntryId + 1 || entryId == lastReadEntryId;
+        if (!sequential) {
+            wastedCounter.addCount(getNumUnreadEntries());
+            size = minSize;
+            firstReadAheadEntryId = entryId + 1;
+            endReadAheadEntryId = entryId + 1;
+            exhaustedEntryId = Long.MIN_VALUE;
+            generation++;
+        }
+        lastReadEntryId = sequential ? Math.max(lastReadEntryId, entryId) : entryId;
+
+        if (readAheadInProgress || entryId < exhaustedEntryId) {
+            return null;
+        }
+        long unreadEntries = getNumUnreadEntries();
+        if (unreadEntries > size / 2) {
+            // the reader is still far enough from the end of the entries read ahead
+            return null;
+        }
+        if (sequential) {
+            size = (int) Math.min((long) size * 2, maxSize);
+        }
+        long firstEntryId = Math.max(endReadAheadEntryId, entryId + 1);
+        readAheadInProgress = true;
+        return new Range(firstEntryId, size, firstEntryId == entryId + 1 ? nextEntryLocation : 0, generation);
+    }
+
+    /**
+     * Record the completion of a read-ahead.
+     *
+     * @param range the range read ahead
+     * @param numEntriesRead the number of entries actually read ahead
+     */
+    synchronized void onReadAheadComplete(Range range, int numEntriesRead) {
+        readAheadInProgress = false;
+        if (range.generation != generation) {
+            // a random read reset the window meanwhile
+            wastedCounter.addCount(numEntriesRead);
+            return;
+        }
+        if (firstReadAheadEntryId > range.firstEntryId || endReadAheadEntryId < range.firstEntryId) {
+            firstReadAheadEntryId = range.firstEntryId;
+        }
+        endReadAheadEntryId = range.firstEntryId + numEntriesRead;
+        if (numEntriesRead < range.numEntries) {
+            exhaustedEntryId = endReadAheadEntryId;
+        }
+    }
+
+    /**
+     * Account the entries read ahead and not read yet as wasted, when the window is dropped.
+     */
+    synchronized void close() {
+        wastedCounter.addCount(getNumUnreadEntries());
+        firstReadAheadEntryId = Long.MIN_VALUE;
+        endReadAheadEntryId = Long.MIN_VALUE;
+        generation++;
+    }
+
+    // guarded by this
+    private long getNumUnreadEntries() {
+        return Math.max(0, endReadAheadEntryId - Math.max(firstReadAheadEntryId, lastReadEntryId + 1));
+    }
+
+    synchronized int getSize() {
+        return size;
+    }
+
+    boolean isStale(long maxIdleTime, TimeUnit unit) {
+        return System.nanoTime() - lastAccessNanos > unit.toNanos(maxIdleTime);
+    }
+}
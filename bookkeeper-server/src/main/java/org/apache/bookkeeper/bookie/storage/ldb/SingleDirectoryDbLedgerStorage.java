@@ -43,6 +43,8 @@ import java.util.PrimitiveIterator.OfLong;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -108,6 +110,9 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
     // Cache where we insert entries for speculative reading
     private final ReadCache readCache;
 
+    // Cache where the catch-up reads insert entries for speculative reading, if enabled
+    private final ReadCache catchUpReadCache;
+
     private final StampedLock writeCacheRotationLock = new StampedLock();
 
     protected final ReentrantLock flushMutex = new ReentrantLock();
@@ -124,6 +129,12 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
                 }
             });
 
+    // Executor used for the adaptive read ahead, if enabled
+    private final ExecutorService readAheadExecutor;
+    private final ConcurrentLongHashMap<ReadAheadWindow> readAheadWindows;
+    private final int readAheadMinBatchSize;
+    private final int readAheadMaxBatchSize;
+
     // Executor used to for db index cleanup
     private final ScheduledExecutorService cleanupExecutor = Executors
             .newSingleThreadScheduledExecutor(new DefaultThreadFactory("db-storage-cleanup"));
@@ -141,12 +152,21 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
 
     private final long maxThrottleTimeNanos;
 
+    // Paces the writes while the write cache fills up, if the gradual write throttling is enabled
+    private final WriteThrottler writeThrottler;
+
     private final DbLedgerStorageStats dbLedgerStorageStats;
 
     private static final long DEFAULT_MAX_THROTTLE_TIME_MILLIS = TimeUnit.SECONDS.toMillis(10);
+    // the shorter delays are not enforced by the request processor
+    private static final long MIN_PACED_WRITE_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
 
     private final long maxReadAheadBytesSize;
 
+    private final long catchUpReadDistance;
+    private final int catchUpReadAheadBatchSize;
+    private final long maxCatchUpReadAheadBytesSize;
+
     private final Counter flushExecutorTime;
     private final boolean singleLedgerDirs;
 
@@ -156,6 +176,20 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
                                           long writeCacheSize, long readCacheSize, int readAheadCacheBatchSize,
                                           long readAheadCacheBatchBytesSize)
             throws IOException {
+        this(conf, ledgerManager, ledgerDirsManager, indexDirsManager, entryLogger, statsLogger, allocator,
+                writeCacheSize, readCacheSize, readAheadCacheBatchSize, readAheadCacheBatchBytesSize, null);
+    }
+
+    /**
+     * @param flushSortPool the pool sorting the entries of the write cache being flushed, or null to sort them
+     *                      on the flush thread
+     */
+    public SingleDirectoryDbLedgerStorage(ServerConfiguration conf, LedgerManager ledgerManager,
+                                          LedgerDirsManager ledgerDirsManager, LedgerDirsManager indexDirsManager,
+                                          EntryLogger entryLogger, StatsLogger statsLogger, ByteBufAllocator allocator,
+                                          long writeCacheSize, long readCacheSize, int readAheadCacheBatchSize,
+                                          long readAheadCacheBatchBytesSize, ForkJoinPool flushSortPool)
+            throws IOException {
         checkArgument(ledgerDirsManager.getAllLedgerDirs().size() == 1,
                 "Db implementation only allows for one storage dir");
 
@@ -178,8 +212,8 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
                 .scopeLabel("indexDir", indexBaseDir);
 
         this.writeCacheMaxSize = writeCacheSize;
-        this.writeCache = new WriteCache(allocator, writeCacheMaxSize / 2);
-        this.writeCacheBeingFlushed = new WriteCache(allocator, writeCacheMaxSize / 2);
+        this.writeCache = new WriteCache(allocator, writeCacheMaxSize / 2, flushSortPool);
+        this.writeCacheBeingFlushed = new WriteCache(allocator, writeCacheMaxSize / 2, flushSortPool);
         this.singleLedgerDirs = conf.getLedgerDirs().length == 1;
 
         readCacheMaxSize = readCacheSize;
@@ -192,9 +226,46 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
         long maxThrottleTimeMillis = conf.getLong(DbLedgerStorage.MAX_THROTTLE_TIME_MILLIS,
                 DEFAULT_MAX_THROTTLE_TIME_MILLIS);
         maxThrottleTimeNanos = TimeUnit.MILLISECONDS.toNanos(maxThrottleTimeMillis);
+        if (conf.getBoolean(DbLedgerStorage.GRADUAL_WRITE_THROTTLING_ENABLED, false)) {
+            double threshold = conf.getDouble(DbLedgerStorage.GRADUAL_WRITE_THROTTLING_THRESHOLD,
+                    DbLedgerStorage.DEFAULT_GRADUAL_WRITE_THROTTLING_THRESHOLD);
+            writeThrottler = new WriteThrottler(threshold, Math.min(maxThrottleTimeNanos,
+                    TimeUnit.MILLISECONDS.toNanos(DbLedgerStorage.MAX_GRADUAL_WRITE_THROTTLING_DELAY_MILLIS)));
+        } else {
+            writeThrottler = null;
+        }
 
         readCache = new ReadCache(allocator, readCacheMaxSize);
 
+        long catchUpReadCacheMaxSize = conf.getLong(DbLedgerStorage.CATCH_UP_READ_CACHE_MAX_SIZE_MB,
+                DbLedgerStorage.DEFAULT_CATCH_UP_READ_CACHE_MAX_SIZE_MB) * 1024 * 1024 / conf.getLedgerDirs().length;
+        catchUpReadCache = catchUpReadCacheMaxSize > 0 ? new ReadCache(allocator, catchUpReadCacheMaxSize) : null;
+        catchUpReadAheadBatchSize = conf.getInt(DbLedgerStorage.CATCH_UP_READ_AHEAD_BATCH_SIZE,
+                DbLedgerStorage.DEFAULT_CATCH_UP_READ_AHEAD_BATCH_SIZE);
+        maxCatchUpReadAheadBytesSize = catchUpReadCacheMaxSize / 2;
+        catchUpReadDistance = conf.getCatchUpReadDistance();
+
+        if (conf.getBoolean(DbLedgerStorage.READ_AHEAD_ADAPTIVE_ENABLED, false)) {
+            String readAheadExecutorName = "db-storage-read-ahead";
+            readAheadExecutor = Executors.newSingleThreadExecutor(new DefaultThreadFactory(readAheadExecutorName) {
+                @Override
+                protected Thread newThread(Runnable r, String name) {
+                    return super.newThread(ThreadRegistry.registerThread(r, readAheadExecutorName), name);
+                }
+            });
+            readAheadWindows = ConcurrentLongHashMap.<ReadAheadWindow>newBuilder()
+                    .expectedItems(16 * 1024)
+                    .concurrencyLevel(Runtime.getRuntime().availableProcessors() * 2)
+                    .build();
+        } else {
+            readAheadExecutor = null;
+            readAheadWindows = null;
+        }
+        readAheadMinBatchSize = conf.getInt(DbLedgerStorage.READ_AHEAD_MIN_BATCH_SIZE,
+                DbLedgerStorage.DEFAULT_READ_AHEAD_MIN_BATCH_SIZE);
+        readAheadMaxBatchSize = null != catchUpReadCache
+                ? Math.max(readAheadCacheBatchSize, catchUpReadAheadBatchSize) : readAheadCacheBatchSize;
+
         ledgerIndex = new LedgerMetadataIndex(conf,
                 KeyValueStorageRocksDB.factory, indexBaseDir, ledgerIndexDirStatsLogger);
         entryLocationIndex = new EntryLocationIndex(conf,
@@ -263,6 +334,17 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
 
             return isStale;
         });
+
+        if (null != readAheadWindows) {
+            readAheadWindows.removeIf((ledgerId, window) -> {
+                boolean isStale = window.isStale(TransientLedgerInfo.LEDGER_INFO_CACHING_TIME_MINUTES,
+                        TimeUnit.MINUTES);
+                if (isStale) {
+                    window.close();
+                }
+                return isStale;
+            });
+        }
     }
 
     @Override
@@ -350,12 +432,20 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
             cleanupExecutor.shutdown();
             cleanupExecutor.awaitTermination(1, TimeUnit.SECONDS);
 
+            if (null != readAheadExecutor) {
+                readAheadExecutor.shutdown();
+                readAheadExecutor.awaitTermination(1, TimeUnit.SECONDS);
+            }
+
             ledgerIndex.close();
             entryLocationIndex.close();
 
             writeCache.close();
             writeCacheBeingFlushed.close();
             readCache.close();
+            if (null != catchUpReadCache) {
+                catchUpReadCache.close();
+            }
             executor.shutdown();
 
         } catch (IOException e) {
@@ -402,7 +492,8 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
 
         boolean inCache = localWriteCache.hasEntry(ledgerId, entryId)
              || localWriteCacheBeingFlushed.hasEntry(ledgerId, entryId)
-             || readCache.hasEntry(ledgerId, entryId);
+             || readCache.hasEntry(ledgerId, entryId)
+             || (null != catchUpReadCache && catchUpReadCache.hasEntry(ledgerId, entryId));
 
         if (inCache) {
             return true;
@@ -480,6 +571,10 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
             log.debug("Add entry. {}@{}, lac = {}", ledgerId, entryId, lac);
         }
 
+        if (null != writeThrottler) {
+            paceWrite(entry.readableBytes());
+        }
+
         // First we try to do an optimistic locking to get access to the current write cache.
         // This is based on the fact that the write cache is only being rotated (swapped) every 1 minute. During the
         // rest of the time, we can have multiple thread using the optimistic lock here without interfering.
@@ -514,6 +609,63 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
         return entryId;
     }
 
+    /**
+     * Admit the write while the write cache is filled past the throttling threshold, so that the write cache
+     * fills up at the pace of the ongoing flush. The flush is triggered early if none is ongoing.
+     *
+     * <p>The write isn't delayed here: the request processor stops reading from the channels of the clients for
+     * the delay, see {@link #getWriteThrottleDelayNanos()}.
+     */
+    private void paceWrite(long size) {
+        long capacity = writeCacheMaxSize / 2;
+        long used = writeCache.size();
+        if (!writeThrottler.isAboveThreshold(used, capacity)) {
+            return;
+        }
+
+        if (!isFlushOngoing.get()) {
+            if (triggerFlush()) {
+                log.info("Write cache is filling up, triggering flush");
+                dbLedgerStorageStats.getEarlyFlushRequests().inc();
+            }
+            return;
+        }
+
+        long delayNanos = writeThrottler.admit(size, used, capacity, MathUtils.nowInNano());
+        if (delayNanos >= MIN_PACED_WRITE_DELAY_NANOS) {
+            dbLedgerStorageStats.getPacedWriteStats().registerSuccessfulEvent(delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Trigger a flush in background, so that the write cache gets rotated.
+     *
+     * @return true if the flush was triggered, false if it was already triggered or ongoing
+     */
+    private boolean triggerFlush() {
+        // If the flush has already been triggered or flush has already switched the
+        // cache, we don't need to trigger another flush
+        if (isFlushOngoing.get() || !hasFlushBeenTriggered.compareAndSet(false, true)) {
+            return false;
+        }
+        executor.execute(() -> {
+                long startTime = System.nanoTime();
+                try {
+                    flush();
+                } catch (IOException e) {
+                    log.error("Error during flush", e);
+                } finally {
+                    flushExecutorTime.addLatency(MathUtils.elapsedNanos(startTime), TimeUnit.NANOSECONDS);
+                }
+            });
+        return true;
+    }
+
+    @Override
+    public long getWriteThrottleDelayNanos() {
+        return null != writeThrottler ? writeThrottler.getDelayNanos(MathUtils.nowInNano()) : 0;
+    }
+
     private void triggerFlushAndAddEntry(long ledgerId, long entryId, ByteBuf entry)
             throws IOException, BookieException {
         long throttledStartTime = MathUtils.nowInNano();
@@ -522,21 +674,8 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
 
         while (System.nanoTime() < absoluteTimeoutNanos) {
             // Write cache is full, we need to trigger a flush so that it gets rotated
-            // If the flush has already been triggered or flush has already switched the
-            // cache, we don't need to trigger another flush
-            if (!isFlushOngoing.get() && hasFlushBeenTriggered.compareAndSet(false, true)) {
-                // Trigger an early flush in background
+            if (triggerFlush()) {
                 log.info("Write cache is full, triggering flush");
-                executor.execute(() -> {
-                        long startTime = System.nanoTime();
-                        try {
-                            flush();
-                        } catch (IOException e) {
-                            log.error("Error during flush", e);
-                        } finally {
-                            flushExecutorTime.addLatency(MathUtils.elapsedNanos(startTime), TimeUnit.NANOSECONDS);
-                        }
-                    });
             }
 
             long stamp = writeCacheRotationLock.readLock();
@@ -624,11 +763,27 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
         entry = readCache.get(ledgerId, entryId);
         if (entry != null) {
             dbLedgerStorageStats.getReadCacheHitCounter().inc();
+            if (null != readAheadWindows) {
+                readAheadAsync(ledgerId, entryId, 0L, true);
+            }
             return entry;
         }
 
         dbLedgerStorageStats.getReadCacheMissCounter().inc();
 
+        // The entries read ahead by the catch-up reads are in their own cache
+        if (null != catchUpReadCache) {
+            entry = catchUpReadCache.get(ledgerId, entryId);
+            if (entry != null) {
+                dbLedgerStorageStats.getCatchUpReadCacheHitCounter().inc();
+                if (null != readAheadWindows) {
+                    readAheadAsync(ledgerId, entryId, 0L, true);
+                }
+                return entry;
+            }
+            dbLedgerStorageStats.getCatchUpReadCacheMissCounter().inc();
+        }
+
         // Read from main storage
         long entryLocation;
         long locationIndexStartNano = MathUtils.nowInNano();
@@ -653,16 +808,65 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
                     MathUtils.elapsedNanos(readEntryStartNano), TimeUnit.NANOSECONDS);
         }
 
-        readCache.put(ledgerId, entryId, entry);
+        // The catch-up reads don't evict the entries of the tail reads from the read cache
+        boolean catchUpRead = null != catchUpReadCache && isCatchUpRead(ledgerId, entryId);
+        ReadCache cache = catchUpRead ? catchUpReadCache : readCache;
+        cache.put(ledgerId, entryId, entry);
 
         // Try to read more entries
         long nextEntryLocation = entryLocation + 4 /* size header */ + entry.readableBytes();
-        fillReadAheadCache(ledgerId, entryId + 1, nextEntryLocation);
+        if (null != readAheadWindows) {
+            readAheadAsync(ledgerId, entryId, nextEntryLocation, false);
+        } else {
+            fillReadAheadCache(cache, catchUpRead, ledgerId, entryId + 1, nextEntryLocation, Integer.MAX_VALUE);
+        }
 
         return entry;
     }
 
-    private void fillReadAheadCache(long originalLedgerId, long firstEntryId, long firstEntryLocation) {
+    /**
+     * Record a read in the read-ahead window of the ledger, and read ahead on the read-ahead thread
+     * the entries the window tells, so the read doesn't wait for the read-ahead.
+     */
+    private void readAheadAsync(long ledgerId, long entryId, long nextEntryLocation, boolean cached) {
+        ReadAheadWindow window = readAheadWindows.computeIfAbsent(ledgerId,
+                l -> new ReadAheadWindow(readAheadMinBatchSize, readAheadMaxBatchSize,
+                        dbLedgerStorageStats.getReadAheadHitCounter(),
+                        dbLedgerStorageStats.getReadAheadWastedCounter()));
+        ReadAheadWindow.Range range = window.onRead(entryId, nextEntryLocation, cached);
+        if (null == range) {
+            return;
+        }
+
+        boolean catchUpRead = null != catchUpReadCache && isCatchUpRead(ledgerId, entryId);
+        ReadCache cache = catchUpRead ? catchUpReadCache : readCache;
+        try {
+            readAheadExecutor.execute(() -> {
+                int count = 0;
+                try {
+                    long firstEntryLocation = range.firstEntryLocation;
+                    if (firstEntryLocation == 0) {
+                        firstEntryLocation = entryLocationIndex.getLocation(ledgerId, range.firstEntryId);
+                    }
+                    if (firstEntryLocation != 0) {
+                        count = fillReadAheadCache(cache, catchUpRead, ledgerId, range.firstEntryId,
+                                firstEntryLocation, range.numEntries);
+                    }
+                } catch (Exception e) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Exception during read ahead for ledger: {}: e", ledgerId, e);
+                    }
+                } finally {
+                    window.onReadAheadComplete(range, count);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            window.onReadAheadComplete(range, 0);
+        }
+    }
+
+    private int fillReadAheadCache(ReadCache cache, boolean catchUpRead, long originalLedgerId,
+                                   long firstEntryId, long firstEntryLocation, int maxEntries) {
         long readAheadStartNano = MathUtils.nowInNano();
         int count = 0;
         long size = 0;
@@ -672,7 +876,9 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
             long currentEntryLogId = firstEntryLogId;
             long currentEntryLocation = firstEntryLocation;
 
-            while (chargeReadAheadCache(count, size) && currentEntryLogId == firstEntryLogId) {
+            while (count < maxEntries
+                    && (catchUpRead ? chargeCatchUpReadAheadCache(count, size) : chargeReadAheadCache(count, size))
+                    && currentEntryLogId == firstEntryLogId) {
                 ByteBuf entry = entryLogger.readEntry(originalLedgerId,
                         firstEntryId, currentEntryLocation);
 
@@ -686,7 +892,7 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
                     }
 
                     // Insert entry in read cache
-                    readCache.put(originalLedgerId, currentEntryId, entry);
+                    cache.put(originalLedgerId, currentEntryId, entry);
 
                     count++;
                     firstEntryId++;
@@ -708,6 +914,7 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
             dbLedgerStorageStats.getReadAheadTime().addLatency(
                     MathUtils.elapsedNanos(readAheadStartNano), TimeUnit.NANOSECONDS);
         }
+        return count;
     }
 
     protected boolean chargeReadAheadCache(int currentReadAheadCount, long currentReadAheadBytes) {
@@ -721,6 +928,28 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
         return chargeSizeCondition;
     }
 
+    private boolean chargeCatchUpReadAheadCache(int currentReadAheadCount, long currentReadAheadBytes) {
+        return currentReadAheadCount < catchUpReadAheadBatchSize
+                && currentReadAheadBytes < maxCatchUpReadAheadBytesSize;
+    }
+
+    @Override
+    public boolean isCatchUpRead(long ledgerId, long entryId) {
+        if (entryId < 0) {
+            return false;
+        }
+        long lastEntryId = Math.max(writeCache.getLastEntryId(ledgerId),
+                writeCacheBeingFlushed.getLastEntryId(ledgerId));
+        if (lastEntryId < 0) {
+            TransientLedgerInfo ledgerInfo = transientLedgerInfoCache.get(ledgerId);
+            if (null != ledgerInfo) {
+                lastEntryId = ledgerInfo.getLastAddConfirmed();
+            }
+        }
+        // the ledgers with no recent entry are read to catch up
+        return lastEntryId < 0 || entryId < lastEntryId - catchUpReadDistance;
+    }
+
     public ByteBuf getLastEntry(long ledgerId) throws IOException, BookieException {
         throwIfLimbo(ledgerId);
 
@@ -802,6 +1031,7 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
         // Only a single flush operation can happen at a time
         flushMutex.lock();
         long startTime = -1;
+        boolean flushed = false;
         try {
             startTime = MathUtils.nowInNano();
         } catch (Throwable e) {
@@ -819,6 +1049,9 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
             swapWriteCache();
 
             long sizeToFlush = writeCacheBeingFlushed.size();
+            if (null != writeThrottler) {
+                writeThrottler.onFlushStart(sizeToFlush, startTime);
+            }
             if (log.isDebugEnabled()) {
                 log.debug("Flushing entries. count: {} -- size {} Mb", writeCacheBeingFlushed.count(),
                         sizeToFlush / 1024.0 / 1024);
@@ -855,6 +1088,7 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
 
             // Discard all the entry from the write cache, since they're now persisted
             writeCacheBeingFlushed.clear();
+            flushed = true;
 
             double flushTimeSeconds = MathUtils.elapsedNanos(startTime) / (double) TimeUnit.SECONDS.toNanos(1);
             double flushThroughput = sizeToFlush / 1024.0 / 1024.0 / flushTimeSeconds;
@@ -886,6 +1120,9 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
                     }
                 });
 
+                if (null != writeThrottler) {
+                    writeThrottler.onFlushComplete(MathUtils.nowInNano(), flushed);
+                }
                 isFlushOngoing.set(false);
             } finally {
                 flushMutex.unlock();
@@ -949,6 +1186,13 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
         if (tli != null) {
             tli.close();
         }
+
+        if (null != readAheadWindows) {
+            ReadAheadWindow window = readAheadWindows.remove(ledgerId);
+            if (null != window) {
+                window.close();
+            }
+        }
     }
 
     @Override
@@ -985,6 +1229,16 @@ public class SingleDirectoryDbLedgerStorage implements CompactableLedgerStorage
         entryLocationIndex.updateLocations(locations);
     }
 
+    /**
+     * Wait for the read-aheads submitted so far to complete.
+     */
+    @VisibleForTesting
+    void waitForReadAhead() throws Exception {
+        if (null != readAheadExecutor) {
+            readAheadExecutor.submit(() -> { }).get();
+        }
+    }
+
     @VisibleForTesting
     EntryLogger getEntryLogger() {
         return entryLogger;
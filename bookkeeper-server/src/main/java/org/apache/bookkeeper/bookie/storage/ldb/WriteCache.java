@@ -27,6 +27,7 @@ import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
@@ -85,18 +86,30 @@ public class WriteCache implements Closeable {
 
     private final ByteBufAllocator allocator;
 
+    // the pool sorting the entries in parallel on iterating, or null to sort them on the iterating thread
+    private final ForkJoinPool sortPool;
+
     public WriteCache(ByteBufAllocator allocator, long maxCacheSize) {
+        this(allocator, maxCacheSize, null);
+    }
+
+    public WriteCache(ByteBufAllocator allocator, long maxCacheSize, ForkJoinPool sortPool) {
         // Default maxSegmentSize set to 1Gb
-        this(allocator, maxCacheSize, 1 * 1024 * 1024 * 1024);
+        this(allocator, maxCacheSize, 1 * 1024 * 1024 * 1024, sortPool);
     }
 
     public WriteCache(ByteBufAllocator allocator, long maxCacheSize, int maxSegmentSize) {
+        this(allocator, maxCacheSize, maxSegmentSize, null);
+    }
+
+    public WriteCache(ByteBufAllocator allocator, long maxCacheSize, int maxSegmentSize, ForkJoinPool sortPool) {
         checkArgument(maxSegmentSize > 0);
 
         long alignedMaxSegmentSize = alignToPowerOfTwo(maxSegmentSize);
         checkArgument(maxSegmentSize == alignedMaxSegmentSize, "Max segment size needs to be in form of 2^n");
 
         this.allocator = allocator;
+        this.sortPool = sortPool;
         this.maxCacheSize = maxCacheSize;
         this.maxSegmentSize = (int) maxSegmentSize;
         this.segmentOffsetMask = maxSegmentSize - 1;
@@ -203,6 +216,13 @@ public class WriteCache implements Closeable {
         return index.get(ledgerId, entryId) != null;
     }
 
+    /**
+     * Get the id of the last entry of a ledger in the cache, or -1 if the ledger has none.
+     */
+    public long getLastEntryId(long ledgerId) {
+        return lastEntryMap.get(ledgerId);
+    }
+
     public ByteBuf getLastEntry(long ledgerId) {
         long lastEntryId = lastEntryMap.get(ledgerId);
         if (lastEntryId == -1) {
@@ -249,7 +269,11 @@ public class WriteCache implements Closeable {
             startTime = MathUtils.nowInNano();
 
             // Sort entries by (ledgerId, entryId) maintaining the 4 items groups
-            ArrayGroupSort.sort(sortedEntries, 0, sortedEntriesIdx);
+            if (null != sortPool) {
+                ArrayGroupSort.parallelSort(sortedEntries, 0, sortedEntriesIdx, sortPool);
+            } else {
+                ArrayGroupSort.sort(sortedEntries, 0, sortedEntriesIdx);
+            }
             if (log.isDebugEnabled()) {
                 log.debug("sorting {} ms", (MathUtils.elapsedNanos(startTime) / 1e6));
             }
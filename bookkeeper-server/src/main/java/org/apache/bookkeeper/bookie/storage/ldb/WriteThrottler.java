@@ -0,0 +1,134 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+/**
+ * Pace the adds to the write cache while a flush is ongoing, so the write cache doesn't fill up before the flush
+ * completes.
+ *
+ * <p>Once the write cache is filled past the threshold, the adds are admitted at the rate that fills the free space
+ * of the write cache in the time the ongoing flush is expected to take, estimated from the throughput of the
+ * previous flushes. The admission rate drops as the write cache fills up, and the adds are delayed accordingly, so
+ * an overload degrades the add latency gradually instead of blocking the adds once the write cache is full.
+ */
+class WriteThrottler {
+
+    private static final double FLUSH_THROUGHPUT_EWMA_ALPHA = 0.3;
+
+    private final double threshold;
+    private final long maxDelayNanos;
+
+    // guarded by this
+    // bytes per nanosecond, 0 until the first flush completes
+    private double flushThroughput = 0;
+    private boolean flushing = false;
+    private long flushStartNanos;
+    private long flushSize;
+    private double admissionRate = Double.MAX_VALUE;
+
+    // the time the next add is admitted at
+    private volatile long nextAdmissionNanos = Long.MIN_VALUE;
+
+    /**
+     * @param threshold the fill ratio of the write cache past which the adds are paced
+     * @param maxDelayNanos the max delay of an add
+     */
+    WriteThrottler(double threshold, long maxDelayNanos) {
+        this.threshold = threshold;
+        this.maxDelayNanos = maxDelayNanos;
+    }
+
+    synchronized void onFlushStart(long size, long nowNanos) {
+        flushing = true;
+        flushStartNanos = nowNanos;
+        flushSize = size;
+    }
+
+    /**
+     * @param succeeded whether the flush succeeded, the throughput of the failed flushes is not accounted
+     */
+    synchronized void onFlushComplete(long nowNanos, boolean succeeded) {
+        if (succeeded && flushing && flushSize > 0 && nowNanos > flushStartNanos) {
+            double throughput = (double) flushSize / (nowNanos - flushStartNanos);
+            flushThroughput = flushThroughput == 0 ? throughput
+                    : FLUSH_THROUGHPUT_EWMA_ALPHA * throughput + (1 - FLUSH_THROUGHPUT_EWMA_ALPHA) * flushThroughput;
+        }
+        flushing = false;
+        admissionRate = Double.MAX_VALUE;
+        // the write cache being flushed is free again, the adds are not paced anymore
+        nextAdmissionNanos = Long.MIN_VALUE;
+    }
+
+    /**
+     * Whether the write cache is filled past the threshold.
+     */
+    boolean isAboveThreshold(long usedBytes, long capacityBytes) {
+        return usedBytes >= threshold * capacityBytes;
+    }
+
+    /**
+     * Admit an add to the write cache.
+     *
+     * @param size the size of the entry added
+     * @param usedBytes the bytes used in the write cache
+     * @param capacityBytes the capacity of the write cache
+     * @param nowNanos the current time
+     * @return the time, in nanoseconds, the add has to wait to be admitted
+     */
+    synchronized long admit(long size, long usedBytes, long capacityBytes, long nowNanos) {
+        if (!flushing || flushThroughput <= 0 || !isAboveThreshold(usedBytes, capacityBytes)) {
+            admissionRate = Double.MAX_VALUE;
+            return 0;
+        }
+
+        // the bytes the flush has left to write, at the throughput of the previous flushes
+        double remainingFlushBytes = flushSize - (nowNanos - flushStartNanos) * flushThroughput;
+        // the flush is late, expect it to write at least a tenth more
+        remainingFlushBytes = Math.max(remainingFlushBytes, flushSize / 10.0);
+        double remainingFlushNanos = Math.max(remainingFlushBytes / flushThroughput, 1);
+        long freeBytes = Math.max(capacityBytes - usedBytes, 1);
+        admissionRate = freeBytes / remainingFlushNanos;
+
+        long admissionNanos = Math.max(nextAdmissionNanos, nowNanos) + (long) (size / admissionRate);
+        long delayNanos = admissionNanos - nowNanos;
+        if (delayNanos > maxDelayNanos) {
+            delayNanos = maxDelayNanos;
+            admissionNanos = nowNanos + maxDelayNanos;
+        }
+        nextAdmissionNanos = admissionNanos;
+        return delayNanos;
+    }
+
+    /**
+     * Get the time, in nanoseconds, a new add would wait to be admitted, ignoring its own size.
+     */
+    long getDelayNanos(long nowNanos) {
+        long admissionNanos = nextAdmissionNanos;
+        return admissionNanos == Long.MIN_VALUE ? 0 : Math.max(0, admissionNanos - nowNanos);
+    }
+
+    /**
+     * Get the current admission rate, in bytes per second, or -1 if the adds aren't paced.
+     */
+    synchronized long getAdmissionRate() {
+        return admissionRate == Double.MAX_VALUE ? -1 : (long) (admissionRate * 1_000_000_000L);
+    }
+}
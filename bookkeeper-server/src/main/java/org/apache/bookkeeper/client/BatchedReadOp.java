@@ -199,6 +199,8 @@ public class BatchedReadOp extends ReadOpBase implements BatchedReadEntryCallbac
         int nextReplicaIndexToReadFrom = 0;
         final BitSet sentReplicas;
         final BitSet erroredReplicas;
+        BitSet speculativeReadBookies;
+        BookieId lastSentTo;
         SequenceReadRequest(List<BookieId> ensemble,
                             long lId,
                             long eId,
@@ -247,7 +249,15 @@ public class BatchedReadOp extends ReadOpBase implements BatchedReadEntryCallbac
             // request to
             if (sentTo.cardinality() == 0) {
                 clientCtx.getClientStats().getSpeculativeReadCounter().inc();
-                return sendNextRead();
+                int bookieIndex = writeSet.get(nextReplicaIndexToReadFrom);
+                BookieId to = sendNextRead();
+                if (to != null) {
+                    if (speculativeReadBookies == null) {
+                        speculativeReadBookies = new BitSet(ensemble.size());
+                    }
+                    speculativeReadBookies.set(bookieIndex);
+                }
+                return to;
             } else {
                 return null;
             }
@@ -272,6 +282,7 @@ public class BatchedReadOp extends ReadOpBase implements BatchedReadEntryCallbac
                 sendReadTo(bookieIndex, to, this);
                 sentToHosts.add(to);
                 sentReplicas.set(replica);
+                lastSentTo = to;
                 return to;
             } catch (InterruptedException ie) {
                 LOG.error("Interrupted reading entry " + this, ie);
@@ -314,8 +325,21 @@ public class BatchedReadOp extends ReadOpBase implements BatchedReadEntryCallbac
                     BookieId slowBookieSocketAddress = ensemble.get(slowBookieIndex);
                     clientCtx.getPlacementPolicy().registerSlowBookie(slowBookieSocketAddress, eId);
                 }
+                if (isSpeculativeReadTo(bookieIndex)) {
+                    clientCtx.getConf().readSpeculativeRequestPolicy
+                            .ifPresent(SpeculativeRequestExecutionPolicy::onSpeculativeRequestWon);
+                }
             }
             return completed;
         }
+
+        private synchronized boolean isSpeculativeReadTo(int bookieIndex) {
+            return speculativeReadBookies != null && speculativeReadBookies.get(bookieIndex);
+        }
+
+        @Override
+        public synchronized BookieId getLastRequestedBookie() {
+            return lastSentTo;
+        }
     }
 }
\ No newline at end of file
@@ -423,8 +423,6 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
             this.featureProvider = featureProvider;
         }
 
-        this.internalConf = ClientInternalConf.fromConfigAndFeatureProvider(conf, this.featureProvider);
-
         // initialize resources
         this.scheduler = OrderedScheduler.newSchedulerBuilder().numThreads(1).name("BookKeeperClientScheduler").build();
         this.highPriorityTaskExecutor =
@@ -442,6 +440,8 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
         // initialize stats logger
         this.statsLogger = rootStatsLogger.scope(BookKeeperClientStats.CLIENT_SCOPE);
         this.clientStats = BookKeeperClientStats.newInstance(this.statsLogger);
+        this.internalConf = ClientInternalConf.fromConfigAndFeatureProvider(conf, this.featureProvider,
+                this.statsLogger);
 
         // initialize metadata driver
         try {
@@ -514,8 +514,10 @@ public class BookKeeper implements org.apache.bookkeeper.client.api.BookKeeper {
                 this.statsLogger.scope(WATCHER_SCOPE));
 
         // initialize bookie client
-        this.bookieClient = new BookieClientImpl(conf, this.eventLoopGroup, this.allocator, this.mainWorkerPool,
-                scheduler, rootStatsLogger, this.bookieWatcher.getBookieAddressResolver());
+        BookieClientImpl bookieClientImpl = new BookieClientImpl(conf, this.eventLoopGroup, this.allocator,
+                this.mainWorkerPool, scheduler, rootStatsLogger, this.bookieWatcher.getBookieAddressResolver());
+        internalConf.readLatencyTracker.ifPresent(bookieClientImpl::setReadLatencyTracker);
+        this.bookieClient = bookieClientImpl;
 
         if (conf.getDiskWeightBasedPlacementEnabled()) {
             LOG.info("Weighted ledger placement enabled");
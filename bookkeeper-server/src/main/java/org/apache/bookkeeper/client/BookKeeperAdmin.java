@@ -92,6 +92,7 @@ import org.apache.bookkeeper.replication.ReplicationException.UnavailableExcepti
 import org.apache.bookkeeper.stats.NullStatsLogger;
 import org.apache.bookkeeper.stats.StatsLogger;
 import org.apache.bookkeeper.util.AvailabilityOfEntriesOfLedger;
+import org.apache.bookkeeper.util.EntriesOfLedgerSummary;
 import org.apache.bookkeeper.util.IOUtils;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.zookeeper.AsyncCallback;
@@ -1849,6 +1850,24 @@ public class BookKeeperAdmin implements AutoCloseable {
         return bkc.getBookieClient().getListOfEntriesOfLedger(address, ledgerId);
     }
 
+    /**
+     * Makes async request for getting the summaries of the entries of ledger
+     * from a bookie, for each of the given ranges, and returns Future for the
+     * result.
+     *
+     * @param address
+     *            BookieId of the bookie
+     * @param ledgerId
+     *            ledgerId
+     * @param ranges
+     *            ranges of entries to summarize
+     * @return returns Future
+     */
+    public CompletableFuture<List<EntriesOfLedgerSummary>> asyncGetEntriesOfLedgerSummaries(BookieId address,
+            long ledgerId, List<EntriesOfLedgerSummary> ranges) {
+        return bkc.getBookieClient().getEntriesOfLedgerSummaries(address, ledgerId, ranges);
+    }
+
     public BookieId getCurrentAuditor() throws IOException, InterruptedException {
         return getLedgerAuditorManager().getCurrentAuditor();
     }
@@ -63,6 +63,9 @@ public interface BookKeeperClientStats {
     String LAC_UPDATE_MISSES = "LAC_UPDATE_MISSES";
     String GET_BOOKIE_INFO_OP = "GET_BOOKIE_INFO";
     String SPECULATIVE_READ_COUNT = "SPECULATIVE_READ_COUNT";
+    String SPECULATIVE_READ_HEDGES_ISSUED = "SPECULATIVE_READ_HEDGES_ISSUED";
+    String SPECULATIVE_READ_HEDGES_WON = "SPECULATIVE_READ_HEDGES_WON";
+    String SPECULATIVE_READ_HEDGES_THROTTLED = "SPECULATIVE_READ_HEDGES_THROTTLED";
     String READ_REQUESTS_REORDERED = "READ_REQUESTS_REORDERED";
     String GET_LIST_OF_ENTRIES_OF_LEDGER_OP = "GET_LIST_OF_ENTRIES_OF_LEDGER";
 
@@ -0,0 +1,153 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.apache.bookkeeper.common.util.MathUtils;
+import org.apache.bookkeeper.net.BookieId;
+
+/**
+ * Tracks the latency distribution of the requests sent to each bookie over a sliding time window.
+ *
+ * <p>Latencies are recorded in a log-linear histogram with four sub-buckets per power of two
+ * microseconds, so a percentile is estimated with an error below 25%. Each bookie keeps two
+ * histograms: the current one and the previous one, which are rotated every window. A percentile
+ * is computed over both of them, so it reflects the latencies of the last one to two windows.
+ */
+public class BookieLatencyTracker {
+
+    /**
+     * The default minimum number of latencies recorded for a bookie before its percentiles are known.
+     */
+    public static final int DEFAULT_MIN_SAMPLES = 32;
+
+    static final int NUM_BUCKETS = 160;
+
+    private final long windowNanos;
+    private final int minSamples;
+    private final ConcurrentHashMap<BookieId, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * @param windowMs the time window of the latencies of a bookie to take into account
+     * @param minSamples the minimum number of latencies recorded for a bookie before its percentiles are known
+     */
+    public BookieLatencyTracker(long windowMs, int minSamples) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.minSamples = minSamples;
+    }
+
+    /**
+     * Record the latency of a successful request to a bookie.
+     *
+     * @param bookieId the bookie the request was sent to
+     * @param latencyNanos the request latency, in nanoseconds
+     */
+    public void recordLatency(BookieId bookieId, long latencyNanos) {
+        histograms.computeIfAbsent(bookieId, k -> new LatencyHistogram())
+                .record(TimeUnit.NANOSECONDS.toMicros(latencyNanos), MathUtils.nowInNano());
+    }
+
+    /**
+     * Get the estimated latency percentile of the requests to a bookie.
+     *
+     * @param bookieId the bookie
+     * @param percentile the percentile, between 0 and 100
+     * @return the latency in microseconds, or -1 if not enough latencies were recorded for the bookie
+     */
+    public long getLatencyPercentileMicros(BookieId bookieId, double percentile) {
+        LatencyHistogram histogram = histograms.get(bookieId);
+        if (histogram == null) {
+            return -1;
+        }
+        return histogram.percentile(percentile, MathUtils.nowInNano());
+    }
+
+    static int bucketIndex(long micros) {
+        if (micros < 4) {
+            return (int) Math.max(micros, 0);
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) ((micros >>> (msb - 2)) & 3);
+        return Math.min(4 * (msb - 1) + sub, NUM_BUCKETS - 1);
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < 4) {
+            return index;
+        }
+        int msb = index / 4 + 1;
+        int sub = index % 4;
+        return ((5L + sub) << (msb - 2)) - 1;
+    }
+
+    private class LatencyHistogram {
+        private volatile AtomicLongArray current = new AtomicLongArray(NUM_BUCKETS);
+        private volatile AtomicLongArray previous = new AtomicLongArray(NUM_BUCKETS);
+        private volatile long windowStartNanos = MathUtils.nowInNano();
+
+        void record(long micros, long nowNanos) {
+            maybeRotate(nowNanos);
+            current.incrementAndGet(bucketIndex(micros));
+        }
+
+        long percentile(double percentile, long nowNanos) {
+            maybeRotate(nowNanos);
+            AtomicLongArray cur = current;
+            AtomicLongArray prev = previous;
+            long[] counts = new long[NUM_BUCKETS];
+            long total = 0;
+            for (int i = 0; i < NUM_BUCKETS; i++) {
+                counts[i] = cur.get(i) + prev.get(i);
+                total += counts[i];
+            }
+            if (total < minSamples || total == 0) {
+                return -1;
+            }
+            long rank = (long) Math.ceil(total * Math.min(Math.max(percentile, 0.0), 100.0) / 100.0);
+            long seen = 0;
+            for (int i = 0; i < NUM_BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank && counts[i] > 0) {
+                    return bucketUpperBound(i);
+                }
+            }
+            return bucketUpperBound(NUM_BUCKETS - 1);
+        }
+
+        private void maybeRotate(long nowNanos) {
+            if (nowNanos - windowStartNanos < windowNanos) {
+                return;
+            }
+            synchronized (this) {
+                long elapsed = nowNanos - windowStartNanos;
+                if (elapsed < windowNanos) {
+                    return;
+                }
+                // if more than two windows elapsed, the latencies of the current window are stale too
+                previous = elapsed < 2 * windowNanos ? current : new AtomicLongArray(NUM_BUCKETS);
+                current = new AtomicLongArray(NUM_BUCKETS);
+                windowStartNanos = nowNanos;
+            }
+        }
+    }
+}
@@ -44,4 +44,14 @@ public interface BookiesHealthInfo {
      */
     long getBookiePendingRequests(BookieId bookieSocketAddress);
 
+    /**
+     * Returns the recent median read latency of a bookie.
+     *
+     * @param bookieSocketAddress
+     * @return read latency in microseconds, -1 if unknown
+     */
+    default long getBookieReadLatencyMicros(BookieId bookieSocketAddress) {
+        return -1L;
+    }
+
 }
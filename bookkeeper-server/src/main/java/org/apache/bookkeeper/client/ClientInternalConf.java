@@ -26,6 +26,8 @@ import org.apache.bookkeeper.conf.ClientConfiguration;
 import org.apache.bookkeeper.feature.Feature;
 import org.apache.bookkeeper.feature.FeatureProvider;
 import org.apache.bookkeeper.feature.SettableFeatureProvider;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.stats.StatsLogger;
 
 class ClientInternalConf {
     final Feature disableEnsembleChangeFeature;
@@ -33,6 +35,7 @@ class ClientInternalConf {
 
     final Optional<SpeculativeRequestExecutionPolicy> readSpeculativeRequestPolicy;
     final Optional<SpeculativeRequestExecutionPolicy> readLACSpeculativeRequestPolicy;
+    final Optional<BookieLatencyTracker> readLatencyTracker;
 
     final int explicitLacInterval;
     final long waitForWriteSetMs;
@@ -50,6 +53,7 @@ class ClientInternalConf {
     final boolean enforceMinNumFaultDomainsForWrite;
     final boolean batchReadEnabled;
     final int nettyMaxFrameSizeBytes;
+    final int streamReadCreditsPerBookie;
 
     static ClientInternalConf defaultValues() {
         return fromConfig(new ClientConfiguration());
@@ -61,11 +65,18 @@ class ClientInternalConf {
 
     static ClientInternalConf fromConfigAndFeatureProvider(ClientConfiguration conf,
                                                            FeatureProvider featureProvider) {
-        return new ClientInternalConf(conf, featureProvider);
+        return fromConfigAndFeatureProvider(conf, featureProvider, NullStatsLogger.INSTANCE);
+    }
+
+    static ClientInternalConf fromConfigAndFeatureProvider(ClientConfiguration conf,
+                                                           FeatureProvider featureProvider,
+                                                           StatsLogger statsLogger) {
+        return new ClientInternalConf(conf, featureProvider, statsLogger);
     }
 
     private ClientInternalConf(ClientConfiguration conf,
-                               FeatureProvider featureProvider) {
+                               FeatureProvider featureProvider,
+                               StatsLogger statsLogger) {
         this.explicitLacInterval = conf.getExplictLacInterval();
         this.enableReorderReadSequence = conf.isReorderReadSequenceEnabled();
         this.enableParallelRecoveryRead = conf.getEnableParallelRecoveryRead();
@@ -76,6 +87,7 @@ class ClientInternalConf {
         this.bookieFailureHistoryExpirationMSec = conf.getBookieFailureHistoryExpirationMSec();
         this.batchReadEnabled = conf.isBatchReadEnabled();
         this.nettyMaxFrameSizeBytes = conf.getNettyMaxFrameSizeBytes();
+        this.streamReadCreditsPerBookie = conf.getStreamReadCreditsPerBookie();
         this.disableEnsembleChangeFeature = featureProvider.getFeature(conf.getDisableEnsembleChangeFeatureName());
         this.delayEnsembleChange = conf.getDelayEnsembleChange();
         this.maxAllowedEnsembleChanges = conf.getMaxAllowedEnsembleChanges();
@@ -85,7 +97,24 @@ class ClientInternalConf {
         this.enableStickyReads = conf.isStickyReadsEnabled();
         this.enforceMinNumFaultDomainsForWrite = conf.getEnforceMinNumFaultDomainsForWrite();
 
-        if (conf.getFirstSpeculativeReadTimeout() > 0) {
+        boolean latencyAwareSpeculativeRead =
+                conf.getFirstSpeculativeReadTimeout() > 0 && conf.isLatencyAwareSpeculativeReadEnabled();
+        if (latencyAwareSpeculativeRead || conf.isReorderReadsLeastOutstandingRequestsEnabled()) {
+            this.readLatencyTracker = Optional.of(new BookieLatencyTracker(
+                    conf.getSpeculativeReadLatencyWindowMs(), BookieLatencyTracker.DEFAULT_MIN_SAMPLES));
+        } else {
+            this.readLatencyTracker = Optional.empty();
+        }
+        if (latencyAwareSpeculativeRead) {
+            this.readSpeculativeRequestPolicy =
+                    Optional.of(new LatencyAwareSpeculativeRequestExecutionPolicy(
+                                        readLatencyTracker.get(),
+                                        conf.getSpeculativeReadLatencyPercentile(),
+                                        conf.getFirstSpeculativeReadTimeout(),
+                                        conf.getMaxSpeculativeReadTimeout(),
+                                        conf.getSpeculativeReadMaxHedgeRatio(),
+                                        statsLogger));
+        } else if (conf.getFirstSpeculativeReadTimeout() > 0) {
             this.readSpeculativeRequestPolicy =
                     Optional.of(new DefaultSpeculativeRequestExecutionPolicy(
                                         conf.getFirstSpeculativeReadTimeout(),
@@ -0,0 +1,226 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static org.apache.bookkeeper.client.BookKeeperClientStats.SPECULATIVE_READ_HEDGES_ISSUED;
+import static org.apache.bookkeeper.client.BookKeeperClientStats.SPECULATIVE_READ_HEDGES_THROTTLED;
+import static org.apache.bookkeeper.client.BookKeeperClientStats.SPECULATIVE_READ_HEDGES_WON;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.StatsLogger;
+import org.apache.bookkeeper.stats.annotations.StatsDoc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link SpeculativeRequestExecutionPolicy} which issues a speculative request once the
+ * outstanding request has been pending for longer than a given latency percentile of the bookie
+ * it was sent to.
+ *
+ * <p>The latencies of the bookies are tracked by a {@link BookieLatencyTracker}. When not enough
+ * latencies are known for a bookie, {@code defaultSpeculativeRequestTimeout} is used instead.
+ *
+ * <p>The number of speculative requests is capped to {@code maxHedgeRatio} of the requests: each
+ * request earns {@code maxHedgeRatio} of a speculative request, and a speculative request is only
+ * issued if a whole one has been earned. At most {@link #MAX_HEDGE_BURST} speculative requests can
+ * be saved up for bursts.
+ */
+public class LatencyAwareSpeculativeRequestExecutionPolicy implements SpeculativeRequestExecutionPolicy {
+    private static final Logger LOG = LoggerFactory.getLogger(LatencyAwareSpeculativeRequestExecutionPolicy.class);
+
+    static final int MAX_HEDGE_BURST = 10;
+    private static final long HEDGE_BUDGET_UNIT = 1000;
+
+    final BookieLatencyTracker latencyTracker;
+    final double latencyPercentile;
+    final int defaultSpeculativeRequestTimeout;
+    final int maxSpeculativeRequestTimeout;
+    final double maxHedgeRatio;
+
+    private final long hedgeBudgetPerRequest;
+    private final long maxHedgeBudget;
+    private final AtomicLong hedgeBudget;
+
+    @StatsDoc(
+        name = SPECULATIVE_READ_HEDGES_ISSUED,
+        help = "The number of speculative requests issued by the latency aware speculative policy"
+    )
+    private final Counter hedgesIssued;
+    @StatsDoc(
+        name = SPECULATIVE_READ_HEDGES_WON,
+        help = "The number of requests completed by a speculative request before the request it hedged"
+    )
+    private final Counter hedgesWon;
+    @StatsDoc(
+        name = SPECULATIVE_READ_HEDGES_THROTTLED,
+        help = "The number of speculative requests not issued because of the cap on the hedge ratio"
+    )
+    private final Counter hedgesThrottled;
+
+    /**
+     * @param latencyTracker the latencies of the bookies
+     * @param latencyPercentile the latency percentile of a bookie after which to issue a speculative request
+     * @param defaultSpeculativeRequestTimeout the timeout, in milliseconds, for bookies of unknown latency
+     * @param maxSpeculativeRequestTimeout the max timeout, in milliseconds
+     * @param maxHedgeRatio the max ratio of speculative requests to requests
+     * @param statsLogger the stats logger
+     */
+    public LatencyAwareSpeculativeRequestExecutionPolicy(BookieLatencyTracker latencyTracker,
+            double latencyPercentile, int defaultSpeculativeRequestTimeout, int maxSpeculativeRequestTimeout,
+            double maxHedgeRatio, StatsLogger statsLogger) {
+        if (latencyPercentile <= 0 || latencyPercentile > 100) {
+            throw new IllegalArgumentException("Invalid value provided for latencyPercentile");
+        }
+        if (maxHedgeRatio < 0) {
+            throw new IllegalArgumentException("Invalid value provided for maxHedgeRatio");
+        }
+        this.latencyTracker = latencyTracker;
+        this.latencyPercentile = latencyPercentile;
+        this.defaultSpeculativeRequestTimeout = defaultSpeculativeRequestTimeout;
+        this.maxSpeculativeRequestTimeout = Math.max(maxSpeculativeRequestTimeout, defaultSpeculativeRequestTimeout);
+        this.maxHedgeRatio = maxHedgeRatio;
+        this.hedgeBudgetPerRequest = Math.round(maxHedgeRatio * HEDGE_BUDGET_UNIT);
+        this.maxHedgeBudget = MAX_HEDGE_BURST * HEDGE_BUDGET_UNIT;
+        this.hedgeBudget = new AtomicLong(maxHedgeBudget);
+
+        this.hedgesIssued = statsLogger.getCounter(SPECULATIVE_READ_HEDGES_ISSUED);
+        this.hedgesWon = statsLogger.getCounter(SPECULATIVE_READ_HEDGES_WON);
+        this.hedgesThrottled = statsLogger.getCounter(SPECULATIVE_READ_HEDGES_THROTTLED);
+    }
+
+    public BookieLatencyTracker getLatencyTracker() {
+        return latencyTracker;
+    }
+
+    @Override
+    public ScheduledFuture<?> initiateSpeculativeRequest(final ScheduledExecutorService scheduler,
+            final SpeculativeRequestExecutor requestExecutor) {
+        depositHedgeBudget();
+        return scheduleSpeculativeRequest(scheduler, requestExecutor);
+    }
+
+    @Override
+    public void onSpeculativeRequestWon() {
+        hedgesWon.inc();
+    }
+
+    /**
+     * Get the time after which to hedge a request sent to the given bookie.
+     *
+     * @param bookieId the bookie the request was sent to, or null if unknown
+     * @return the speculative request timeout in microseconds
+     */
+    long getSpeculativeRequestTimeoutMicros(BookieId bookieId) {
+        long latencyMicros = bookieId == null ? -1
+                : latencyTracker.getLatencyPercentileMicros(bookieId, latencyPercentile);
+        if (latencyMicros < 0) {
+            return TimeUnit.MILLISECONDS.toMicros(defaultSpeculativeRequestTimeout);
+        }
+        return Math.max(1, Math.min(latencyMicros, TimeUnit.MILLISECONDS.toMicros(maxSpeculativeRequestTimeout)));
+    }
+
+    private void depositHedgeBudget() {
+        long budget;
+        do {
+            budget = hedgeBudget.get();
+            if (budget >= maxHedgeBudget) {
+                return;
+            }
+        } while (!hedgeBudget.compareAndSet(budget, Math.min(maxHedgeBudget, budget + hedgeBudgetPerRequest)));
+    }
+
+    private boolean tryAcquireHedgeBudget() {
+        long budget;
+        do {
+            budget = hedgeBudget.get();
+            if (budget < HEDGE_BUDGET_UNIT) {
+                return false;
+            }
+        } while (!hedgeBudget.compareAndSet(budget, budget - HEDGE_BUDGET_UNIT));
+        return true;
+    }
+
+    private void refundHedgeBudget() {
+        hedgeBudget.accumulateAndGet(HEDGE_BUDGET_UNIT, (budget, unit) -> Math.min(maxHedgeBudget, budget + unit));
+    }
+
+    private ScheduledFuture<?> scheduleSpeculativeRequest(final ScheduledExecutorService scheduler,
+                                                          final SpeculativeRequestExecutor requestExecutor) {
+        final long speculativeRequestTimeoutMicros =
+                getSpeculativeRequestTimeoutMicros(requestExecutor.getLastRequestedBookie());
+        try {
+            return scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (!tryAcquireHedgeBudget()) {
+                        hedgesThrottled.inc();
+                        if (LOG.isTraceEnabled()) {
+                            LOG.trace("Throttled speculative request for {}, hedge ratio exceeds {}",
+                                    requestExecutor, maxHedgeRatio);
+                        }
+                        return;
+                    }
+                    ListenableFuture<Boolean> issueNextRequest = requestExecutor.issueSpeculativeRequest();
+                    Futures.addCallback(issueNextRequest, new FutureCallback<Boolean>() {
+                        @Override
+                        public void onSuccess(Boolean issueNextRequest) {
+                            if (issueNextRequest) {
+                                hedgesIssued.inc();
+                                scheduleSpeculativeRequest(scheduler, requestExecutor);
+                            } else {
+                                refundHedgeBudget();
+                                if (LOG.isTraceEnabled()) {
+                                    LOG.trace("Stopped issuing speculative requests for {}, "
+                                        + "speculativeRequestTimeoutMicros = {}", requestExecutor,
+                                        speculativeRequestTimeoutMicros);
+                                }
+                            }
+                        }
+
+                        @Override
+                        public void onFailure(Throwable thrown) {
+                            refundHedgeBudget();
+                            LOG.warn("Failed to issue speculative request for {}, "
+                                    + "speculativeRequestTimeoutMicros = {} : ",
+                                    requestExecutor, speculativeRequestTimeoutMicros, thrown);
+                        }
+                    }, directExecutor());
+                }
+            }, speculativeRequestTimeoutMicros, TimeUnit.MICROSECONDS);
+        } catch (RejectedExecutionException re) {
+            if (!scheduler.isShutdown()) {
+                LOG.warn("Failed to schedule speculative request for {}, speculativeRequestTimeoutMicros = {} : ",
+                        requestExecutor, speculativeRequestTimeoutMicros, re);
+            }
+        }
+        return null;
+    }
+}
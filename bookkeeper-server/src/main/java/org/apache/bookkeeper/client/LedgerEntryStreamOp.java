@@ -0,0 +1,430 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCountUtil;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.api.LedgerEntryStream;
+import org.apache.bookkeeper.client.api.LedgerEntryStreamListener;
+import org.apache.bookkeeper.client.api.LedgerMetadata;
+import org.apache.bookkeeper.client.impl.LedgerEntryImpl;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.proto.BookieProtocol;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.LedgerMetadataListener;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.StreamReadEntryCallback;
+import org.apache.bookkeeper.proto.StreamReadSubscription;
+import org.apache.bookkeeper.proto.checksum.DigestManager;
+import org.apache.bookkeeper.versioning.Version;
+import org.apache.bookkeeper.versioning.Versioned;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stream the entries of a ledger pushed by the bookies of its ensemble.
+ *
+ * <p>Each bookie of the ensemble of the next entry to deliver is subscribed from that entry, and
+ * pushes the entries it stores within the credits granted to it. The entries are buffered until
+ * they are confirmed by the last add confirmed pushed along with them, or by the last entry of the
+ * ledger once it is closed, and delivered in order; the copies pushed by the other bookies of the
+ * write quorum are dropped. A credit is granted back to a bookie for each of its entries delivered
+ * or dropped, so each bookie has at most its credits worth of entries buffered.
+ *
+ * <p>Once the ensemble of the next entry changes, the bookies of the new ensemble are subscribed
+ * from the next entry. The entries confirmed but not pushed while a bookie of their write set
+ * failed are read from the other bookies, and the stream fails once all its bookies failed.
+ */
+class LedgerEntryStreamOp implements LedgerEntryStream, StreamReadEntryCallback, LedgerMetadataListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LedgerEntryStreamOp.class);
+
+    private final LedgerHandle lh;
+    private final ClientContext clientCtx;
+    private final LedgerEntryStreamListener listener;
+    private final int creditsPerBookie;
+    private final CompletableFuture<LedgerEntryStream> future = new CompletableFuture<>();
+
+    // guarded by this
+    private final TreeMap<Long, PendingEntry> pendingEntries = new TreeMap<>();
+    private final List<BookieStream> streams = new ArrayList<>();
+    private Versioned<LedgerMetadata> metadata;
+    private List<BookieId> ensemble;
+    private long nextEntryId;
+    private long lastAddConfirmed;
+    private int numPendingSubscriptions;
+    private long readingEntryId = BookieProtocol.INVALID_ENTRY_ID;
+    private boolean closed = false;
+
+    LedgerEntryStreamOp(LedgerHandle lh, ClientContext clientCtx, long startEntryId,
+                        LedgerEntryStreamListener listener) {
+        this.lh = lh;
+        this.clientCtx = clientCtx;
+        this.listener = listener;
+        this.creditsPerBookie = Math.max(1, clientCtx.getConf().streamReadCreditsPerBookie);
+        this.nextEntryId = startEntryId;
+        this.lastAddConfirmed = lh.getLastAddConfirmed();
+        this.metadata = lh.getVersionedLedgerMetadata();
+    }
+
+    CompletableFuture<LedgerEntryStream> initiate() {
+        clientCtx.getLedgerManager().registerLedgerMetadataListener(lh.getId(), this);
+        synchronized (this) {
+            subscribe(metadata.getValue().getEnsembleAt(nextEntryId));
+        }
+        return future;
+    }
+
+    @Override
+    public synchronized long getNextEntryId() {
+        return nextEntryId;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            cancelSubscriptions();
+        }
+        clientCtx.getLedgerManager().unregisterLedgerMetadataListener(lh.getId(), this);
+        future.completeExceptionally(new BKException.BKInterruptedException());
+    }
+
+    // guarded by this
+    private void subscribe(List<BookieId> newEnsemble) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Streaming entries of ledger {} from entry {} from ensemble {}",
+                    lh.getId(), nextEntryId, newEnsemble);
+        }
+        ensemble = newEnsemble;
+        int writeQuorumSize = metadata.getValue().getWriteQuorumSize();
+        for (int i = 0; i < newEnsemble.size(); i++) {
+            BookieId bookie = newEnsemble.get(i);
+            BookieStream stream = new BookieStream(bookie);
+            streams.add(stream);
+            numPendingSubscriptions++;
+            clientCtx.getBookieClient()
+                    .streamReadEntries(bookie, lh.getId(), nextEntryId, creditsPerBookie,
+                            newEnsemble.size(), writeQuorumSize, i, this, stream)
+                    .whenComplete((subscription, cause) -> stream.subscribed(subscription, cause));
+        }
+    }
+
+    // guarded by this
+    private void cancelSubscriptions() {
+        for (BookieStream stream : streams) {
+            stream.cancel();
+        }
+        streams.clear();
+        for (PendingEntry pending : pendingEntries.values()) {
+            pending.entry.close();
+        }
+        pendingEntries.clear();
+    }
+
+    @Override
+    public void streamReadEntry(long ledgerId, long entryId, ByteBuf buffer, long lac, Object ctx) {
+        BookieStream stream = (BookieStream) ctx;
+        synchronized (this) {
+            if (closed || stream.cancelled) {
+                ReferenceCountUtil.release(buffer);
+                return;
+            }
+            lastAddConfirmed = Math.max(lastAddConfirmed, lac);
+            if (null != buffer) {
+                if (entryId < nextEntryId || pendingEntries.containsKey(entryId)) {
+                    // a copy pushed by another bookie of the write quorum
+                    ReferenceCountUtil.release(buffer);
+                    stream.returnCredit();
+                } else {
+                    addPendingEntry(stream, entryId, buffer);
+                }
+            }
+        }
+        deliver();
+    }
+
+    // guarded by this
+    private void addPendingEntry(BookieStream stream, long entryId, ByteBuf buffer) {
+        try {
+            ByteBuf content = lh.macManager.verifyDigestAndReturnData(entryId, buffer);
+            // the length is the last field of the metadata of an entry
+            long length = buffer.getLong(DigestManager.METADATA_LENGTH - 8);
+            pendingEntries.put(entryId,
+                    new PendingEntry(LedgerEntryImpl.create(lh.getId(), entryId, length, content), stream));
+        } catch (BKException.BKDigestMatchException e) {
+            clientCtx.getClientStats().getReadOpDmCounter().inc();
+            LOG.error("Mac mismatch for ledger {}, entry {} pushed by bookie {}", lh.getId(), entryId, stream.bookie);
+            ReferenceCountUtil.release(buffer);
+            stream.returnCredit();
+        }
+    }
+
+    @Override
+    public void streamReadComplete(int rc, long ledgerId, Object ctx) {
+        BookieStream stream = (BookieStream) ctx;
+        LOG.warn("Stream of the entries of ledger {} from bookie {} failed : {}",
+                lh.getId(), stream.bookie, BKException.getMessage(rc));
+        stream.failed(BKException.create(rc));
+    }
+
+    // guarded by this
+    private boolean allStreamsFailed() {
+        for (BookieStream stream : streams) {
+            if (!stream.failed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // guarded by this
+    private boolean isPushedByFailedStream(long entryId) {
+        DistributionSchedule.WriteSet writeSet = lh.getDistributionSchedule().getWriteSet(entryId);
+        try {
+            for (int i = 0; i < writeSet.size(); i++) {
+                if (streams.get(writeSet.get(i)).failed) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            writeSet.recycle();
+        }
+    }
+
+    // guarded by this
+    private void readEntry(long entryId) {
+        readingEntryId = entryId;
+        lh.readUnconfirmedAsync(entryId, entryId).whenComplete((entries, cause) -> {
+            if (null != cause) {
+                fail(cause);
+                return;
+            }
+            synchronized (this) {
+                readingEntryId = BookieProtocol.INVALID_ENTRY_ID;
+                LedgerEntry entry = entries.getEntry(entryId);
+                if (!closed && entryId >= nextEntryId && !pendingEntries.containsKey(entryId)) {
+                    pendingEntries.put(entryId, new PendingEntry(entry.duplicate(), null));
+                }
+            }
+            entries.close();
+            deliver();
+        });
+    }
+
+    @Override
+    public void onChanged(long ledgerId, Versioned<LedgerMetadata> newMetadata) {
+        if (lh.getId() != ledgerId || null == newMetadata) {
+            return;
+        }
+        synchronized (this) {
+            updateMetadata(newMetadata);
+        }
+        scheduleDelivery();
+    }
+
+    // guarded by this
+    private void updateMetadata(Versioned<LedgerMetadata> newMetadata) {
+        if (Version.Occurred.BEFORE == metadata.getVersion().compare(newMetadata.getVersion())) {
+            metadata = newMetadata;
+        }
+    }
+
+    private void scheduleDelivery() {
+        try {
+            clientCtx.getMainWorkerPool().executeOrdered(lh.getId(), this::deliver);
+        } catch (RejectedExecutionException ree) {
+            fail(new BKException.BKInterruptedException());
+        }
+    }
+
+    /**
+     * Deliver the confirmed entries buffered in order. It is run by the thread ordered by the
+     * ledger, so the listener is called by a single thread at a time.
+     */
+    private void deliver() {
+        while (true) {
+            PendingEntry pending;
+            synchronized (this) {
+                if (closed || !future.isDone()) {
+                    return;
+                }
+                updateMetadata(lh.getVersionedLedgerMetadata());
+                LedgerMetadata ledgerMetadata = metadata.getValue();
+                long confirmedEntryId = ledgerMetadata.isClosed() ? ledgerMetadata.getLastEntryId() : lastAddConfirmed;
+                if (nextEntryId > confirmedEntryId) {
+                    if (ledgerMetadata.isClosed()) {
+                        closed = true;
+                        cancelSubscriptions();
+                        break;
+                    }
+                    return;
+                }
+                pending = pendingEntries.remove(nextEntryId);
+                if (null == pending) {
+                    List<BookieId> nextEnsemble = ledgerMetadata.getEnsembleAt(nextEntryId);
+                    if (!nextEnsemble.equals(ensemble)) {
+                        // the entry is stored by the bookies of another ensemble
+                        for (BookieStream stream : streams) {
+                            stream.cancel();
+                        }
+                        streams.clear();
+                        subscribe(nextEnsemble);
+                    } else if (readingEntryId != nextEntryId && isPushedByFailedStream(nextEntryId)) {
+                        // the entry may never be pushed
+                        readEntry(nextEntryId);
+                    }
+                    return;
+                }
+                nextEntryId++;
+                if (null != pending.source) {
+                    pending.source.returnCredit();
+                }
+            }
+            listener.onEntry(pending.entry);
+        }
+        // all the entries of the closed ledger were delivered
+        clientCtx.getLedgerManager().unregisterLedgerMetadataListener(lh.getId(), this);
+        listener.onComplete();
+    }
+
+    private void fail(Throwable cause) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            cancelSubscriptions();
+        }
+        clientCtx.getLedgerManager().unregisterLedgerMetadataListener(lh.getId(), this);
+        if (!future.completeExceptionally(cause)) {
+            listener.onError(cause);
+        }
+    }
+
+    private static class PendingEntry {
+        final LedgerEntry entry;
+        // the stream the entry was pushed by, or null if it was read
+        final BookieStream source;
+
+        PendingEntry(LedgerEntry entry, BookieStream source) {
+            this.entry = entry;
+            this.source = source;
+        }
+    }
+
+    /**
+     * The subscription to a bookie of the ensemble.
+     */
+    private class BookieStream {
+        final BookieId bookie;
+
+        // guarded by LedgerEntryStreamOp.this
+        StreamReadSubscription subscription = null;
+        int numCreditsToGrant = 0;
+        boolean cancelled = false;
+        boolean failed = false;
+
+        BookieStream(BookieId bookie) {
+            this.bookie = bookie;
+        }
+
+        void subscribed(StreamReadSubscription newSubscription, Throwable cause) {
+            boolean subscribed;
+            synchronized (LedgerEntryStreamOp.this) {
+                if (cancelled) {
+                    if (null != newSubscription) {
+                        newSubscription.cancel();
+                    }
+                    return;
+                }
+                subscribed = --numPendingSubscriptions == 0;
+                if (null == cause) {
+                    subscription = newSubscription;
+                    grantCredits();
+                }
+            }
+            if (null != cause) {
+                LOG.warn("Failed to stream the entries of ledger {} from bookie {}", lh.getId(), bookie, cause);
+                failed(cause);
+            } else if (subscribed && future.complete(LedgerEntryStreamOp.this)) {
+                // deliver the entries pushed while subscribing
+                scheduleDelivery();
+            }
+        }
+
+        void failed(Throwable cause) {
+            boolean allFailed;
+            boolean subscribed;
+            synchronized (LedgerEntryStreamOp.this) {
+                if (closed || cancelled || failed) {
+                    return;
+                }
+                failed = true;
+                allFailed = allStreamsFailed();
+                subscribed = 0 == numPendingSubscriptions;
+            }
+            if (allFailed) {
+                fail(cause);
+            } else if (subscribed) {
+                // the entries of the failed bookie are read from the other bookies
+                future.complete(LedgerEntryStreamOp.this);
+                scheduleDelivery();
+            }
+        }
+
+        // guarded by LedgerEntryStreamOp.this
+        void returnCredit() {
+            numCreditsToGrant++;
+            if (numCreditsToGrant >= Math.max(1, creditsPerBookie / 2)) {
+                grantCredits();
+            }
+        }
+
+        // guarded by LedgerEntryStreamOp.this
+        private void grantCredits() {
+            if (null != subscription && !cancelled && !failed && numCreditsToGrant > 0) {
+                subscription.grantCredits(numCreditsToGrant);
+                numCreditsToGrant = 0;
+            }
+        }
+
+        // guarded by LedgerEntryStreamOp.this
+        void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                if (null != subscription) {
+                    subscription.cancel();
+                } else if (!failed) {
+                    numPendingSubscriptions--;
+                }
+            }
+        }
+    }
+}
@@ -22,6 +22,7 @@ package org.apache.bookkeeper.client;
 import static org.apache.bookkeeper.client.LedgerHandle.INVALID_ENTRY_ID;
 import static org.apache.bookkeeper.replication.ReplicationStats.NUM_BYTES_READ;
 import static org.apache.bookkeeper.replication.ReplicationStats.NUM_BYTES_WRITTEN;
+import static org.apache.bookkeeper.replication.ReplicationStats.NUM_ENTRIES_COPIED;
 import static org.apache.bookkeeper.replication.ReplicationStats.NUM_ENTRIES_READ;
 import static org.apache.bookkeeper.replication.ReplicationStats.NUM_ENTRIES_WRITTEN;
 import static org.apache.bookkeeper.replication.ReplicationStats.READ_DATA_LATENCY;
@@ -32,6 +33,7 @@ import com.google.common.util.concurrent.RateLimiter;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.util.ReferenceCounted;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -96,6 +98,11 @@ public class LedgerFragmentReplicator {
         help = "The distribution of size of entries written by the replicator"
     )
     private final OpStatsLogger numBytesWritten;
+    @StatsDoc(
+        name = NUM_ENTRIES_COPIED,
+        help = "Number of entries copied directly from a surviving bookie by the replicator"
+    )
+    private final Counter numEntriesCopied;
     @StatsDoc(
             name = READ_DATA_LATENCY,
             help = "The distribution of latency of read entries by the replicator"
@@ -122,6 +129,7 @@ public class LedgerFragmentReplicator {
         numBytesRead = this.statsLogger.getOpStatsLogger(NUM_BYTES_READ);
         numEntriesWritten = this.statsLogger.getCounter(NUM_ENTRIES_WRITTEN);
         numBytesWritten = this.statsLogger.getOpStatsLogger(NUM_BYTES_WRITTEN);
+        numEntriesCopied = this.statsLogger.getCounter(NUM_ENTRIES_COPIED);
         readDataLatency = this.statsLogger.getOpStatsLogger(READ_DATA_LATENCY);
         writeDataLatency = this.statsLogger.getOpStatsLogger(WRITE_DATA_LATENCY);
         if (conf.getReplicationRateByBytes() > 0) {
@@ -183,7 +191,11 @@ public class LedgerFragmentReplicator {
             this.replicationThrottle.resetRate(this.conf.getReplicationRateByBytes());
         }
 
-        if (conf.isRecoveryBatchReadEnabled()
+        List<BookieId> sourceBookies = getDirectCopySourceBookies(lh, lf, newBookies);
+        if (!sourceBookies.isEmpty()) {
+            copyLedgerFragmentEntriesFromBookie(startEntryId, endEntryId, lh, sourceBookies, 0,
+                    ledgerFragmentEntryMcb, newBookies, onReadEntryFailureCallback);
+        } else if (conf.isRecoveryBatchReadEnabled()
                 && conf.getUseV2WireProtocol()
                 && conf.isBatchReadEnabled()
                 && lh.getLedgerMetadata().getEnsembleSize() == lh.getLedgerMetadata().getWriteQuorumSize()) {
@@ -354,38 +366,11 @@ public class LedgerFragmentReplicator {
             final Set<BookieId> newBookies,
             final BiConsumer<Long, Long> onReadEntryFailureCallback) throws InterruptedException {
         final long ledgerId = lh.getId();
-        final AtomicInteger numCompleted = new AtomicInteger(0);
-        final AtomicBoolean completed = new AtomicBoolean(false);
 
         if (replicationThrottle != null) {
             replicationThrottle.acquire(averageEntrySize.get());
         }
 
-        final WriteCallback multiWriteCallback = new WriteCallback() {
-            @Override
-            public void writeComplete(int rc, long ledgerId, long entryId, BookieId addr, Object ctx) {
-                if (rc != BKException.Code.OK) {
-                    LOG.error("BK error writing entry for ledgerId: {}, entryId: {}, bookie: {}",
-                            ledgerId, entryId, addr, BKException.create(rc));
-                    if (completed.compareAndSet(false, true)) {
-                        ledgerFragmentEntryMcb.processResult(rc, null, null);
-                    }
-                } else {
-                    numEntriesWritten.inc();
-                    if (ctx instanceof Long) {
-                        numBytesWritten.registerSuccessfulValue((Long) ctx);
-                    }
-                    if (LOG.isDebugEnabled()) {
-                        LOG.debug("Success writing ledger id {}, entry id {} to a new bookie {}!",
-                                ledgerId, entryId, addr);
-                    }
-                    if (numCompleted.incrementAndGet() == newBookies.size() && completed.compareAndSet(false, true)) {
-                        ledgerFragmentEntryMcb.processResult(rc, null, null);
-                    }
-                }
-            }
-        };
-
         long startReadEntryTime = MathUtils.nowInNano();
         /*
          * Read the ledger entry using the LedgerHandle. This will allow us to
@@ -431,16 +416,7 @@ public class LedgerFragmentReplicator {
                         updateAverageEntrySize(((ByteBufList) toSend).readableBytes());
                     }
                 }
-                for (BookieId newBookie : newBookies) {
-                    long startWriteEntryTime = MathUtils.nowInNano();
-                    bkc.getBookieClient().addEntry(newBookie, lh.getId(),
-                            lh.getLedgerKey(), entryId, toSend,
-                            multiWriteCallback, dataLength, BookieProtocol.FLAG_RECOVERY_ADD,
-                            false, WriteFlag.NONE);
-                    writeDataLatency.registerSuccessfulEvent(
-                           MathUtils.elapsedNanos(startWriteEntryTime), TimeUnit.NANOSECONDS);
-                }
-                toSend.release();
+                addEntryToNewBookies(lh, entryId, toSend, dataLength, ledgerFragmentEntryMcb, newBookies);
             }
         }, null);
     }
@@ -496,45 +472,8 @@ public class LedgerFragmentReplicator {
                                 updateAverageEntrySize(((ByteBufList) toSend).readableBytes());
                             }
                         }
-                        AtomicInteger numCompleted = new AtomicInteger(0);
-                        AtomicBoolean completed = new AtomicBoolean(false);
-
-                        WriteCallback multiWriteCallback = new WriteCallback() {
-                            @Override
-                            public void writeComplete(int rc, long ledgerId, long entryId, BookieId addr, Object ctx) {
-                                if (rc != BKException.Code.OK) {
-                                    LOG.error("BK error writing entry for ledgerId: {}, entryId: {}, bookie: {}",
-                                            ledgerId, entryId, addr, BKException.create(rc));
-                                    if (completed.compareAndSet(false, true)) {
-                                        ledgerFragmentMcb.processResult(rc, null, null);
-                                    }
-                                } else {
-                                    numEntriesWritten.inc();
-                                    if (ctx instanceof Long) {
-                                        numBytesWritten.registerSuccessfulValue((Long) ctx);
-                                    }
-                                    if (LOG.isDebugEnabled()) {
-                                        LOG.debug("Success writing ledger id {}, entry id {} to a new bookie {}!",
-                                                ledgerId, entryId, addr);
-                                    }
-                                    if (numCompleted.incrementAndGet() == newBookies.size()
-                                            && completed.compareAndSet(false, true)) {
-                                        ledgerFragmentMcb.processResult(rc, null, null);
-                                    }
-                                }
-                            }
-                        };
-
-                        for (BookieId newBookie : newBookies) {
-                            long startWriteEntryTime = MathUtils.nowInNano();
-                            bkc.getBookieClient().addEntry(newBookie, lh.getId(),
-                                    lh.getLedgerKey(), entry.getEntryId(), toSend,
-                                    multiWriteCallback, dataLength, BookieProtocol.FLAG_RECOVERY_ADD,
-                                    false, WriteFlag.NONE);
-                            writeDataLatency.registerSuccessfulEvent(
-                                    MathUtils.elapsedNanos(startWriteEntryTime), TimeUnit.NANOSECONDS);
-                        }
-                        toSend.release();
+                        addEntryToNewBookies(lh, entry.getEntryId(), toSend, dataLength, ledgerFragmentMcb,
+                                newBookies);
                     }
                     if (lastEntryId != endEntryId) {
                         try {
@@ -551,6 +490,189 @@ public class LedgerFragmentReplicator {
             }, null);
     }
 
+    /**
+     * Gets the surviving bookies of the fragment that its entries can be copied from directly,
+     * or an empty list if direct copy is not applicable to this fragment.
+     */
+    private List<BookieId> getDirectCopySourceBookies(LedgerHandle lh, LedgerFragment lf,
+                                                      Set<BookieId> newBookies) {
+        List<BookieId> sourceBookies = new ArrayList<>();
+        if (!conf.isRereplicationDirectCopyEnabled()
+                || !conf.getUseV2WireProtocol()
+                || !conf.isBatchReadEnabled()
+                || lh.getLedgerMetadata().getEnsembleSize() != lh.getLedgerMetadata().getWriteQuorumSize()) {
+            return sourceBookies;
+        }
+        Set<BookieId> bookiesToReplace = lf.getAddresses();
+        for (BookieId bookie : lf.getEnsemble()) {
+            if (!bookiesToReplace.contains(bookie) && !newBookies.contains(bookie)) {
+                sourceBookies.add(bookie);
+            }
+        }
+        return sourceBookies;
+    }
+
+    /**
+     * This method copies the entries of a fragment from one of its surviving
+     * bookies to the new bookies. The entries are read in large chunks with a
+     * single batched read per chunk, their digests are verified and the stored
+     * bytes, including the digest computed by the original writer, are
+     * forwarded to the new bookies as recovery adds, so entries are neither
+     * decoded nor re-packaged on the way. The next chunk is requested as soon
+     * as the writes of the current one are issued.
+     *
+     * <p>If a source bookie fails to serve a chunk, returns no entries or returns
+     * an entry with a mismatching digest, copying continues from the next source
+     * bookie. Once
+     * all source bookies are exhausted, the remaining entries are recovered
+     * through the client read path.
+     */
+    void copyLedgerFragmentEntriesFromBookie(final long startEntryId,
+                                             final long endEntryId,
+                                             final LedgerHandle lh,
+                                             final List<BookieId> sourceBookies,
+                                             final int sourceBookieIndex,
+                                             final AsyncCallback.VoidCallback ledgerFragmentEntryMcb,
+                                             final Set<BookieId> newBookies,
+                                             final BiConsumer<Long, Long> onReadEntryFailureCallback)
+            throws InterruptedException {
+        if (sourceBookieIndex >= sourceBookies.size()) {
+            LOG.warn("Unable to copy entries {} - {} of ledger {} from any of bookies {},"
+                    + " recovering them through the client read path",
+                    startEntryId, endEntryId, lh.getId(), sourceBookies);
+            batchRecoverLedgerFragmentEntry(startEntryId, endEntryId, lh, ledgerFragmentEntryMcb,
+                    newBookies, onReadEntryFailureCallback);
+            return;
+        }
+        final BookieId sourceBookie = sourceBookies.get(sourceBookieIndex);
+        final int entriesToCopyCnt = (int) (endEntryId - startEntryId + 1);
+        long maxBytesToCopy = conf.getNettyMaxFrameSizeBytes();
+        if (replicationThrottle != null) {
+            maxBytesToCopy = Math.min(maxBytesToCopy, conf.getReplicationRateByBytes());
+            replicationThrottle.acquire((int) Math.min(maxBytesToCopy,
+                    (long) averageEntrySize.get() * entriesToCopyCnt));
+        }
+
+        final long startReadEntryTime = MathUtils.nowInNano();
+        bkc.getBookieClient().batchReadEntries(sourceBookie, lh.getId(), startEntryId, entriesToCopyCnt,
+                maxBytesToCopy, (rc, ledgerId, startEntry, bufList, ctx) -> {
+                    long nextEntryId = startEntryId;
+                    int nextSourceBookieIndex = sourceBookieIndex;
+                    if (rc != BKException.Code.OK) {
+                        LOG.warn("Error reading entries {} - {} of ledger {} from bookie {} for direct copy",
+                                startEntryId, endEntryId, ledgerId, sourceBookie, BKException.create(rc));
+                        readDataLatency.registerFailedEvent(MathUtils.elapsedNanos(startReadEntryTime),
+                                TimeUnit.NANOSECONDS);
+                        nextSourceBookieIndex++;
+                    } else if (bufList == null || bufList.size() == 0) {
+                        // no progress can be made with this bookie, asking it again would loop forever
+                        LOG.warn("Bookie {} returned no entries {} - {} of ledger {} for direct copy",
+                                sourceBookie, startEntryId, endEntryId, ledgerId);
+                        readDataLatency.registerFailedEvent(MathUtils.elapsedNanos(startReadEntryTime),
+                                TimeUnit.NANOSECONDS);
+                        nextSourceBookieIndex++;
+                    } else {
+                        readDataLatency.registerSuccessfulEvent(MathUtils.elapsedNanos(startReadEntryTime),
+                                TimeUnit.NANOSECONDS);
+                        for (int i = 0; i < bufList.size() && nextEntryId <= endEntryId; i++) {
+                            ByteBuf entry = bufList.getBuffer(i);
+                            try {
+                                lh.getDigestManager().verifyDigestAndReturnData(nextEntryId, entry.duplicate());
+                            } catch (BKException.BKDigestMatchException e) {
+                                LOG.error("Digest mismatch on entry {} of ledger {} read from bookie {}",
+                                        nextEntryId, ledgerId, sourceBookie, e);
+                                nextSourceBookieIndex++;
+                                break;
+                            }
+                            writeEntryToNewBookies(lh, nextEntryId, entry, ledgerFragmentEntryMcb, newBookies);
+                            numEntriesCopied.inc();
+                            nextEntryId++;
+                        }
+                    }
+                    if (nextEntryId <= endEntryId) {
+                        try {
+                            copyLedgerFragmentEntriesFromBookie(nextEntryId, endEntryId, lh, sourceBookies,
+                                    nextSourceBookieIndex, ledgerFragmentEntryMcb, newBookies,
+                                    onReadEntryFailureCallback);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            for (long i = nextEntryId; i <= endEntryId; i++) {
+                                ledgerFragmentEntryMcb.processResult(BKException.Code.InterruptedException,
+                                        null, null);
+                            }
+                        }
+                    }
+                }, null, BookieProtocol.FLAG_NONE);
+    }
+
+    /**
+     * Writes an entry, as stored on a bookie, to all the new bookies.
+     */
+    private void writeEntryToNewBookies(final LedgerHandle lh, final long entryId, final ByteBuf entry,
+                                        final AsyncCallback.VoidCallback ledgerFragmentEntryMcb,
+                                        final Set<BookieId> newBookies) {
+        final long dataLength = entry.readableBytes();
+        // v2 add requests are sent pre-framed, see DigestManager#computeDigestAndPackageForSending
+        int headersSize = 4 + BookieProtocol.MASTER_KEY_LENGTH;
+        ByteBuf requestHeader = Unpooled.buffer(4 + headersSize, 4 + headersSize);
+        requestHeader.writeInt(headersSize + entry.readableBytes());
+        requestHeader.writeInt(BookieProtocol.PacketHeader.toInt(BookieProtocol.CURRENT_PROTOCOL_VERSION,
+                BookieProtocol.ADDENTRY, (short) BookieProtocol.FLAG_RECOVERY_ADD));
+        requestHeader.writeBytes(lh.getLedgerKey(), 0, BookieProtocol.MASTER_KEY_LENGTH);
+        ByteBufList toSend = ByteBufList.get(requestHeader, entry.retainedDuplicate());
+
+        numEntriesRead.inc();
+        numBytesRead.registerSuccessfulValue(dataLength);
+        if (replicationThrottle != null) {
+            updateAverageEntrySize(entry.readableBytes());
+        }
+        addEntryToNewBookies(lh, entryId, toSend, dataLength, ledgerFragmentEntryMcb, newBookies);
+    }
+
+    /**
+     * Writes an entry, packaged for sending, to all the new bookies and releases it. The callback is
+     * completed once the entry is written to all the new bookies, or as soon as a write fails.
+     */
+    private void addEntryToNewBookies(final LedgerHandle lh, final long entryId, final ReferenceCounted toSend,
+                                      final long dataLength,
+                                      final AsyncCallback.VoidCallback ledgerFragmentEntryMcb,
+                                      final Set<BookieId> newBookies) {
+        final AtomicInteger numCompleted = new AtomicInteger(0);
+        final AtomicBoolean completed = new AtomicBoolean(false);
+        final WriteCallback multiWriteCallback = new WriteCallback() {
+            @Override
+            public void writeComplete(int rc, long ledgerId, long entryId, BookieId addr, Object ctx) {
+                if (rc != BKException.Code.OK) {
+                    LOG.error("BK error writing entry for ledgerId: {}, entryId: {}, bookie: {}",
+                            ledgerId, entryId, addr, BKException.create(rc));
+                    if (completed.compareAndSet(false, true)) {
+                        ledgerFragmentEntryMcb.processResult(rc, null, null);
+                    }
+                } else {
+                    numEntriesWritten.inc();
+                    if (ctx instanceof Long) {
+                        numBytesWritten.registerSuccessfulValue((Long) ctx);
+                    }
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Success writing ledger id {}, entry id {} to a new bookie {}!",
+                                ledgerId, entryId, addr);
+                    }
+                    if (numCompleted.incrementAndGet() == newBookies.size() && completed.compareAndSet(false, true)) {
+                        ledgerFragmentEntryMcb.processResult(rc, null, null);
+                    }
+                }
+            }
+        };
+        for (BookieId newBookie : newBookies) {
+            long startWriteEntryTime = MathUtils.nowInNano();
+            bkc.getBookieClient().addEntry(newBookie, lh.getId(), lh.getLedgerKey(), entryId, toSend,
+                    multiWriteCallback, dataLength, BookieProtocol.FLAG_RECOVERY_ADD, false, WriteFlag.NONE);
+            writeDataLatency.registerSuccessfulEvent(
+                    MathUtils.elapsedNanos(startWriteEntryTime), TimeUnit.NANOSECONDS);
+        }
+        toSend.release();
+    }
+
     private void updateAverageEntrySize(int toSendSize) {
         averageEntrySize.updateAndGet(value -> (int) (value * AVERAGE_ENTRY_SIZE_RATIO
                 + (1 - AVERAGE_ENTRY_SIZE_RATIO) * toSendSize));
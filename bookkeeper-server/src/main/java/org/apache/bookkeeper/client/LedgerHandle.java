@@ -70,6 +70,8 @@ import org.apache.bookkeeper.client.SyncCallbackUtils.SyncReadLastConfirmedCallb
 import org.apache.bookkeeper.client.api.BKException.Code;
 import org.apache.bookkeeper.client.api.LastConfirmedAndEntry;
 import org.apache.bookkeeper.client.api.LedgerEntries;
+import org.apache.bookkeeper.client.api.LedgerEntryStream;
+import org.apache.bookkeeper.client.api.LedgerEntryStreamListener;
 import org.apache.bookkeeper.client.api.LedgerMetadata;
 import org.apache.bookkeeper.client.api.WriteFlag;
 import org.apache.bookkeeper.client.api.WriteHandle;
@@ -144,6 +146,7 @@ public class LedgerHandle implements WriteHandle {
     final RateLimiter throttler;
     final LoadingCache<BookieId, Long> bookieFailureHistory;
     final BookiesHealthInfo bookiesHealthInfo;
+    private final BookieLatencyTracker readLatencyTracker;
     final EnumSet<WriteFlag> writeFlags;
 
     ScheduledFuture<?> timeoutFuture = null;
@@ -231,6 +234,7 @@ public class LedgerHandle implements WriteHandle {
                 return -1L;
             }
         });
+        this.readLatencyTracker = clientCtx.getConf().readLatencyTracker.orElse(null);
         this.bookiesHealthInfo = new BookiesHealthInfo() {
             @Override
             public long getBookieFailureHistory(BookieId bookieSocketAddress) {
@@ -242,6 +246,12 @@ public class LedgerHandle implements WriteHandle {
             public long getBookiePendingRequests(BookieId bookieSocketAddress) {
                 return clientCtx.getBookieClient().getNumPendingRequests(bookieSocketAddress, ledgerId);
             }
+
+            @Override
+            public long getBookieReadLatencyMicros(BookieId bookieSocketAddress) {
+                return readLatencyTracker == null ? -1L
+                        : readLatencyTracker.getLatencyPercentileMicros(bookieSocketAddress, 50);
+            }
         };
 
         ensembleChangeCounter = clientCtx.getClientStats().getEnsembleChangeCounter();
@@ -1793,6 +1803,23 @@ public class LedgerHandle implements WriteHandle {
         return result;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<LedgerEntryStream> streamEntriesAsync(long startEntryId,
+                                                                   LedgerEntryStreamListener listener) {
+        if (startEntryId < 0) {
+            LOG.error("IncorrectParameterException on ledgerId:{} startEntryId:{}", ledgerId, startEntryId);
+            return FutureUtils.exception(new BKIncorrectParameterException());
+        }
+        if (clientCtx.getConf().useV2WireProtocol) {
+            // the stream reads are only supported by the v3 protocol
+            return FutureUtils.exception(new BKException.BKIllegalOpException());
+        }
+        return new LedgerEntryStreamOp(this, clientCtx, startEntryId, listener).initiate();
+    }
+
     /**
      * Asynchronous read next entry and the latest last add confirmed.
      * If the next entryId is less than known last add confirmed, the call will read next entry directly.
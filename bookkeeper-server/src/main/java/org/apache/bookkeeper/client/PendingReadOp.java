@@ -285,6 +285,8 @@ class PendingReadOp extends ReadOpBase implements ReadEntryCallback  {
 
         final BitSet sentReplicas;
         final BitSet erroredReplicas;
+        BitSet speculativeReadBookies;
+        BookieId lastSentTo;
 
         SequenceReadRequest(List<BookieId> ensemble, long lId, long eId) {
             super(ensemble, lId, eId);
@@ -331,7 +333,15 @@ class PendingReadOp extends ReadOpBase implements ReadEntryCallback  {
             // request to
             if (sentTo.cardinality() == 0) {
                 clientCtx.getClientStats().getSpeculativeReadCounter().inc();
-                return sendNextRead();
+                int bookieIndex = writeSet.get(nextReplicaIndexToReadFrom);
+                BookieId to = sendNextRead();
+                if (to != null) {
+                    if (speculativeReadBookies == null) {
+                        speculativeReadBookies = new BitSet(ensemble.size());
+                    }
+                    speculativeReadBookies.set(bookieIndex);
+                }
+                return to;
             } else {
                 return null;
             }
@@ -361,6 +371,7 @@ class PendingReadOp extends ReadOpBase implements ReadEntryCallback  {
                 sendReadTo(bookieIndex, to, this);
                 sentToHosts.add(to);
                 sentReplicas.set(replica);
+                lastSentTo = to;
                 return to;
             } catch (InterruptedException ie) {
                 LOG.error("Interrupted reading entry " + this, ie);
@@ -405,8 +416,21 @@ class PendingReadOp extends ReadOpBase implements ReadEntryCallback  {
                     BookieId slowBookieSocketAddress = ensemble.get(slowBookieIndex);
                     clientCtx.getPlacementPolicy().registerSlowBookie(slowBookieSocketAddress, eId);
                 }
+                if (isSpeculativeReadTo(bookieIndex)) {
+                    clientCtx.getConf().readSpeculativeRequestPolicy
+                            .ifPresent(SpeculativeRequestExecutionPolicy::onSpeculativeRequestWon);
+                }
             }
             return completed;
         }
+
+        private synchronized boolean isSpeculativeReadTo(int bookieIndex) {
+            return speculativeReadBookies != null && speculativeReadBookies.get(bookieIndex);
+        }
+
+        @Override
+        public synchronized BookieId getLastRequestedBookie() {
+            return lastSentTo;
+        }
     }
 }
@@ -42,6 +42,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
@@ -62,6 +63,7 @@ import org.apache.bookkeeper.net.Node;
 import org.apache.bookkeeper.net.NodeBase;
 import org.apache.bookkeeper.net.ScriptBasedMapping;
 import org.apache.bookkeeper.net.StabilizeNetworkTopology;
+import org.apache.bookkeeper.net.TopologySnapshot;
 import org.apache.bookkeeper.proto.BookieAddressResolver;
 import org.apache.bookkeeper.stats.Counter;
 import org.apache.bookkeeper.stats.Gauge;
@@ -95,6 +97,7 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
     public static final String REPP_RANDOM_READ_REORDERING = "ensembleRandomReadReordering";
 
     static final int RACKNAME_DISTANCE_FROM_LEAVES = 1;
+    static final int MAX_RANDOM_PROBES_PER_SELECTION = 16;
 
     // masks for reordering
     static final int LOCAL_MASK       = 0x01 << 24;
@@ -114,6 +117,7 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
     protected boolean enforceDurability = false;
     protected int stabilizePeriodSeconds = 0;
     protected int reorderThresholdPendingRequests = 0;
+    protected boolean reorderReadsLeastOutstanding = false;
     // looks like these only assigned in the same thread as constructor, immediately after constructor;
     // no need to make volatile
     protected StatsLogger statsLogger = null;
@@ -333,6 +337,7 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
                     return -1L;
                 }
             });
+        this.reorderReadsLeastOutstanding = conf.isReorderReadsLeastOutstandingRequestsEnabled();
         return initialize(
                 dnsResolver,
                 timer,
@@ -702,38 +707,89 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
      */
     protected BookieNode selectRandomFromRack(String netPath, Set<Node> excludeBookies, Predicate<BookieNode> predicate,
             Ensemble<BookieNode> ensemble) throws BKNotEnoughBookiesException {
-        WeightedRandomSelection<BookieNode> wRSelection = null;
-        List<Node> leaves = new ArrayList<Node>(topology.getLeaves(netPath));
-        if (!this.isWeighted) {
-            Collections.shuffle(leaves);
+        if (this.isWeighted) {
+            return selectWeightedRandomFromRack(netPath, excludeBookies, predicate, ensemble);
+        }
+        /*
+         * pick the candidates from the topology snapshot instead of copying
+         * and shuffling the leaves under the network path for every bookie of
+         * the ensemble.
+         */
+        TopologySnapshot leaves = topology.getSnapshot();
+        String[] excludeScopes = null;
+        if (netPath.startsWith(NetworkTopologyImpl.INVERSE)) {
+            excludeScopes = netPath.substring(1).split(NetworkTopologyImpl.NODE_SEPARATOR);
+            for (int i = 0; i < excludeScopes.length; i++) {
+                excludeScopes[i] = NodeBase.normalize(excludeScopes[i]);
+            }
         } else {
-            if (CollectionUtils.subtract(leaves, excludeBookies).size() < 1) {
-                throw new BKNotEnoughBookiesException();
+            leaves = leaves.getLeaves(netPath);
+        }
+        int numLeaves = leaves.size();
+        if (numLeaves == 0) {
+            throw new BKNotEnoughBookiesException();
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // uniformly random probes find a candidate quickly unless most of the leaves are excluded
+        for (int i = 0; i < Math.min(numLeaves, MAX_RANDOM_PROBES_PER_SELECTION); i++) {
+            BookieNode bn = tryAddCandidate(leaves, random.nextInt(numLeaves), excludeScopes, excludeBookies,
+                    predicate, ensemble);
+            if (bn != null) {
+                return bn;
             }
-            wRSelection = prepareForWeightedSelection(leaves);
-            if (wRSelection == null) {
-                throw new BKNotEnoughBookiesException();
+        }
+        // otherwise go through all the leaves, starting from a random one
+        int start = random.nextInt(numLeaves);
+        for (int i = 0; i < numLeaves; i++) {
+            BookieNode bn = tryAddCandidate(leaves, (start + i) % numLeaves, excludeScopes, excludeBookies,
+                    predicate, ensemble);
+            if (bn != null) {
+                return bn;
             }
         }
+        throw new BKNotEnoughBookiesException();
+    }
 
-        Iterator<Node> it = leaves.iterator();
-        Set<Node> bookiesSeenSoFar = new HashSet<Node>();
-        while (true) {
-            Node n;
-            if (isWeighted) {
-                if (bookiesSeenSoFar.size() == leaves.size()) {
-                    // Don't loop infinitely.
-                    break;
-                }
-                n = wRSelection.getNextRandom();
-                bookiesSeenSoFar.add(n);
-            } else {
-                if (it.hasNext()) {
-                    n = it.next();
-                } else {
-                    break;
+    private static BookieNode tryAddCandidate(TopologySnapshot leaves, int index, String[] excludeScopes,
+            Set<Node> excludeBookies, Predicate<BookieNode> predicate, Ensemble<BookieNode> ensemble) {
+        if (excludeScopes != null) {
+            for (String excludeScope : excludeScopes) {
+                if (leaves.isLeafUnderScope(index, excludeScope)) {
+                    return null;
                 }
             }
+        }
+        Node n = leaves.getLeaf(index);
+        if (excludeBookies.contains(n)) {
+            return null;
+        }
+        if (!(n instanceof BookieNode) || !predicate.apply((BookieNode) n, ensemble)) {
+            return null;
+        }
+        BookieNode bn = (BookieNode) n;
+        // got a good candidate
+        if (ensemble.addNode(bn)) {
+            // add the candidate to exclude set
+            excludeBookies.add(bn);
+        }
+        return bn;
+    }
+
+    private BookieNode selectWeightedRandomFromRack(String netPath, Set<Node> excludeBookies,
+            Predicate<BookieNode> predicate, Ensemble<BookieNode> ensemble) throws BKNotEnoughBookiesException {
+        List<Node> leaves = new ArrayList<Node>(topology.getLeaves(netPath));
+        if (CollectionUtils.subtract(leaves, excludeBookies).size() < 1) {
+            throw new BKNotEnoughBookiesException();
+        }
+        WeightedRandomSelection<BookieNode> wRSelection = prepareForWeightedSelection(leaves);
+        if (wRSelection == null) {
+            throw new BKNotEnoughBookiesException();
+        }
+
+        Set<Node> bookiesSeenSoFar = new HashSet<Node>();
+        while (bookiesSeenSoFar.size() < leaves.size()) {
+            Node n = wRSelection.getNextRandom();
+            bookiesSeenSoFar.add(n);
             if (excludeBookies.contains(n)) {
                 continue;
             }
@@ -965,6 +1021,12 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
                 writeSet.moveAndShift(bestBookieIdx, 0);
                 reordered = true;
             }
+        } else if (reorderReadsLeastOutstanding && writeSet.size() > 1) {
+            int bestBookieIdx = selectLeastOutstandingOfTwo(ensemble, writeSet, bookiesHealthInfo);
+            if (bestBookieIdx > 0) {
+                writeSet.moveAndShift(bestBookieIdx, 0);
+                reordered = true;
+            }
         }
 
         if (!isAnyBookieUnavailable) {
@@ -1085,6 +1147,44 @@ public class RackawareEnsemblePlacementPolicyImpl extends TopologyAwareEnsembleP
         return writeSet;
     }
 
+    /**
+     * Pick two random bookies of the write set and return the index of the one with the lower
+     * expected wait, estimated as its number of pending requests times its recent read latency.
+     * Spreading the reads this way keeps a burst of reads from piling up on the first bookie of
+     * each write set. Ties are broken randomly.
+     */
+    private int selectLeastOutstandingOfTwo(List<BookieId> ensemble,
+                                            DistributionSchedule.WriteSet writeSet,
+                                            BookiesHealthInfo bookiesHealthInfo) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(writeSet.size());
+        int second = random.nextInt(writeSet.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        BookieId firstBookie = ensemble.get(writeSet.get(first));
+        BookieId secondBookie = ensemble.get(writeSet.get(second));
+        // a bookie whose channel is not writable reports a huge number of pending requests, so it is avoided
+        long firstPending = bookiesHealthInfo.getBookiePendingRequests(firstBookie);
+        long secondPending = bookiesHealthInfo.getBookiePendingRequests(secondBookie);
+        long firstLatency = bookiesHealthInfo.getBookieReadLatencyMicros(firstBookie);
+        long secondLatency = bookiesHealthInfo.getBookieReadLatencyMicros(secondBookie);
+        double firstCost = firstPending + 1;
+        double secondCost = secondPending + 1;
+        // only weight by latency when both latencies are known, an unknown latency is not comparable
+        if (firstLatency > 0 && secondLatency > 0) {
+            firstCost *= firstLatency;
+            secondCost *= secondLatency;
+        }
+        if (firstCost < secondCost) {
+            return first;
+        } else if (secondCost < firstCost) {
+            return second;
+        } else {
+            return random.nextBoolean() ? first : second;
+        }
+    }
+
     // this method should be called in readlock scope of 'rwlock'
     @Override
     public PlacementPolicyAdherence isEnsembleAdheringToPlacementPolicy(List<BookieId> ensembleList,
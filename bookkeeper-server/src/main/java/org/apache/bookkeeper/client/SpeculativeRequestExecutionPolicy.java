@@ -42,4 +42,11 @@ public interface SpeculativeRequestExecutionPolicy {
      */
     ScheduledFuture<?> initiateSpeculativeRequest(ScheduledExecutorService scheduler,
             SpeculativeRequestExecutor requestExecutor);
+
+    /**
+     * Notify the policy that a request was completed by the response to one of its speculative
+     * requests, before the response to the request it was hedging against.
+     */
+    default void onSpeculativeRequestWon() {
+    }
 }
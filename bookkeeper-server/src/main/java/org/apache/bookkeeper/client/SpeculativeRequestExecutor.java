@@ -21,6 +21,7 @@
 package org.apache.bookkeeper.client;
 
 import com.google.common.util.concurrent.ListenableFuture;
+import org.apache.bookkeeper.net.BookieId;
 
 /**
  * Define an executor for issuing speculative requests.
@@ -39,4 +40,14 @@ public interface SpeculativeRequestExecutor {
      * @return whether more speculative requests should be issued
      */
     ListenableFuture<Boolean> issueSpeculativeRequest();
+
+    /**
+     * Get the bookie the last request was sent to, which is the bookie a next speculative
+     * request would hedge against.
+     *
+     * @return the bookie the last request was sent to, or null if unknown
+     */
+    default BookieId getLastRequestedBookie() {
+        return null;
+    }
 }
@@ -0,0 +1,49 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client.api;
+
+import org.apache.bookkeeper.common.annotation.InterfaceAudience.Public;
+import org.apache.bookkeeper.common.annotation.InterfaceStability.Unstable;
+
+/**
+ * A stream of the entries of a ledger, pushed by the bookies as they are confirmed.
+ *
+ * @see ReadHandle#streamEntriesAsync(long, LedgerEntryStreamListener)
+ * @since 4.18
+ */
+@Public
+@Unstable
+public interface LedgerEntryStream extends AutoCloseable {
+
+    /**
+     * Returns the id of the next entry to deliver to the listener of the stream.
+     *
+     * @return the id of the next entry to deliver
+     */
+    long getNextEntryId();
+
+    /**
+     * Stop the stream. The listener of the stream isn't called anymore.
+     */
+    @Override
+    void close();
+
+}
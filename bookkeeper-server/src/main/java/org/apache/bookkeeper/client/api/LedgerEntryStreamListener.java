@@ -0,0 +1,58 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client.api;
+
+import org.apache.bookkeeper.common.annotation.InterfaceAudience.Public;
+import org.apache.bookkeeper.common.annotation.InterfaceStability.Unstable;
+
+/**
+ * Listener of the entries delivered by a {@link LedgerEntryStream}.
+ *
+ * <p>The listener is called in entry order, by a single thread at a time. The bookies push no
+ * more entries than the stream can buffer while the listener is consuming the previous ones.
+ *
+ * @since 4.18
+ */
+@Public
+@Unstable
+public interface LedgerEntryStreamListener {
+
+    /**
+     * Called for each entry of the ledger once it is confirmed.
+     *
+     * @param entry the entry, owned by the listener which has to close it
+     */
+    void onEntry(LedgerEntry entry);
+
+    /**
+     * Called once all the entries of the ledger were delivered, after it was closed.
+     */
+    void onComplete();
+
+    /**
+     * Called if the stream fails. No entry is delivered afterwards; the entries from
+     * {@link LedgerEntryStream#getNextEntryId()} can be streamed again.
+     *
+     * @param cause the cause of the failure
+     */
+    void onError(Throwable cause);
+
+}
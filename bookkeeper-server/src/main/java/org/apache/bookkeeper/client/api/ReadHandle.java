@@ -255,4 +255,26 @@ public interface ReadHandle extends Handle {
                 BKException.HANDLER);
     }
 
+    /**
+     * Stream the entries of the ledger from <i>startEntryId</i>, as they are confirmed.
+     *
+     * <p>Instead of issuing a long poll read per entry, the stream subscribes to the bookies of the
+     * ensemble, which push the entries to the client as they are added. The entries are delivered
+     * to the listener in order, once the last add confirmed pushed along with them tells they are
+     * confirmed. The bookies must have the stream reads enabled.
+     *
+     * @param startEntryId
+     *          id of the first entry to deliver
+     * @param listener
+     *          listener of the entries
+     * @return an handle to the stream, completed once the bookies are subscribed
+     * @since 4.18
+     */
+    default CompletableFuture<LedgerEntryStream> streamEntriesAsync(long startEntryId,
+                                                                    LedgerEntryStreamListener listener) {
+        CompletableFuture<LedgerEntryStream> future = new CompletableFuture<>();
+        future.completeExceptionally(new UnsupportedOperationException());
+        return future;
+    }
+
 }
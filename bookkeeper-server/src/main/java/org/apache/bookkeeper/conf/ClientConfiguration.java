@@ -111,11 +111,16 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
     protected static final String MAX_SPECULATIVE_READ_LAC_TIMEOUT = "maxSpeculativeReadLACTimeout";
     protected static final String SPECULATIVE_READ_LAC_TIMEOUT_BACKOFF_MULTIPLIER =
         "speculativeReadLACTimeoutBackoffMultiplier";
+    protected static final String LATENCY_AWARE_SPECULATIVE_READ_ENABLED = "latencyAwareSpeculativeReadEnabled";
+    protected static final String SPECULATIVE_READ_LATENCY_PERCENTILE = "speculativeReadLatencyPercentile";
+    protected static final String SPECULATIVE_READ_MAX_HEDGE_RATIO = "speculativeReadMaxHedgeRatio";
+    protected static final String SPECULATIVE_READ_LATENCY_WINDOW_MS = "speculativeReadLatencyWindowMs";
     protected static final String ENABLE_PARALLEL_RECOVERY_READ = "enableParallelRecoveryRead";
     protected static final String RECOVERY_READ_BATCH_SIZE = "recoveryReadBatchSize";
     protected static final String REORDER_READ_SEQUENCE_ENABLED = "reorderReadSequenceEnabled";
     protected static final String STICKY_READS_ENABLED = "stickyReadSEnabled";
     protected static final String RECOVERY_BATCH_READ_ENABLED = "recoveryBatchReadEnabled";
+    protected static final String REREPLICATION_DIRECT_COPY_ENABLED = "rereplicationDirectCopyEnabled";
     // Add Parameters
     protected static final String OPPORTUNISTIC_STRIPING = "opportunisticStriping";
     protected static final String DELAY_ENSEMBLE_CHANGE = "delayEnsembleChange";
@@ -159,6 +164,8 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
     public static final String ENSEMBLE_PLACEMENT_POLICY = "ensemblePlacementPolicy";
     protected static final String NETWORK_TOPOLOGY_STABILIZE_PERIOD_SECONDS = "networkTopologyStabilizePeriodSeconds";
     protected static final String READ_REORDER_THRESHOLD_PENDING_REQUESTS = "readReorderThresholdPendingRequests";
+    protected static final String READ_REORDER_LEAST_OUTSTANDING_REQUESTS_ENABLED =
+        "readReorderLeastOutstandingRequestsEnabled";
     protected static final String BOOKIE_ADDRESS_RESOLVER_ENABLED = "bookieAddressResolverEnabled";
     // Use hostname to resolve local placement info
     public static final String USE_HOSTNAME_RESOLVE_LOCAL_NODE_PLACEMENT_POLICY =
@@ -204,6 +211,12 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
     //For batch read api, it the batch read is not stable, we can fail back to single read by this config.
     protected static final String BATCH_READ_ENABLED = "batchReadEnabled";
 
+    // Stream reads
+    protected static final String STREAM_READ_CREDITS_PER_BOOKIE = "streamReadCreditsPerBookie";
+
+    // Tenant the requests are issued for
+    protected static final String CLIENT_TENANT = "clientTenant";
+
     /**
      * Construct a default client-side configuration.
      */
@@ -1042,6 +1055,103 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * Whether the speculative reads are issued based on the latencies of the bookies.
+     *
+     * <p>When enabled, a speculative read is sent once the outstanding read has been pending for
+     * longer than {@link #getSpeculativeReadLatencyPercentile()} of the recent read latencies of the
+     * bookie it was sent to, bounded by {@link #getMaxSpeculativeReadTimeout()}. The
+     * {@link #getFirstSpeculativeReadTimeout()} is used for bookies whose latencies are not known yet.
+     * Speculative reads still have to be enabled with a positive first speculative read timeout.
+     *
+     * @return true if the speculative reads are based on the latencies of the bookies. Default false.
+     */
+    public boolean isLatencyAwareSpeculativeReadEnabled() {
+        return getBoolean(LATENCY_AWARE_SPECULATIVE_READ_ENABLED, false);
+    }
+
+    /**
+     * Enable or disable issuing the speculative reads based on the latencies of the bookies.
+     *
+     * @see #isLatencyAwareSpeculativeReadEnabled()
+     * @param enabled
+     *          whether the speculative reads are based on the latencies of the bookies.
+     * @return client configuration.
+     */
+    public ClientConfiguration setLatencyAwareSpeculativeReadEnabled(boolean enabled) {
+        setProperty(LATENCY_AWARE_SPECULATIVE_READ_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Get the read latency percentile of a bookie after which a speculative read is sent, when
+     * latency aware speculative reads are enabled.
+     *
+     * @return the read latency percentile. Default 95.
+     */
+    public double getSpeculativeReadLatencyPercentile() {
+        return getDouble(SPECULATIVE_READ_LATENCY_PERCENTILE, 95.0);
+    }
+
+    /**
+     * Set the read latency percentile of a bookie after which a speculative read is sent, when
+     * latency aware speculative reads are enabled.
+     *
+     * @param percentile
+     *          the read latency percentile, between 0 and 100.
+     * @return client configuration.
+     */
+    public ClientConfiguration setSpeculativeReadLatencyPercentile(double percentile) {
+        setProperty(SPECULATIVE_READ_LATENCY_PERCENTILE, percentile);
+        return this;
+    }
+
+    /**
+     * Get the max ratio of speculative reads to reads, when latency aware speculative reads are
+     * enabled. Speculative reads over this ratio are not sent.
+     *
+     * @return the max ratio of speculative reads to reads. Default 0.1.
+     */
+    public double getSpeculativeReadMaxHedgeRatio() {
+        return getDouble(SPECULATIVE_READ_MAX_HEDGE_RATIO, 0.1);
+    }
+
+    /**
+     * Set the max ratio of speculative reads to reads, when latency aware speculative reads are
+     * enabled.
+     *
+     * @param ratio
+     *          the max ratio of speculative reads to reads.
+     * @return client configuration.
+     */
+    public ClientConfiguration setSpeculativeReadMaxHedgeRatio(double ratio) {
+        setProperty(SPECULATIVE_READ_MAX_HEDGE_RATIO, ratio);
+        return this;
+    }
+
+    /**
+     * Get the time window of the read latencies of the bookies taken into account by latency aware
+     * speculative reads and by least outstanding requests read reordering.
+     *
+     * @return the time window in milliseconds. Default 30000.
+     */
+    public long getSpeculativeReadLatencyWindowMs() {
+        return getLong(SPECULATIVE_READ_LATENCY_WINDOW_MS, 30000L);
+    }
+
+    /**
+     * Set the time window of the read latencies of the bookies taken into account by latency aware
+     * speculative reads.
+     *
+     * @param windowMs
+     *          the time window in milliseconds.
+     * @return client configuration.
+     */
+    public ClientConfiguration setSpeculativeReadLatencyWindowMs(long windowMs) {
+        setProperty(SPECULATIVE_READ_LATENCY_WINDOW_MS, windowMs);
+        return this;
+    }
+
     /**
      * Get the period of time after which the first speculative read last add confirmed and entry
      * should be triggered.
@@ -1219,6 +1329,32 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         setProperty(RECOVERY_BATCH_READ_ENABLED, enabled);
         return this;
     }
+
+    /**
+     * If re-replication copies the entries of a fragment directly from a surviving bookie.
+     *
+     * <p>When enabled, the replicator reads the stored entries from one of the surviving bookies of
+     * the fragment in large batched chunks, verifies their digests and forwards the stored bytes to the
+     * new bookies, instead of reading every entry through the client read path and re-packaging it.
+     * It requires the v2 wire protocol with batch read enabled and only applies to ledgers whose
+     * ensemble size equals the write quorum size.
+     *
+     * @return true if direct copy is enabled for re-replication
+     */
+    public boolean isRereplicationDirectCopyEnabled() {
+        return getBoolean(REREPLICATION_DIRECT_COPY_ENABLED, false);
+    }
+
+    /**
+     * Enable/disable direct copy of fragment entries from a surviving bookie on re-replication.
+     *
+     * @param enabled flag to enable/disable direct copy
+     * @return client configuration
+     */
+    public ClientConfiguration setRereplicationDirectCopyEnabled(boolean enabled) {
+        setProperty(REREPLICATION_DIRECT_COPY_ENABLED, enabled);
+        return this;
+    }
     /**
      * Get Ensemble Placement Policy Class.
      *
@@ -1267,6 +1403,35 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return this;
     }
 
+    /**
+     * Whether to read first from the bookie of the write set with the fewest outstanding requests.
+     *
+     * <p>For each read, two bookies of the write set are picked randomly and the one with the fewer
+     * pending requests, weighted by its recent read latency, is moved first in the read sequence.
+     * It requires {@link #isReorderReadSequenceEnabled()} and only applies when
+     * {@link #getReorderThresholdPendingRequests()} is not set. The read latencies are tracked over
+     * {@link #getSpeculativeReadLatencyWindowMs()}.
+     *
+     * @return true if reads are reordered based on the outstanding requests of the bookies. Default false.
+     */
+    public boolean isReorderReadsLeastOutstandingRequestsEnabled() {
+        return getBoolean(READ_REORDER_LEAST_OUTSTANDING_REQUESTS_ENABLED, false);
+    }
+
+    /**
+     * Enable or disable reading first from the bookie of the write set with the fewest outstanding
+     * requests.
+     *
+     * @see #isReorderReadsLeastOutstandingRequestsEnabled()
+     * @param enabled
+     *            whether reads are reordered based on the outstanding requests of the bookies.
+     * @return client configuration.
+     */
+    public ClientConfiguration setReorderReadsLeastOutstandingRequestsEnabled(boolean enabled) {
+        setProperty(READ_REORDER_LEAST_OUTSTANDING_REQUESTS_ENABLED, enabled);
+        return this;
+    }
+
     /**
      * Get the network topology stabilize period in seconds. if it is zero, this feature is turned off.
      *
@@ -2084,6 +2249,54 @@ public class ClientConfiguration extends AbstractConfiguration<ClientConfigurati
         return getBoolean(BATCH_READ_ENABLED, true);
     }
 
+    /**
+     * Get the number of entries each bookie of the ensemble can push to an entry stream
+     * before they are delivered.
+     *
+     * @return the number of credits granted to each bookie of an entry stream
+     */
+    public int getStreamReadCreditsPerBookie() {
+        return getInt(STREAM_READ_CREDITS_PER_BOOKIE, 256);
+    }
+
+    /**
+     * Set the number of entries each bookie of the ensemble can push to an entry stream
+     * before they are delivered. It bounds the entries buffered by the stream to the
+     * credits times the ensemble size.
+     *
+     * @param credits
+     *          the number of credits granted to each bookie of an entry stream
+     * @return client configuration
+     */
+    public ClientConfiguration setStreamReadCreditsPerBookie(int credits) {
+        setProperty(STREAM_READ_CREDITS_PER_BOOKIE, credits);
+        return this;
+    }
+
+    /**
+     * Get the tenant the add and read requests of the client are issued for.
+     *
+     * @return the tenant of the client, or null if it is not set
+     */
+    public String getClientTenant() {
+        return getString(CLIENT_TENANT, null);
+    }
+
+    /**
+     * Set the tenant the add and read requests of the client are issued for. The bookies
+     * enabling fair request scheduling queue the requests of each tenant apart, so the
+     * requests of a tenant don't delay the requests of the others. It is only sent by the
+     * v3 protocol.
+     *
+     * @param tenant
+     *          the tenant of the client
+     * @return client configuration
+     */
+    public ClientConfiguration setClientTenant(String tenant) {
+        setProperty(CLIENT_TENANT, tenant);
+        return this;
+    }
+
     @Override
     protected ClientConfiguration getThis() {
         return this;
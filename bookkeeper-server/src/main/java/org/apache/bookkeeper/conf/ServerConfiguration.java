@@ -213,13 +213,17 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     protected static final String AUTO_RECOVERY_DAEMON_ENABLED = "autoRecoveryDaemonEnabled";
     protected static final String LOST_BOOKIE_RECOVERY_DELAY = "lostBookieRecoveryDelay";
     protected static final String RW_REREPLICATE_BACKOFF_MS = "rwRereplicateBackoffMs";
+    protected static final String RW_MAX_CONCURRENT_REREPLICATING_LEDGERS = "rwMaxConcurrentRereplicatingLedgers";
     protected static final String UNDERREPLICATED_LEDGER_RECOVERY_GRACE_PERIOD =
             "underreplicatedLedgerRecoveryGracePeriod";
     protected static final String AUDITOR_REPLICAS_CHECK_INTERVAL = "auditorReplicasCheckInterval";
+    protected static final String AUDITOR_REPLICAS_CHECK_SUMMARY_ENABLED = "auditorReplicasCheckSummaryEnabled";
     protected static final String AUDITOR_MAX_NUMBER_OF_CONCURRENT_OPEN_LEDGER_OPERATIONS =
         "auditorMaxNumberOfConcurrentOpenLedgerOperations";
     protected static final String AUDITOR_ACQUIRE_CONCURRENT_OPEN_LEDGER_OPERATIONS_TIMEOUT_MSEC =
         "auditorAcquireConcurrentOpenLedgerOperationsTimeOutMSec";
+    protected static final String AUDITOR_MAX_CONCURRENT_CHECK_ALL_LEDGERS_RANGES =
+        "auditorMaxConcurrentCheckAllLedgersRanges";
     protected static final String IN_FLIGHT_READ_ENTRY_NUM_IN_LEDGER_CHECKER = "inFlightReadEntryNumInLedgerChecker";
 
 
@@ -231,10 +235,22 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     protected static final String NUM_LONG_POLL_WORKER_THREADS = "numLongPollWorkerThreads";
     protected static final String NUM_HIGH_PRIORITY_WORKER_THREADS = "numHighPriorityWorkerThreads";
     protected static final String READ_WORKER_THREADS_THROTTLING_ENABLED = "readWorkerThreadsThrottlingEnabled";
+    protected static final String FAIR_REQUEST_SCHEDULING_ENABLED = "fairRequestSchedulingEnabled";
+    protected static final String FAIR_REQUEST_SCHEDULING_MAX_OUTSTANDING_REQUESTS_PER_TENANT =
+            "fairRequestSchedulingMaxOutstandingRequestsPerTenant";
+    protected static final String FAIR_REQUEST_SCHEDULING_MAX_OUTSTANDING_BYTES_PER_TENANT =
+            "fairRequestSchedulingMaxOutstandingBytesPerTenant";
+    protected static final String FAIR_REQUEST_SCHEDULING_MAX_QUEUED_REQUESTS_PER_TENANT =
+            "fairRequestSchedulingMaxQueuedRequestsPerTenant";
+    protected static final String FAIR_REQUEST_SCHEDULING_MAX_TENANTS = "fairRequestSchedulingMaxTenants";
+    protected static final String NUM_CATCH_UP_READ_WORKER_THREADS = "numCatchUpReadWorkerThreads";
+    protected static final String CATCH_UP_READ_DISTANCE = "catchUpReadDistance";
 
     // Long poll parameters
     protected static final String REQUEST_TIMER_TICK_DURATION_MILLISEC = "requestTimerTickDurationMs";
     protected static final String REQUEST_TIMER_NO_OF_TICKS = "requestTimerNumTicks";
+    protected static final String LONG_POLL_BATCH_NOTIFICATIONS_ENABLED = "longPollBatchNotificationsEnabled";
+    protected static final String STREAM_READ_ENABLED = "streamReadEnabled";
 
     protected static final String READ_BUFFER_SIZE = "readBufferSizeBytes";
     protected static final String WRITE_BUFFER_SIZE = "writeBufferSizeBytes";
@@ -249,6 +265,7 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
     protected static final String SKIP_LIST_SIZE_LIMIT = "skipListSizeLimit";
     protected static final String SKIP_LIST_CHUNK_SIZE_ENTRY = "skipListArenaChunkSize";
     protected static final String SKIP_LIST_MAX_ALLOC_ENTRY = "skipListArenaMaxAllocSize";
+    protected static final String ENTRY_MEMTABLE_OFF_HEAP_ENABLED = "entryMemTableOffHeapEnabled";
 
     // Statistics Parameters
     protected static final String ENABLE_STATISTICS = "enableStatistics";
@@ -2118,6 +2135,161 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return getInt(MAX_PENDING_ADD_REQUESTS_PER_THREAD, 10000);
     }
 
+    /**
+     * Whether the add and read requests are queued per tenant before being executed by the worker
+     * threads, so the requests of a tenant can't delay the requests of the others.
+     *
+     * @return true if the fair request scheduling is enabled
+     */
+    public boolean isFairRequestSchedulingEnabled() {
+        return getBoolean(FAIR_REQUEST_SCHEDULING_ENABLED, false);
+    }
+
+    /**
+     * Enable/disable the fair request scheduling. The tenant of a request is the tenant set by the
+     * client (see {@link ClientConfiguration#setClientTenant(String)}), the requests without tenant
+     * share the same queue.
+     *
+     * @param enabled
+     *          flag to enable/disable the fair request scheduling
+     * @return server configuration
+     */
+    public ServerConfiguration setFairRequestSchedulingEnabled(boolean enabled) {
+        setProperty(FAIR_REQUEST_SCHEDULING_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Get the max number of requests of a tenant submitted to the add or the read worker threads
+     * at once (default: 100).
+     */
+    public int getFairRequestSchedulingMaxOutstandingRequestsPerTenant() {
+        return getInt(FAIR_REQUEST_SCHEDULING_MAX_OUTSTANDING_REQUESTS_PER_TENANT, 100);
+    }
+
+    /**
+     * Set the max number of requests of a tenant submitted to the add or the read worker threads
+     * at once. The other requests of the tenant wait in its queue.
+     *
+     * @param maxOutstandingRequests
+     *          max number of requests of a tenant submitted at once
+     * @return server configuration
+     */
+    public ServerConfiguration setFairRequestSchedulingMaxOutstandingRequestsPerTenant(int maxOutstandingRequests) {
+        setProperty(FAIR_REQUEST_SCHEDULING_MAX_OUTSTANDING_REQUESTS_PER_TENANT, maxOutstandingRequests);
+        return this;
+    }
+
+    /**
+     * Get the max number of bytes of the add requests of a tenant submitted to the add worker
+     * threads at once (default: 16MB).
+     */
+    public long getFairRequestSchedulingMaxOutstandingBytesPerTenant() {
+        return getLong(FAIR_REQUEST_SCHEDULING_MAX_OUTSTANDING_BYTES_PER_TENANT, 16 * 1024 * 1024);
+    }
+
+    /**
+     * Set the max number of bytes of the add requests of a tenant submitted to the add worker
+     * threads at once. A request larger than the limit is submitted alone.
+     *
+     * @param maxOutstandingBytes
+     *          max number of bytes of the add requests of a tenant submitted at once
+     * @return server configuration
+     */
+    public ServerConfiguration setFairRequestSchedulingMaxOutstandingBytesPerTenant(long maxOutstandingBytes) {
+        setProperty(FAIR_REQUEST_SCHEDULING_MAX_OUTSTANDING_BYTES_PER_TENANT, maxOutstandingBytes);
+        return this;
+    }
+
+    /**
+     * Get the max number of requests queued per tenant before its new requests are failed
+     * immediately (default: 10000).
+     */
+    public int getFairRequestSchedulingMaxQueuedRequestsPerTenant() {
+        return getInt(FAIR_REQUEST_SCHEDULING_MAX_QUEUED_REQUESTS_PER_TENANT, 10000);
+    }
+
+    /**
+     * Set the max number of requests queued per tenant before its new requests are failed
+     * immediately.
+     *
+     * @param maxQueuedRequests
+     *          max number of requests queued per tenant
+     * @return server configuration
+     */
+    public ServerConfiguration setFairRequestSchedulingMaxQueuedRequestsPerTenant(int maxQueuedRequests) {
+        setProperty(FAIR_REQUEST_SCHEDULING_MAX_QUEUED_REQUESTS_PER_TENANT, maxQueuedRequests);
+        return this;
+    }
+
+    /**
+     * Get the max number of tenants queued apart (default: 1000). The requests of the other tenants
+     * share the queue of the requests without a tenant.
+     */
+    public int getFairRequestSchedulingMaxTenants() {
+        return getInt(FAIR_REQUEST_SCHEDULING_MAX_TENANTS, 1000);
+    }
+
+    /**
+     * Set the max number of tenants queued apart. The requests of the other tenants share the queue
+     * of the requests without a tenant, until the queue of an idle tenant is dropped.
+     *
+     * @param maxTenants
+     *          max number of tenants queued apart
+     * @return server configuration
+     */
+    public ServerConfiguration setFairRequestSchedulingMaxTenants(int maxTenants) {
+        setProperty(FAIR_REQUEST_SCHEDULING_MAX_TENANTS, maxTenants);
+        return this;
+    }
+
+    /**
+     * Get the number of threads executing the catch-up reads (default: 0).
+     *
+     * <p>If 0, the catch-up reads are executed by the read worker threads, along with the tail reads.
+     */
+    public int getNumCatchUpReadWorkerThreads() {
+        return getInt(NUM_CATCH_UP_READ_WORKER_THREADS, 0);
+    }
+
+    /**
+     * Set the number of threads executing the catch-up reads. The catch-up reads are the reads of the
+     * entries far behind the last entry added to their ledger, which mostly miss the caches and hit the
+     * disks. Executing them in their own threads keeps the tail reads from being queued behind them.
+     *
+     * @param numThreads
+     *          number of threads executing the catch-up reads, 0 to disable
+     * @return server configuration
+     */
+    public ServerConfiguration setNumCatchUpReadWorkerThreads(int numThreads) {
+        setProperty(NUM_CATCH_UP_READ_WORKER_THREADS, numThreads);
+        return this;
+    }
+
+    /**
+     * Get the min distance, in entries, from the last entry added to a ledger for a read of the
+     * ledger to be a catch-up read (default: 1000).
+     */
+    public long getCatchUpReadDistance() {
+        return getLong(CATCH_UP_READ_DISTANCE, 1000);
+    }
+
+    /**
+     * Set the min distance, in entries, from the last entry added to a ledger for a read of the
+     * ledger to be a catch-up read. The reads of the ledgers the ledger storage doesn't know the last
+     * entry of, such as the ledgers no longer written, are catch-up reads too. The other reads are
+     * tail reads, executed by the read worker threads and, with the fair request scheduling, submitted
+     * before the catch-up reads of their tenant.
+     *
+     * @param distance
+     *          min distance from the last entry added to a ledger for a catch-up read
+     * @return server configuration
+     */
+    public ServerConfiguration setCatchUpReadDistance(long distance) {
+        setProperty(CATCH_UP_READ_DISTANCE, distance);
+        return this;
+    }
+
 
 
     /**
@@ -2148,6 +2320,56 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return getInt(REQUEST_TIMER_NO_OF_TICKS, 1024);
     }
 
+    /**
+     * Whether the long poll reads waiting on the same ledger are batched.
+     *
+     * <p>When enabled, the long poll reads of a ledger share a single watcher on the
+     * last add confirmed of the ledger and a single timeout, instead of a watcher and a
+     * timeout each. When the last add confirmed advances, the waiting reads are woken up
+     * together, and the entry they piggyback is read once for all of them.
+     *
+     * <p>Default is false
+     *
+     * @return true if the long poll reads waiting on the same ledger are batched
+     */
+    public boolean isLongPollBatchNotificationsEnabled() {
+        return getBoolean(LONG_POLL_BATCH_NOTIFICATIONS_ENABLED, false);
+    }
+
+    /**
+     * Enable/disable batching the long poll reads waiting on the same ledger.
+     *
+     * @param enabled
+     *          flag to enable/disable batching the long poll reads
+     * @return server configuration
+     */
+    public ServerConfiguration setLongPollBatchNotificationsEnabled(boolean enabled) {
+        setProperty(LONG_POLL_BATCH_NOTIFICATIONS_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Whether the bookie accepts stream read subscriptions, pushing the entries of a ledger to the
+     * clients tailing it instead of having them issue a long poll read per entry.
+     *
+     * @return true if the stream read subscriptions are accepted
+     */
+    public boolean isStreamReadEnabled() {
+        return getBoolean(STREAM_READ_ENABLED, false);
+    }
+
+    /**
+     * Enable/disable the stream read subscriptions.
+     *
+     * @param enabled
+     *          flag to enable/disable the stream read subscriptions
+     * @return server configuration
+     */
+    public ServerConfiguration setStreamReadEnabled(boolean enabled) {
+        setProperty(STREAM_READ_ENABLED, enabled);
+        return this;
+    }
+
     /**
      * Get the number of bytes used as capacity for the write buffer. Default is
      * 64KB.
@@ -2282,6 +2504,34 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return this;
     }
 
+    /**
+     * Whether the entry memtable of SortedLedgerStorage keeps the entries off-heap.
+     *
+     * <p>The off-heap memtable copies the entries into direct memory chunks of
+     * {@link #getSkipListArenaChunkSize()} bytes, indexed per ledger, instead of
+     * keeping an object per entry on heap. It is not used when entryLogPerLedger
+     * is enabled.
+     *
+     * <p>Default is false
+     *
+     * @return true if the entry memtable keeps the entries off-heap
+     */
+    public boolean isEntryMemTableOffHeapEnabled() {
+        return getBoolean(ENTRY_MEMTABLE_OFF_HEAP_ENABLED, false);
+    }
+
+    /**
+     * Enable/disable keeping the entries of the entry memtable of SortedLedgerStorage off-heap.
+     *
+     * @param enabled
+     *          flag to enable/disable the off-heap entry memtable
+     * @return server configuration object.
+     */
+    public ServerConfiguration setEntryMemTableOffHeapEnabled(boolean enabled) {
+        setProperty(ENTRY_MEMTABLE_OFF_HEAP_ENABLED, enabled);
+        return this;
+    }
+
     /**
      * Should the data be fsynced on journal before acknowledgment.
      *
@@ -2729,6 +2979,30 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         return getLong(AUDITOR_REPLICAS_CHECK_INTERVAL, 0);
     }
 
+    /**
+     * Sets whether the replicas check should first compare the summaries of
+     * the entries stored by the bookies for each segment of the ledger, and
+     * get the complete list of entries of ledger only on mismatch.
+     *
+     * @param enabled
+     *            whether to compare summaries first
+     * @return server configuration
+     */
+    public ServerConfiguration setAuditorReplicasCheckSummaryEnabled(boolean enabled) {
+        setProperty(AUDITOR_REPLICAS_CHECK_SUMMARY_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Whether the replicas check compares the summaries of the entries stored
+     * by the bookies before getting the complete list of entries of ledger.
+     *
+     * @return whether to compare summaries first. By default it is disabled.
+     */
+    public boolean isAuditorReplicasCheckSummaryEnabled() {
+        return getBoolean(AUDITOR_REPLICAS_CHECK_SUMMARY_ENABLED, false);
+    }
+
     /**
      * Get the semaphore limit value of getting ledger from zookeeper in auto recovery.
      *
@@ -2746,6 +3020,27 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         setProperty(AUDITOR_MAX_NUMBER_OF_CONCURRENT_OPEN_LEDGER_OPERATIONS, semaphore);
     }
 
+    /**
+     * Get the max number of ledger ranges that the auditor checks concurrently in checkAllLedgers.
+     *
+     * <p>The ranges are the ones returned by the ledger manager, and the ledgers opened across all of them
+     * are still bounded by {@link #getAuditorMaxNumberOfConcurrentOpenLedgerOperations()}.
+     *
+     * @return max number of ledger ranges checked concurrently. By default it is 1.
+     */
+    public int getAuditorMaxConcurrentCheckAllLedgersRanges() {
+        return getInt(AUDITOR_MAX_CONCURRENT_CHECK_ALL_LEDGERS_RANGES, 1);
+    }
+
+    /**
+     * Set the max number of ledger ranges that the auditor checks concurrently in checkAllLedgers.
+     *
+     * @param maxConcurrentRanges max number of ledger ranges checked concurrently
+     */
+    public void setAuditorMaxConcurrentCheckAllLedgersRanges(int maxConcurrentRanges) {
+        setProperty(AUDITOR_MAX_CONCURRENT_CHECK_ALL_LEDGERS_RANGES, maxConcurrentRanges);
+    }
+
     /**
      * Get the acquire concurrent open ledger operations timeout.
      *
@@ -2844,6 +3139,29 @@ public class ServerConfiguration extends AbstractConfiguration<ServerConfigurati
         setProperty(RW_REREPLICATE_BACKOFF_MS, backoffMs);
     }
 
+    /**
+     * Get the max number of ledgers that a replication worker re-replicates concurrently.
+     *
+     * <p>All the ledgers being re-replicated share the same replication rate configured by
+     * {@link #getReplicationRateByBytes()}.
+     *
+     * @return max number of ledgers re-replicated concurrently
+     */
+    public int getRwMaxConcurrentRereplicatingLedgers() {
+        return getInt(RW_MAX_CONCURRENT_REREPLICATING_LEDGERS, 1);
+    }
+
+    /**
+     * Set the max number of ledgers that a replication worker re-replicates concurrently.
+     *
+     * @param maxConcurrentLedgers max number of ledgers re-replicated concurrently
+     * @return server configuration
+     */
+    public ServerConfiguration setRwMaxConcurrentRereplicatingLedgers(int maxConcurrentLedgers) {
+        setProperty(RW_MAX_CONCURRENT_REREPLICATING_LEDGERS, maxConcurrentLedgers);
+        return this;
+    }
+
     /**
      * Sets that whether force start a bookie in readonly mode.
      *
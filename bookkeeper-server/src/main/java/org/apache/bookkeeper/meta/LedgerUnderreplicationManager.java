@@ -202,6 +202,28 @@ public interface LedgerUnderreplicationManager extends AutoCloseable {
      */
     long getCheckAllLedgersCTime() throws ReplicationException.UnavailableException;
 
+    /**
+     * Setter for the checkpoint of the ongoing CheckAllLedgers, so that a new
+     * auditor can resume it rather than start over. The checkpoint is cleared
+     * by {@link #setCheckAllLedgersCTime(long)} once the CheckAllLedgers completes.
+     *
+     * @param checkpointLedgerId all the ledgers up to this id have been checked
+     * @throws ReplicationException.UnavailableException
+     */
+    default void setCheckAllLedgersCheckpoint(long checkpointLedgerId)
+            throws ReplicationException.UnavailableException {
+    }
+
+    /**
+     * Getter for the checkpoint of the ongoing CheckAllLedgers.
+     *
+     * @return the ledger id up to which all the ledgers have been checked, or -1 if there is no checkpoint
+     * @throws ReplicationException.UnavailableException
+     */
+    default long getCheckAllLedgersCheckpoint() throws ReplicationException.UnavailableException {
+        return -1;
+    }
+
     /**
      * Setter for the PlacementPolicyCheck last executed ctime.
      *
@@ -375,6 +375,12 @@ public class NullMetadataBookieDriver implements MetadataBookieDriver {
             return Integer.MAX_VALUE;
         }
         @Override
+        public void setCheckAllLedgersCheckpoint(long checkpointLedgerId) {}
+        @Override
+        public long getCheckAllLedgersCheckpoint() {
+            return -1;
+        }
+        @Override
         public void setPlacementPolicyCheckCTime(long placementPolicyCheckCTime) {}
         @Override
         public long getPlacementPolicyCheckCTime() {
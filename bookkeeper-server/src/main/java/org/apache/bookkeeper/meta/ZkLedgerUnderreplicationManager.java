@@ -1012,6 +1012,57 @@ public class ZkLedgerUnderreplicationManager implements LedgerUnderreplicationMa
         }
     }
 
+    @Override
+    public void setCheckAllLedgersCheckpoint(long checkpointLedgerId) throws UnavailableException {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("setCheckAllLedgersCheckpoint");
+        }
+        try {
+            List<ACL> zkAcls = ZkUtils.getACLs(conf);
+            Stat stat = zkc.exists(checkAllLedgersCtimeZnode, false);
+            CheckAllLedgersFormat.Builder builder = CheckAllLedgersFormat.newBuilder();
+            if (stat != null) {
+                builder.mergeFrom(zkc.getData(checkAllLedgersCtimeZnode, false, stat));
+            }
+            builder.setCheckpointLedgerId(checkpointLedgerId);
+            byte[] checkAllLedgersFormatByteArray = builder.build().toByteArray();
+            if (stat != null) {
+                zkc.setData(checkAllLedgersCtimeZnode, checkAllLedgersFormatByteArray, stat.getVersion());
+            } else {
+                zkc.create(checkAllLedgersCtimeZnode, checkAllLedgersFormatByteArray, zkAcls, CreateMode.PERSISTENT);
+            }
+        } catch (KeeperException ke) {
+            throw ReplicationException.fromKeeperException("Error contacting zookeeper", ke);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new ReplicationException.UnavailableException("Interrupted while contacting zookeeper", ie);
+        } catch (InvalidProtocolBufferException ipbe) {
+            throw new ReplicationException.UnavailableException("Error while parsing ZK protobuf binary data", ipbe);
+        }
+    }
+
+    @Override
+    public long getCheckAllLedgersCheckpoint() throws UnavailableException {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("getCheckAllLedgersCheckpoint");
+        }
+        try {
+            byte[] data = zkc.getData(checkAllLedgersCtimeZnode, false, null);
+            CheckAllLedgersFormat checkAllLedgersFormat = CheckAllLedgersFormat.parseFrom(data);
+            return checkAllLedgersFormat.hasCheckpointLedgerId() ? checkAllLedgersFormat.getCheckpointLedgerId()
+                    : -1;
+        } catch (KeeperException.NoNodeException ne) {
+            return -1;
+        } catch (KeeperException ke) {
+            throw ReplicationException.fromKeeperException("Error contacting zookeeper", ke);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new ReplicationException.UnavailableException("Interrupted while contacting zookeeper", ie);
+        } catch (InvalidProtocolBufferException ipbe) {
+            throw new ReplicationException.UnavailableException("Error while parsing ZK protobuf binary data", ipbe);
+        }
+    }
+
     @Override
     public void setPlacementPolicyCheckCTime(long placementPolicyCheckCTime) throws UnavailableException {
         if (LOG.isDebugEnabled()) {
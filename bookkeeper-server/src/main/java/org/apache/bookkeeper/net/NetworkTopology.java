@@ -90,4 +90,15 @@ public interface NetworkTopology {
      * @return number of available nodes
      */
     int countNumOfAvailableNodes(String scope, Collection<Node> excludedNodes);
+
+    /**
+     * Returns an immutable snapshot of all the leaves of the network topology.
+     * Implementations are expected to cache the snapshot until the topology
+     * changes.
+     *
+     * @return snapshot of the leaves of the network topology
+     */
+    default TopologySnapshot getSnapshot() {
+        return TopologySnapshot.of(getLeaves(NodeBase.ROOT));
+    }
 }
@@ -389,6 +389,10 @@ public class NetworkTopologyImpl implements NetworkTopology {
      * The lock used to manage access.
      */
     protected ReadWriteLock netlock = new ReentrantReadWriteLock();
+    /**
+     * Snapshot of the leaves, rebuilt on first access after the topology changed.
+     */
+    private volatile TopologySnapshot snapshot = null;
 
     public NetworkTopologyImpl() {
         clusterMap = new InnerNode(InnerNode.ROOT);
@@ -426,6 +430,7 @@ public class NetworkTopologyImpl implements NetworkTopology {
             }
             if (clusterMap.add(node)) {
                 LOG.info("Adding a new node: " + NodeBase.getPath(node));
+                snapshot = null;
                 if (rack == null) {
                     numOfRacks++;
                 }
@@ -501,6 +506,7 @@ public class NetworkTopologyImpl implements NetworkTopology {
         netlock.writeLock().lock();
         try {
             if (clusterMap.remove(node)) {
+                snapshot = null;
                 InnerNode rack = (InnerNode) getNode(node.getNetworkLocation());
                 if (rack == null) {
                     numOfRacks--;
@@ -795,6 +801,26 @@ public class NetworkTopologyImpl implements NetworkTopology {
         }
     }
 
+    @Override
+    public TopologySnapshot getSnapshot() {
+        TopologySnapshot currentSnapshot = snapshot;
+        if (currentSnapshot != null) {
+            return currentSnapshot;
+        }
+        netlock.readLock().lock();
+        try {
+            // the snapshot is only reset by writers, so it is safe to publish it while holding the read lock
+            currentSnapshot = snapshot;
+            if (currentSnapshot == null) {
+                currentSnapshot = TopologySnapshot.of(doGetLeaves(NodeBase.ROOT));
+                snapshot = currentSnapshot;
+            }
+            return currentSnapshot;
+        } finally {
+            netlock.readLock().unlock();
+        }
+    }
+
     @Override
     public int countNumOfAvailableNodes(String scope, Collection<Node> excludedNodes) {
         boolean isExcluded = false;
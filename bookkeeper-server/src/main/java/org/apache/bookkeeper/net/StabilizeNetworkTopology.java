@@ -155,4 +155,9 @@ public class StabilizeNetworkTopology implements NetworkTopology {
     public int countNumOfAvailableNodes(String scope, Collection<Node> excludedNodes) {
         return impl.countNumOfAvailableNodes(scope, excludedNodes);
     }
+
+    @Override
+    public TopologySnapshot getSnapshot() {
+        return impl.getSnapshot();
+    }
 }
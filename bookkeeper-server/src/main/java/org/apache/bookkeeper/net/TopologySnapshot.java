@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.net;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable view of the leaves of a {@link NetworkTopology}, grouped by
+ * network location.
+ *
+ * <p>A snapshot is built once per topology change and can then be read
+ * without holding the topology lock and without copying the leaves, which
+ * makes it suitable for the hot path of ensemble selection. The leaves under
+ * a scope other than a rack are computed on first access and cached in the
+ * snapshot.
+ */
+public class TopologySnapshot {
+
+    public static final TopologySnapshot EMPTY = new TopologySnapshot(new Node[0], new String[0]);
+
+    private final Node[] leaves;
+    private final String[] leafPaths;
+    private final Map<String, TopologySnapshot> leavesByScope;
+
+    private TopologySnapshot(Node[] leaves, String[] leafPaths) {
+        this.leaves = leaves;
+        this.leafPaths = leafPaths;
+        this.leavesByScope = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Build a snapshot of the given leaves.
+     */
+    public static TopologySnapshot of(Collection<Node> leaves) {
+        if (leaves.isEmpty()) {
+            return EMPTY;
+        }
+        Node[] nodes = leaves.toArray(new Node[0]);
+        String[] paths = new String[nodes.length];
+        Map<String, List<Integer>> racks = new HashMap<>();
+        for (int i = 0; i < nodes.length; i++) {
+            paths[i] = NodeBase.getPath(nodes[i]);
+            racks.computeIfAbsent(NodeBase.normalize(nodes[i].getNetworkLocation()), k -> new ArrayList<>()).add(i);
+        }
+        TopologySnapshot snapshot = new TopologySnapshot(nodes, paths);
+        for (Map.Entry<String, List<Integer>> rack : racks.entrySet()) {
+            snapshot.leavesByScope.put(rack.getKey(), snapshot.subset(rack.getValue()));
+        }
+        return snapshot;
+    }
+
+    private TopologySnapshot subset(List<Integer> indexes) {
+        Node[] nodes = new Node[indexes.size()];
+        String[] paths = new String[indexes.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = leaves[indexes.get(i)];
+            paths[i] = leafPaths[indexes.get(i)];
+        }
+        return new TopologySnapshot(nodes, paths);
+    }
+
+    /**
+     * @return number of leaves in this snapshot
+     */
+    public int size() {
+        return leaves.length;
+    }
+
+    /**
+     * @return the leaf at the given index
+     */
+    public Node getLeaf(int index) {
+        return leaves[index];
+    }
+
+    /**
+     * Whether the leaf at the given index is under the given normalized scope.
+     */
+    public boolean isLeafUnderScope(int index, String scope) {
+        return isUnderScope(leafPaths[index], scope);
+    }
+
+    private static boolean isUnderScope(String path, String scope) {
+        if (NodeBase.ROOT.equals(scope)) {
+            return true;
+        }
+        return path.startsWith(scope)
+                && (path.length() == scope.length() || path.charAt(scope.length()) == NodeBase.PATH_SEPARATOR);
+    }
+
+    /**
+     * Returns the leaves under a location, the same leaves as
+     * {@link NetworkTopology#getLeaves(String)} for a scope which is not
+     * inverted.
+     *
+     * @param scope
+     *      network location
+     * @return snapshot of the leaves under the location
+     */
+    public TopologySnapshot getLeaves(String scope) {
+        String normalizedScope = NodeBase.normalize(scope);
+        if (NodeBase.ROOT.equals(normalizedScope) || leaves.length == 0) {
+            return this;
+        }
+        TopologySnapshot scoped = leavesByScope.get(normalizedScope);
+        if (scoped != null) {
+            return scoped;
+        }
+        return leavesByScope.computeIfAbsent(normalizedScope, s -> {
+            List<Integer> indexes = new ArrayList<>();
+            for (int i = 0; i < leaves.length; i++) {
+                if (isUnderScope(leafPaths[i], s)) {
+                    indexes.add(i);
+                }
+            }
+            return indexes.isEmpty() ? EMPTY : subset(indexes);
+        });
+    }
+}
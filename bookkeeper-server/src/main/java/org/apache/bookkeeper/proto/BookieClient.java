@@ -31,10 +31,12 @@ import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ForceLedgerCallba
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GetBookieInfoCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadLacCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.StreamReadEntryCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteLacCallback;
 import org.apache.bookkeeper.util.AvailabilityOfEntriesOfLedger;
 import org.apache.bookkeeper.util.ByteBufList;
+import org.apache.bookkeeper.util.EntriesOfLedgerSummary;
 
 /**
  * Low level client for talking to bookies.
@@ -272,6 +274,51 @@ public interface BookieClient {
     CompletableFuture<AvailabilityOfEntriesOfLedger> getListOfEntriesOfLedger(BookieId address,
             long ledgerId);
 
+    /**
+     * Makes async request for getting the summaries of the entries of ledger
+     * residing in a bookie, for each of the given ranges, and returns Future
+     * for the result.
+     *
+     * @param address
+     *            BookieId of the bookie
+     * @param ledgerId
+     *            ledgerId
+     * @param ranges
+     *            ranges of entries to summarize
+     * @return returns Future of the summaries, in the same order as the ranges
+     */
+    CompletableFuture<List<EntriesOfLedgerSummary>> getEntriesOfLedgerSummaries(BookieId address,
+            long ledgerId, List<EntriesOfLedgerSummary> ranges);
+
+    /**
+     * Subscribe to the entries of a ledger stored by a bookie, from {@code startEntryId}.
+     * The bookie pushes the entries to the callback as they are added, one per credit
+     * granted to the subscription, along with the last add confirmed it knows.
+     *
+     * @param address
+     *            BookieId of the bookie
+     * @param ledgerId
+     *            ledgerId
+     * @param startEntryId
+     *            the first entry to push
+     * @param credits
+     *            the number of entries the bookie can push before more credits are granted
+     * @param ensembleSize
+     *            the size of the ensemble the bookie is subscribed for
+     * @param writeQuorumSize
+     *            the write quorum size of the ledger
+     * @param bookieIndex
+     *            the index of the bookie in the ensemble, so it only reads the entries striped to it
+     * @param cb
+     *            the callback receiving the entries
+     * @param ctx
+     *            control object
+     * @return returns Future of the subscription, completed once it is requested to the bookie
+     */
+    CompletableFuture<StreamReadSubscription> streamReadEntries(BookieId address, long ledgerId,
+            long startEntryId, int credits, int ensembleSize, int writeQuorumSize, int bookieIndex,
+            StreamReadEntryCallback cb, Object ctx);
+
     /**
      * @return whether bookie client object has been closed
      */
@@ -50,6 +50,7 @@ import org.apache.bookkeeper.auth.AuthProviderFactoryFactory;
 import org.apache.bookkeeper.auth.ClientAuthProvider;
 import org.apache.bookkeeper.client.BKException;
 import org.apache.bookkeeper.client.BookieInfoReader.BookieInfo;
+import org.apache.bookkeeper.client.BookieLatencyTracker;
 import org.apache.bookkeeper.client.api.WriteFlag;
 import org.apache.bookkeeper.common.util.OrderedExecutor;
 import org.apache.bookkeeper.conf.ClientConfiguration;
@@ -57,11 +58,13 @@ import org.apache.bookkeeper.net.BookieId;
 import org.apache.bookkeeper.net.BookieSocketAddress;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.BatchedReadEntryCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ForceLedgerCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.FutureGetEntriesOfLedgerSummaries;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.FutureGetListOfEntriesOfLedger;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GenericCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GetBookieInfoCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadLacCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.StreamReadEntryCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteLacCallback;
 import org.apache.bookkeeper.stats.NullStatsLogger;
@@ -70,6 +73,7 @@ import org.apache.bookkeeper.tls.SecurityException;
 import org.apache.bookkeeper.tls.SecurityHandlerFactory;
 import org.apache.bookkeeper.util.AvailabilityOfEntriesOfLedger;
 import org.apache.bookkeeper.util.ByteBufList;
+import org.apache.bookkeeper.util.EntriesOfLedgerSummary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -102,6 +106,7 @@ public class BookieClientImpl implements BookieClient, PerChannelBookieClientFac
     private final BookieAddressResolver bookieAddressResolver;
 
     private final long bookieErrorThresholdPerInterval;
+    private volatile BookieLatencyTracker readLatencyTracker;
 
     public BookieClientImpl(ClientConfiguration conf, EventLoopGroup eventLoopGroup,
                             ByteBufAllocator allocator,
@@ -192,9 +197,19 @@ public class BookieClientImpl implements BookieClient, PerChannelBookieClientFac
         if (forceUseV3) {
             clientConfiguration = v3Conf;
         }
-        return new PerChannelBookieClient(clientConfiguration, executor, eventLoopGroup, allocator, address,
-                                   statsLoggerForPCBC, authProviderFactory, registry, pcbcPool,
+        PerChannelBookieClient pcbc = new PerChannelBookieClient(clientConfiguration, executor, eventLoopGroup,
+                                   allocator, address, statsLoggerForPCBC, authProviderFactory, registry, pcbcPool,
                                    shFactory, bookieAddressResolver);
+        pcbc.setReadLatencyTracker(readLatencyTracker);
+        return pcbc;
+    }
+
+    /**
+     * Set the tracker of the latencies of the reads sent to the bookies. It applies to the
+     * connections created after it is set.
+     */
+    public void setReadLatencyTracker(BookieLatencyTracker readLatencyTracker) {
+        this.readLatencyTracker = readLatencyTracker;
     }
 
     public PerChannelBookieClientPool lookupClient(BookieId addr) {
@@ -343,6 +358,55 @@ public class BookieClientImpl implements BookieClient, PerChannelBookieClientFac
         return futureResult;
     }
 
+    @Override
+    public CompletableFuture<List<EntriesOfLedgerSummary>> getEntriesOfLedgerSummaries(BookieId address,
+            long ledgerId, List<EntriesOfLedgerSummary> ranges) {
+        FutureGetEntriesOfLedgerSummaries futureResult = new FutureGetEntriesOfLedgerSummaries(ledgerId);
+        final PerChannelBookieClientPool client = lookupClient(address);
+        if (client == null) {
+            futureResult.getEntriesOfLedgerSummariesComplete(
+                    getRc(BKException.Code.BookieHandleNotAvailableException), ledgerId, null);
+            return futureResult;
+        }
+        client.obtain((rc, pcbc) -> {
+            if (rc != BKException.Code.OK) {
+                try {
+                    executor.executeOrdered(ledgerId, () ->
+                            futureResult.getEntriesOfLedgerSummariesComplete(rc, ledgerId, null)
+                    );
+                } catch (RejectedExecutionException re) {
+                    futureResult.getEntriesOfLedgerSummariesComplete(getRc(BKException.Code.InterruptedException),
+                            ledgerId, null);
+                }
+            } else {
+                pcbc.getEntriesOfLedgerSummaries(ledgerId, ranges, futureResult);
+            }
+        }, ledgerId);
+        return futureResult;
+    }
+
+    @Override
+    public CompletableFuture<StreamReadSubscription> streamReadEntries(BookieId address, long ledgerId,
+            long startEntryId, int credits, int ensembleSize, int writeQuorumSize, int bookieIndex,
+            StreamReadEntryCallback cb, Object ctx) {
+        CompletableFuture<StreamReadSubscription> futureResult = new CompletableFuture<>();
+        final PerChannelBookieClientPool client = lookupClient(address);
+        if (client == null) {
+            futureResult.completeExceptionally(
+                    BKException.create(getRc(BKException.Code.BookieHandleNotAvailableException)));
+            return futureResult;
+        }
+        client.obtain((rc, pcbc) -> {
+            if (rc != BKException.Code.OK) {
+                futureResult.completeExceptionally(BKException.create(rc));
+            } else {
+                futureResult.complete(pcbc.streamReadEntries(ledgerId, startEntryId, credits,
+                        ensembleSize, writeQuorumSize, bookieIndex, cb, ctx));
+            }
+        }, ledgerId);
+        return futureResult;
+    }
+
     private void completeRead(final int rc,
                               final long ledgerId,
                               final long entryId,
@@ -32,6 +32,7 @@ import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.group.ChannelGroup;
 import io.netty.handler.ssl.SslHandler;
+import io.netty.util.AttributeKey;
 import io.netty.util.HashedWheelTimer;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.GenericFutureListener;
@@ -66,6 +67,12 @@ import org.slf4j.MDC;
 public class BookieRequestProcessor implements RequestProcessor {
 
     private static final Logger LOG = LoggerFactory.getLogger(BookieRequestProcessor.class);
+
+    // bounds of the ledgers whose last entry added is tracked to classify the reads
+    // the shorter delays of the adds paced by the storage are not worth pausing the channel
+    private static final long MIN_ADD_PACING_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    // set on the channels whose autoread was disabled by the add pacing, until it re-enables it
+    private static final AttributeKey<Boolean> PAUSED_BY_ADD_PACING = AttributeKey.valueOf("pausedByAddPacing");
     public static final String TLS_HANDLER_NAME = "tls";
 
     /**
@@ -107,11 +114,33 @@ public class BookieRequestProcessor implements RequestProcessor {
      */
     private final OrderedExecutor highPriorityThreadPool;
 
+    /**
+     * The threadpool used to execute the catch-up reads, if enabled.
+     */
+    private final OrderedExecutor catchUpReadThreadPool;
+
     /**
      * The Timer used to time out requests for long polling.
      */
     private final HashedWheelTimer requestTimer;
 
+    /**
+     * The registry batching the long poll requests waiting on the same ledger, if enabled.
+     */
+    private final LongPollSubscriptionRegistry longPollSubscriptionRegistry;
+
+    /**
+     * The registry of the stream read subscriptions, if they are enabled.
+     */
+    private final StreamReadRegistry streamReadRegistry;
+
+    /**
+     * The schedulers queuing the add and read requests per tenant, if the fair request scheduling is enabled.
+     */
+    private final FairRequestScheduler writeScheduler;
+    private final FairRequestScheduler readScheduler;
+    private final FairRequestScheduler catchUpReadScheduler;
+
     // Expose Stats
     private final BKStats bkStats = BKStats.getInstance();
     private final boolean statsEnabled;
@@ -167,6 +196,11 @@ public class BookieRequestProcessor implements RequestProcessor {
                 this.serverCfg.getNumHighPriorityWorkerThreads(),
                 "BookieHighPriorityThread",
                 OrderedExecutor.NO_TASK_LIMIT, statsLogger);
+        this.catchUpReadThreadPool = createExecutor(
+                this.serverCfg.getNumCatchUpReadWorkerThreads(),
+                "BookieCatchUpReadThreadPool",
+                serverCfg.getMaxPendingReadRequestPerThread(),
+                statsLogger);
         this.shFactory = shFactory;
         if (shFactory != null) {
             shFactory.init(NodeType.Server, serverCfg, allocator);
@@ -200,6 +234,34 @@ public class BookieRequestProcessor implements RequestProcessor {
         this.statsEnabled = serverCfg.isStatisticsEnabled();
         this.requestStats = new RequestStats(statsLogger);
 
+        if (serverCfg.isLongPollBatchNotificationsEnabled()) {
+            this.longPollSubscriptionRegistry = new LongPollSubscriptionRegistry(
+                    bookie, longPollThreadPool, requestTimer, requestStats);
+        } else {
+            this.longPollSubscriptionRegistry = null;
+        }
+        if (serverCfg.isStreamReadEnabled()) {
+            this.streamReadRegistry = new StreamReadRegistry(
+                    bookie, readThreadPool, longPollThreadPool, requestTimer, requestStats);
+        } else {
+            this.streamReadRegistry = null;
+        }
+
+        if (serverCfg.isFairRequestSchedulingEnabled()) {
+            this.writeScheduler = null == writeThreadPool ? null : createScheduler(
+                    writeThreadPool, "write", serverCfg.getFairRequestSchedulingMaxOutstandingBytesPerTenant(),
+                    statsLogger);
+            // the size of an entry isn't known before it is read
+            this.readScheduler = null == readThreadPool ? null : createScheduler(
+                    readThreadPool, "read", Long.MAX_VALUE, statsLogger);
+            this.catchUpReadScheduler = null == catchUpReadThreadPool ? null : createScheduler(
+                    catchUpReadThreadPool, "catchup-read", Long.MAX_VALUE, statsLogger);
+        } else {
+            this.writeScheduler = null;
+            this.readScheduler = null;
+            this.catchUpReadScheduler = null;
+        }
+
         int maxAdds = serverCfg.getMaxAddsInProgressLimit();
         addsSemaphore = maxAdds > 0 ? new Semaphore(maxAdds, true) : null;
 
@@ -207,11 +269,47 @@ public class BookieRequestProcessor implements RequestProcessor {
         readsSemaphore = maxReads > 0 ? new Semaphore(maxReads, true) : null;
     }
 
+    private FairRequestScheduler createScheduler(OrderedExecutor executor, String pool,
+                                                 long maxOutstandingBytesPerTenant, StatsLogger statsLogger) {
+        return new FairRequestScheduler(
+                executor,
+                serverCfg.getFairRequestSchedulingMaxOutstandingRequestsPerTenant(),
+                maxOutstandingBytesPerTenant,
+                serverCfg.getFairRequestSchedulingMaxQueuedRequestsPerTenant(),
+                serverCfg.getFairRequestSchedulingMaxTenants(),
+                statsLogger.scopeLabel("pool", pool));
+    }
+
+    /**
+     * Whether a read is a catch-up read, reading an entry far behind the last entry added to the ledger, as
+     * told by the ledger storage. The other reads are tail reads.
+     */
+    private boolean isCatchUpRead(long ledgerId, long entryId) {
+        if (null == catchUpReadThreadPool && null == readScheduler) {
+            // the reads are executed alike
+            return false;
+        }
+        return bookie.isCatchUpRead(ledgerId, entryId);
+    }
+
+    /**
+     * Get the scheduler queuing the reads per tenant before they are submitted to a read thread pool.
+     */
+    private FairRequestScheduler getReadScheduler(OrderedExecutor threadPool) {
+        if (threadPool == readThreadPool) {
+            return readScheduler;
+        } else if (threadPool == catchUpReadThreadPool) {
+            return catchUpReadScheduler;
+        } else {
+            return null;
+        }
+    }
+
     protected void onAddRequestStart(Channel channel) {
         if (addsSemaphore != null) {
             if (!addsSemaphore.tryAcquire()) {
                 final long throttlingStartTimeNanos = MathUtils.nowInNano();
-                channel.config().setAutoRead(false);
+                disableAutoRead(channel);
                 LOG.info("Too many add requests in progress, disabling autoread on channel {}", channel);
                 requestStats.blockAddRequest();
                 addsSemaphore.acquireUninterruptibly();
@@ -221,9 +319,43 @@ public class BookieRequestProcessor implements RequestProcessor {
                 requestStats.unblockAddRequest(delayNanos);
             }
         }
+        pauseChannelIfAddsPaced(channel);
         requestStats.trackAddRequest();
     }
 
+    /**
+     * Stop reading from the channel for as long as the storage paces the adds, so that the clients
+     * slow down gradually instead of having their adds blocked once the storage is full.
+     */
+    private void pauseChannelIfAddsPaced(Channel channel) {
+        final long delayNanos = bookie.getWriteThrottleDelayNanos();
+        if (delayNanos < MIN_ADD_PACING_DELAY_NANOS || !channel.config().isAutoRead()) {
+            return;
+        }
+        channel.config().setAutoRead(false);
+        channel.attr(PAUSED_BY_ADD_PACING).set(true);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Adds are paced by the storage, disabling autoread on channel {} for {} nanos",
+                    channel, delayNanos);
+        }
+        requestStats.paceAddRequest(delayNanos);
+        channel.eventLoop().schedule(() -> {
+            // the autoread is left as is if it was disabled again since by another throttling
+            Boolean paused = channel.attr(PAUSED_BY_ADD_PACING).getAndSet(null);
+            if (Boolean.TRUE.equals(paused)) {
+                channel.config().setAutoRead(true);
+            }
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Disable the autoread of a channel, the throttling disabling it takes over re-enabling it from the add pacing.
+     */
+    private static void disableAutoRead(Channel channel) {
+        channel.attr(PAUSED_BY_ADD_PACING).set(null);
+        channel.config().setAutoRead(false);
+    }
+
     protected void onAddRequestFinish() {
         requestStats.untrackAddRequest();
         if (addsSemaphore != null) {
@@ -235,7 +367,7 @@ public class BookieRequestProcessor implements RequestProcessor {
         if (readsSemaphore != null) {
             if (!readsSemaphore.tryAcquire()) {
                 final long throttlingStartTimeNanos = MathUtils.nowInNano();
-                channel.config().setAutoRead(false);
+                disableAutoRead(channel);
                 LOG.info("Too many read requests in progress, disabling autoread on channel {}", channel);
                 requestStats.blockReadRequest();
                 readsSemaphore.acquireUninterruptibly();
@@ -274,6 +406,7 @@ public class BookieRequestProcessor implements RequestProcessor {
             shutdownExecutor(longPollThreadPool);
         }
         shutdownExecutor(highPriorityThreadPool);
+        shutdownExecutor(catchUpReadThreadPool);
         requestTimer.stop();
         LOG.info("Closed RequestProcessor");
     }
@@ -354,6 +487,12 @@ public class BookieRequestProcessor implements RequestProcessor {
                     case GET_LIST_OF_ENTRIES_OF_LEDGER:
                         processGetListOfEntriesOfLedgerProcessorV3(r, requestHandler);
                         break;
+                    case STREAM_READ_ENTRY:
+                        if (null != streamReadRegistry) {
+                            streamReadRegistry.processRequest(r, channel);
+                            break;
+                        }
+                        // fall through to reject the request when the stream reads are disabled
                     default:
                         LOG.info("Unknown operation type {}", header.getOperation());
                         final BookkeeperProtocol.Response response =
@@ -452,29 +591,36 @@ public class BookieRequestProcessor implements RequestProcessor {
 
         if (null == threadPool) {
             write.run();
+        } else if (threadPool == writeThreadPool && null != writeScheduler) {
+            writeScheduler.executeOrdered(r.getHeader().getTenant(), r.getAddRequest().getLedgerId(), true,
+                    r.getAddRequest().getBody().size(), write, () -> rejectAddRequestV3(r, write));
         } else {
             try {
                 threadPool.executeOrdered(r.getAddRequest().getLedgerId(), write);
             } catch (RejectedExecutionException e) {
-                if (LOG.isDebugEnabled()) {
-                    LOG.debug("Failed to process request to add entry at {}:{}. Too many pending requests",
-                              r.getAddRequest().getLedgerId(), r.getAddRequest().getEntryId());
-                }
-                getRequestStats().getAddEntryRejectedCounter().inc();
-                BookkeeperProtocol.AddResponse.Builder addResponse = BookkeeperProtocol.AddResponse.newBuilder()
-                        .setLedgerId(r.getAddRequest().getLedgerId())
-                        .setEntryId(r.getAddRequest().getEntryId())
-                        .setStatus(BookkeeperProtocol.StatusCode.ETOOMANYREQUESTS);
-                BookkeeperProtocol.Response.Builder response = BookkeeperProtocol.Response.newBuilder()
-                        .setHeader(write.getHeader())
-                        .setStatus(addResponse.getStatus())
-                        .setAddResponse(addResponse);
-                BookkeeperProtocol.Response resp = response.build();
-                write.sendResponse(addResponse.getStatus(), resp, requestStats.getAddRequestStats());
+                rejectAddRequestV3(r, write);
             }
         }
     }
 
+    private void rejectAddRequestV3(final BookkeeperProtocol.Request r, final WriteEntryProcessorV3 write) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Failed to process request to add entry at {}:{}. Too many pending requests",
+                      r.getAddRequest().getLedgerId(), r.getAddRequest().getEntryId());
+        }
+        getRequestStats().getAddEntryRejectedCounter().inc();
+        BookkeeperProtocol.AddResponse.Builder addResponse = BookkeeperProtocol.AddResponse.newBuilder()
+                .setLedgerId(r.getAddRequest().getLedgerId())
+                .setEntryId(r.getAddRequest().getEntryId())
+                .setStatus(BookkeeperProtocol.StatusCode.ETOOMANYREQUESTS);
+        BookkeeperProtocol.Response.Builder response = BookkeeperProtocol.Response.newBuilder()
+                .setHeader(write.getHeader())
+                .setStatus(addResponse.getStatus())
+                .setAddResponse(addResponse);
+        BookkeeperProtocol.Response resp = response.build();
+        write.sendResponse(addResponse.getStatus(), resp, requestStats.getAddRequestStats());
+    }
+
     private void processForceLedgerRequestV3(final BookkeeperProtocol.Request r,
                                              final BookieRequestHandler requestHandler) {
         ForceLedgerProcessorV3 forceLedger = new ForceLedgerProcessorV3(r, requestHandler, this);
@@ -519,11 +665,12 @@ public class BookieRequestProcessor implements RequestProcessor {
 
         final ReadEntryProcessorV3 read;
         final OrderedExecutor threadPool;
+        boolean catchUpRead = false;
         if (RequestUtils.isLongPollReadRequest(r.getReadRequest())) {
             ExecutorService lpThread = longPollThreadPool.chooseThread(requestHandler.ctx());
 
             read = new LongPollReadEntryProcessorV3(r, requestHandler, this, fenceThread,
-                                                    lpThread, requestTimer);
+                                                    lpThread, requestTimer, longPollSubscriptionRegistry);
             threadPool = longPollThreadPool;
         } else {
             read = new ReadEntryProcessorV3(r, requestHandler, this, fenceThread);
@@ -536,36 +683,45 @@ public class BookieRequestProcessor implements RequestProcessor {
             if (isHighPriority) {
                 threadPool = highPriorityThreadPool;
             } else {
-                threadPool = readThreadPool;
+                catchUpRead = isCatchUpRead(r.getReadRequest().getLedgerId(), r.getReadRequest().getEntryId());
+                threadPool = catchUpRead && null != catchUpReadThreadPool ? catchUpReadThreadPool : readThreadPool;
             }
         }
 
+        FairRequestScheduler scheduler = getReadScheduler(threadPool);
         if (null == threadPool) {
             read.run();
+        } else if (null != scheduler) {
+            scheduler.executeOrdered(r.getHeader().getTenant(), r.getReadRequest().getLedgerId(), !catchUpRead, 0,
+                    read, () -> rejectReadRequestV3(r, read));
         } else {
             try {
                 threadPool.executeOrdered(r.getReadRequest().getLedgerId(), read);
             } catch (RejectedExecutionException e) {
-                if (LOG.isDebugEnabled()) {
-                    LOG.debug("Failed to process request to read entry at {}:{}. Too many pending requests",
-                              r.getReadRequest().getLedgerId(), r.getReadRequest().getEntryId());
-                }
-                getRequestStats().getReadEntryRejectedCounter().inc();
-                BookkeeperProtocol.ReadResponse.Builder readResponse = BookkeeperProtocol.ReadResponse.newBuilder()
-                    .setLedgerId(r.getReadRequest().getLedgerId())
-                    .setEntryId(r.getReadRequest().getEntryId())
-                    .setStatus(BookkeeperProtocol.StatusCode.ETOOMANYREQUESTS);
-                BookkeeperProtocol.Response.Builder response = BookkeeperProtocol.Response.newBuilder()
-                    .setHeader(read.getHeader())
-                    .setStatus(readResponse.getStatus())
-                    .setReadResponse(readResponse);
-                BookkeeperProtocol.Response resp = response.build();
-                read.sendResponse(readResponse.getStatus(), resp, requestStats.getReadRequestStats());
-                onReadRequestFinish();
+                rejectReadRequestV3(r, read);
             }
         }
     }
 
+    private void rejectReadRequestV3(final BookkeeperProtocol.Request r, final ReadEntryProcessorV3 read) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Failed to process request to read entry at {}:{}. Too many pending requests",
+                      r.getReadRequest().getLedgerId(), r.getReadRequest().getEntryId());
+        }
+        getRequestStats().getReadEntryRejectedCounter().inc();
+        BookkeeperProtocol.ReadResponse.Builder readResponse = BookkeeperProtocol.ReadResponse.newBuilder()
+            .setLedgerId(r.getReadRequest().getLedgerId())
+            .setEntryId(r.getReadRequest().getEntryId())
+            .setStatus(BookkeeperProtocol.StatusCode.ETOOMANYREQUESTS);
+        BookkeeperProtocol.Response.Builder response = BookkeeperProtocol.Response.newBuilder()
+            .setHeader(read.getHeader())
+            .setStatus(readResponse.getStatus())
+            .setReadResponse(readResponse);
+        BookkeeperProtocol.Response resp = response.build();
+        read.sendResponse(readResponse.getStatus(), resp, requestStats.getReadRequestStats());
+        onReadRequestFinish();
+    }
+
     private void processStartTLSRequestV3(final BookkeeperProtocol.Request r,
                                           final BookieRequestHandler requestHandler) {
         BookkeeperProtocol.Response.Builder response = BookkeeperProtocol.Response.newBuilder();
@@ -664,27 +820,35 @@ public class BookieRequestProcessor implements RequestProcessor {
 
         if (null == threadPool) {
             write.run();
+        } else if (threadPool == writeThreadPool && null != writeScheduler) {
+            // the v2 protocol doesn't tell the tenant of a request
+            writeScheduler.executeOrdered(FairRequestScheduler.DEFAULT_TENANT, r.getLedgerId(), true,
+                    r.getData().readableBytes(), write, () -> rejectAddRequest(r, write));
         } else {
             try {
                 threadPool.executeOrdered(r.getLedgerId(), write);
             } catch (RejectedExecutionException e) {
-                if (LOG.isDebugEnabled()) {
-                    LOG.debug("Failed to process request to add entry at {}:{}. Too many pending requests", r.ledgerId,
-                            r.entryId);
-                }
-                getRequestStats().getAddEntryRejectedCounter().inc();
-
-                write.sendWriteReqResponse(
-                    BookieProtocol.ETOOMANYREQUESTS,
-                    ResponseBuilder.buildErrorResponse(BookieProtocol.ETOOMANYREQUESTS, r),
-                    requestStats.getAddRequestStats());
-                r.release();
-                r.recycle();
-                write.recycle();
+                rejectAddRequest(r, write);
             }
         }
     }
 
+    private void rejectAddRequest(final BookieProtocol.ParsedAddRequest r, final WriteEntryProcessor write) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Failed to process request to add entry at {}:{}. Too many pending requests", r.ledgerId,
+                    r.entryId);
+        }
+        getRequestStats().getAddEntryRejectedCounter().inc();
+
+        write.sendWriteReqResponse(
+            BookieProtocol.ETOOMANYREQUESTS,
+            ResponseBuilder.buildErrorResponse(BookieProtocol.ETOOMANYREQUESTS, r),
+            requestStats.getAddRequestStats());
+        r.release();
+        r.recycle();
+        write.recycle();
+    }
+
     private void processReadRequest(final BookieProtocol.ReadRequest r, final BookieRequestHandler requestHandler) {
         ExecutorService fenceThreadPool =
                 null == highPriorityThreadPool ? null : highPriorityThreadPool.chooseThread(requestHandler.ctx());
@@ -698,33 +862,44 @@ public class BookieRequestProcessor implements RequestProcessor {
         // gets executed as fast as possible, so bypass the normal readThreadPool
         // and execute in highPriorityThreadPool
         final OrderedExecutor threadPool;
+        boolean catchUpRead = false;
         if (r.isHighPriority() || r.isFencing()) {
             threadPool = highPriorityThreadPool;
         } else {
-            threadPool = readThreadPool;
+            catchUpRead = isCatchUpRead(r.getLedgerId(), r.getEntryId());
+            threadPool = catchUpRead && null != catchUpReadThreadPool ? catchUpReadThreadPool : readThreadPool;
         }
 
+        FairRequestScheduler scheduler = getReadScheduler(threadPool);
         if (null == threadPool) {
             read.run();
+        } else if (null != scheduler) {
+            // the v2 protocol doesn't tell the tenant of a request
+            scheduler.executeOrdered(FairRequestScheduler.DEFAULT_TENANT, r.getLedgerId(), !catchUpRead, 0, read,
+                    () -> rejectReadRequest(r, read));
         } else {
             try {
                 threadPool.executeOrdered(r.getLedgerId(), read);
             } catch (RejectedExecutionException e) {
-                if (LOG.isDebugEnabled()) {
-                    LOG.debug("Failed to process request to read entry at {}:{}. Too many pending requests", r.ledgerId,
-                            r.entryId);
-                }
-                getRequestStats().getReadEntryRejectedCounter().inc();
-                read.sendResponse(
-                    BookieProtocol.ETOOMANYREQUESTS,
-                    ResponseBuilder.buildErrorResponse(BookieProtocol.ETOOMANYREQUESTS, r),
-                    requestStats.getReadRequestStats());
-                onReadRequestFinish();
-                read.recycle();
+                rejectReadRequest(r, read);
             }
         }
     }
 
+    private void rejectReadRequest(final BookieProtocol.ReadRequest r, final ReadEntryProcessor read) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Failed to process request to read entry at {}:{}. Too many pending requests", r.ledgerId,
+                    r.entryId);
+        }
+        getRequestStats().getReadEntryRejectedCounter().inc();
+        read.sendResponse(
+            BookieProtocol.ETOOMANYREQUESTS,
+            ResponseBuilder.buildErrorResponse(BookieProtocol.ETOOMANYREQUESTS, r),
+            requestStats.getReadRequestStats());
+        onReadRequestFinish();
+        read.recycle();
+    }
+
     public long getWaitTimeoutOnBackpressureMillis() {
         return waitTimeoutOnBackpressureMillis;
     }
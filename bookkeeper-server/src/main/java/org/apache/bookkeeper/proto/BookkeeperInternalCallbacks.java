@@ -22,6 +22,7 @@
 package org.apache.bookkeeper.proto;
 
 import io.netty.buffer.ByteBuf;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -38,6 +39,7 @@ import org.apache.bookkeeper.net.BookieId;
 import org.apache.bookkeeper.stats.OpStatsLogger;
 import org.apache.bookkeeper.util.AvailabilityOfEntriesOfLedger;
 import org.apache.bookkeeper.util.ByteBufList;
+import org.apache.bookkeeper.util.EntriesOfLedgerSummary;
 import org.apache.bookkeeper.versioning.Versioned;
 import org.apache.zookeeper.AsyncCallback;
 import org.slf4j.Logger;
@@ -115,6 +117,15 @@ public class BookkeeperInternalCallbacks {
                 AvailabilityOfEntriesOfLedger availabilityOfEntriesOfLedger);
     }
 
+    /**
+     * A callback interface for GetListOfEntriesOfLedger command requesting
+     * only the summaries of the entries of ledger.
+     */
+    public interface GetEntriesOfLedgerSummariesCallback {
+        void getEntriesOfLedgerSummariesComplete(int rc, long ledgerId,
+                List<EntriesOfLedgerSummary> entriesOfLedgerSummaries);
+    }
+
     /**
      * Handle the Response Code and transform it to a BKException.
      *
@@ -154,6 +165,29 @@ public class BookkeeperInternalCallbacks {
         }
     }
 
+    /**
+     * Future for GetListOfEntriesOfLedger requesting summaries of the entries of ledger.
+     */
+    public static class FutureGetEntriesOfLedgerSummaries extends CompletableFuture<List<EntriesOfLedgerSummary>>
+            implements GetEntriesOfLedgerSummariesCallback {
+        private final long ledgerIdOfTheRequest;
+
+        FutureGetEntriesOfLedgerSummaries(long ledgerId) {
+            this.ledgerIdOfTheRequest = ledgerId;
+        }
+
+        @Override
+        public void getEntriesOfLedgerSummariesComplete(int rc, long ledgerIdOfTheResponse,
+                List<EntriesOfLedgerSummary> entriesOfLedgerSummaries) {
+            if ((rc == BKException.Code.OK) && (ledgerIdOfTheRequest != ledgerIdOfTheResponse)) {
+                LOG.error("For getEntriesOfLedgerSummaries expected ledgerId in the response: {} actual ledgerId: {}",
+                        ledgerIdOfTheRequest, ledgerIdOfTheResponse);
+                rc = BKException.Code.ReadException;
+            }
+            finish(rc, entriesOfLedgerSummaries, this);
+        }
+    }
+
     /**
      * A generic callback interface.
      */
@@ -232,6 +266,25 @@ public class BookkeeperInternalCallbacks {
         void readEntriesComplete(int rc, long ledgerId, long startEntryId, ByteBufList bufList, Object ctx);
     }
 
+    /**
+     * Declaration of a callback implementation for calls from BookieClient objects.
+     * Such calls are for the entries pushed by a bookie to a stream read subscription.
+     *
+     */
+    public interface StreamReadEntryCallback {
+        /**
+         * Called for each entry pushed by the bookie, in entry order. The entry id is
+         * {@link BookieProtocol#LAST_ADD_CONFIRMED} and the buffer is null when the bookie
+         * only tells that the last add confirmed advanced. The callback owns the buffer.
+         */
+        void streamReadEntry(long ledgerId, long entryId, ByteBuf buffer, long lastAddConfirmed, Object ctx);
+
+        /**
+         * Called once the subscription ended, unless it was cancelled by the client.
+         */
+        void streamReadComplete(int rc, long ledgerId, Object ctx);
+    }
+
     /**
      * Listener on entries responded.
      */
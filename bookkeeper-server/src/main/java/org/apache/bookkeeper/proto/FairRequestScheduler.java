@@ -0,0 +1,266 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.FAIR_SCHEDULER_QUEUE_LATENCY;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.FAIR_SCHEDULER_REJECTED;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.common.util.MathUtils;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.OpStatsLogger;
+import org.apache.bookkeeper.stats.StatsLogger;
+
+/**
+ * Schedule the requests submitted to an ordered executor fairly between the tenants issuing them.
+ *
+ * <p>The requests of each tenant are queued apart, and at most {@code maxOutstandingRequests}
+ * requests, totalling at most {@code maxOutstandingBytes} bytes, of a tenant are submitted to the
+ * executor at once. The next request of a tenant is submitted once one of its submitted requests is
+ * executed. So a tenant flooding the bookie only fills the executor up to its budget, and the
+ * requests of the other tenants are executed behind a bounded backlog. Within a tenant, the tail
+ * requests are submitted before the catch-up requests.
+ *
+ * <p>At most {@code maxTenants} tenants are queued apart, the requests of the other tenants share the
+ * queue of {@link #DEFAULT_TENANT}. The queue of a tenant is dropped once it has no request left.
+ */
+class FairRequestScheduler {
+
+    static final String DEFAULT_TENANT = "";
+
+    private final OrderedExecutor executor;
+    private final int maxOutstandingRequests;
+    private final long maxOutstandingBytes;
+    private final int maxQueuedRequests;
+    private final int maxTenants;
+    private final StatsLogger statsLogger;
+    private final ConcurrentHashMap<String, TenantQueue> tenants = new ConcurrentHashMap<>();
+
+    FairRequestScheduler(OrderedExecutor executor, int maxOutstandingRequests, long maxOutstandingBytes,
+                         int maxQueuedRequests, int maxTenants, StatsLogger statsLogger) {
+        this.executor = executor;
+        this.maxOutstandingRequests = Math.max(1, maxOutstandingRequests);
+        this.maxOutstandingBytes = maxOutstandingBytes;
+        this.maxQueuedRequests = maxQueuedRequests;
+        this.maxTenants = maxTenants;
+        this.statsLogger = statsLogger;
+    }
+
+    /**
+     * Execute a request of a tenant, ordered by the ledger it is for.
+     *
+     * @param tenant the tenant issuing the request
+     * @param ledgerId the ledger the request is for
+     * @param tail whether the request is a tail request, submitted before the catch-up ones
+     * @param size the number of bytes of the request
+     * @param task the task executing the request
+     * @param onRejected the task rejecting the request, run if the request can't be queued or executed
+     */
+    void executeOrdered(String tenant, long ledgerId, boolean tail, long size,
+                        Runnable task, Runnable onRejected) {
+        String key = null == tenant ? DEFAULT_TENANT : tenant;
+        while (true) {
+            TenantQueue queue = tenants.get(key);
+            if (null == queue) {
+                if (!DEFAULT_TENANT.equals(key) && tenants.size() >= maxTenants) {
+                    key = DEFAULT_TENANT;
+                    continue;
+                }
+                queue = tenants.computeIfAbsent(key, TenantQueue::new);
+            }
+            if (queue.submit(new QueuedRequest(queue, ledgerId, tail, size, task, onRejected))) {
+                return;
+            }
+            // the queue was dropped while idle, retry with a new one
+        }
+    }
+
+    int getNumTenants() {
+        return tenants.size();
+    }
+
+    int getNumQueuedRequests(String tenant) {
+        TenantQueue queue = tenants.get(tenant);
+        return null == queue ? 0 : queue.getNumQueuedRequests();
+    }
+
+    int getNumOutstandingRequests(String tenant) {
+        TenantQueue queue = tenants.get(tenant);
+        return null == queue ? 0 : queue.getNumOutstandingRequests();
+    }
+
+    private class TenantQueue {
+        private final String tenant;
+        private final OpStatsLogger tailQueueLatency;
+        private final OpStatsLogger catchUpQueueLatency;
+        private final Counter rejectedCounter;
+
+        // guarded by this
+        private final ArrayDeque<QueuedRequest> tailRequests = new ArrayDeque<>();
+        private final ArrayDeque<QueuedRequest> catchUpRequests = new ArrayDeque<>();
+        private int outstandingRequests = 0;
+        private long outstandingBytes = 0;
+        private boolean removed = false;
+
+        TenantQueue(String tenant) {
+            this.tenant = tenant;
+            StatsLogger tenantStatsLogger = statsLogger.scopeLabel("tenant", tenant);
+            this.tailQueueLatency = tenantStatsLogger.scopeLabel("class", "tail")
+                    .getOpStatsLogger(FAIR_SCHEDULER_QUEUE_LATENCY);
+            this.catchUpQueueLatency = tenantStatsLogger.scopeLabel("class", "catchup")
+                    .getOpStatsLogger(FAIR_SCHEDULER_QUEUE_LATENCY);
+            this.rejectedCounter = tenantStatsLogger.getCounter(FAIR_SCHEDULER_REJECTED);
+        }
+
+        synchronized int getNumQueuedRequests() {
+            return tailRequests.size() + catchUpRequests.size();
+        }
+
+        synchronized int getNumOutstandingRequests() {
+            return outstandingRequests;
+        }
+
+        /**
+         * Submit a request of the tenant.
+         *
+         * @return false if the queue was dropped, true otherwise
+         */
+        boolean submit(QueuedRequest request) {
+            boolean execute = false;
+            boolean rejected = false;
+            synchronized (this) {
+                if (removed) {
+                    return false;
+                } else if (tailRequests.isEmpty() && catchUpRequests.isEmpty() && hasBudget(request)) {
+                    acquireBudget(request);
+                    execute = true;
+                } else if (getNumQueuedRequests() >= maxQueuedRequests) {
+                    rejected = true;
+                } else if (request.tail) {
+                    tailRequests.add(request);
+                } else {
+                    catchUpRequests.add(request);
+                }
+            }
+            if (execute) {
+                ArrayDeque<QueuedRequest> requests = new ArrayDeque<>(1);
+                requests.add(request);
+                execute(requests);
+            } else if (rejected) {
+                rejectedCounter.inc();
+                request.onRejected.run();
+            }
+            return true;
+        }
+
+        // guarded by this
+        private boolean hasBudget(QueuedRequest request) {
+            if (outstandingRequests == 0) {
+                // a request larger than the byte budget is executed alone
+                return true;
+            }
+            return outstandingRequests < maxOutstandingRequests
+                    && outstandingBytes + request.size <= maxOutstandingBytes;
+        }
+
+        // guarded by this
+        private void acquireBudget(QueuedRequest request) {
+            outstandingRequests++;
+            outstandingBytes += request.size;
+        }
+
+        /**
+         * Release the budget of an executed request, and add the requests it makes room for.
+         */
+        synchronized void release(QueuedRequest request, ArrayDeque<QueuedRequest> requestsToExecute) {
+            outstandingRequests--;
+            outstandingBytes -= request.size;
+            while (true) {
+                ArrayDeque<QueuedRequest> requests = tailRequests.isEmpty() ? catchUpRequests : tailRequests;
+                QueuedRequest next = requests.peek();
+                if (null == next) {
+                    if (outstandingRequests == 0 && !DEFAULT_TENANT.equals(tenant)) {
+                        // drop the queue of an idle tenant, so the tenants seen once aren't kept
+                        removed = true;
+                        tenants.remove(tenant, this);
+                    }
+                    return;
+                } else if (!hasBudget(next)) {
+                    return;
+                }
+                requests.poll();
+                acquireBudget(next);
+                requestsToExecute.add(next);
+            }
+        }
+
+        void execute(ArrayDeque<QueuedRequest> requests) {
+            QueuedRequest request;
+            while (null != (request = requests.poll())) {
+                (request.tail ? tailQueueLatency : catchUpQueueLatency).registerSuccessfulEvent(
+                        MathUtils.elapsedNanos(request.enqueueNanos), TimeUnit.NANOSECONDS);
+                try {
+                    executor.executeOrdered(request.ledgerId, request);
+                } catch (RejectedExecutionException ree) {
+                    rejectedCounter.inc();
+                    request.onRejected.run();
+                    release(request, requests);
+                }
+            }
+        }
+    }
+
+    private static class QueuedRequest implements Runnable {
+        final TenantQueue queue;
+        final long ledgerId;
+        final boolean tail;
+        final long size;
+        final Runnable task;
+        final Runnable onRejected;
+        final long enqueueNanos;
+
+        QueuedRequest(TenantQueue queue, long ledgerId, boolean tail, long size,
+                      Runnable task, Runnable onRejected) {
+            this.queue = queue;
+            this.ledgerId = ledgerId;
+            this.tail = tail;
+            this.size = size;
+            this.task = task;
+            this.onRejected = onRejected;
+            this.enqueueNanos = MathUtils.nowInNano();
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.run();
+            } finally {
+                ArrayDeque<QueuedRequest> requests = new ArrayDeque<>();
+                queue.release(this, requests);
+                if (!requests.isEmpty()) {
+                    queue.execute(requests);
+                }
+            }
+        }
+    }
+}
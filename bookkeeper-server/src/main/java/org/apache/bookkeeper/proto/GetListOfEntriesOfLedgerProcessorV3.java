@@ -22,15 +22,19 @@ package org.apache.bookkeeper.proto;
 
 import com.google.protobuf.ByteString;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import org.apache.bookkeeper.bookie.Bookie;
 import org.apache.bookkeeper.common.util.MathUtils;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.EntryIdRange;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.GetListOfEntriesOfLedgerRequest;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.GetListOfEntriesOfLedgerResponse;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.Request;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.Response;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.StatusCode;
 import org.apache.bookkeeper.util.AvailabilityOfEntriesOfLedger;
+import org.apache.bookkeeper.util.EntriesOfLedgerSummary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -70,11 +74,31 @@ public class GetListOfEntriesOfLedgerProcessorV3 extends PacketProcessorBaseV3 i
         StatusCode status = StatusCode.EOK;
         AvailabilityOfEntriesOfLedger availabilityOfEntriesOfLedger = null;
         try {
-            availabilityOfEntriesOfLedger = new AvailabilityOfEntriesOfLedger(
-                    requestProcessor.bookie.getListOfEntriesOfLedger(ledgerId));
-            getListOfEntriesOfLedgerResponse.setAvailabilityOfEntriesOfLedger(
-                    ByteString.copyFrom(availabilityOfEntriesOfLedger.serializeStateOfEntriesOfLedger()));
-
+            if (getListOfEntriesOfLedgerRequest.getSummaryRangesCount() > 0) {
+                /*
+                 * only the summaries of the requested ranges are sent back,
+                 * instead of the complete list of entries.
+                 */
+                List<EntriesOfLedgerSummary> ranges = new ArrayList<>(
+                        getListOfEntriesOfLedgerRequest.getSummaryRangesCount());
+                for (EntryIdRange range : getListOfEntriesOfLedgerRequest.getSummaryRangesList()) {
+                    ranges.add(new EntriesOfLedgerSummary(range.getFirstEntryId(), range.getLastEntryId()));
+                }
+                for (EntriesOfLedgerSummary summary : EntriesOfLedgerSummary
+                        .summarize(requestProcessor.bookie.getListOfEntriesOfLedger(ledgerId), ranges)) {
+                    getListOfEntriesOfLedgerResponse.addEntriesOfLedgerSummaries(
+                            BookkeeperProtocol.EntriesOfLedgerSummary.newBuilder()
+                                    .setFirstEntryId(summary.getFirstEntryId())
+                                    .setLastEntryId(summary.getLastEntryId())
+                                    .setNumEntries(summary.getNumEntries())
+                                    .setDigest(summary.getDigest()));
+                }
+            } else {
+                availabilityOfEntriesOfLedger = new AvailabilityOfEntriesOfLedger(
+                        requestProcessor.bookie.getListOfEntriesOfLedger(ledgerId));
+                getListOfEntriesOfLedgerResponse.setAvailabilityOfEntriesOfLedger(
+                        ByteString.copyFrom(availabilityOfEntriesOfLedger.serializeStateOfEntriesOfLedger()));
+            }
         } catch (Bookie.NoLedgerException e) {
             status = StatusCode.ENOLEDGER;
             LOG.error("No ledger found while performing getListOfEntriesOfLedger from ledger: {}", ledgerId, e);
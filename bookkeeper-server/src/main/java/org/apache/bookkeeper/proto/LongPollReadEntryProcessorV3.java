@@ -18,6 +18,7 @@
 package org.apache.bookkeeper.proto;
 
 import com.google.common.base.Stopwatch;
+import com.google.protobuf.ByteString;
 import io.netty.util.HashedWheelTimer;
 import io.netty.util.Timeout;
 import java.io.IOException;
@@ -29,6 +30,7 @@ import java.util.concurrent.TimeUnit;
 import org.apache.bookkeeper.bookie.Bookie;
 import org.apache.bookkeeper.bookie.BookieException;
 import org.apache.bookkeeper.bookie.LastAddConfirmedUpdateNotification;
+import org.apache.bookkeeper.common.util.MathUtils;
 import org.apache.bookkeeper.common.util.Watcher;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.ReadResponse;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.Request;
@@ -39,7 +41,8 @@ import org.slf4j.LoggerFactory;
 /**
  * Processor handling long poll read entry request.
  */
-class LongPollReadEntryProcessorV3 extends ReadEntryProcessorV3 implements Watcher<LastAddConfirmedUpdateNotification> {
+class LongPollReadEntryProcessorV3 extends ReadEntryProcessorV3
+        implements Watcher<LastAddConfirmedUpdateNotification>, LongPollSubscriptionRegistry.Subscriber {
 
     private static final Logger logger = LoggerFactory.getLogger(LongPollReadEntryProcessorV3.class);
 
@@ -49,9 +52,13 @@ class LongPollReadEntryProcessorV3 extends ReadEntryProcessorV3 implements Watch
     // long poll execution state
     private final ExecutorService longPollThreadPool;
     private final HashedWheelTimer requestTimer;
+    private final LongPollSubscriptionRegistry subscriptionRegistry;
     private Timeout expirationTimerTask = null;
     private Future<?> deferredTask = null;
     private boolean shouldReadEntry = false;
+    private long deadlineNanos;
+    // the entry after previousLAC, read once for all the batched long poll reads waiting at previousLAC
+    private ByteString piggybackedEntry = null;
 
     LongPollReadEntryProcessorV3(Request request,
                                  BookieRequestHandler requestHandler,
@@ -59,11 +66,21 @@ class LongPollReadEntryProcessorV3 extends ReadEntryProcessorV3 implements Watch
                                  ExecutorService fenceThreadPool,
                                  ExecutorService longPollThreadPool,
                                  HashedWheelTimer requestTimer) {
+        this(request, requestHandler, requestProcessor, fenceThreadPool, longPollThreadPool, requestTimer, null);
+    }
+
+    LongPollReadEntryProcessorV3(Request request,
+                                 BookieRequestHandler requestHandler,
+                                 BookieRequestProcessor requestProcessor,
+                                 ExecutorService fenceThreadPool,
+                                 ExecutorService longPollThreadPool,
+                                 HashedWheelTimer requestTimer,
+                                 LongPollSubscriptionRegistry subscriptionRegistry) {
         super(request, requestHandler, requestProcessor, fenceThreadPool);
         this.previousLAC = readRequest.getPreviousLAC();
         this.longPollThreadPool = longPollThreadPool;
         this.requestTimer = requestTimer;
-
+        this.subscriptionRegistry = subscriptionRegistry;
     }
 
     @Override
@@ -98,6 +115,12 @@ class LongPollReadEntryProcessorV3 extends ReadEntryProcessorV3 implements Watch
                     if (logger.isDebugEnabled()) {
                         logger.debug("ReadLAC Piggy Back reading entry:{} from ledger: {}", entryId, ledgerId);
                     }
+                    ByteString entry = getPiggybackedEntry();
+                    if (null != entry) {
+                        readResponseBuilder.setBody(entry);
+                        readResponseBuilder.setEntryId(entryId);
+                        return buildResponse(readResponseBuilder, StatusCode.EOK, startTimeSw);
+                    }
                     try {
                         return super.readEntry(readResponseBuilder, entryId, true, startTimeSw);
                     } catch (Bookie.NoEntryException e) {
@@ -142,7 +165,15 @@ class LongPollReadEntryProcessorV3 extends ReadEntryProcessorV3 implements Watch
 
             final boolean watched;
             try {
-                watched = requestProcessor.getBookie().waitForLastAddConfirmedUpdate(ledgerId, previousLAC, this);
+                if (null != subscriptionRegistry) {
+                    synchronized (this) {
+                        deadlineNanos = MathUtils.nowInNano()
+                                + TimeUnit.MILLISECONDS.toNanos(readRequest.getTimeOut());
+                    }
+                    watched = subscriptionRegistry.subscribe(this);
+                } else {
+                    watched = requestProcessor.getBookie().waitForLastAddConfirmedUpdate(ledgerId, previousLAC, this);
+                }
             } catch (Bookie.NoLedgerException e) {
                 logger.info("No ledger found while longpoll reading ledger {}, previous lac = {}.",
                         ledgerId, previousLAC);
@@ -156,7 +187,10 @@ class LongPollReadEntryProcessorV3 extends ReadEntryProcessorV3 implements Watch
             registerSuccessfulEvent(requestProcessor.getRequestStats().getLongPollPreWaitStats(), startTimeSw);
             lastPhaseStartTime.reset().start();
 
-            if (watched) {
+            if (watched && null != subscriptionRegistry) {
+                // the registry times out the request
+                return null;
+            } else if (watched) {
                 // successfully registered watcher to lac updates
                 if (logger.isTraceEnabled()) {
                     logger.trace("Waiting For LAC Update {}: Timeout {}", previousLAC, readRequest.getTimeOut());
@@ -199,6 +233,50 @@ class LongPollReadEntryProcessorV3 extends ReadEntryProcessorV3 implements Watch
         newLACNotification.recycle();
     }
 
+    @Override
+    public long getLedgerId() {
+        return ledgerId;
+    }
+
+    @Override
+    public long getPreviousLastAddConfirmed() {
+        return previousLAC;
+    }
+
+    @Override
+    public synchronized long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    @Override
+    public boolean shouldPiggybackEntry() {
+        return RequestUtils.shouldPiggybackEntry(readRequest);
+    }
+
+    private synchronized ByteString getPiggybackedEntry() {
+        return piggybackedEntry;
+    }
+
+    @Override
+    public void onLastAddConfirmedAdvanced(long lac, long lacUpdateTimestamp, ByteString entry) {
+        synchronized (this) {
+            if (lac != Long.MAX_VALUE && !lastAddConfirmedUpdateTime.isPresent()) {
+                lastAddConfirmedUpdateTime = Optional.of(lacUpdateTimestamp);
+            }
+            piggybackedEntry = entry;
+        }
+        if (logger.isTraceEnabled()) {
+            logger.trace("Last Add Confirmed Advanced to {} for request {}", lac, request);
+        }
+        scheduleDeferredRead(false);
+    }
+
+    @Override
+    public void onTimeout() {
+        // When the timeout expires just get whatever is the current readLastConfirmed
+        scheduleDeferredRead(true);
+    }
+
     private synchronized void scheduleDeferredRead(boolean timeout) {
         if (null == deferredTask) {
             if (logger.isTraceEnabled()) {
@@ -0,0 +1,380 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import com.google.protobuf.ByteString;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.Timeout;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.bookie.BookieException;
+import org.apache.bookkeeper.bookie.LastAddConfirmedUpdateNotification;
+import org.apache.bookkeeper.common.util.MathUtils;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
+import org.apache.bookkeeper.common.util.Watcher;
+import org.apache.bookkeeper.util.collections.ConcurrentLongHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of the long poll reads waiting for the last add confirmed of a ledger to advance.
+ *
+ * <p>The long poll reads of a ledger share a single {@link Watcher} registered with the bookie and
+ * a single timeout on the request timer, instead of registering one of each per read. When the
+ * last add confirmed advances, all the reads waiting for it are woken up by one task ordered by
+ * ledger, and the entry they piggyback is read once for all the reads at the same position.
+ */
+class LongPollSubscriptionRegistry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LongPollSubscriptionRegistry.class);
+
+    /**
+     * A long poll read waiting for the last add confirmed of a ledger to advance.
+     */
+    interface Subscriber {
+
+        long getLedgerId();
+
+        /**
+         * @return the last add confirmed known by the reader
+         */
+        long getPreviousLastAddConfirmed();
+
+        /**
+         * @return the time, in nanoseconds, after which the read times out
+         */
+        long getDeadlineNanos();
+
+        /**
+         * @return whether the reader wants the entry after its last add confirmed
+         */
+        boolean shouldPiggybackEntry();
+
+        /**
+         * Called once the last add confirmed advanced past the previous one of the reader.
+         *
+         * @param lac the new last add confirmed
+         * @param lacUpdateTimestamp the time the last add confirmed advanced
+         * @param piggybackedEntry the body of the entry after the previous last add confirmed of the
+         *                         reader, or null if it wasn't read
+         */
+        void onLastAddConfirmedAdvanced(long lac, long lacUpdateTimestamp, ByteString piggybackedEntry);
+
+        /**
+         * Called if the last add confirmed didn't advance before the deadline.
+         */
+        void onTimeout();
+    }
+
+    private static final Comparator<Subscriber> DEADLINE_ORDER =
+            Comparator.comparingLong(Subscriber::getDeadlineNanos);
+
+    private final Bookie bookie;
+    private final OrderedExecutor notificationExecutor;
+    private final HashedWheelTimer requestTimer;
+    private final RequestStats requestStats;
+    private final ConcurrentLongHashMap<LedgerSubscriptions> ledgers =
+            ConcurrentLongHashMap.<LedgerSubscriptions>newBuilder().build();
+
+    LongPollSubscriptionRegistry(Bookie bookie, OrderedExecutor notificationExecutor,
+                                 HashedWheelTimer requestTimer, RequestStats requestStats) {
+        this.bookie = bookie;
+        this.notificationExecutor = notificationExecutor;
+        this.requestTimer = requestTimer;
+        this.requestStats = requestStats;
+    }
+
+    /**
+     * Subscribe a long poll read to the updates of the last add confirmed of its ledger.
+     *
+     * @return true if the read waits for the last add confirmed to advance, false if it already
+     *         advanced past the previous one of the reader, or the ledger is closed.
+     * @throws IOException if the ledger can't be accessed
+     */
+    boolean subscribe(Subscriber subscriber) throws IOException {
+        while (true) {
+            LedgerSubscriptions subscriptions =
+                    ledgers.computeIfAbsent(subscriber.getLedgerId(), LedgerSubscriptions::new);
+            synchronized (subscriptions) {
+                if (!subscriptions.removed) {
+                    return subscriptions.subscribe(subscriber);
+                }
+            }
+        }
+    }
+
+    int getNumSubscribedLedgers() {
+        return (int) ledgers.size();
+    }
+
+    private class LedgerSubscriptions implements Watcher<LastAddConfirmedUpdateNotification> {
+        private final long ledgerId;
+
+        // guarded by this
+        private final PriorityQueue<Subscriber> waiters = new PriorityQueue<>(DEADLINE_ORDER);
+        private long watchedLAC;
+        private Timeout expirationTask = null;
+        private long expirationDeadlineNanos;
+        private boolean removed = false;
+
+        // the watcher is registered with the bookie; cleared by the bookie notifying it
+        private volatile boolean watching = false;
+        // a notification task is pending
+        private volatile boolean notifying = false;
+
+        LedgerSubscriptions(long ledgerId) {
+            this.ledgerId = ledgerId;
+        }
+
+        private boolean subscribe(Subscriber subscriber) throws IOException {
+            long previousLAC = subscriber.getPreviousLastAddConfirmed();
+            if (watching && previousLAC >= watchedLAC) {
+                // the last add confirmed didn't advance past watchedLAC since the watcher was registered
+                waiters.add(subscriber);
+            } else if (watching || notifying) {
+                // the watcher is registered, or about to be, but it doesn't tell about this previous lac
+                try {
+                    if (bookie.readLastAddConfirmed(ledgerId) > previousLAC) {
+                        return false;
+                    }
+                } catch (BookieException e) {
+                    // let the read fail on its own
+                    return false;
+                }
+                if (watching) {
+                    // watch again from this previous lac, and then drop the registration from watchedLAC; a
+                    // notification task started in between watches again from the lowest previous lac anyway
+                    if (!bookie.waitForLastAddConfirmedUpdate(ledgerId, previousLAC, this)) {
+                        return false;
+                    }
+                    watchedLAC = previousLAC;
+                    try {
+                        bookie.cancelWaitForLastAddConfirmedUpdate(ledgerId, this);
+                    } catch (IOException e) {
+                        // the watcher is notified twice on the next update, which is harmless
+                        LOG.warn("Failed to cancel the previous watch of ledger {}", ledgerId, e);
+                    }
+                }
+                waiters.add(subscriber);
+            } else {
+                boolean watched = false;
+                try {
+                    watched = bookie.waitForLastAddConfirmedUpdate(ledgerId, previousLAC, this);
+                } finally {
+                    if (!watched) {
+                        removeIfIdle();
+                    }
+                }
+                if (!watched) {
+                    return false;
+                }
+                watchedLAC = previousLAC;
+                watching = true;
+                waiters.add(subscriber);
+            }
+            scheduleExpiration();
+            return true;
+        }
+
+        @Override
+        public void update(LastAddConfirmedUpdateNotification notification) {
+            final long lac = notification.getLastAddConfirmed();
+            final long lacUpdateTimestamp = notification.getTimestamp();
+            final long notifiedNanos = MathUtils.nowInNano();
+            notification.recycle();
+
+            // notifying is set first, so a subscriber seeing the watcher is gone knows a notification is pending
+            notifying = true;
+            watching = false;
+            try {
+                notificationExecutor.executeOrdered(ledgerId,
+                        () -> onLastAddConfirmedUpdate(lac, lacUpdateTimestamp, notifiedNanos));
+            } catch (RejectedExecutionException ree) {
+                // the bookie is shutting down
+                notifying = false;
+            }
+        }
+
+        private void onLastAddConfirmedUpdate(long lac, long lacUpdateTimestamp, long notifiedNanos) {
+            List<Subscriber> ready = new ArrayList<>();
+            synchronized (this) {
+                notifying = false;
+                drain(lac, ready);
+                rewatch(ready);
+            }
+            if (ready.isEmpty()) {
+                return;
+            }
+
+            // the entries are read once for all the subscribers waiting at the same position
+            Map<Long, ByteString> piggybackedEntries = new HashMap<>();
+            for (Subscriber subscriber : ready) {
+                ByteString piggybackedEntry = null;
+                if (subscriber.shouldPiggybackEntry()) {
+                    long entryId = subscriber.getPreviousLastAddConfirmed() + 1;
+                    if (piggybackedEntries.containsKey(entryId)) {
+                        piggybackedEntry = piggybackedEntries.get(entryId);
+                    } else {
+                        piggybackedEntry = readEntry(entryId);
+                        piggybackedEntries.put(entryId, piggybackedEntry);
+                    }
+                }
+                subscriber.onLastAddConfirmedAdvanced(lac, lacUpdateTimestamp, piggybackedEntry);
+            }
+            requestStats.getLongPollFanoutStats().registerSuccessfulValue(ready.size());
+            requestStats.getLongPollNotifyStats()
+                    .registerSuccessfulEvent(MathUtils.elapsedNanos(notifiedNanos), TimeUnit.NANOSECONDS);
+        }
+
+        private ByteString readEntry(long entryId) {
+            ByteBuf entry = null;
+            try {
+                entry = bookie.readEntry(ledgerId, entryId);
+                return ByteString.copyFrom(entry.nioBuffer());
+            } catch (IOException | BookieException e) {
+                // the subscribers will read the entry themselves
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Failed to read entry {} of ledger {} to piggyback", entryId, ledgerId, e);
+                }
+                return null;
+            } finally {
+                ReferenceCountUtil.release(entry);
+            }
+        }
+
+        // guarded by this
+        private void drain(long lac, List<Subscriber> ready) {
+            Iterator<Subscriber> iterator = waiters.iterator();
+            while (iterator.hasNext()) {
+                Subscriber subscriber = iterator.next();
+                if (subscriber.getPreviousLastAddConfirmed() < lac) {
+                    ready.add(subscriber);
+                    iterator.remove();
+                }
+            }
+        }
+
+        // guarded by this
+        private void rewatch(List<Subscriber> ready) {
+            while (!waiters.isEmpty()) {
+                long minPreviousLAC = Long.MAX_VALUE;
+                for (Subscriber subscriber : waiters) {
+                    minPreviousLAC = Math.min(minPreviousLAC, subscriber.getPreviousLastAddConfirmed());
+                }
+                long lac;
+                try {
+                    if (bookie.waitForLastAddConfirmedUpdate(ledgerId, minPreviousLAC, this)) {
+                        watchedLAC = minPreviousLAC;
+                        watching = true;
+                        break;
+                    }
+                    lac = bookie.readLastAddConfirmed(ledgerId);
+                } catch (IOException | BookieException e) {
+                    LOG.warn("Failed to watch the last add confirmed of ledger {}", ledgerId, e);
+                    lac = Long.MAX_VALUE;
+                }
+                // the last add confirmed advanced again, or the ledger is closed
+                drain(lac > minPreviousLAC ? lac : Long.MAX_VALUE, ready);
+            }
+            if (waiters.isEmpty()) {
+                cancelExpiration();
+                removeIfIdle();
+            } else {
+                scheduleExpiration();
+            }
+        }
+
+        // guarded by this
+        private void scheduleExpiration() {
+            Subscriber first = waiters.peek();
+            if (null == first) {
+                return;
+            }
+            long deadlineNanos = first.getDeadlineNanos();
+            if (null != expirationTask) {
+                if (expirationDeadlineNanos <= deadlineNanos) {
+                    return;
+                }
+                expirationTask.cancel();
+            }
+            expirationDeadlineNanos = deadlineNanos;
+            expirationTask = requestTimer.newTimeout(timeout -> {
+                try {
+                    notificationExecutor.executeOrdered(ledgerId, this::expire);
+                } catch (RejectedExecutionException ree) {
+                    // the bookie is shutting down
+                }
+            }, Math.max(0, deadlineNanos - MathUtils.nowInNano()), TimeUnit.NANOSECONDS);
+        }
+
+        // guarded by this
+        private void cancelExpiration() {
+            if (null != expirationTask) {
+                expirationTask.cancel();
+                expirationTask = null;
+            }
+        }
+
+        private void expire() {
+            List<Subscriber> expired = new ArrayList<>();
+            synchronized (this) {
+                expirationTask = null;
+                long nowNanos = MathUtils.nowInNano();
+                while (!waiters.isEmpty() && waiters.peek().getDeadlineNanos() <= nowNanos) {
+                    expired.add(waiters.poll());
+                }
+                if (waiters.isEmpty()) {
+                    if (watching) {
+                        watching = false;
+                        try {
+                            bookie.cancelWaitForLastAddConfirmedUpdate(ledgerId, this);
+                        } catch (IOException ioe) {
+                            LOG.warn("Failed to cancel watching the last add confirmed of ledger {}", ledgerId, ioe);
+                        }
+                    }
+                    removeIfIdle();
+                } else {
+                    scheduleExpiration();
+                }
+            }
+            for (Subscriber subscriber : expired) {
+                subscriber.onTimeout();
+            }
+        }
+
+        // guarded by this
+        private void removeIfIdle() {
+            if (waiters.isEmpty() && !watching && !notifying) {
+                removed = true;
+                ledgers.remove(ledgerId, this);
+            }
+        }
+    }
+}
@@ -96,6 +96,7 @@ import org.apache.bookkeeper.auth.ClientAuthProvider;
 import org.apache.bookkeeper.client.BKException;
 import org.apache.bookkeeper.client.BookKeeperClientStats;
 import org.apache.bookkeeper.client.BookieInfoReader.BookieInfo;
+import org.apache.bookkeeper.client.BookieLatencyTracker;
 import org.apache.bookkeeper.client.api.WriteFlag;
 import org.apache.bookkeeper.common.util.MathUtils;
 import org.apache.bookkeeper.common.util.MdcUtils;
@@ -107,16 +108,19 @@ import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.BatchedReadEntryC
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ForceLedgerCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GenericCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GetBookieInfoCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GetEntriesOfLedgerSummariesCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GetListOfEntriesOfLedgerCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallbackCtx;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadLacCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.StartTLSCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.StreamReadEntryCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteLacCallback;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.AddRequest;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.AddResponse;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.BKPacketHeader;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.EntryIdRange;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.ForceLedgerRequest;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.ForceLedgerResponse;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.GetBookieInfoRequest;
@@ -132,6 +136,7 @@ import org.apache.bookkeeper.proto.BookkeeperProtocol.ReadResponse;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.Request;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.Response;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.StatusCode;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.StreamReadRequest;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.WriteLacRequest;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.WriteLacResponse;
 import org.apache.bookkeeper.stats.Counter;
@@ -144,6 +149,7 @@ import org.apache.bookkeeper.tls.SecurityHandlerFactory;
 import org.apache.bookkeeper.tls.SecurityHandlerFactory.NodeType;
 import org.apache.bookkeeper.util.AvailabilityOfEntriesOfLedger;
 import org.apache.bookkeeper.util.ByteBufList;
+import org.apache.bookkeeper.util.EntriesOfLedgerSummary;
 import org.apache.bookkeeper.util.StringUtils;
 import org.apache.bookkeeper.util.collections.ConcurrentOpenHashMap;
 import org.apache.bookkeeper.util.collections.SynchronizedHashMultiMap;
@@ -318,6 +324,7 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
 
     private final boolean useV2WireProtocol;
     private final boolean preserveMdcForTaskExecution;
+    private final String tenant;
 
     /**
      * The following member variables do not need to be concurrent, or volatile
@@ -349,6 +356,7 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
     private final ClientAuthProvider.Factory authProviderFactory;
     private final ExtensionRegistry extRegistry;
     private final SecurityHandlerFactory shFactory;
+    private volatile BookieLatencyTracker readLatencyTracker;
     private volatile boolean isWritable = true;
     private long lastBookieUnavailableLogTimestamp = 0;
 
@@ -405,6 +413,7 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         this.startTLSTimeout = conf.getStartTLSTimeout();
         this.useV2WireProtocol = conf.getUseV2WireProtocol();
         this.preserveMdcForTaskExecution = conf.getPreserveMdcForTaskExecution();
+        this.tenant = conf.getClientTenant();
 
         this.authProviderFactory = authProviderFactory;
         this.extRegistry = extRegistry;
@@ -646,6 +655,13 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         setWritable(true);
     }
 
+    /**
+     * Set the tracker to record the latencies of the successful reads to, or null to not record them.
+     */
+    public void setReadLatencyTracker(BookieLatencyTracker readLatencyTracker) {
+        this.readLatencyTracker = readLatencyTracker;
+    }
+
     void connectIfNeededAndDoOp(GenericCallback<PerChannelBookieClient> op) {
         boolean completeOpNow = false;
         int opRc = BKException.Code.OK;
@@ -808,6 +824,9 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                     .setVersion(ProtocolVersion.VERSION_THREE)
                     .setOperation(OperationType.ADD_ENTRY)
                     .setTxnId(txnId);
+            if (null != tenant) {
+                headerBuilder.setTenant(tenant);
+            }
             if (((short) options & BookieProtocol.FLAG_HIGH_PRIORITY) == BookieProtocol.FLAG_HIGH_PRIORITY) {
                 headerBuilder.setPriority(DEFAULT_HIGH_PRIORITY_VALUE);
             }
@@ -893,6 +912,74 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         writeAndFlush(channel, completionKey, getListOfEntriesOfLedgerRequest);
     }
 
+    public void getEntriesOfLedgerSummaries(final long ledgerId, List<EntriesOfLedgerSummary> ranges,
+                                            GetEntriesOfLedgerSummariesCallback cb) {
+        final long txnId = getTxnId();
+        final CompletionKey completionKey = new TxnCompletionKey(txnId, OperationType.GET_LIST_OF_ENTRIES_OF_LEDGER);
+        completionObjects.put(completionKey,
+                new GetEntriesOfLedgerSummariesCompletion(completionKey, cb, ledgerId, ranges));
+
+        // Build the request.
+        BKPacketHeader.Builder headerBuilder = BKPacketHeader.newBuilder().setVersion(ProtocolVersion.VERSION_THREE)
+                .setOperation(OperationType.GET_LIST_OF_ENTRIES_OF_LEDGER).setTxnId(txnId);
+
+        GetListOfEntriesOfLedgerRequest.Builder getListOfEntriesOfLedgerRequestBuilder =
+                GetListOfEntriesOfLedgerRequest.newBuilder().setLedgerId(ledgerId);
+        for (EntriesOfLedgerSummary range : ranges) {
+            getListOfEntriesOfLedgerRequestBuilder.addSummaryRanges(EntryIdRange.newBuilder()
+                    .setFirstEntryId(range.getFirstEntryId()).setLastEntryId(range.getLastEntryId()));
+        }
+
+        final Request getListOfEntriesOfLedgerRequest = Request.newBuilder().setHeader(headerBuilder)
+                .setGetListOfEntriesOfLedgerRequest(getListOfEntriesOfLedgerRequestBuilder).build();
+
+        writeAndFlush(channel, completionKey, getListOfEntriesOfLedgerRequest);
+    }
+
+    /**
+     * Stream Reads.
+     */
+    public StreamReadSubscription streamReadEntries(final long ledgerId,
+                                                    final long startEntryId,
+                                                    final int credits,
+                                                    final int ensembleSize,
+                                                    final int writeQuorumSize,
+                                                    final int bookieIndex,
+                                                    StreamReadEntryCallback cb,
+                                                    Object ctx) {
+        final long txnId = getTxnId();
+        final CompletionKey completionKey = new TxnCompletionKey(txnId, OperationType.STREAM_READ_ENTRY);
+        final StreamReadCompletion completion =
+                new StreamReadCompletion(completionKey, txnId, cb, ctx, ledgerId, startEntryId);
+        if (useV2WireProtocol) {
+            // the v2 protocol doesn't support stream reads
+            completion.errorOut(BKException.Code.IllegalOpException);
+            return completion;
+        }
+        completionObjects.put(completionKey, completion);
+
+        writeAndFlush(channel, completionKey, newStreamReadRequest(txnId, StreamReadRequest.newBuilder()
+                .setType(StreamReadRequest.Type.SUBSCRIBE)
+                .setLedgerId(ledgerId)
+                .setStartEntryId(startEntryId)
+                .setCredits(credits)
+                .setEnsembleSize(ensembleSize)
+                .setWriteQuorumSize(writeQuorumSize)
+                .setBookieIndex(bookieIndex)));
+        return completion;
+    }
+
+    private Request newStreamReadRequest(long txnId, StreamReadRequest.Builder streamReadBuilder) {
+        BKPacketHeader.Builder headerBuilder = BKPacketHeader.newBuilder()
+                .setVersion(ProtocolVersion.VERSION_THREE)
+                .setOperation(OperationType.STREAM_READ_ENTRY)
+                .setTxnId(txnId);
+        return withRequestContext(Request.newBuilder())
+                .setHeader(headerBuilder)
+                .setStreamReadRequest(streamReadBuilder)
+                .build();
+    }
+
     /**
      * Long Poll Reads.
      */
@@ -946,6 +1033,9 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                     .setVersion(ProtocolVersion.VERSION_THREE)
                     .setOperation(OperationType.READ_ENTRY)
                     .setTxnId(txnId);
+            if (null != tenant) {
+                headerBuilder.setTenant(tenant);
+            }
             if (((short) flags & BookieProtocol.FLAG_HIGH_PRIORITY) == BookieProtocol.FLAG_HIGH_PRIORITY) {
                 headerBuilder.setPriority(DEFAULT_HIGH_PRIORITY_VALUE);
             }
@@ -995,7 +1085,9 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                     .build();
         }
 
-        ReadCompletion readCompletion = new ReadCompletion(completionKey, cb, ctx, ledgerId, entryId);
+        // the latency of a long poll read is mostly the time spent waiting for the lac to advance
+        final boolean longPoll = null != previousLAC || null != timeOutInMillis;
+        ReadCompletion readCompletion = new ReadCompletion(completionKey, cb, ctx, ledgerId, entryId, longPoll);
         putCompletionKeyValue(completionKey, readCompletion);
 
         writeAndFlush(channel, completionKey, request, allowFastFail, null, null);
@@ -1560,6 +1652,10 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
             });
         }
 
+        if (null != completionValue && !completionValue.completesOnResponse()) {
+            // a subscription stays registered for the following responses
+            return;
+        }
         completionObjects.remove(key);
     }
 
@@ -1691,6 +1787,13 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
             return MathUtils.elapsedNanos(startTime);
         }
 
+        void recordReadLatency(int rc) {
+            BookieLatencyTracker tracker = readLatencyTracker;
+            if (rc == BKException.Code.OK && tracker != null) {
+                tracker.recordLatency(bookieId, latency());
+            }
+        }
+
         void logOpResult(int rc) {
             if (rc != BKException.Code.OK) {
                 opLogger.registerFailedEvent(latency(), TimeUnit.NANOSECONDS);
@@ -1748,6 +1851,13 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
             // no-op
         }
 
+        /**
+         * @return whether the completion is done once a response is received for it
+         */
+        boolean completesOnResponse() {
+            return true;
+        }
+
         protected void errorOutAndRunCallback(final Runnable callback) {
             executor.executeOrdered(ledgerId, () -> {
                 String bAddress = "null";
@@ -1941,6 +2051,14 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                               final ReadEntryCallback originalCallback,
                               final Object originalCtx,
                               long ledgerId, final long entryId) {
+            this(key, originalCallback, originalCtx, ledgerId, entryId, false);
+        }
+
+        public ReadCompletion(final CompletionKey key,
+                              final ReadEntryCallback originalCallback,
+                              final Object originalCtx,
+                              long ledgerId, final long entryId,
+                              final boolean longPoll) {
             super("Read", originalCtx, ledgerId, entryId,
                   readEntryOpLogger, readTimeoutOpLogger);
 
@@ -1950,6 +2068,9 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                                                   long entryId, ByteBuf buffer,
                                                   Object ctx) {
                         logOpResult(rc);
+                        if (!longPoll) {
+                            recordReadLatency(rc);
+                        }
                         originalCallback.readEntryComplete(rc,
                                                            ledgerId, entryId,
                                                            buffer, originalCtx);
@@ -2036,6 +2157,96 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         }
     }
 
+    // visible for testing
+    class StreamReadCompletion extends CompletionValue implements StreamReadSubscription {
+        final CompletionKey key;
+        final long txnId;
+        final StreamReadEntryCallback cb;
+        volatile boolean cancelled = false;
+
+        public StreamReadCompletion(final CompletionKey key,
+                                    final long txnId,
+                                    final StreamReadEntryCallback cb,
+                                    final Object ctx,
+                                    long ledgerId, final long startEntryId) {
+            super("StreamRead", ctx, ledgerId, startEntryId,
+                  readEntryOpLogger, readTimeoutOpLogger);
+            this.key = key;
+            this.txnId = txnId;
+            this.cb = cb;
+        }
+
+        @Override
+        public void grantCredits(int numCredits) {
+            if (completionObjects.get(key) != this) {
+                // the subscription ended
+                return;
+            }
+            writeAndFlush(channel, key, newStreamReadRequest(txnId, StreamReadRequest.newBuilder()
+                    .setType(StreamReadRequest.Type.GRANT_CREDITS)
+                    .setLedgerId(ledgerId)
+                    .setCredits(numCredits)));
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            if (completionObjects.remove(key, this)) {
+                writeAndFlush(channel, key, newStreamReadRequest(txnId, StreamReadRequest.newBuilder()
+                        .setType(StreamReadRequest.Type.UNSUBSCRIBE)
+                        .setLedgerId(ledgerId)));
+            }
+        }
+
+        @Override
+        boolean maybeTimeout() {
+            // a subscription lasts until it is cancelled or fails
+            return false;
+        }
+
+        @Override
+        boolean completesOnResponse() {
+            return false;
+        }
+
+        @Override
+        public void errorOut() {
+            errorOut(BKException.Code.BookieHandleNotAvailableException);
+        }
+
+        @Override
+        public void errorOut(final int rc) {
+            errorOutAndRunCallback(() -> {
+                if (!cancelled) {
+                    cb.streamReadComplete(rc, ledgerId, ctx);
+                }
+            });
+        }
+
+        @Override
+        public void handleV3Response(BookkeeperProtocol.Response response) {
+            if (cancelled) {
+                return;
+            }
+            ReadResponse readResponse = response.getReadResponse();
+            StatusCode status = response.getStatus() == StatusCode.EOK
+                ? readResponse.getStatus() : response.getStatus();
+            if (LOG.isDebugEnabled()) {
+                logResponse(status, "ledger", ledgerId, "entry", readResponse.getEntryId());
+            }
+            if (StatusCode.EOK != status) {
+                completionObjects.remove(key, this);
+                cb.streamReadComplete(convertStatus(status, BKException.Code.ReadException), ledgerId, ctx);
+                return;
+            }
+            ByteBuf buffer = null;
+            if (readResponse.hasBody()) {
+                buffer = Unpooled.wrappedBuffer(readResponse.getBody().asReadOnlyByteBuffer());
+            }
+            cb.streamReadEntry(ledgerId, readResponse.getEntryId(), buffer, readResponse.getMaxLAC(), ctx);
+        }
+    }
+
     class BatchedReadCompletion extends CompletionValue {
 
         final BatchedReadEntryCallback cb;
@@ -2055,6 +2266,7 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
                                                 ByteBufList bufList,
                                                 Object ctx) {
                     logOpResult(rc);
+                    recordReadLatency(rc);
                     originalCallback.readEntriesComplete(rc,
                             ledgerId, entryId,
                             bufList, originalCtx);
@@ -2280,6 +2492,77 @@ public class PerChannelBookieClient extends ChannelInboundHandlerAdapter {
         }
     }
 
+    class GetEntriesOfLedgerSummariesCompletion extends CompletionValue {
+        final GetEntriesOfLedgerSummariesCallback cb;
+        final List<EntriesOfLedgerSummary> ranges;
+
+        public GetEntriesOfLedgerSummariesCompletion(final CompletionKey key,
+                final GetEntriesOfLedgerSummariesCallback origCallback, final long ledgerId,
+                final List<EntriesOfLedgerSummary> ranges) {
+            super("GetEntriesOfLedgerSummaries", null, ledgerId, 0L, getListOfEntriesOfLedgerCompletionOpLogger,
+                    getListOfEntriesOfLedgerCompletionTimeoutOpLogger);
+            this.ranges = ranges;
+            this.cb = new GetEntriesOfLedgerSummariesCallback() {
+                @Override
+                public void getEntriesOfLedgerSummariesComplete(int rc, long ledgerId,
+                        List<EntriesOfLedgerSummary> entriesOfLedgerSummaries) {
+                    logOpResult(rc);
+                    origCallback.getEntriesOfLedgerSummariesComplete(rc, ledgerId, entriesOfLedgerSummaries);
+                    key.release();
+                }
+            };
+        }
+
+        @Override
+        public void errorOut() {
+            errorOut(BKException.Code.BookieHandleNotAvailableException);
+        }
+
+        @Override
+        public void errorOut(final int rc) {
+            errorOutAndRunCallback(() -> cb.getEntriesOfLedgerSummariesComplete(rc, ledgerId, null));
+        }
+
+        @Override
+        public void handleV3Response(BookkeeperProtocol.Response response) {
+            GetListOfEntriesOfLedgerResponse getListOfEntriesOfLedgerResponse = response
+                    .getGetListOfEntriesOfLedgerResponse();
+            StatusCode status = response.getStatus() == StatusCode.EOK ? getListOfEntriesOfLedgerResponse.getStatus()
+                    : response.getStatus();
+
+            if (LOG.isDebugEnabled()) {
+                logResponse(status, "ledgerId", ledgerId);
+            }
+
+            int rc = convertStatus(status, BKException.Code.ReadException);
+            List<EntriesOfLedgerSummary> entriesOfLedgerSummaries = null;
+            if (rc == BKException.Code.OK) {
+                if (getListOfEntriesOfLedgerResponse.getEntriesOfLedgerSummariesCount() > 0) {
+                    entriesOfLedgerSummaries = new ArrayList<>(
+                            getListOfEntriesOfLedgerResponse.getEntriesOfLedgerSummariesCount());
+                    for (BookkeeperProtocol.EntriesOfLedgerSummary summary
+                            : getListOfEntriesOfLedgerResponse.getEntriesOfLedgerSummariesList()) {
+                        entriesOfLedgerSummaries.add(new EntriesOfLedgerSummary(summary.getFirstEntryId(),
+                                summary.getLastEntryId(), summary.getNumEntries(), summary.getDigest()));
+                    }
+                } else {
+                    /*
+                     * bookie doesn't support summaries and has sent back the
+                     * complete list of entries, so summarize it here.
+                     */
+                    ByteBuf availabilityOfEntriesOfLedgerBuffer = Unpooled.EMPTY_BUFFER;
+                    if (getListOfEntriesOfLedgerResponse.hasAvailabilityOfEntriesOfLedger()) {
+                        availabilityOfEntriesOfLedgerBuffer = Unpooled.wrappedBuffer(getListOfEntriesOfLedgerResponse
+                                .getAvailabilityOfEntriesOfLedger().asReadOnlyByteBuffer());
+                    }
+                    entriesOfLedgerSummaries = EntriesOfLedgerSummary.summarize(
+                            new AvailabilityOfEntriesOfLedger(availabilityOfEntriesOfLedgerBuffer.slice()), ranges);
+                }
+            }
+            cb.getEntriesOfLedgerSummariesComplete(rc, ledgerId, entriesOfLedgerSummaries);
+        }
+    }
+
     private final Recycler<AddCompletion> addCompletionRecycler = new Recycler<AddCompletion>() {
             @Override
             protected AddCompletion newObject(Recycler.Handle<AddCompletion> handle) {
@@ -23,6 +23,7 @@ import static org.apache.bookkeeper.bookie.BookKeeperServerStats.ADD_ENTRY;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.ADD_ENTRY_BLOCKED;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.ADD_ENTRY_BLOCKED_WAIT;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.ADD_ENTRY_IN_PROGRESS;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.ADD_ENTRY_PACED;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.ADD_ENTRY_REJECTED;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.ADD_ENTRY_REQUEST;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.CATEGORY_SERVER;
@@ -40,6 +41,8 @@ import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_FENC
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_FENCE_REQUEST;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_FENCE_WAIT;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_IN_PROGRESS;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_LONG_POLL_FANOUT;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_LONG_POLL_NOTIFY;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_LONG_POLL_PRE_WAIT;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_LONG_POLL_READ;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_LONG_POLL_REQUEST;
@@ -47,6 +50,8 @@ import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_LONG
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_REJECTED;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_REQUEST;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_SCHEDULING_DELAY;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_STREAM_PUSH;
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_ENTRY_STREAM_SUBSCRIPTIONS;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_LAC;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_LAC_REQUEST;
 import static org.apache.bookkeeper.bookie.BookKeeperServerStats.READ_LAST_ENTRY_NOENTRY_ERROR;
@@ -183,6 +188,29 @@ public class RequestStats {
         help = "request stats of LongPoll Reads on a bookie"
     )
     final OpStatsLogger longPollReadRequestStats;
+    @StatsDoc(
+        name = READ_ENTRY_LONG_POLL_FANOUT,
+        help = "number of batched LongPoll Reads woken up by a last add confirmed update on a bookie",
+        parent = READ_ENTRY_LONG_POLL_REQUEST
+    )
+    final OpStatsLogger longPollFanoutStats;
+    @StatsDoc(
+        name = READ_ENTRY_LONG_POLL_NOTIFY,
+        help = "operation stats of the time from a last add confirmed update to waking up the batched"
+            + " LongPoll Reads on a bookie",
+        parent = READ_ENTRY_LONG_POLL_REQUEST
+    )
+    final OpStatsLogger longPollNotifyStats;
+    @StatsDoc(
+        name = READ_ENTRY_STREAM_PUSH,
+        help = "operation stats of reading and pushing an entry to a stream read subscription on a bookie"
+    )
+    final OpStatsLogger streamReadPushStats;
+    @StatsDoc(
+        name = READ_ENTRY_STREAM_SUBSCRIPTIONS,
+        help = "the number of stream read subscriptions on a bookie"
+    )
+    final Counter streamReadSubscriptionsCounter;
     @StatsDoc(
         name = READ_LAST_ENTRY_NOENTRY_ERROR,
         help = "total NOENTRY errors of reading last entry on a bookie"
@@ -230,6 +258,11 @@ public class RequestStats {
         help = "operation stats of AddEntry blocked on a bookie"
     )
     final OpStatsLogger addEntryBlockedStats;
+    @StatsDoc(
+        name = ADD_ENTRY_PACED,
+        help = "the delay of the channels paused as the storage paces the AddEntry requests on a bookie"
+    )
+    final OpStatsLogger addEntryPacedStats;
     @StatsDoc(
         name = READ_ENTRY_BLOCKED,
         help = "operation stats of ReadEntry blocked on a bookie"
@@ -265,6 +298,10 @@ public class RequestStats {
         this.longPollWaitStats = statsLogger.getOpStatsLogger(READ_ENTRY_LONG_POLL_WAIT);
         this.longPollReadStats = statsLogger.getOpStatsLogger(READ_ENTRY_LONG_POLL_READ);
         this.longPollReadRequestStats = statsLogger.getOpStatsLogger(READ_ENTRY_LONG_POLL_REQUEST);
+        this.longPollFanoutStats = statsLogger.getOpStatsLogger(READ_ENTRY_LONG_POLL_FANOUT);
+        this.longPollNotifyStats = statsLogger.getOpStatsLogger(READ_ENTRY_LONG_POLL_NOTIFY);
+        this.streamReadPushStats = statsLogger.getOpStatsLogger(READ_ENTRY_STREAM_PUSH);
+        this.streamReadSubscriptionsCounter = statsLogger.getCounter(READ_ENTRY_STREAM_SUBSCRIPTIONS);
         this.readLastEntryNoEntryErrorCounter = statsLogger.getCounter(READ_LAST_ENTRY_NOENTRY_ERROR);
         this.writeLacStats = statsLogger.getOpStatsLogger(WRITE_LAC);
         this.writeLacRequestStats = statsLogger.getOpStatsLogger(WRITE_LAC_REQUEST);
@@ -275,6 +312,7 @@ public class RequestStats {
         this.channelWriteStats = statsLogger.getOpStatsLogger(CHANNEL_WRITE);
 
         this.addEntryBlockedStats = statsLogger.getOpStatsLogger(ADD_ENTRY_BLOCKED_WAIT);
+        this.addEntryPacedStats = statsLogger.getOpStatsLogger(ADD_ENTRY_PACED);
         this.readEntryBlockedStats = statsLogger.getOpStatsLogger(READ_ENTRY_BLOCKED_WAIT);
 
         this.getListOfEntriesOfLedgerStats = statsLogger.getOpStatsLogger(GET_LIST_OF_ENTRIES_OF_LEDGER);
@@ -343,6 +381,10 @@ public class RequestStats {
         addsBlocked.decrementAndGet();
     }
 
+    void paceAddRequest(long delayNanos) {
+        addEntryPacedStats.registerSuccessfulEvent(delayNanos, TimeUnit.NANOSECONDS);
+    }
+
     void trackAddRequest() {
         final int curr = addsInProgress.incrementAndGet();
         maxAddsInProgress.accumulateAndGet(curr, Integer::max);
@@ -0,0 +1,412 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import com.google.protobuf.ByteString;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.ReferenceCountUtil;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.bookie.BookieException;
+import org.apache.bookkeeper.bookie.LastAddConfirmedUpdateNotification;
+import org.apache.bookkeeper.client.DistributionSchedule;
+import org.apache.bookkeeper.client.RoundRobinDistributionSchedule;
+import org.apache.bookkeeper.common.util.MathUtils;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
+import org.apache.bookkeeper.common.util.Watcher;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.BKPacketHeader;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.OperationType;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.ProtocolVersion;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.ReadResponse;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Request;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Response;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.StatusCode;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.StreamReadRequest;
+import org.apache.bookkeeper.util.NettyChannelUtil;
+import org.apache.bookkeeper.util.collections.ConcurrentLongHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of the stream read subscriptions of the channels of a bookie.
+ *
+ * <p>A subscription pushes the entries of a ledger stored by the bookie, from the entry the client
+ * subscribed from, as {@link ReadResponse}s carrying the txnId of the subscribe request and the last
+ * add confirmed known by the bookie. One entry is pushed per credit granted by the client. Entries
+ * are pushed as soon as they are added. The entries striped to the other bookies of the ensemble,
+ * as told by the write set of the subscribe request, aren't read at all, and the entries missing up
+ * to the last add confirmed are skipped. Once all the entries it stores are pushed, the subscription
+ * waits for the last add confirmed of the ledger to advance, and tells the client about it even if
+ * it has no entry to push.
+ *
+ * <p>The entries are read by the read thread pool, and the responses are sent by the push thread
+ * pool, both ordered by ledger.
+ */
+class StreamReadRegistry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StreamReadRegistry.class);
+
+    // delay before reading again a ledger whose last add confirmed can't be watched for now,
+    // or whose reads are rejected by the read thread pool
+    private static final long RETRY_DELAY_MS = 100;
+
+    private final Bookie bookie;
+    private final OrderedExecutor readExecutor;
+    private final OrderedExecutor pushExecutor;
+    private final HashedWheelTimer requestTimer;
+    private final RequestStats requestStats;
+    private final ConcurrentHashMap<Channel, ConcurrentLongHashMap<Subscription>> channels =
+            new ConcurrentHashMap<>();
+
+    StreamReadRegistry(Bookie bookie, OrderedExecutor readExecutor, OrderedExecutor pushExecutor,
+                       HashedWheelTimer requestTimer, RequestStats requestStats) {
+        this.bookie = bookie;
+        this.readExecutor = null == readExecutor ? pushExecutor : readExecutor;
+        this.pushExecutor = pushExecutor;
+        this.requestTimer = requestTimer;
+        this.requestStats = requestStats;
+    }
+
+    /**
+     * Process a stream read request received on a channel.
+     */
+    void processRequest(Request request, Channel channel) {
+        final BKPacketHeader header = request.getHeader();
+        if (!request.hasStreamReadRequest()) {
+            sendError(channel, header.getTxnId(), StatusCode.EBADREQ);
+            return;
+        }
+        StreamReadRequest streamReadRequest = request.getStreamReadRequest();
+        switch (streamReadRequest.getType()) {
+            case SUBSCRIBE:
+                subscribe(channel, header.getTxnId(), streamReadRequest);
+                break;
+            case GRANT_CREDITS:
+                Subscription subscription = getSubscriptions(channel).get(header.getTxnId());
+                if (null != subscription) {
+                    subscription.grantCredits(streamReadRequest.getCredits());
+                }
+                break;
+            case UNSUBSCRIBE:
+                subscription = getSubscriptions(channel).remove(header.getTxnId());
+                if (null != subscription) {
+                    subscription.close();
+                }
+                break;
+            default:
+                sendError(channel, header.getTxnId(), StatusCode.EBADREQ);
+                break;
+        }
+    }
+
+    int getNumSubscriptions() {
+        int numSubscriptions = 0;
+        for (ConcurrentLongHashMap<Subscription> subscriptions : channels.values()) {
+            numSubscriptions += (int) subscriptions.size();
+        }
+        return numSubscriptions;
+    }
+
+    private void subscribe(Channel channel, long txnId, StreamReadRequest request) {
+        if (!request.hasStartEntryId() || request.getStartEntryId() < 0 || request.getCredits() < 0) {
+            sendError(channel, txnId, StatusCode.EBADREQ);
+            return;
+        }
+        DistributionSchedule distributionSchedule = null;
+        if (request.hasEnsembleSize()) {
+            if (request.getWriteQuorumSize() <= 0 || request.getWriteQuorumSize() > request.getEnsembleSize()
+                    || request.getBookieIndex() < 0 || request.getBookieIndex() >= request.getEnsembleSize()) {
+                sendError(channel, txnId, StatusCode.EBADREQ);
+                return;
+            }
+            distributionSchedule = new RoundRobinDistributionSchedule(
+                    request.getWriteQuorumSize(), request.getWriteQuorumSize(), request.getEnsembleSize());
+        }
+        Subscription subscription = new Subscription(channel, txnId, request.getLedgerId(),
+                request.getStartEntryId(), request.getCredits(), distributionSchedule, request.getBookieIndex());
+        ConcurrentLongHashMap<Subscription> subscriptions = getSubscriptions(channel);
+        if (null != subscriptions.putIfAbsent(txnId, subscription)) {
+            sendError(channel, txnId, StatusCode.EBADREQ);
+            return;
+        }
+        requestStats.getStreamReadSubscriptionsCounter().inc();
+        if (!channel.isActive()) {
+            // the channel was closed while subscribing
+            removeChannel(channel);
+            return;
+        }
+        subscription.schedule();
+    }
+
+    private ConcurrentLongHashMap<Subscription> getSubscriptions(Channel channel) {
+        ConcurrentLongHashMap<Subscription> subscriptions = channels.get(channel);
+        if (null == subscriptions) {
+            ConcurrentLongHashMap<Subscription> newSubscriptions =
+                    ConcurrentLongHashMap.<Subscription>newBuilder().build();
+            subscriptions = channels.putIfAbsent(channel, newSubscriptions);
+            if (null == subscriptions) {
+                subscriptions = newSubscriptions;
+                channel.closeFuture().addListener(future -> removeChannel(channel));
+            }
+        }
+        return subscriptions;
+    }
+
+    private void removeChannel(Channel channel) {
+        ConcurrentLongHashMap<Subscription> subscriptions = channels.remove(channel);
+        if (null != subscriptions) {
+            subscriptions.forEach((txnId, subscription) -> subscription.close());
+        }
+    }
+
+    private static BKPacketHeader newHeader(long txnId) {
+        return BKPacketHeader.newBuilder()
+                .setVersion(ProtocolVersion.VERSION_THREE)
+                .setOperation(OperationType.STREAM_READ_ENTRY)
+                .setTxnId(txnId)
+                .build();
+    }
+
+    private static Response newErrorResponse(long txnId, StatusCode code) {
+        return Response.newBuilder()
+                .setHeader(newHeader(txnId))
+                .setStatus(code)
+                .build();
+    }
+
+    private static void sendError(Channel channel, long txnId, StatusCode code) {
+        NettyChannelUtil.writeAndFlushWithVoidPromise(channel, newErrorResponse(txnId, code));
+    }
+
+    private class Subscription implements Watcher<LastAddConfirmedUpdateNotification> {
+        private final Channel channel;
+        private final long txnId;
+        private final long ledgerId;
+        private final BKPacketHeader header;
+        // the schedule of the ensemble the bookie is subscribed for, or null if the client didn't tell it
+        private final DistributionSchedule distributionSchedule;
+        private final int bookieIndex;
+        private final AtomicLong credits;
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+        private volatile boolean watching = false;
+        private volatile boolean closed = false;
+
+        // only accessed by the read task, ordered by ledger
+        private long nextEntryId;
+        private long pushedLAC = BookieProtocol.INVALID_ENTRY_ID;
+
+        Subscription(Channel channel, long txnId, long ledgerId, long startEntryId, int credits,
+                     DistributionSchedule distributionSchedule, int bookieIndex) {
+            this.channel = channel;
+            this.txnId = txnId;
+            this.ledgerId = ledgerId;
+            this.header = newHeader(txnId);
+            this.distributionSchedule = distributionSchedule;
+            this.bookieIndex = bookieIndex;
+            this.credits = new AtomicLong(credits);
+            this.nextEntryId = startEntryId;
+        }
+
+        void grantCredits(int numCredits) {
+            if (numCredits > 0 && credits.getAndAdd(numCredits) <= 0) {
+                schedule();
+            }
+        }
+
+        void close() {
+            if (!closed) {
+                closed = true;
+                requestStats.getStreamReadSubscriptionsCounter().dec();
+                // the read task cancels the watcher
+                schedule();
+            }
+        }
+
+        @Override
+        public void update(LastAddConfirmedUpdateNotification notification) {
+            notification.recycle();
+            watching = false;
+            schedule();
+        }
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    readExecutor.executeOrdered(ledgerId, this::readEntries);
+                } catch (RejectedExecutionException ree) {
+                    // the read thread pool is full, or the bookie is shutting down
+                    scheduled.set(false);
+                    scheduleLater();
+                }
+            }
+        }
+
+        private void scheduleLater() {
+            try {
+                requestTimer.newTimeout(timeout -> schedule(), RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+            } catch (IllegalStateException ise) {
+                // the bookie is shutting down
+            }
+        }
+
+        private boolean isStriped(long entryId) {
+            return null == distributionSchedule || distributionSchedule.hasEntry(entryId, bookieIndex);
+        }
+
+        private void readEntries() {
+            scheduled.set(false);
+            if (closed) {
+                unwatch();
+                return;
+            }
+            List<Response> responses = new ArrayList<>();
+            try {
+                long lac = bookie.readLastAddConfirmed(ledgerId);
+                while (credits.get() > 0 && !closed) {
+                    if (!isStriped(nextEntryId)) {
+                        // the entry is stored by the other bookies of the ensemble
+                        nextEntryId++;
+                        continue;
+                    }
+                    final long startNanos = MathUtils.nowInNano();
+                    ByteBuf entry;
+                    try {
+                        entry = bookie.readEntry(ledgerId, nextEntryId);
+                    } catch (Bookie.NoEntryException e) {
+                        if (nextEntryId <= lac) {
+                            // the entry isn't stored by the bookie, e.g. it is stored by another ensemble
+                            nextEntryId++;
+                            continue;
+                        }
+                        // the entry isn't added yet
+                        break;
+                    }
+                    try {
+                        responses.add(newResponse(nextEntryId, ByteString.copyFrom(entry.nioBuffer()), lac));
+                    } finally {
+                        ReferenceCountUtil.release(entry);
+                    }
+                    requestStats.getStreamReadPushStats()
+                            .registerSuccessfulEvent(MathUtils.elapsedNanos(startNanos), TimeUnit.NANOSECONDS);
+                    credits.decrementAndGet();
+                    nextEntryId++;
+                    pushedLAC = lac;
+                }
+                if (lac > pushedLAC && !closed) {
+                    responses.add(newResponse(BookieProtocol.LAST_ADD_CONFIRMED, null, lac));
+                    pushedLAC = lac;
+                }
+                push(responses);
+                if (credits.get() > 0 && !watching && !closed) {
+                    watch(lac);
+                }
+                if (closed) {
+                    unwatch();
+                }
+            } catch (Bookie.NoLedgerException e) {
+                push(responses);
+                fail(StatusCode.ENOLEDGER, e);
+            } catch (IOException | BookieException e) {
+                push(responses);
+                fail(StatusCode.EIO, e);
+            }
+        }
+
+        private void watch(long lac) throws IOException, BookieException {
+            watching = true;
+            if (bookie.waitForLastAddConfirmedUpdate(ledgerId, lac, this)) {
+                return;
+            }
+            watching = false;
+            if (bookie.readLastAddConfirmed(ledgerId) > lac) {
+                schedule();
+            } else {
+                // the last add confirmed can't be watched for now, e.g. the ledger is being evicted
+                scheduleLater();
+            }
+        }
+
+        private void unwatch() {
+            if (watching) {
+                watching = false;
+                try {
+                    bookie.cancelWaitForLastAddConfirmedUpdate(ledgerId, this);
+                } catch (IOException ioe) {
+                    LOG.warn("Failed to cancel watching the last add confirmed of ledger {}", ledgerId, ioe);
+                }
+            }
+        }
+
+        private Response newResponse(long entryId, ByteString body, long lac) {
+            ReadResponse.Builder readResponse = ReadResponse.newBuilder()
+                    .setStatus(StatusCode.EOK)
+                    .setLedgerId(ledgerId)
+                    .setEntryId(entryId)
+                    .setMaxLAC(lac);
+            if (null != body) {
+                readResponse.setBody(body);
+            }
+            return Response.newBuilder()
+                    .setHeader(header)
+                    .setStatus(StatusCode.EOK)
+                    .setReadResponse(readResponse)
+                    .build();
+        }
+
+        /**
+         * Send the responses by the push thread of the ledger, so they are sent in the order they are read.
+         */
+        private void push(List<Response> responses) {
+            if (responses.isEmpty()) {
+                return;
+            }
+            try {
+                pushExecutor.executeOrdered(ledgerId, () -> {
+                    for (Response response : responses) {
+                        NettyChannelUtil.writeAndFlushWithVoidPromise(channel, response);
+                    }
+                });
+            } catch (RejectedExecutionException ree) {
+                // the bookie is shutting down
+            }
+        }
+
+        private void fail(StatusCode code, Exception cause) {
+            LOG.info("Stream read of ledger {} from entry {} for channel {} failed : {}",
+                    ledgerId, nextEntryId, channel, cause.getMessage());
+            ConcurrentLongHashMap<Subscription> subscriptions = channels.get(channel);
+            if (null != subscriptions) {
+                subscriptions.remove(txnId, this);
+            }
+            close();
+            unwatch();
+            push(Collections.singletonList(newErrorResponse(txnId, code)));
+        }
+    }
+}
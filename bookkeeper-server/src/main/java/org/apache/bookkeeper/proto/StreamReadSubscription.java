@@ -0,0 +1,42 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.proto;
+
+/**
+ * A stream read subscription registered with a bookie.
+ *
+ * <p>The bookie pushes one entry per credit granted to the subscription, starting from the credits
+ * granted when subscribing.
+ */
+public interface StreamReadSubscription {
+
+    /**
+     * Allow the bookie to push {@code numCredits} more entries.
+     *
+     * @param numCredits the number of entries the client is ready to receive
+     */
+    void grantCredits(int numCredits);
+
+    /**
+     * Cancel the subscription. The callback of the subscription isn't called anymore.
+     */
+    void cancel();
+}
@@ -20,14 +20,17 @@ package org.apache.bookkeeper.replication;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.Sets;
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.concurrent.CompletableFuture;
+import java.util.TreeMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 import org.apache.bookkeeper.client.BKException;
@@ -36,7 +39,6 @@ import org.apache.bookkeeper.client.BookKeeperAdmin;
 import org.apache.bookkeeper.client.LedgerChecker;
 import org.apache.bookkeeper.client.LedgerFragment;
 import org.apache.bookkeeper.client.LedgerHandle;
-import org.apache.bookkeeper.common.concurrent.FutureUtils;
 import org.apache.bookkeeper.conf.ServerConfiguration;
 import org.apache.bookkeeper.meta.LedgerManager;
 import org.apache.bookkeeper.meta.LedgerUnderreplicationManager;
@@ -53,6 +55,7 @@ public class AuditorCheckAllLedgersTask extends AuditorTask {
     private final Semaphore openLedgerNoRecoverySemaphore;
     private final int openLedgerNoRecoverySemaphoreWaitTimeoutMSec;
     private final ExecutorService ledgerCheckerExecutor;
+    private final int zkOpTimeoutMs;
 
     AuditorCheckAllLedgersTask(ServerConfiguration conf,
                                AuditorStats auditorStats,
@@ -79,6 +82,7 @@ public class AuditorCheckAllLedgersTask extends AuditorTask {
         }
         this.openLedgerNoRecoverySemaphoreWaitTimeoutMSec =
                 conf.getAuditorAcquireConcurrentOpenLedgerOperationsTimeoutMSec();
+        this.zkOpTimeoutMs = conf.getZkTimeout() * 2;
 
         this.ledgerCheckerExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
             @Override
@@ -154,6 +158,22 @@ public class AuditorCheckAllLedgersTask extends AuditorTask {
     /**
      * List all the ledgers and check them individually. This should not
      * be run very often.
+     *
+     * <p>Ledgers are checked range by range, as returned by the ledger
+     * manager, with up to {@link ServerConfiguration#getAuditorMaxConcurrentCheckAllLedgersRanges()}
+     * ranges in flight. Whenever all the ranges up to some ledger id have
+     * been checked, that ledger id is persisted as a checkpoint, so if the
+     * auditor changes before the check completes, the new auditor resumes
+     * from the checkpoint instead of starting over.
+     *
+     * <p>A ledger that fails to be checked, for example as no open ledger
+     * operation permit could be acquired in time, fails the check of its
+     * range: the pass goes on with the other ledgers, but it fails at the
+     * end and doesn't update the check ctime. The check is aborted as soon
+     * as ledger replication is disabled, the underreplication manager is
+     * unavailable or the auditor is interrupted: the ledgers not checked yet
+     * are skipped and neither the check ctime is updated nor the checkpoint
+     * moved past them, so the next run resumes from the checkpoint.
      */
     void checkAllLedgers() throws BKException, IOException, InterruptedException {
         final BookKeeper localClient = getBookKeeper(conf);
@@ -161,22 +181,30 @@ public class AuditorCheckAllLedgersTask extends AuditorTask {
         try {
             final LedgerChecker checker = new LedgerChecker(localClient, conf.getInFlightReadEntryNumInLedgerChecker());
 
-            final CompletableFuture<Void> processFuture = new CompletableFuture<>();
+            final AtomicBoolean aborted = new AtomicBoolean(false);
 
             BookkeeperInternalCallbacks.Processor<Long> checkLedgersProcessor = (ledgerId, callback) -> {
+                if (aborted.get()) {
+                    callback.processResult(BKException.Code.ReplicationException, null, null);
+                    return;
+                }
                 try {
                     if (!ledgerUnderreplicationManager.isLedgerReplicationEnabled()) {
                         LOG.info("Ledger rereplication has been disabled, aborting periodic check");
-                        FutureUtils.complete(processFuture, null);
+                        aborted.set(true);
+                        callback.processResult(BKException.Code.ReplicationException, null, null);
                         return;
                     }
                 } catch (ReplicationException.NonRecoverableReplicationException nre) {
                     LOG.error("Non Recoverable Exception while reading from ZK", nre);
                     submitShutdownTask();
+                    aborted.set(true);
+                    callback.processResult(BKException.Code.ReplicationException, null, null);
                     return;
                 } catch (ReplicationException.UnavailableException ue) {
                     LOG.error("Underreplication manager unavailable running periodic check", ue);
-                    FutureUtils.complete(processFuture, null);
+                    aborted.set(true);
+                    callback.processResult(BKException.Code.ReplicationException, null, null);
                     return;
                 }
 
@@ -185,13 +213,15 @@ public class AuditorCheckAllLedgersTask extends AuditorTask {
                             TimeUnit.MILLISECONDS)) {
                         LOG.warn("Failed to acquire semaphore for {} ms, ledgerId: {}",
                                 openLedgerNoRecoverySemaphoreWaitTimeoutMSec, ledgerId);
-                        FutureUtils.complete(processFuture, null);
+                        // only this ledger fails, its range is checked again on the next run
+                        callback.processResult(BKException.Code.TimeoutException, null, null);
                         return;
                     }
                 } catch (InterruptedException e) {
                     LOG.error("Unable to acquire open ledger operation semaphore ", e);
                     Thread.currentThread().interrupt();
-                    FutureUtils.complete(processFuture, null);
+                    aborted.set(true);
+                    callback.processResult(BKException.Code.InterruptedException, null, null);
                     return;
                 }
 
@@ -225,15 +255,65 @@ public class AuditorCheckAllLedgersTask extends AuditorTask {
                 }, null);
             };
 
-            ledgerManager.asyncProcessLedgers(checkLedgersProcessor,
-                    (rc, path, ctx) -> {
-                        if (BKException.Code.OK == rc) {
-                            FutureUtils.complete(processFuture, null);
-                        } else {
-                            FutureUtils.completeExceptionally(processFuture, BKException.create(rc));
-                        }
-                    }, null, BKException.Code.OK, BKException.Code.ReadException);
-            FutureUtils.result(processFuture, BKException.HANDLER);
+            final long checkpoint = getCheckAllLedgersCheckpoint();
+            if (checkpoint >= 0) {
+                LOG.info("Resuming checkAllLedgers after ledger {}", checkpoint);
+            }
+            final CheckAllLedgersProgress progress = new CheckAllLedgersProgress(checkpoint);
+            final int maxConcurrentRanges = Math.max(1, conf.getAuditorMaxConcurrentCheckAllLedgersRanges());
+            final Semaphore rangePermits = new Semaphore(maxConcurrentRanges);
+            final AtomicInteger resultCode = new AtomicInteger(BKException.Code.OK);
+            auditorStats.getCheckAllLedgersRangesCheckedGuageValue().set(0);
+            auditorStats.getCheckAllLedgersCheckpointGuageValue().set(checkpoint);
+
+            LedgerManager.LedgerRangeIterator ledgerRangeIterator = ledgerManager.getLedgerRanges(zkOpTimeoutMs);
+            try {
+                while (!aborted.get() && ledgerRangeIterator.hasNext()) {
+                    LedgerManager.LedgerRange ledgerRange = ledgerRangeIterator.next();
+                    final long rangeSeq = progress.addRange(ledgerRange.start(), ledgerRange.end());
+                    List<Long> ledgersToCheck = ledgerRange.getLedgers().stream()
+                            .filter(ledgerId -> ledgerId > checkpoint)
+                            .collect(Collectors.toList());
+                    if (ledgersToCheck.isEmpty()) {
+                        progress.completeRange(rangeSeq);
+                        continue;
+                    }
+
+                    rangePermits.acquire();
+                    auditorStats.getCheckAllLedgersRangesInFlightGuageValue().incrementAndGet();
+                    BookkeeperInternalCallbacks.MultiCallback mcbForThisLedgerRange =
+                            new BookkeeperInternalCallbacks.MultiCallback(ledgersToCheck.size(),
+                                    (rc, path, ctx) -> {
+                                        if (BKException.Code.OK == rc) {
+                                            progress.completeRange(rangeSeq);
+                                            auditorStats.getCheckAllLedgersRangesCheckedGuageValue()
+                                                    .incrementAndGet();
+                                        } else {
+                                            resultCode.compareAndSet(BKException.Code.OK, rc);
+                                        }
+                                        auditorStats.getCheckAllLedgersRangesInFlightGuageValue()
+                                                .decrementAndGet();
+                                        rangePermits.release();
+                                    }, null, BKException.Code.OK, BKException.Code.ReadException);
+                    for (Long ledgerId : ledgersToCheck) {
+                        checkLedgersProcessor.process(ledgerId, mcbForThisLedgerRange);
+                    }
+                    persistCheckAllLedgersCheckpoint(progress);
+                }
+            } finally {
+                // wait for the ranges in flight
+                rangePermits.acquire(maxConcurrentRanges);
+            }
+            persistCheckAllLedgersCheckpoint(progress);
+
+            if (aborted.get()) {
+                LOG.info("checkAllLedgers aborted, it will resume after ledger {} on next run",
+                        progress.getCheckpoint());
+                return;
+            }
+            if (BKException.Code.OK != resultCode.get()) {
+                throw BKException.create(resultCode.get());
+            }
             try {
                 ledgerUnderreplicationManager.setCheckAllLedgersCTime(System.currentTimeMillis());
             } catch (ReplicationException.NonRecoverableReplicationException nre) {
@@ -248,6 +328,92 @@ public class AuditorCheckAllLedgersTask extends AuditorTask {
         }
     }
 
+    private long getCheckAllLedgersCheckpoint() {
+        try {
+            return ledgerUnderreplicationManager.getCheckAllLedgersCheckpoint();
+        } catch (ReplicationException.NonRecoverableReplicationException nre) {
+            LOG.error("Non Recoverable Exception while reading from ZK", nre);
+            submitShutdownTask();
+        } catch (ReplicationException.UnavailableException ue) {
+            LOG.error("Got exception while trying to get checkAllLedgers checkpoint", ue);
+        }
+        return -1;
+    }
+
+    private void persistCheckAllLedgersCheckpoint(CheckAllLedgersProgress progress) {
+        long checkpoint = progress.takeCheckpointToPersist();
+        if (checkpoint < 0) {
+            return;
+        }
+        try {
+            ledgerUnderreplicationManager.setCheckAllLedgersCheckpoint(checkpoint);
+            auditorStats.getCheckAllLedgersCheckpointGuageValue().set(checkpoint);
+        } catch (ReplicationException.NonRecoverableReplicationException nre) {
+            LOG.error("Non Recoverable Exception while reading from ZK", nre);
+            submitShutdownTask();
+        } catch (ReplicationException.UnavailableException ue) {
+            LOG.error("Got exception while trying to set checkAllLedgers checkpoint", ue);
+        }
+    }
+
+    /**
+     * Tracks the ledger ranges checked by checkAllLedgers, which may complete
+     * out of order, and derives the checkpoint from the longest prefix of
+     * completed ranges. Checkpointing is disabled if the ledger manager doesn't
+     * return the ranges in ascending order of ledger ids.
+     */
+    static class CheckAllLedgersProgress {
+        // range seq -> last ledger id of the range, for the ranges not yet completed
+        private final TreeMap<Long, Long> pendingRanges = new TreeMap<>();
+        private final Set<Long> completedRanges = new HashSet<>();
+        private long nextRangeSeq = 0;
+        private long lastRangeEnd;
+        private long checkpoint;
+        private boolean checkpointDirty = false;
+        private boolean ordered = true;
+
+        CheckAllLedgersProgress(long checkpoint) {
+            this.checkpoint = checkpoint;
+            this.lastRangeEnd = checkpoint;
+        }
+
+        synchronized long addRange(long start, long end) {
+            if (start <= lastRangeEnd && nextRangeSeq > 0) {
+                ordered = false;
+            }
+            lastRangeEnd = Math.max(lastRangeEnd, end);
+            long seq = nextRangeSeq++;
+            pendingRanges.put(seq, end);
+            return seq;
+        }
+
+        synchronized void completeRange(long seq) {
+            completedRanges.add(seq);
+            while (!pendingRanges.isEmpty() && completedRanges.remove(pendingRanges.firstKey())) {
+                long end = pendingRanges.pollFirstEntry().getValue();
+                if (ordered && end > checkpoint) {
+                    checkpoint = end;
+                    checkpointDirty = true;
+                }
+            }
+        }
+
+        synchronized long getCheckpoint() {
+            return checkpoint;
+        }
+
+        /**
+         * @return the checkpoint if it advanced since the last call, otherwise -1.
+         */
+        synchronized long takeCheckpointToPersist() {
+            if (!checkpointDirty) {
+                return -1;
+            }
+            checkpointDirty = false;
+            return checkpoint;
+        }
+    }
+
     /**
      * Process the result returned from checking a ledger.
      */
@@ -47,6 +47,7 @@ import org.apache.bookkeeper.meta.LedgerUnderreplicationManager;
 import org.apache.bookkeeper.net.BookieId;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.MultiCallback;
 import org.apache.bookkeeper.util.AvailabilityOfEntriesOfLedger;
+import org.apache.bookkeeper.util.EntriesOfLedgerSummary;
 import org.apache.bookkeeper.versioning.Versioned;
 import org.apache.zookeeper.AsyncCallback;
 import org.apache.zookeeper.AsyncCallback.VoidCallback;
@@ -61,6 +62,7 @@ public class AuditorReplicasCheckTask extends AuditorTask {
     private static final BitSet EMPTY_BITSET = new BitSet();
 
     private final int zkOpTimeoutMs;
+    private final boolean replicasCheckSummaryEnabled;
 
     private final AtomicInteger numLedgersFoundHavingNoReplicaOfAnEntry;
     private final AtomicInteger numLedgersFoundHavingLessThanAQReplicasOfAnEntry;
@@ -75,6 +77,7 @@ public class AuditorReplicasCheckTask extends AuditorTask {
         super(conf, auditorStats, admin, ledgerManager,
                 ledgerUnderreplicationManager, shutdownTaskHandler, hasAuditCheckTask);
         this.zkOpTimeoutMs = conf.getZkTimeout() * 2;
+        this.replicasCheckSummaryEnabled = conf.isAuditorReplicasCheckSummaryEnabled();
         this.numLedgersFoundHavingNoReplicaOfAnEntry = new AtomicInteger(0);
         this.numLedgersFoundHavingLessThanAQReplicasOfAnEntry = new AtomicInteger(0);
         this.numLedgersFoundHavingLessThanWQReplicasOfAnEntry = new AtomicInteger(0);
@@ -476,11 +479,115 @@ public class AuditorReplicasCheckTask extends AuditorTask {
                 final BookieId bookieInEnsemble = bookiesSegmentInfoTuple.getKey();
                 final List<BookieExpectedToContainSegmentInfo> bookieSegmentInfoList = bookiesSegmentInfoTuple
                         .getValue();
-                admin.asyncGetListOfEntriesOfLedger(bookieInEnsemble, ledgerInRange)
-                        .whenComplete(new GetListOfEntriesOfLedgerCallbackForReplicasCheck(ledgerInRange, ensembleSize,
+                GetListOfEntriesOfLedgerCallbackForReplicasCheck listOfEntriesCallback =
+                        new GetListOfEntriesOfLedgerCallbackForReplicasCheck(ledgerInRange, ensembleSize,
                                 writeQuorumSize, ackQuorumSize, bookieInEnsemble, bookieSegmentInfoList,
+                                ledgersWithMissingEntries, ledgersWithUnavailableBookies, mcbForThisLedger);
+                if (replicasCheckSummaryEnabled) {
+                    List<EntriesOfLedgerSummary> ranges = new ArrayList<>(bookieSegmentInfoList.size());
+                    for (BookieExpectedToContainSegmentInfo bookieSegmentInfo : bookieSegmentInfoList) {
+                        ranges.add(new EntriesOfLedgerSummary(bookieSegmentInfo.getStartEntryIdOfSegment(),
+                                bookieSegmentInfo.getLastEntryIdOfSegment()));
+                    }
+                    admin.asyncGetEntriesOfLedgerSummaries(bookieInEnsemble, ledgerInRange, ranges)
+                            .whenComplete(new GetEntriesOfLedgerSummariesCallbackForReplicasCheck(ledgerInRange,
+                                    ensembleSize, writeQuorumSize, ackQuorumSize, bookieInEnsemble,
+                                    bookieSegmentInfoList, ledgersWithMissingEntries, ledgersWithUnavailableBookies,
+                                    mcbForThisLedger, listOfEntriesCallback));
+                } else {
+                    admin.asyncGetListOfEntriesOfLedger(bookieInEnsemble, ledgerInRange)
+                            .whenComplete(listOfEntriesCallback);
+                }
+            }
+        }
+    }
+
+    /*
+     * Compares the summaries of the entries residing in the bookie with the
+     * summaries of the entries expected in it, for each segment. Only for the
+     * segments whose summaries don't match, the complete list of entries of
+     * ledger is fetched from the bookie to find out the missing entries.
+     */
+    private class GetEntriesOfLedgerSummariesCallbackForReplicasCheck
+            implements BiConsumer<List<EntriesOfLedgerSummary>, Throwable> {
+        private final long ledgerInRange;
+        private final int ensembleSize;
+        private final int writeQuorumSize;
+        private final int ackQuorumSize;
+        private final BookieId bookieInEnsemble;
+        private final List<BookieExpectedToContainSegmentInfo> bookieExpectedToContainSegmentInfoList;
+        private final ConcurrentHashMap<Long, MissingEntriesInfoOfLedger> ledgersWithMissingEntries;
+        private final ConcurrentHashMap<Long, MissingEntriesInfoOfLedger> ledgersWithUnavailableBookies;
+        private final MultiCallback mcbForThisLedger;
+        private final GetListOfEntriesOfLedgerCallbackForReplicasCheck listOfEntriesCallback;
+
+        private GetEntriesOfLedgerSummariesCallbackForReplicasCheck(
+                long ledgerInRange,
+                int ensembleSize,
+                int writeQuorumSize,
+                int ackQuorumSize,
+                BookieId bookieInEnsemble,
+                List<BookieExpectedToContainSegmentInfo> bookieExpectedToContainSegmentInfoList,
+                ConcurrentHashMap<Long, MissingEntriesInfoOfLedger> ledgersWithMissingEntries,
+                ConcurrentHashMap<Long, MissingEntriesInfoOfLedger> ledgersWithUnavailableBookies,
+                MultiCallback mcbForThisLedger,
+                GetListOfEntriesOfLedgerCallbackForReplicasCheck listOfEntriesCallback) {
+            this.ledgerInRange = ledgerInRange;
+            this.ensembleSize = ensembleSize;
+            this.writeQuorumSize = writeQuorumSize;
+            this.ackQuorumSize = ackQuorumSize;
+            this.bookieInEnsemble = bookieInEnsemble;
+            this.bookieExpectedToContainSegmentInfoList = bookieExpectedToContainSegmentInfoList;
+            this.ledgersWithMissingEntries = ledgersWithMissingEntries;
+            this.ledgersWithUnavailableBookies = ledgersWithUnavailableBookies;
+            this.mcbForThisLedger = mcbForThisLedger;
+            this.listOfEntriesCallback = listOfEntriesCallback;
+        }
+
+        @Override
+        public void accept(List<EntriesOfLedgerSummary> entriesOfLedgerSummaries, Throwable summariesException) {
+            if (summariesException != null) {
+                /*
+                 * errors are handled the same way as if getting the complete
+                 * list of entries of ledger had failed.
+                 */
+                listOfEntriesCallback.accept(null, summariesException);
+                return;
+            }
+
+            List<BookieExpectedToContainSegmentInfo> mismatchedSegments = new ArrayList<>();
+            for (int i = 0; i < bookieExpectedToContainSegmentInfoList.size(); i++) {
+                BookieExpectedToContainSegmentInfo bookieExpectedToContainSegmentInfo =
+                        bookieExpectedToContainSegmentInfoList.get(i);
+                EntriesOfLedgerSummary expectedSummary = EntriesOfLedgerSummary.expectedSummary(
+                        bookieExpectedToContainSegmentInfo.getStartEntryIdOfSegment(),
+                        bookieExpectedToContainSegmentInfo.getLastEntryIdOfSegment(),
+                        bookieExpectedToContainSegmentInfo.getEntriesOfSegmentStripedToThisBookie());
+                if (entriesOfLedgerSummaries != null && i < entriesOfLedgerSummaries.size()
+                        && expectedSummary.matches(entriesOfLedgerSummaries.get(i))) {
+                    auditorStats.getNumReplicasCheckSummariesMatched().inc();
+                } else {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("For ledger: {}, in Segment: {}, summary of entries of bookie: {} doesn't match"
+                                        + " the expected summary: {}", ledgerInRange,
+                                bookieExpectedToContainSegmentInfo.getSegmentEnsemble(), bookieInEnsemble,
+                                expectedSummary);
+                    }
+                    auditorStats.getNumReplicasCheckSummariesMismatched().inc();
+                    mismatchedSegments.add(bookieExpectedToContainSegmentInfo);
+                }
+            }
+
+            if (!mismatchedSegments.isEmpty()) {
+                admin.asyncGetListOfEntriesOfLedger(bookieInEnsemble, ledgerInRange)
+                        .whenComplete(new GetListOfEntriesOfLedgerCallbackForReplicasCheck(ledgerInRange,
+                                ensembleSize, writeQuorumSize, ackQuorumSize, bookieInEnsemble, mismatchedSegments,
                                 ledgersWithMissingEntries, ledgersWithUnavailableBookies, mcbForThisLedger));
             }
+            for (int i = mismatchedSegments.size(); i < bookieExpectedToContainSegmentInfoList.size(); i++) {
+                // segments having all the expected entries
+                mcbForThisLedger.processResult(BKException.Code.OK, null, null);
+            }
         }
     }
 
@@ -20,6 +20,9 @@ package org.apache.bookkeeper.replication;
 import static org.apache.bookkeeper.replication.ReplicationStats.AUDITOR_SCOPE;
 import static org.apache.bookkeeper.replication.ReplicationStats.AUDIT_BOOKIES_TIME;
 import static org.apache.bookkeeper.replication.ReplicationStats.BOOKIE_TO_LEDGERS_MAP_CREATION_TIME;
+import static org.apache.bookkeeper.replication.ReplicationStats.CHECK_ALL_LEDGERS_CHECKPOINT;
+import static org.apache.bookkeeper.replication.ReplicationStats.CHECK_ALL_LEDGERS_RANGES_CHECKED;
+import static org.apache.bookkeeper.replication.ReplicationStats.CHECK_ALL_LEDGERS_RANGES_IN_FLIGHT;
 import static org.apache.bookkeeper.replication.ReplicationStats.CHECK_ALL_LEDGERS_TIME;
 import static org.apache.bookkeeper.replication.ReplicationStats.NUM_BOOKIES_PER_LEDGER;
 import static org.apache.bookkeeper.replication.ReplicationStats.NUM_BOOKIE_AUDITS_DELAYED;
@@ -31,6 +34,8 @@ import static org.apache.bookkeeper.replication.ReplicationStats.NUM_LEDGERS_HAV
 import static org.apache.bookkeeper.replication.ReplicationStats.NUM_LEDGERS_HAVING_NO_REPLICA_OF_AN_ENTRY;
 import static org.apache.bookkeeper.replication.ReplicationStats.NUM_LEDGERS_NOT_ADHERING_TO_PLACEMENT_POLICY;
 import static org.apache.bookkeeper.replication.ReplicationStats.NUM_LEDGERS_SOFTLY_ADHERING_TO_PLACEMENT_POLICY;
+import static org.apache.bookkeeper.replication.ReplicationStats.NUM_REPLICAS_CHECK_SUMMARIES_MATCHED;
+import static org.apache.bookkeeper.replication.ReplicationStats.NUM_REPLICAS_CHECK_SUMMARIES_MISMATCHED;
 import static org.apache.bookkeeper.replication.ReplicationStats.NUM_SKIPPING_CHECK_TASK_TIMES;
 import static org.apache.bookkeeper.replication.ReplicationStats.NUM_UNDERREPLICATED_LEDGERS_ELAPSED_RECOVERY_GRACE_PERIOD;
 import static org.apache.bookkeeper.replication.ReplicationStats.NUM_UNDER_REPLICATED_LEDGERS;
@@ -40,6 +45,7 @@ import static org.apache.bookkeeper.replication.ReplicationStats.UNDER_REPLICATE
 import static org.apache.bookkeeper.replication.ReplicationStats.URL_PUBLISH_TIME_FOR_LOST_BOOKIE;
 
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import lombok.Getter;
 import org.apache.bookkeeper.stats.Counter;
 import org.apache.bookkeeper.stats.Gauge;
@@ -61,6 +67,9 @@ public class AuditorStats {
     private final AtomicInteger numLedgersHavingLessThanAQReplicasOfAnEntryGuageValue;
     private final AtomicInteger numLedgersHavingLessThanWQReplicasOfAnEntryGuageValue;
     private final AtomicInteger underReplicatedLedgersGuageValue;
+    private final AtomicInteger checkAllLedgersRangesCheckedGuageValue;
+    private final AtomicInteger checkAllLedgersRangesInFlightGuageValue;
+    private final AtomicLong checkAllLedgersCheckpointGuageValue;
     private final StatsLogger statsLogger;
     @StatsDoc(
             name = NUM_UNDER_REPLICATED_LEDGERS,
@@ -165,6 +174,32 @@ public class AuditorStats {
             help = "the times of auditor check task skipped"
     )
     private final Counter numSkippingCheckTaskTimes;
+    @StatsDoc(
+            name = NUM_REPLICAS_CHECK_SUMMARIES_MATCHED,
+            help = "the number of segments of ledgers whose replicas check was done by comparing summaries"
+    )
+    private final Counter numReplicasCheckSummariesMatched;
+    @StatsDoc(
+            name = NUM_REPLICAS_CHECK_SUMMARIES_MISMATCHED,
+            help = "the number of segments of ledgers whose summaries didn't match during replicas check,"
+                    + " so the complete list of entries had to be fetched"
+    )
+    private final Counter numReplicasCheckSummariesMismatched;
+    @StatsDoc(
+            name = CHECK_ALL_LEDGERS_RANGES_CHECKED,
+            help = "Gauge for number of ledger ranges checked by the ongoing or last checkAllLedgers"
+    )
+    private final Gauge<Integer> checkAllLedgersRangesChecked;
+    @StatsDoc(
+            name = CHECK_ALL_LEDGERS_RANGES_IN_FLIGHT,
+            help = "Gauge for number of ledger ranges being checked concurrently by checkAllLedgers"
+    )
+    private final Gauge<Integer> checkAllLedgersRangesInFlight;
+    @StatsDoc(
+            name = CHECK_ALL_LEDGERS_CHECKPOINT,
+            help = "Gauge for the ledger id up to which the ongoing checkAllLedgers has checked all the ledgers"
+    )
+    private final Gauge<Long> checkAllLedgersCheckpoint;
 
     public AuditorStats(StatsLogger statsLogger) {
         this.statsLogger = statsLogger;
@@ -175,6 +210,9 @@ public class AuditorStats {
         this.numLedgersHavingLessThanAQReplicasOfAnEntryGuageValue = new AtomicInteger(0);
         this.numLedgersHavingLessThanWQReplicasOfAnEntryGuageValue = new AtomicInteger(0);
         this.underReplicatedLedgersGuageValue = new AtomicInteger(0);
+        this.checkAllLedgersRangesCheckedGuageValue = new AtomicInteger(0);
+        this.checkAllLedgersRangesInFlightGuageValue = new AtomicInteger(0);
+        this.checkAllLedgersCheckpointGuageValue = new AtomicLong(-1L);
         numUnderReplicatedLedger = this.statsLogger.getOpStatsLogger(ReplicationStats.NUM_UNDER_REPLICATED_LEDGERS);
         underReplicatedLedgerTotalSize = this.statsLogger.getOpStatsLogger(UNDER_REPLICATED_LEDGERS_TOTAL_SIZE);
         uRLPublishTimeForLostBookies = this.statsLogger
@@ -192,6 +230,8 @@ public class AuditorStats {
         numDelayedBookieAuditsCancelled = this.statsLogger
                 .getCounter(ReplicationStats.NUM_DELAYED_BOOKIE_AUDITS_DELAYES_CANCELLED);
         numSkippingCheckTaskTimes = this.statsLogger.getCounter(NUM_SKIPPING_CHECK_TASK_TIMES);
+        numReplicasCheckSummariesMatched = this.statsLogger.getCounter(NUM_REPLICAS_CHECK_SUMMARIES_MATCHED);
+        numReplicasCheckSummariesMismatched = this.statsLogger.getCounter(NUM_REPLICAS_CHECK_SUMMARIES_MISMATCHED);
         numLedgersNotAdheringToPlacementPolicy = new Gauge<Integer>() {
             @Override
             public Integer getDefaultValue() {
@@ -272,5 +312,41 @@ public class AuditorStats {
         };
         this.statsLogger.registerGauge(ReplicationStats.NUM_LEDGERS_HAVING_LESS_THAN_WQ_REPLICAS_OF_AN_ENTRY,
                 numLedgersHavingLessThanWQReplicasOfAnEntry);
+        checkAllLedgersRangesChecked = new Gauge<Integer>() {
+            @Override
+            public Integer getDefaultValue() {
+                return 0;
+            }
+
+            @Override
+            public Integer getSample() {
+                return checkAllLedgersRangesCheckedGuageValue.get();
+            }
+        };
+        this.statsLogger.registerGauge(CHECK_ALL_LEDGERS_RANGES_CHECKED, checkAllLedgersRangesChecked);
+        checkAllLedgersRangesInFlight = new Gauge<Integer>() {
+            @Override
+            public Integer getDefaultValue() {
+                return 0;
+            }
+
+            @Override
+            public Integer getSample() {
+                return checkAllLedgersRangesInFlightGuageValue.get();
+            }
+        };
+        this.statsLogger.registerGauge(CHECK_ALL_LEDGERS_RANGES_IN_FLIGHT, checkAllLedgersRangesInFlight);
+        checkAllLedgersCheckpoint = new Gauge<Long>() {
+            @Override
+            public Long getDefaultValue() {
+                return -1L;
+            }
+
+            @Override
+            public Long getSample() {
+                return checkAllLedgersCheckpointGuageValue.get();
+            }
+        };
+        this.statsLogger.registerGauge(CHECK_ALL_LEDGERS_CHECKPOINT, checkAllLedgersCheckpoint);
     }
 }
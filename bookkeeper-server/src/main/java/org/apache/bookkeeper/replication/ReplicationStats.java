@@ -59,11 +59,19 @@ public interface ReplicationStats {
     String NUM_BYTES_READ = "NUM_BYTES_READ";
     String NUM_ENTRIES_WRITTEN = "NUM_ENTRIES_WRITTEN";
     String NUM_BYTES_WRITTEN = "NUM_BYTES_WRITTEN";
+    String NUM_ENTRIES_COPIED = "NUM_ENTRIES_COPIED";
     String READ_DATA_LATENCY = "READ_DATA_LATENCY";
     String WRITE_DATA_LATENCY = "WRITE_DATA_LATENCY";
     String REPLICATE_EXCEPTION = "exceptions";
     String NUM_DEFER_LEDGER_LOCK_RELEASE_OF_FAILED_LEDGER = "NUM_DEFER_LEDGER_LOCK_RELEASE_OF_FAILED_LEDGER";
     String NUM_ENTRIES_UNABLE_TO_READ_FOR_REPLICATION = "NUM_ENTRIES_UNABLE_TO_READ_FOR_REPLICATION";
     String NUM_NOT_ADHERING_PLACEMENT_LEDGERS_REPLICATED = "NUM_NOT_ADHERING_PLACEMENT_LEDGERS_REPLICATED";
+    String NUM_LEDGERS_IN_REPLICATION = "NUM_LEDGERS_IN_REPLICATION";
+    String ACQUIRE_UNDERREPLICATED_LEDGER_LOCK = "ACQUIRE_UNDERREPLICATED_LEDGER_LOCK";
+    String CHECK_ALL_LEDGERS_RANGES_CHECKED = "CHECK_ALL_LEDGERS_RANGES_CHECKED";
+    String CHECK_ALL_LEDGERS_RANGES_IN_FLIGHT = "CHECK_ALL_LEDGERS_RANGES_IN_FLIGHT";
+    String CHECK_ALL_LEDGERS_CHECKPOINT = "CHECK_ALL_LEDGERS_CHECKPOINT";
+    String NUM_REPLICAS_CHECK_SUMMARIES_MATCHED = "NUM_REPLICAS_CHECK_SUMMARIES_MATCHED";
+    String NUM_REPLICAS_CHECK_SUMMARIES_MISMATCHED = "NUM_REPLICAS_CHECK_SUMMARIES_MISMATCHED";
     String NUM_SKIPPING_CHECK_TASK_TIMES = "NUM_SKIPPING_CHECK_TASK_TIMES";
 }
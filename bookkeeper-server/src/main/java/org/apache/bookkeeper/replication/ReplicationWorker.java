@@ -19,9 +19,11 @@
  */
 package org.apache.bookkeeper.replication;
 
+import static org.apache.bookkeeper.replication.ReplicationStats.ACQUIRE_UNDERREPLICATED_LEDGER_LOCK;
 import static org.apache.bookkeeper.replication.ReplicationStats.NUM_DEFER_LEDGER_LOCK_RELEASE_OF_FAILED_LEDGER;
 import static org.apache.bookkeeper.replication.ReplicationStats.NUM_ENTRIES_UNABLE_TO_READ_FOR_REPLICATION;
 import static org.apache.bookkeeper.replication.ReplicationStats.NUM_FULL_OR_PARTIAL_LEDGERS_REPLICATED;
+import static org.apache.bookkeeper.replication.ReplicationStats.NUM_LEDGERS_IN_REPLICATION;
 import static org.apache.bookkeeper.replication.ReplicationStats.NUM_NOT_ADHERING_PLACEMENT_LEDGERS_REPLICATED;
 import static org.apache.bookkeeper.replication.ReplicationStats.REPLICATE_EXCEPTION;
 import static org.apache.bookkeeper.replication.ReplicationStats.REPLICATION_WORKER_SCOPE;
@@ -37,7 +39,6 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -48,9 +49,16 @@ import java.util.Timer;
 import java.util.TimerTask;
 import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import org.apache.bookkeeper.bookie.BookieThread;
@@ -74,6 +82,7 @@ import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GenericCallback;
 import org.apache.bookkeeper.replication.ReplicationException.CompatibilityException;
 import org.apache.bookkeeper.replication.ReplicationException.UnavailableException;
 import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.Gauge;
 import org.apache.bookkeeper.stats.NullStatsLogger;
 import org.apache.bookkeeper.stats.OpStatsLogger;
 import org.apache.bookkeeper.stats.StatsLogger;
@@ -85,6 +94,10 @@ import org.slf4j.LoggerFactory;
 /**
  * ReplicationWorker will take the fragments one by one from
  * ZKLedgerUnderreplicationManager and replicates to it.
+ *
+ * <p>If {@link ServerConfiguration#getRwMaxConcurrentRereplicatingLedgers()} is greater than 1,
+ * the worker thread only acquires the under-replicated ledgers and hands them over to a pool
+ * which re-replicates up to that many ledgers concurrently.
  */
 @StatsDoc(
     name = REPLICATION_WORKER_SCOPE,
@@ -94,6 +107,7 @@ public class ReplicationWorker implements Runnable {
     private static final Logger LOG = LoggerFactory
             .getLogger(ReplicationWorker.class);
     private static final int REPLICATED_FAILED_LEDGERS_MAXSIZE = 2000;
+    private static final long REREPLICATION_TERMINATION_TIMEOUT_MS = 30000;
     public static final int NUM_OF_EXPONENTIAL_BACKOFF_RETRIALS = 5;
 
     private final LedgerUnderreplicationManager underreplicationManager;
@@ -111,6 +125,12 @@ public class ReplicationWorker implements Runnable {
     private final long baseBackoffForLockReleaseOfFailedLedger;
     private final BiConsumer<Long, Long> onReadEntryFailureCallback;
     private final LedgerManager ledgerManager;
+    private final int maxConcurrentRereplicatingLedgers;
+    private final Semaphore rereplicatingLedgerPermits;
+    private final ExecutorService rereplicationExecutor;
+    private final AtomicInteger numLedgersInReplication = new AtomicInteger(0);
+    // set by the re-replication pool on a failure, for the worker thread to back off without holding a permit
+    private final AtomicBoolean rereplicationBackOffRequested = new AtomicBoolean(false);
 
     // Expose Stats
     private final StatsLogger statsLogger;
@@ -144,6 +164,16 @@ public class ReplicationWorker implements Runnable {
             help = "the number of not adhering placement policy ledgers re-replicated"
     )
     private final Counter numNotAdheringPlacementLedgersReplicated;
+    @StatsDoc(
+            name = ACQUIRE_UNDERREPLICATED_LEDGER_LOCK,
+            help = "operation stats of acquiring the lock of an under-replicated ledger"
+    )
+    private final OpStatsLogger acquireUnderreplicatedLedgerLockStats;
+    @StatsDoc(
+            name = NUM_LEDGERS_IN_REPLICATION,
+            help = "the number of ledgers being re-replicated concurrently"
+    )
+    private final Gauge<Integer> numLedgersInReplicationGauge;
     private final Map<String, Counter> exceptionCounters;
     final LoadingCache<Long, AtomicInteger> replicationFailedLedgers;
     final LoadingCache<Long, ConcurrentSkipListSet<Long>> unableToReadEntriesForReplication;
@@ -200,6 +230,23 @@ public class ReplicationWorker implements Runnable {
                 / (long) (Math.pow(2, NUM_OF_EXPONENTIAL_BACKOFF_RETRIALS));
         this.rwRereplicateBackoffMs = conf.getRwRereplicateBackoffMs();
         this.pendingReplicationTimer = new Timer("PendingReplicationTimer");
+        this.maxConcurrentRereplicatingLedgers = Math.max(1, conf.getRwMaxConcurrentRereplicatingLedgers());
+        this.rereplicatingLedgerPermits = new Semaphore(maxConcurrentRereplicatingLedgers);
+        if (maxConcurrentRereplicatingLedgers > 1) {
+            this.rereplicationExecutor = Executors.newFixedThreadPool(maxConcurrentRereplicatingLedgers,
+                    new ThreadFactory() {
+                        private final AtomicInteger threadId = new AtomicInteger(0);
+
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread t = new BookieThread(r, "ReplicationWorker-" + threadId.getAndIncrement());
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+        } else {
+            this.rereplicationExecutor = null;
+        }
         this.replicationFailedLedgers = CacheBuilder.newBuilder().maximumSize(REPLICATED_FAILED_LEDGERS_MAXSIZE)
                 .build(new CacheLoader<Long, AtomicInteger>() {
                     @Override
@@ -227,7 +274,21 @@ public class ReplicationWorker implements Runnable {
                 .getCounter(NUM_ENTRIES_UNABLE_TO_READ_FOR_REPLICATION);
         this.numNotAdheringPlacementLedgersReplicated = this.statsLogger
                 .getCounter(NUM_NOT_ADHERING_PLACEMENT_LEDGERS_REPLICATED);
-        this.exceptionCounters = new HashMap<String, Counter>();
+        this.acquireUnderreplicatedLedgerLockStats = this.statsLogger
+                .getOpStatsLogger(ACQUIRE_UNDERREPLICATED_LEDGER_LOCK);
+        this.numLedgersInReplicationGauge = new Gauge<Integer>() {
+            @Override
+            public Integer getDefaultValue() {
+                return 0;
+            }
+
+            @Override
+            public Integer getSample() {
+                return numLedgersInReplication.get();
+            }
+        };
+        this.statsLogger.registerGauge(NUM_LEDGERS_IN_REPLICATION, numLedgersInReplicationGauge);
+        this.exceptionCounters = new ConcurrentHashMap<String, Counter>();
         this.onReadEntryFailureCallback = (ledgerid, entryid) -> {
             numEntriesUnableToReadForReplication.inc();
             unableToReadEntriesForReplication.getUnchecked(ledgerid).add(entryid);
@@ -245,39 +306,93 @@ public class ReplicationWorker implements Runnable {
     public void run() {
         workerRunning = true;
         while (workerRunning) {
-            try {
-                if (!rereplicate()) {
-                    LOG.warn("failed while replicating fragments");
-                    waitBackOffTime(rwRereplicateBackoffMs);
-                }
-            } catch (InterruptedException e) {
-                LOG.error("InterruptedException "
-                        + "while replicating fragments", e);
-                shutdown();
-                Thread.currentThread().interrupt();
-                return;
-            } catch (BKException e) {
-                LOG.error("BKException while replicating fragments", e);
-                waitBackOffTime(rwRereplicateBackoffMs);
-            } catch (ReplicationException.NonRecoverableReplicationException nre) {
-                LOG.error("NonRecoverableReplicationException "
-                        + "while replicating fragments", nre);
-                shutdown();
+            boolean keepRunning;
+            if (rereplicationExecutor == null) {
+                keepRunning = runRereplication(this::rereplicate);
+            } else {
+                keepRunning = runRereplication(this::dispatchNextLedger);
+            }
+            if (!keepRunning) {
                 return;
-            } catch (UnavailableException e) {
-                LOG.error("UnavailableException "
-                        + "while replicating fragments", e);
-                waitBackOffTime(rwRereplicateBackoffMs);
-                if (Thread.currentThread().isInterrupted()) {
-                    LOG.error("Interrupted  while replicating fragments");
-                    shutdown();
-                    return;
-                }
             }
         }
         LOG.info("ReplicationWorker exited loop!");
     }
 
+    /**
+     * A single attempt of re-replication, returning false if it failed.
+     */
+    @FunctionalInterface
+    private interface RereplicationAttempt {
+        boolean run() throws InterruptedException, BKException, UnavailableException;
+    }
+
+    /**
+     * Runs the re-replication attempt, backs off if it failed and stops the worker if it can't go on.
+     *
+     * @return false if the worker is stopping and the caller should stop.
+     */
+    private boolean runRereplication(RereplicationAttempt attempt) {
+        try {
+            if (!attempt.run()) {
+                LOG.warn("failed while replicating fragments");
+                backOff();
+            }
+        } catch (InterruptedException e) {
+            LOG.error("InterruptedException "
+                    + "while replicating fragments", e);
+            stopOnFailure();
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (BKException e) {
+            LOG.error("BKException while replicating fragments", e);
+            backOff();
+        } catch (ReplicationException.NonRecoverableReplicationException nre) {
+            LOG.error("NonRecoverableReplicationException "
+                    + "while replicating fragments", nre);
+            stopOnFailure();
+            return false;
+        } catch (UnavailableException e) {
+            LOG.error("UnavailableException "
+                    + "while replicating fragments", e);
+            backOff();
+            if (Thread.currentThread().isInterrupted()) {
+                LOG.error("Interrupted  while replicating fragments");
+                stopOnFailure();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isRereplicationPoolThread() {
+        return rereplicationExecutor != null && Thread.currentThread() != workerThread;
+    }
+
+    /**
+     * Backs off after a failed re-replication. A re-replication pool thread doesn't sleep holding its permit,
+     * the worker thread backs off before dispatching the next ledger instead.
+     */
+    private void backOff() {
+        if (isRereplicationPoolThread()) {
+            rereplicationBackOffRequested.set(true);
+        } else {
+            waitBackOffTime(rwRereplicateBackoffMs);
+        }
+    }
+
+    /**
+     * Stops the worker after a failure it can't recover from. A re-replication pool thread can't wait for
+     * its own pool to terminate, so it only interrupts the worker thread, which then shuts the worker down.
+     */
+    private void stopOnFailure() {
+        if (isRereplicationPoolThread()) {
+            workerThread.interrupt();
+        } else {
+            shutdown();
+        }
+    }
+
     private static void waitBackOffTime(long backoffMs) {
         try {
             Thread.sleep(backoffMs);
@@ -292,9 +407,68 @@ public class ReplicationWorker implements Runnable {
      */
     private boolean rereplicate() throws InterruptedException, BKException,
             UnavailableException {
-        long ledgerIdToReplicate = underreplicationManager
-                .getLedgerToRereplicate();
+        return rereplicateAndRecordStats(acquireLedgerToRereplicate());
+    }
 
+    /**
+     * Acquires the next under-replicated ledger and hands it over to the
+     * re-replication pool. The lock of the next ledger is acquired while the
+     * previously dispatched ledgers are still being re-replicated, up to
+     * {@link ServerConfiguration#getRwMaxConcurrentRereplicatingLedgers()} ledgers.
+     */
+    private boolean dispatchNextLedger() throws InterruptedException, UnavailableException {
+        rereplicatingLedgerPermits.acquire();
+        if (rereplicationBackOffRequested.getAndSet(false)) {
+            // back off on behalf of the failed re-replication, without holding a permit
+            rereplicatingLedgerPermits.release();
+            waitBackOffTime(rwRereplicateBackoffMs);
+            return true;
+        }
+        final long ledgerIdToReplicate;
+        try {
+            ledgerIdToReplicate = acquireLedgerToRereplicate();
+        } catch (UnavailableException | RuntimeException e) {
+            rereplicatingLedgerPermits.release();
+            throw e;
+        }
+        numLedgersInReplication.incrementAndGet();
+        try {
+            rereplicationExecutor.execute(() -> {
+                try {
+                    runRereplication(() -> rereplicateAndRecordStats(ledgerIdToReplicate));
+                } finally {
+                    numLedgersInReplication.decrementAndGet();
+                    rereplicatingLedgerPermits.release();
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            LOG.info("ReplicationWorker is shutting down, releasing ledger {}", ledgerIdToReplicate);
+            numLedgersInReplication.decrementAndGet();
+            rereplicatingLedgerPermits.release();
+            underreplicationManager.releaseUnderreplicatedLedger(ledgerIdToReplicate);
+        }
+        return true;
+    }
+
+    private long acquireLedgerToRereplicate() throws UnavailableException {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        boolean success = false;
+        try {
+            long ledgerId = underreplicationManager.getLedgerToRereplicate();
+            success = true;
+            return ledgerId;
+        } finally {
+            long latencyMillis = stopwatch.stop().elapsed(TimeUnit.MILLISECONDS);
+            if (success) {
+                acquireUnderreplicatedLedgerLockStats.registerSuccessfulEvent(latencyMillis, TimeUnit.MILLISECONDS);
+            } else {
+                acquireUnderreplicatedLedgerLockStats.registerFailedEvent(latencyMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private boolean rereplicateAndRecordStats(long ledgerIdToReplicate) throws InterruptedException, BKException,
+            UnavailableException {
         Stopwatch stopwatch = Stopwatch.createStarted();
         boolean success = false;
         try {
@@ -536,7 +710,7 @@ public class ReplicationWorker implements Runnable {
                 } catch (UnavailableException e) {
                     LOG.error("UnavailableException while releasing the underreplicated lock for ledger {}:",
                         ledgerIdToReplicate, e);
-                    shutdown();
+                    stopOnFailure();
                 }
             }
         }
@@ -765,14 +939,36 @@ public class ReplicationWorker implements Runnable {
         }
         LOG.info("Shutting down ReplicationWorker");
         this.pendingReplicationTimer.cancel();
+        if (rereplicationExecutor != null) {
+            rereplicationExecutor.shutdownNow();
+        }
         try {
             this.workerThread.interrupt();
-            this.workerThread.join();
+            if (Thread.currentThread() != workerThread) {
+                this.workerThread.join();
+            }
         } catch (InterruptedException e) {
             LOG.error("Interrupted during shutting down replication worker : ",
                     e);
             Thread.currentThread().interrupt();
         }
+        // the ledgers being re-replicated use the bookkeeper client and the underreplication manager
+        if (rereplicationExecutor != null) {
+            // the worker thread shutting the worker down has interrupted itself, clear it to wait for the pool
+            boolean stopInterrupt = Thread.currentThread() == workerThread && Thread.interrupted();
+            try {
+                if (!rereplicationExecutor.awaitTermination(REREPLICATION_TERMINATION_TIMEOUT_MS,
+                        TimeUnit.MILLISECONDS)) {
+                    LOG.warn("Timed out waiting for the ledgers being re-replicated to be released");
+                }
+            } catch (InterruptedException e) {
+                LOG.warn("Interrupted while waiting for the ledgers being re-replicated to be released", e);
+                Thread.currentThread().interrupt();
+            }
+            if (stopInterrupt) {
+                Thread.currentThread().interrupt();
+            }
+        }
         if (ownBkc) {
             try {
                 bkc.close();
@@ -824,12 +1020,12 @@ public class ReplicationWorker implements Runnable {
     }
 
     private Counter getExceptionCounter(String name) {
-        Counter counter = this.exceptionCounters.get(name);
-        if (counter == null) {
-            counter = this.exceptionLogger.getCounter(name);
-            this.exceptionCounters.put(name, counter);
-        }
-        return counter;
+        return this.exceptionCounters.computeIfAbsent(name, this.exceptionLogger::getCounter);
+    }
+
+    @VisibleForTesting
+    int getNumLedgersInReplication() {
+        return numLedgersInReplication.get();
     }
 
 }
@@ -22,8 +22,10 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.PrimitiveIterator;
 import java.util.TreeMap;
 import org.apache.commons.lang3.mutable.MutableInt;
@@ -384,6 +386,52 @@ public class AvailabilityOfEntriesOfLedger {
         return seqGroup.getValue().isEntryAvailable(entryId);
     }
 
+    /**
+     * @return iterator of the available entries, in ascending order
+     */
+    public PrimitiveIterator.OfLong getAvailableEntriesIterator() {
+        if (!isAvailabilityOfEntriesOfLedgerClosed()) {
+            throw new IllegalStateException("AvailabilityOfEntriesOfLedger is not yet closed,"
+                    + " it is illegal to call getAvailableEntriesIterator");
+        }
+        return new PrimitiveIterator.OfLong() {
+            private final Iterator<SequenceGroup> seqGroupsItr = sortedSequenceGroups.values().iterator();
+            private SequenceGroup curSeqGroup = null;
+            private long curSequenceStart = INVALID_ENTRYID;
+            private long nextEntryId = INVALID_ENTRYID;
+
+            @Override
+            public boolean hasNext() {
+                if (curSeqGroup != null && nextEntryId == curSequenceStart + curSeqGroup.sequenceSize) {
+                    // the current sequence is done, move to the next sequence of the group if any
+                    if (curSequenceStart < curSeqGroup.getLastSequenceStart()) {
+                        curSequenceStart += curSeqGroup.getSequencePeriod();
+                        nextEntryId = curSequenceStart;
+                    } else {
+                        curSeqGroup = null;
+                    }
+                }
+                if (curSeqGroup == null) {
+                    if (!seqGroupsItr.hasNext()) {
+                        return false;
+                    }
+                    curSeqGroup = seqGroupsItr.next();
+                    curSequenceStart = curSeqGroup.getFirstSequenceStart();
+                    nextEntryId = curSequenceStart;
+                }
+                return true;
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return nextEntryId++;
+            }
+        };
+    }
+
     public List<Long> getUnavailableEntries(long startEntryId, long lastEntryId, BitSet availabilityOfEntries) {
         if (!isAvailabilityOfEntriesOfLedgerClosed()) {
             throw new IllegalStateException(
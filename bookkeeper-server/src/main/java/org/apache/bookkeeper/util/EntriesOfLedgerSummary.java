@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+/**
+ * Compact summary of the entries of a ledger residing in a bookie, within the
+ * range [firstEntryId, lastEntryId].
+ *
+ * <p>The summary is made of the number of entries in the range and an order
+ * independent digest of their entry ids, so that it can be computed by the
+ * bookie while iterating its index and by the auditor from the entries it
+ * expects the bookie to contain. Matching summaries mean that the bookie
+ * contains exactly the expected entries, with a very high probability. On
+ * mismatch the complete {@link AvailabilityOfEntriesOfLedger} has to be
+ * fetched to find out the missing entries.
+ */
+public class EntriesOfLedgerSummary {
+    private final long firstEntryId;
+    private final long lastEntryId;
+    private long numEntries;
+    private long digest;
+
+    public EntriesOfLedgerSummary(long firstEntryId, long lastEntryId) {
+        this(firstEntryId, lastEntryId, 0, 0);
+    }
+
+    public EntriesOfLedgerSummary(long firstEntryId, long lastEntryId, long numEntries, long digest) {
+        this.firstEntryId = firstEntryId;
+        this.lastEntryId = lastEntryId;
+        this.numEntries = numEntries;
+        this.digest = digest;
+    }
+
+    public long getFirstEntryId() {
+        return firstEntryId;
+    }
+
+    public long getLastEntryId() {
+        return lastEntryId;
+    }
+
+    public long getNumEntries() {
+        return numEntries;
+    }
+
+    public long getDigest() {
+        return digest;
+    }
+
+    private boolean isInRange(long entryId) {
+        return entryId >= firstEntryId && entryId <= lastEntryId;
+    }
+
+    private void addEntry(long entryId) {
+        numEntries++;
+        digest += mix(entryId);
+    }
+
+    /**
+     * Whether this summary covers the same range and the same entries as the
+     * other summary.
+     */
+    public boolean matches(EntriesOfLedgerSummary other) {
+        return other != null
+                && firstEntryId == other.firstEntryId
+                && lastEntryId == other.lastEntryId
+                && numEntries == other.numEntries
+                && digest == other.digest;
+    }
+
+    /**
+     * Summarize the given entries for each of the given ranges.
+     *
+     * <p>The entries and the ranges sorted by their first entry are walked together, so each
+     * entry is only added to the ranges it is in.
+     *
+     * @param entriesOfLedgerItr
+     *            entries of the ledger residing in the bookie, in ascending order
+     * @param ranges
+     *            empty summaries of the ranges to summarize
+     * @return summaries in the same order as the given ranges
+     */
+    public static List<EntriesOfLedgerSummary> summarize(PrimitiveIterator.OfLong entriesOfLedgerItr,
+                                                         List<EntriesOfLedgerSummary> ranges) {
+        List<EntriesOfLedgerSummary> summaries = new ArrayList<>(ranges.size());
+        for (EntriesOfLedgerSummary range : ranges) {
+            summaries.add(new EntriesOfLedgerSummary(range.getFirstEntryId(), range.getLastEntryId()));
+        }
+        List<EntriesOfLedgerSummary> sortedSummaries = new ArrayList<>(summaries);
+        sortedSummaries.sort(Comparator.comparingLong(EntriesOfLedgerSummary::getFirstEntryId));
+        // the ranges started by the entries walked so far, and not ended yet
+        List<EntriesOfLedgerSummary> openSummaries = new ArrayList<>();
+        int nextSummaryIdx = 0;
+        while (entriesOfLedgerItr.hasNext()) {
+            long entryId = entriesOfLedgerItr.nextLong();
+            while (nextSummaryIdx < sortedSummaries.size()
+                    && sortedSummaries.get(nextSummaryIdx).getFirstEntryId() <= entryId) {
+                openSummaries.add(sortedSummaries.get(nextSummaryIdx++));
+            }
+            for (int i = openSummaries.size() - 1; i >= 0; i--) {
+                EntriesOfLedgerSummary summary = openSummaries.get(i);
+                if (summary.isInRange(entryId)) {
+                    summary.addEntry(entryId);
+                } else {
+                    openSummaries.remove(i);
+                }
+            }
+            if (openSummaries.isEmpty() && nextSummaryIdx == sortedSummaries.size()) {
+                // the remaining entries are beyond all the ranges
+                break;
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * Summarize the entries available in the given AvailabilityOfEntriesOfLedger
+     * for each of the given ranges. It is used for bookies which don't support
+     * computing the summaries themselves.
+     */
+    public static List<EntriesOfLedgerSummary> summarize(AvailabilityOfEntriesOfLedger availabilityOfEntriesOfLedger,
+                                                         List<EntriesOfLedgerSummary> ranges) {
+        return summarize(availabilityOfEntriesOfLedger.getAvailableEntriesIterator(), ranges);
+    }
+
+    /**
+     * Summary of the entries expected in the range [firstEntryId, lastEntryId],
+     * where the bit at index i of expectedEntries is set if entry
+     * (firstEntryId + i) is expected.
+     */
+    public static EntriesOfLedgerSummary expectedSummary(long firstEntryId, long lastEntryId,
+                                                         BitSet expectedEntries) {
+        EntriesOfLedgerSummary summary = new EntriesOfLedgerSummary(firstEntryId, lastEntryId);
+        for (int i = expectedEntries.nextSetBit(0); i >= 0 && firstEntryId + i <= lastEntryId;
+                i = expectedEntries.nextSetBit(i + 1)) {
+            summary.addEntry(firstEntryId + i);
+        }
+        return summary;
+    }
+
+    /*
+     * finalizer of SplitMix64, so that the sum of the mixed entry ids is a
+     * well distributed digest of the set of entry ids.
+     */
+    private static long mix(long entryId) {
+        long z = entryId + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    public String toString() {
+        return "EntriesOfLedgerSummary(firstEntryId=" + firstEntryId + ", lastEntryId=" + lastEntryId
+                + ", numEntries=" + numEntries + ", digest=" + digest + ")";
+    }
+}
@@ -0,0 +1,218 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator.OfLong;
+import java.util.Random;
+import org.apache.bookkeeper.bookie.Bookie.NoLedgerException;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.conf.TestBKConfiguration;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the OffHeapEntryMemTable class.
+ */
+public class OffHeapEntryMemTableTest implements CacheCallback, CheckpointSource {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private OffHeapEntryMemTable memTable;
+    private final Random random = new Random();
+
+    @Override
+    public Checkpoint newCheckpoint() {
+        return Checkpoint.MIN;
+    }
+
+    @Override
+    public void checkpointComplete(Checkpoint checkpoint, boolean compact) throws IOException {
+    }
+
+    @Override
+    public void onSizeLimitReached(Checkpoint cp) throws IOException {
+        // No-op
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        ServerConfiguration conf = TestBKConfiguration.newServerConfiguration();
+        conf.setSkipListArenaChunkSize(CHUNK_SIZE);
+        conf.setSkipListArenaMaxAllocSize(CHUNK_SIZE);
+        this.memTable = new OffHeapEntryMemTable(conf, this, NullStatsLogger.INSTANCE);
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        this.memTable.close();
+    }
+
+    private static class Flushed {
+        final long ledgerId;
+        final long entryId;
+        final byte[] data;
+
+        Flushed(long ledgerId, long entryId, ByteBuf entry) {
+            this.ledgerId = ledgerId;
+            this.entryId = entryId;
+            this.data = new byte[entry.readableBytes()];
+            entry.getBytes(entry.readerIndex(), data);
+        }
+    }
+
+    private byte[] addEntry(long ledgerId, long entryId, int length) throws IOException {
+        byte[] data = new byte[length];
+        random.nextBytes(data);
+        assertEquals(length, memTable.addEntry(ledgerId, entryId, ByteBuffer.wrap(data), this));
+        return data;
+    }
+
+    private static List<Long> toList(OfLong itr) {
+        List<Long> list = new ArrayList<>();
+        itr.forEachRemaining((long entryId) -> list.add(entryId));
+        return list;
+    }
+
+    @Test
+    public void testAddAndGetAcrossChunks() throws IOException {
+        List<byte[]> entries = new ArrayList<>();
+        for (long entryId = 0; entryId < 100; entryId++) {
+            // entries up to 3 times the chunk size
+            entries.add(addEntry(1, entryId, 1 + random.nextInt(3 * CHUNK_SIZE)));
+        }
+        for (long entryId = 0; entryId < 100; entryId++) {
+            EntryKeyValue kv = memTable.getEntry(1, entryId);
+            assertNotNull(kv);
+            assertEquals(1, kv.getLedgerId());
+            assertEquals(entryId, kv.getEntryId());
+            byte[] data = new byte[kv.getLength()];
+            kv.getValueAsByteBuffer().readBytes(data);
+            assertArrayEquals(entries.get((int) entryId), data);
+        }
+        assertNull(memTable.getEntry(1, 100));
+        assertNull(memTable.getEntry(2, 0));
+        assertEquals(99, memTable.getLastEntry(1).getEntryId());
+        assertNull(memTable.getLastEntry(2));
+    }
+
+    @Test
+    public void testOutOfOrderAndDuplicateEntries() throws IOException {
+        final int initialPermits = memTable.skipListSemaphore.availablePermits();
+        long[] entryIds = { 5, 1, 3, 2, 7, 0, 6, 4 };
+        for (long entryId : entryIds) {
+            addEntry(1, entryId, 10);
+        }
+        assertEquals(0, memTable.addEntry(1, 3, ByteBuffer.wrap(new byte[10]), this));
+        assertEquals(initialPermits - entryIds.length * 10, memTable.skipListSemaphore.availablePermits());
+
+        List<Long> expected = new ArrayList<>();
+        for (long entryId = 0; entryId < entryIds.length; entryId++) {
+            expected.add(entryId);
+        }
+        assertEquals(expected, toList(memTable.getListOfEntriesOfLedger(1)));
+        assertEquals(7, memTable.getLastEntry(1).getEntryId());
+
+        memTable.snapshot(Checkpoint.MAX);
+        memTable.flush((ledgerId, entryId, entry) -> { });
+        assertTrue(memTable.isEmpty());
+        assertEquals(initialPermits, memTable.skipListSemaphore.availablePermits());
+    }
+
+    @Test
+    public void testFlushInLedgerAndEntryOrder() throws IOException {
+        byte[][] entries = new byte[200][];
+        for (long entryId = 0; entryId < 20; entryId++) {
+            for (long ledgerId = 10; ledgerId > 0; ledgerId--) {
+                entries[(int) ((ledgerId - 1) * 20 + entryId)] = addEntry(ledgerId, entryId, 1 + random.nextInt(100));
+            }
+        }
+        assertNotNull(memTable.snapshot());
+
+        // entries added after the snapshot are served from the new arena
+        addEntry(1, 20, 10);
+
+        List<Flushed> flushed = new ArrayList<>();
+        long size = memTable.flush((ledgerId, entryId, entry) -> flushed.add(new Flushed(ledgerId, entryId, entry)));
+        assertEquals(200, flushed.size());
+        long expectedSize = 0;
+        for (int i = 0; i < flushed.size(); i++) {
+            Flushed f = flushed.get(i);
+            assertEquals(i / 20 + 1, f.ledgerId);
+            assertEquals(i % 20, f.entryId);
+            assertArrayEquals(entries[i], f.data);
+            expectedSize += f.data.length;
+        }
+        assertEquals(expectedSize, size);
+        assertFalse(memTable.isEmpty());
+        assertNull(memTable.getEntry(1, 0));
+        assertEquals(20, memTable.getLastEntry(1).getEntryId());
+    }
+
+    @Test
+    public void testGetListOfEntriesOfLedgerFromArenaAndSnapshot() throws IOException {
+        for (long entryId = 0; entryId < 50; entryId++) {
+            addEntry(1, entryId, 10);
+        }
+        assertNotNull(memTable.snapshot());
+        for (long entryId = 50; entryId < 100; entryId++) {
+            addEntry(1, entryId, 10);
+        }
+        List<Long> entryIds = toList(memTable.getListOfEntriesOfLedger(1));
+        assertEquals(100, entryIds.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Long.valueOf(i), entryIds.get(i));
+        }
+        assertEquals(10, memTable.getEntry(1, 10).getLength());
+        assertEquals(99, memTable.getLastEntry(1).getEntryId());
+    }
+
+    @Test
+    public void testNoLedgerException() throws IOException {
+        for (long entryId = 0; entryId < 10; entryId++) {
+            addEntry(1, entryId, 10);
+            addEntry(2, entryId, 10);
+        }
+        List<Flushed> flushed = new ArrayList<>();
+        long size = memTable.flush((ledgerId, entryId, entry) -> {
+            if (ledgerId == 1) {
+                throw new NoLedgerException(ledgerId);
+            }
+            flushed.add(new Flushed(ledgerId, entryId, entry));
+        }, Checkpoint.MAX);
+        assertEquals(200, size);
+        assertEquals(10, flushed.size());
+        assertTrue(memTable.isEmpty());
+        assertFalse(memTable.getListOfEntriesOfLedger(2).hasNext());
+    }
+}
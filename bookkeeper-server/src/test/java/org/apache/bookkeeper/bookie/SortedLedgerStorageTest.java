@@ -62,13 +62,14 @@ public class SortedLedgerStorageTest {
     final long numOfLedgers = 5;
 
     @Parameterized.Parameters
-    public static Iterable<Boolean> elplSetting() {
-        return Arrays.asList(true, false);
+    public static Iterable<Object[]> elplSetting() {
+        return Arrays.asList(new Object[][] { { true, false }, { false, false }, { false, true } });
     }
 
-    public SortedLedgerStorageTest(boolean elplSetting) {
+    public SortedLedgerStorageTest(boolean elplSetting, boolean offHeapMemTable) {
         conf.setEntryLogSizeLimit(2048);
         conf.setEntryLogPerLedgerEnabled(elplSetting);
+        conf.setEntryMemTableOffHeapEnabled(offHeapMemTable);
     }
 
     CheckpointSource checkpointSource = new CheckpointSource() {
@@ -22,6 +22,9 @@ package org.apache.bookkeeper.bookie.storage.ldb;
 
 import static org.junit.Assert.assertArrayEquals;
 
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 import org.junit.Test;
 
 /**
@@ -107,4 +110,57 @@ public class ArraySortGroupTest {
         assertArrayEquals(expectedSorted, data);
     }
 
+    @Test
+    public void parallelSort() {
+        Random random = new Random(1);
+        long[] data = new long[1_000_000 * 4];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = random.nextInt(1000);
+        }
+        // make the keys unique, so the sorted arrays are the same
+        for (int i = 0; i < data.length; i += 4) {
+            data[i + 1] = i;
+        }
+
+        long[] expectedSorted = Arrays.copyOf(data, data.length);
+        ArrayGroupSort.sort(expectedSorted);
+
+        long[] sorted = Arrays.copyOf(data, data.length);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ArrayGroupSort.parallelSort(sorted, 0, sorted.length, pool);
+            assertArrayEquals(expectedSorted, sorted);
+
+            // sorting a sorted array
+            ArrayGroupSort.parallelSort(sorted, 0, sorted.length, pool);
+            assertArrayEquals(expectedSorted, sorted);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void parallelSortSmallArray() {
+        long[] data = new long[] { 1, 2, 3, 4, 1, 1, 5, 5, 1, 0, 2, 1 };
+        long[] expectedSorted = new long[] { 1, 0, 2, 1, 1, 1, 5, 5, 1, 2, 3, 4 };
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ArrayGroupSort.parallelSort(data, 0, data.length, pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        assertArrayEquals(expectedSorted, data);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parallelSortArraySizeIsNotMultiple() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ArrayGroupSort.parallelSort(new long[] { 1, 2, 3, 4, 5 }, 0, 5, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
 }
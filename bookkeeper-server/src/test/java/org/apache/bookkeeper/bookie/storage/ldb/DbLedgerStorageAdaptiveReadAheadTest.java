@@ -0,0 +1,128 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static org.apache.bookkeeper.bookie.storage.ldb.DbLedgerStorage.READ_AHEAD_ADAPTIVE_ENABLED;
+import static org.apache.bookkeeper.bookie.storage.ldb.DbLedgerStorage.READ_AHEAD_CACHE_BATCH_SIZE;
+import static org.apache.bookkeeper.bookie.storage.ldb.DbLedgerStorage.READ_AHEAD_MIN_BATCH_SIZE;
+import static org.junit.Assert.assertEquals;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.File;
+import org.apache.bookkeeper.bookie.BookieImpl;
+import org.apache.bookkeeper.bookie.TestBookieImpl;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.conf.TestBKConfiguration;
+import org.apache.bookkeeper.test.TestStatsProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test the adaptive read ahead of {@link DbLedgerStorage}.
+ */
+public class DbLedgerStorageAdaptiveReadAheadTest {
+
+    private DbLedgerStorage storage;
+    private File tmpDir;
+
+    @Before
+    public void setup() throws Exception {
+        tmpDir = File.createTempFile("bkTest", ".dir");
+        tmpDir.delete();
+        tmpDir.mkdir();
+        File curDir = BookieImpl.getCurrentDirectory(tmpDir);
+        BookieImpl.checkDirectoryStructure(curDir);
+
+        ServerConfiguration conf = TestBKConfiguration.newServerConfiguration();
+        conf.setGcWaitTime(1000);
+        conf.setLedgerStorageClass(DbLedgerStorage.class.getName());
+        conf.setLedgerDirNames(new String[] { tmpDir.toString() });
+        conf.setProperty(READ_AHEAD_ADAPTIVE_ENABLED, true);
+        conf.setProperty(READ_AHEAD_MIN_BATCH_SIZE, 4);
+        conf.setProperty(READ_AHEAD_CACHE_BATCH_SIZE, 64);
+        TestStatsProvider.TestStatsLogger statsLogger = new TestStatsProvider().getStatsLogger("test");
+        BookieImpl bookie = new TestBookieImpl(new TestBookieImpl.ResourceBuilder(conf).build(statsLogger),
+                statsLogger);
+        storage = (DbLedgerStorage) bookie.getLedgerStorage();
+    }
+
+    @After
+    public void teardown() throws Exception {
+        storage.shutdown();
+        tmpDir.delete();
+    }
+
+    private void addEntries(long ledgerId, long firstEntryId, long lastEntryId) throws Exception {
+        storage.setMasterKey(ledgerId, "key".getBytes());
+        for (long entryId = firstEntryId; entryId <= lastEntryId; entryId++) {
+            ByteBuf entry = Unpooled.buffer(128);
+            entry.writeLong(ledgerId);
+            entry.writeLong(entryId);
+            entry.writeLong(entryId - 1); // lac
+            entry.writeBytes(("entry-" + entryId).getBytes());
+            assertEquals(entryId, storage.addEntry(entry));
+        }
+    }
+
+    private ByteBuf readEntry(long ledgerId, long entryId) throws Exception {
+        ByteBuf entry = storage.getEntry(ledgerId, entryId);
+        assertEquals(ledgerId, entry.getLong(0));
+        assertEquals(entryId, entry.getLong(8));
+        return entry;
+    }
+
+    @Test
+    public void testSequentialReads() throws Exception {
+        addEntries(1, 0, 999);
+        storage.flush();
+
+        SingleDirectoryDbLedgerStorage ledgerStorage = storage.getLedgerStorageList().get(0);
+        DbLedgerStorageStats stats = ledgerStorage.getDbLedgerStorageStats();
+        for (long entryId = 0; entryId < 1000; entryId++) {
+            readEntry(1, entryId).release();
+            // let the read-ahead keep up with the reads
+            ledgerStorage.waitForReadAhead();
+        }
+
+        // all the entries but the first one were read ahead before being read
+        assertEquals(999L, stats.getReadAheadHitCounter().get().longValue());
+        assertEquals(0L, stats.getReadAheadWastedCounter().get().longValue());
+    }
+
+    @Test
+    public void testRandomReads() throws Exception {
+        addEntries(1, 0, 999);
+        storage.flush();
+
+        SingleDirectoryDbLedgerStorage ledgerStorage = storage.getLedgerStorageList().get(0);
+        DbLedgerStorageStats stats = ledgerStorage.getDbLedgerStorageStats();
+        for (long entryId = 0; entryId < 1000; entryId += 100) {
+            readEntry(1, entryId).release();
+            ledgerStorage.waitForReadAhead();
+        }
+
+        // each random read reads ahead the min batch, wasted by the next random read
+        assertEquals(0L, stats.getReadAheadHitCounter().get().longValue());
+        assertEquals(9 * 4L, stats.getReadAheadWastedCounter().get().longValue());
+    }
+}
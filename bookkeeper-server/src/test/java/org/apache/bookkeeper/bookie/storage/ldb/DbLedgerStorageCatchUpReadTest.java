@@ -0,0 +1,139 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static org.apache.bookkeeper.bookie.storage.ldb.DbLedgerStorage.CATCH_UP_READ_AHEAD_BATCH_SIZE;
+import static org.apache.bookkeeper.bookie.storage.ldb.DbLedgerStorage.CATCH_UP_READ_CACHE_MAX_SIZE_MB;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.File;
+import org.apache.bookkeeper.bookie.BookieImpl;
+import org.apache.bookkeeper.bookie.TestBookieImpl;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.conf.TestBKConfiguration;
+import org.apache.bookkeeper.test.TestStatsProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test the catch-up reads of {@link DbLedgerStorage}.
+ */
+public class DbLedgerStorageCatchUpReadTest {
+
+    private DbLedgerStorage storage;
+    private File tmpDir;
+
+    @Before
+    public void setup() throws Exception {
+        tmpDir = File.createTempFile("bkTest", ".dir");
+        tmpDir.delete();
+        tmpDir.mkdir();
+        File curDir = BookieImpl.getCurrentDirectory(tmpDir);
+        BookieImpl.checkDirectoryStructure(curDir);
+
+        ServerConfiguration conf = TestBKConfiguration.newServerConfiguration();
+        conf.setGcWaitTime(1000);
+        conf.setLedgerStorageClass(DbLedgerStorage.class.getName());
+        conf.setLedgerDirNames(new String[] { tmpDir.toString() });
+        conf.setCatchUpReadDistance(10);
+        conf.setProperty(CATCH_UP_READ_CACHE_MAX_SIZE_MB, 16);
+        conf.setProperty(CATCH_UP_READ_AHEAD_BATCH_SIZE, 50);
+        TestStatsProvider.TestStatsLogger statsLogger = new TestStatsProvider().getStatsLogger("test");
+        BookieImpl bookie = new TestBookieImpl(new TestBookieImpl.ResourceBuilder(conf).build(statsLogger),
+                statsLogger);
+        storage = (DbLedgerStorage) bookie.getLedgerStorage();
+    }
+
+    @After
+    public void teardown() throws Exception {
+        storage.shutdown();
+        tmpDir.delete();
+    }
+
+    private void addEntries(long ledgerId, long firstEntryId, long lastEntryId) throws Exception {
+        storage.setMasterKey(ledgerId, "key".getBytes());
+        for (long entryId = firstEntryId; entryId <= lastEntryId; entryId++) {
+            ByteBuf entry = Unpooled.buffer(128);
+            entry.writeLong(ledgerId);
+            entry.writeLong(entryId);
+            entry.writeLong(entryId - 1); // lac
+            entry.writeBytes(("entry-" + entryId).getBytes());
+            assertEquals(entryId, storage.addEntry(entry));
+        }
+    }
+
+    @Test
+    public void testIsCatchUpRead() throws Exception {
+        addEntries(1, 0, 99);
+
+        // the reads close to the last entry added are tail reads
+        assertFalse(storage.isCatchUpRead(1, 99));
+        assertFalse(storage.isCatchUpRead(1, 89));
+        assertTrue(storage.isCatchUpRead(1, 88));
+        assertTrue(storage.isCatchUpRead(1, 0));
+        // reading the last add confirmed
+        assertFalse(storage.isCatchUpRead(1, -1));
+        // the entries of the ledgers not written recently are read to catch up
+        assertTrue(storage.isCatchUpRead(2, 0));
+
+        // the last add confirmed tells the last entry once the entries are flushed
+        storage.flush();
+        assertTrue(storage.isCatchUpRead(1, 95));
+        assertEquals(98L, storage.getLastAddConfirmed(1));
+        assertFalse(storage.isCatchUpRead(1, 95));
+        assertTrue(storage.isCatchUpRead(1, 50));
+    }
+
+    @Test
+    public void testCatchUpReadCache() throws Exception {
+        addEntries(1, 0, 99);
+        addEntries(1, 100, 199);
+        storage.flush();
+        assertEquals(198L, storage.getLastAddConfirmed(1));
+
+        DbLedgerStorageStats stats = storage.getLedgerStorageList().get(0).getDbLedgerStorageStats();
+
+        // the catch-up read fills the catch-up read cache
+        ByteBuf entry = storage.getEntry(1, 0);
+        entry.release();
+        assertEquals(1L, stats.getCatchUpReadCacheMissCounter().get().longValue());
+        for (long entryId = 1; entryId < 50; entryId++) {
+            entry = storage.getEntry(1, entryId);
+            assertEquals(entryId, entry.getLong(8));
+            entry.release();
+        }
+        assertEquals(49L, stats.getCatchUpReadCacheHitCounter().get().longValue());
+        assertEquals(0L, stats.getReadCacheHitCounter().get().longValue());
+
+        // the tail read fills the read cache
+        entry = storage.getEntry(1, 195);
+        entry.release();
+        entry = storage.getEntry(1, 196);
+        entry.release();
+        assertEquals(1L, stats.getReadCacheHitCounter().get().longValue());
+        assertEquals(49L, stats.getCatchUpReadCacheHitCounter().get().longValue());
+    }
+}
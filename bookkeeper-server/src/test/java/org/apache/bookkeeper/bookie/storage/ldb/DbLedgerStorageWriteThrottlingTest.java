@@ -0,0 +1,102 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static org.apache.bookkeeper.bookie.storage.ldb.DbLedgerStorage.GRADUAL_WRITE_THROTTLING_ENABLED;
+import static org.apache.bookkeeper.bookie.storage.ldb.DbLedgerStorage.GRADUAL_WRITE_THROTTLING_THRESHOLD;
+import static org.apache.bookkeeper.bookie.storage.ldb.DbLedgerStorage.WRITE_CACHE_MAX_SIZE_MB;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.File;
+import org.apache.bookkeeper.bookie.BookieImpl;
+import org.apache.bookkeeper.bookie.TestBookieImpl;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.conf.TestBKConfiguration;
+import org.apache.bookkeeper.test.TestStatsProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test the gradual write throttling of {@link DbLedgerStorage}.
+ */
+public class DbLedgerStorageWriteThrottlingTest {
+
+    private DbLedgerStorage storage;
+    private File tmpDir;
+
+    @Before
+    public void setup() throws Exception {
+        tmpDir = File.createTempFile("bkTest", ".dir");
+        tmpDir.delete();
+        tmpDir.mkdir();
+        File curDir = BookieImpl.getCurrentDirectory(tmpDir);
+        BookieImpl.checkDirectoryStructure(curDir);
+
+        ServerConfiguration conf = TestBKConfiguration.newServerConfiguration();
+        conf.setGcWaitTime(1000);
+        conf.setLedgerStorageClass(DbLedgerStorage.class.getName());
+        conf.setLedgerDirNames(new String[] { tmpDir.toString() });
+        conf.setProperty(WRITE_CACHE_MAX_SIZE_MB, 1);
+        conf.setProperty(GRADUAL_WRITE_THROTTLING_ENABLED, true);
+        conf.setProperty(GRADUAL_WRITE_THROTTLING_THRESHOLD, 0.5);
+        TestStatsProvider.TestStatsLogger statsLogger = new TestStatsProvider().getStatsLogger("test");
+        BookieImpl bookie = new TestBookieImpl(new TestBookieImpl.ResourceBuilder(conf).build(statsLogger),
+                statsLogger);
+        storage = (DbLedgerStorage) bookie.getLedgerStorage();
+    }
+
+    @After
+    public void teardown() throws Exception {
+        storage.shutdown();
+        tmpDir.delete();
+    }
+
+    @Test
+    public void testEarlyFlush() throws Exception {
+        storage.setMasterKey(1, "key".getBytes());
+        // write 4 times the write cache
+        for (long entryId = 0; entryId < 4096; entryId++) {
+            ByteBuf entry = Unpooled.buffer(1024);
+            entry.writeLong(1);
+            entry.writeLong(entryId);
+            entry.writeLong(entryId - 1); // lac
+            entry.writeZero(1000);
+            assertEquals(entryId, storage.addEntry(entry));
+        }
+
+        // the flushes are triggered before the write cache is full
+        DbLedgerStorageStats stats = storage.getLedgerStorageList().get(0).getDbLedgerStorageStats();
+        assertTrue(stats.getEarlyFlushRequests().get() > 0);
+        assertEquals(0L, stats.getRejectedWriteRequests().get().longValue());
+
+        storage.flush();
+        assertEquals(0, storage.getWriteThrottleDelayNanos());
+        for (long entryId = 0; entryId < 4096; entryId++) {
+            ByteBuf entry = storage.getEntry(1, entryId);
+            assertEquals(entryId, entry.getLong(8));
+            entry.release();
+        }
+    }
+}
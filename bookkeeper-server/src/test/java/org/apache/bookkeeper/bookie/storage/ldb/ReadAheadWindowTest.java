@@ -0,0 +1,130 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.test.TestStatsProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test {@link ReadAheadWindow}.
+ */
+public class ReadAheadWindowTest {
+
+    private Counter hits;
+    private Counter wasted;
+    private ReadAheadWindow window;
+
+    @Before
+    public void setup() {
+        TestStatsProvider.TestStatsLogger statsLogger = new TestStatsProvider().getStatsLogger("test");
+        hits = statsLogger.getCounter("hits");
+        wasted = statsLogger.getCounter("wasted");
+        window = new ReadAheadWindow(4, 32, hits, wasted);
+    }
+
+    private ReadAheadWindow.Range readAhead(long entryId, boolean cached) {
+        ReadAheadWindow.Range range = window.onRead(entryId, 0, cached);
+        if (null != range) {
+            window.onReadAheadComplete(range, range.numEntries);
+        }
+        return range;
+    }
+
+    @Test
+    public void testGrowWhileSequential() {
+        // the first read is a random read, reading ahead the min window
+        ReadAheadWindow.Range range = readAhead(100, false);
+        assertNotNull(range);
+        assertEquals(101, range.firstEntryId);
+        assertEquals(4, range.numEntries);
+
+        // the reader gets close to the end of the entries read ahead
+        assertNull(readAhead(101, true));
+        range = readAhead(102, true);
+        assertNotNull(range);
+        assertEquals(105, range.firstEntryId);
+        assertEquals(8, range.numEntries);
+
+        long entryId = 103;
+        int lastSize = 8;
+        for (; entryId < 200; entryId++) {
+            range = readAhead(entryId, true);
+            if (null != range) {
+                assertEquals(Math.min(lastSize * 2, 32), range.numEntries);
+                lastSize = range.numEntries;
+            }
+        }
+        assertEquals(32, window.getSize());
+        assertEquals(99, hits.get().longValue());
+        assertEquals(0, wasted.get().longValue());
+    }
+
+    @Test
+    public void testShrinkOnRandomRead() {
+        readAhead(0, false);
+        for (long entryId = 1; entryId < 40; entryId++) {
+            readAhead(entryId, true);
+        }
+        assertEquals(32, window.getSize());
+
+        // the entries read ahead past entry 39 are wasted
+        ReadAheadWindow.Range range = window.onRead(1000, 0, false);
+        assertNotNull(range);
+        assertEquals(1001, range.firstEntryId);
+        assertEquals(4, range.numEntries);
+        assertEquals(4, window.getSize());
+        assertEquals(4 + 8 + 16 + 32 - 39, wasted.get().longValue());
+    }
+
+    @Test
+    public void testReadAheadInProgress() {
+        ReadAheadWindow.Range range = window.onRead(0, 0, false);
+        assertNotNull(range);
+        // no other read-ahead while one is in progress
+        assertNull(window.onRead(1, 0, false));
+
+        // the read-ahead completing after a random read is wasted
+        assertNull(window.onRead(500, 0, false));
+        window.onReadAheadComplete(range, 4);
+        assertEquals(4, wasted.get().longValue());
+        assertNotNull(window.onRead(501, 0, false));
+    }
+
+    @Test
+    public void testNoReadAheadPastLastEntry() {
+        ReadAheadWindow.Range range = window.onRead(0, 0, false);
+        // only 2 entries are stored after the entry read
+        window.onReadAheadComplete(range, 2);
+        assertNull(window.onRead(1, 0, true));
+        assertNull(window.onRead(2, 0, true));
+
+        // more entries are stored
+        range = window.onRead(3, 0, false);
+        assertNotNull(range);
+        assertEquals(4, range.firstEntryId);
+    }
+}
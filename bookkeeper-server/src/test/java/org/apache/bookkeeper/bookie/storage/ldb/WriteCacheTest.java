@@ -38,6 +38,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import org.junit.Test;
@@ -307,6 +308,36 @@ public class WriteCacheTest {
         assertFalse(cache.hasEntry(ledgerId, 48));
     }
 
+    @Test
+    public void testForEachWithSortPool() throws Exception {
+        ForkJoinPool sortPool = new ForkJoinPool(4);
+        try (WriteCache cache = new WriteCache(allocator, 4 * 1024 * 1024, 1024 * 1024, sortPool)) {
+            // enough entries to be sorted in parallel, added in no particular order
+            int numLedgers = 100;
+            int numEntries = 200;
+            for (int i = 0; i < numEntries; i++) {
+                for (int j = 0; j < numLedgers; j++) {
+                    long ledgerId = (j * 37) % numLedgers;
+                    assertTrue(cache.put(ledgerId, i, Unpooled.wrappedBuffer(("test-" + i).getBytes())));
+                }
+            }
+
+            AtomicLong expectedLedgerId = new AtomicLong(0);
+            AtomicLong expectedEntryId = new AtomicLong(0);
+            cache.forEach((ledgerId, entryId, entry) -> {
+                assertEquals(expectedLedgerId.get(), ledgerId);
+                assertEquals(expectedEntryId.get(), entryId);
+                if (expectedEntryId.incrementAndGet() == numEntries) {
+                    expectedLedgerId.incrementAndGet();
+                    expectedEntryId.set(0);
+                }
+            });
+            assertEquals(numLedgers, expectedLedgerId.get());
+        } finally {
+            sortPool.shutdown();
+        }
+    }
+
     @Test(expected = IOException.class)
     public void testForEachIOException() throws Exception {
         try (WriteCache cache = new WriteCache(allocator, 1024 * 1024, 16 * 1024)) {
@@ -0,0 +1,106 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.bookie.storage.ldb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit test {@link WriteThrottler}.
+ */
+public class WriteThrottlerTest {
+
+    private static final long CAPACITY = 1000;
+
+    // the first flush writes 1 byte per nanosecond
+    private static WriteThrottler newThrottler(long maxDelayNanos) {
+        WriteThrottler throttler = new WriteThrottler(0.5, maxDelayNanos);
+        throttler.onFlushStart(1000, 0);
+        throttler.onFlushComplete(1000, true);
+        return throttler;
+    }
+
+    @Test
+    public void testNoPacingBelowThreshold() {
+        WriteThrottler throttler = newThrottler(Long.MAX_VALUE);
+        throttler.onFlushStart(1000, 10_000);
+        assertFalse(throttler.isAboveThreshold(400, CAPACITY));
+        assertEquals(0, throttler.admit(40, 400, CAPACITY, 10_000));
+        assertEquals(-1, throttler.getAdmissionRate());
+        assertEquals(0, throttler.getDelayNanos(10_000));
+    }
+
+    @Test
+    public void testNoPacingWithoutFlush() {
+        WriteThrottler throttler = newThrottler(Long.MAX_VALUE);
+        assertTrue(throttler.isAboveThreshold(600, CAPACITY));
+        assertEquals(0, throttler.admit(40, 600, CAPACITY, 10_000));
+
+        // the throughput of a failed flush is not known
+        throttler = new WriteThrottler(0.5, Long.MAX_VALUE);
+        throttler.onFlushStart(1000, 0);
+        throttler.onFlushComplete(1000, false);
+        throttler.onFlushStart(1000, 10_000);
+        assertEquals(0, throttler.admit(40, 600, CAPACITY, 10_000));
+    }
+
+    @Test
+    public void testDelayGrowsAsWriteCacheFillsUp() {
+        WriteThrottler throttler = newThrottler(Long.MAX_VALUE);
+        throttler.onFlushStart(1000, 10_000);
+
+        // the flush is expected to take 1000 nanos, to fill up the 400 bytes free
+        assertEquals(100, throttler.admit(40, 600, CAPACITY, 10_000));
+        assertEquals(400_000_000, throttler.getAdmissionRate());
+        assertEquals(100, throttler.getDelayNanos(10_000));
+
+        // the next add is admitted after the previous one, at a lower rate
+        assertEquals(100 + 111, throttler.admit(40, 640, CAPACITY, 10_000));
+        assertEquals(360_000_000, throttler.getAdmissionRate());
+
+        // the adds are no longer paced once the flush completes
+        throttler.onFlushComplete(11_000, true);
+        assertEquals(0, throttler.getDelayNanos(10_000));
+        assertEquals(0, throttler.admit(40, 680, CAPACITY, 11_000));
+        assertEquals(-1, throttler.getAdmissionRate());
+    }
+
+    @Test
+    public void testLateFlush() {
+        WriteThrottler throttler = newThrottler(Long.MAX_VALUE);
+        throttler.onFlushStart(1000, 10_000);
+
+        // the flush is late, it is expected to write a tenth of its size more
+        assertEquals(10, throttler.admit(40, 600, CAPACITY, 15_000));
+    }
+
+    @Test
+    public void testMaxDelay() {
+        WriteThrottler throttler = newThrottler(150);
+        throttler.onFlushStart(1000, 10_000);
+        assertEquals(100, throttler.admit(40, 600, CAPACITY, 10_000));
+        assertEquals(150, throttler.admit(40, 640, CAPACITY, 10_000));
+        assertEquals(150, throttler.getDelayNanos(10_000));
+    }
+}
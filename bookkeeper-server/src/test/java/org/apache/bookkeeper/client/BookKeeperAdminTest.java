@@ -34,6 +34,7 @@ import static org.junit.Assert.fail;
 import com.google.common.net.InetAddresses;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -74,6 +75,7 @@ import org.apache.bookkeeper.stats.NullStatsLogger;
 import org.apache.bookkeeper.test.BookKeeperClusterTestCase;
 import org.apache.bookkeeper.util.AvailabilityOfEntriesOfLedger;
 import org.apache.bookkeeper.util.BookKeeperConstants;
+import org.apache.bookkeeper.util.EntriesOfLedgerSummary;
 import org.apache.bookkeeper.util.PortManager;
 import org.apache.commons.io.FileUtils;
 import org.apache.zookeeper.CreateMode;
@@ -491,6 +493,40 @@ public class BookKeeperAdminTest extends BookKeeperClusterTestCase {
         bkc.close();
     }
 
+    @Test
+    public void testGetEntriesOfLedgerSummaries() throws Exception {
+        ClientConfiguration conf = new ClientConfiguration();
+        conf.setMetadataServiceUri(zkUtil.getMetadataServiceUri());
+        int numOfEntries = 6;
+        BookKeeper bkc = new BookKeeper(conf);
+        LedgerHandle lh = bkc.createLedger(numOfBookies, numOfBookies, digestType, "testPasswd".getBytes());
+        long lId = lh.getId();
+        for (int i = 0; i < numOfEntries; i++) {
+            lh.addEntry("000".getBytes());
+        }
+        lh.close();
+        List<EntriesOfLedgerSummary> ranges = new ArrayList<>();
+        ranges.add(new EntriesOfLedgerSummary(0, 2));
+        ranges.add(new EntriesOfLedgerSummary(3, numOfEntries + 3));
+        BitSet allEntries = new BitSet();
+        allEntries.set(0, numOfEntries);
+        try (BookKeeperAdmin bkAdmin = new BookKeeperAdmin(zkUtil.getZooKeeperConnectString())) {
+            for (int i = 0; i < bookieCount(); i++) {
+                List<EntriesOfLedgerSummary> summaries = bkAdmin
+                        .asyncGetEntriesOfLedgerSummaries(addressByIndex(i), lId, ranges).get();
+                assertEquals("Number of summaries", ranges.size(), summaries.size());
+                assertEquals("Number of entries", 3, summaries.get(0).getNumEntries());
+                assertEquals("Number of entries", numOfEntries - 3, summaries.get(1).getNumEntries());
+                assertTrue(EntriesOfLedgerSummary.expectedSummary(0, 2, allEntries).matches(summaries.get(0)));
+                assertTrue(EntriesOfLedgerSummary.expectedSummary(3, numOfEntries + 3, allEntries.get(3, 10))
+                        .matches(summaries.get(1)));
+                assertFalse(EntriesOfLedgerSummary.expectedSummary(3, numOfEntries + 3, allEntries)
+                        .matches(summaries.get(1)));
+            }
+        }
+        bkc.close();
+    }
+
     @Test
     public void testGetEntriesFromEmptyLedger() throws Exception {
         ClientConfiguration conf = new ClientConfiguration();
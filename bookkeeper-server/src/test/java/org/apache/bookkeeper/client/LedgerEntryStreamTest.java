@@ -0,0 +1,190 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.BookKeeper.DigestType;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.api.LedgerEntryStream;
+import org.apache.bookkeeper.client.api.LedgerEntryStreamListener;
+import org.apache.bookkeeper.test.BookKeeperClusterTestCase;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Test streaming the entries of a ledger pushed by the bookies.
+ */
+@RunWith(Parameterized.class)
+public class LedgerEntryStreamTest extends BookKeeperClusterTestCase {
+
+    private static final DigestType DIGEST_TYPE = DigestType.CRC32;
+    private static final byte[] PASSWD = "".getBytes(UTF_8);
+
+    private final int ensembleSize;
+    private final int writeQuorumSize;
+
+    public LedgerEntryStreamTest(int ensembleSize, int writeQuorumSize) {
+        super(3);
+        this.ensembleSize = ensembleSize;
+        this.writeQuorumSize = writeQuorumSize;
+        baseConf.setStreamReadEnabled(true);
+        // a few credits, so the bookies wait for the entries to be delivered
+        baseClientConf.setStreamReadCreditsPerBookie(4);
+    }
+
+    @Parameters
+    public static Collection<Object[]> configs() {
+        return Arrays.asList(new Object[][] {
+            { 3, 3 },
+            { 3, 2 },
+        });
+    }
+
+    private static class CollectingListener implements LedgerEntryStreamListener {
+        final LinkedBlockingQueue<String> entries = new LinkedBlockingQueue<>();
+        final LinkedBlockingQueue<Long> entryIds = new LinkedBlockingQueue<>();
+        final CompletableFuture<Void> completed = new CompletableFuture<>();
+
+        @Override
+        public void onEntry(LedgerEntry entry) {
+            entries.add(new String(entry.getEntryBytes(), UTF_8));
+            entryIds.add(entry.getEntryId());
+            entry.close();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.complete(null);
+        }
+
+        @Override
+        public void onError(Throwable cause) {
+            completed.completeExceptionally(cause);
+        }
+
+        void assertNextEntries(long firstEntryId, long lastEntryId) throws Exception {
+            for (long entryId = firstEntryId; entryId <= lastEntryId; entryId++) {
+                assertEquals(Long.valueOf(entryId), entryIds.poll(10, TimeUnit.SECONDS));
+                assertEquals("data" + entryId, entries.poll());
+            }
+        }
+    }
+
+    private LedgerHandle createLedger() throws Exception {
+        return bkc.createLedger(ensembleSize, writeQuorumSize, writeQuorumSize, DIGEST_TYPE, PASSWD);
+    }
+
+    private static void addEntries(LedgerHandle lh, long firstEntryId, long lastEntryId) throws Exception {
+        for (long entryId = firstEntryId; entryId <= lastEntryId; entryId++) {
+            lh.addEntry(("data" + entryId).getBytes(UTF_8));
+        }
+    }
+
+    @Test
+    public void testStreamTailingEntries() throws Exception {
+        LedgerHandle lh = createLedger();
+        addEntries(lh, 0, 9);
+
+        LedgerHandle readLh = bkc.openLedgerNoRecovery(lh.getId(), DIGEST_TYPE, PASSWD);
+        CollectingListener listener = new CollectingListener();
+        LedgerEntryStream stream = readLh.streamEntriesAsync(0, listener).get(10, TimeUnit.SECONDS);
+
+        // the last entry is confirmed by the next add
+        listener.assertNextEntries(0, 8);
+        addEntries(lh, 10, 49);
+        listener.assertNextEntries(9, 48);
+        assertEquals(49, stream.getNextEntryId());
+        assertNull(listener.entryIds.poll(100, TimeUnit.MILLISECONDS));
+
+        // the last entry is delivered once the ledger is closed
+        lh.close();
+        listener.assertNextEntries(49, 49);
+        listener.completed.get(10, TimeUnit.SECONDS);
+        assertEquals(50, stream.getNextEntryId());
+        readLh.close();
+    }
+
+    @Test
+    public void testStreamClosedLedger() throws Exception {
+        LedgerHandle lh = createLedger();
+        addEntries(lh, 0, 19);
+        lh.close();
+
+        LedgerHandle readLh = bkc.openLedger(lh.getId(), DIGEST_TYPE, PASSWD);
+        CollectingListener listener = new CollectingListener();
+        readLh.streamEntriesAsync(5, listener).get(10, TimeUnit.SECONDS);
+        listener.assertNextEntries(5, 19);
+        listener.completed.get(10, TimeUnit.SECONDS);
+        assertTrue(listener.entryIds.isEmpty());
+        readLh.close();
+    }
+
+    @Test
+    public void testCloseStream() throws Exception {
+        LedgerHandle lh = createLedger();
+        addEntries(lh, 0, 4);
+
+        LedgerHandle readLh = bkc.openLedgerNoRecovery(lh.getId(), DIGEST_TYPE, PASSWD);
+        CollectingListener listener = new CollectingListener();
+        LedgerEntryStream stream = readLh.streamEntriesAsync(0, listener).get(10, TimeUnit.SECONDS);
+        listener.assertNextEntries(0, 3);
+
+        stream.close();
+        addEntries(lh, 5, 9);
+        assertNull(listener.entryIds.poll(500, TimeUnit.MILLISECONDS));
+        assertEquals(4, stream.getNextEntryId());
+        assertTrue(!listener.completed.isDone());
+        lh.close();
+        readLh.close();
+    }
+
+    @Test
+    public void testStreamAcrossEnsembleChange() throws Exception {
+        startNewBookie();
+        LedgerHandle lh = createLedger();
+        addEntries(lh, 0, 9);
+
+        LedgerHandle readLh = bkc.openLedgerNoRecovery(lh.getId(), DIGEST_TYPE, PASSWD);
+        CollectingListener listener = new CollectingListener();
+        readLh.streamEntriesAsync(0, listener).get(10, TimeUnit.SECONDS);
+        listener.assertNextEntries(0, 8);
+
+        // the entries not pushed by the failed bookie are read from the other bookies,
+        // and the bookies of the new ensemble are subscribed
+        killBookie(lh.getLedgerMetadata().getEnsembleAt(0).get(0));
+        addEntries(lh, 10, 29);
+        lh.close();
+        listener.assertNextEntries(9, 29);
+        listener.completed.get(10, TimeUnit.SECONDS);
+        readLh.close();
+    }
+}
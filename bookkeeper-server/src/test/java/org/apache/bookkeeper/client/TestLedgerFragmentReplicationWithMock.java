@@ -24,27 +24,42 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import java.lang.reflect.Field;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 import org.apache.bookkeeper.client.impl.LedgerEntryImpl;
 import org.apache.bookkeeper.conf.ClientConfiguration;
 import org.apache.bookkeeper.net.BookieId;
 import org.apache.bookkeeper.proto.BookieClientImpl;
 import org.apache.bookkeeper.proto.BookieProtoEncoding;
 import org.apache.bookkeeper.proto.BookieProtocol;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks;
+import org.apache.bookkeeper.proto.DataFormats.LedgerMetadataFormat.DigestType;
 import org.apache.bookkeeper.proto.checksum.DigestManager;
 import org.apache.bookkeeper.proto.checksum.DummyDigestManager;
+import org.apache.bookkeeper.util.ByteBufList;
 import org.apache.commons.collections4.IteratorUtils;
 import org.apache.zookeeper.AsyncCallback;
 import org.junit.Test;
@@ -108,4 +123,137 @@ public class TestLedgerFragmentReplicationWithMock {
 
         latch.await();
     }
+
+    private static final long LEDGER_ID = 1L;
+    private static final BookieId SOURCE_BOOKIE_1 = BookieId.parse("127.0.0.1:3181");
+    private static final BookieId SOURCE_BOOKIE_2 = BookieId.parse("127.0.0.2:3181");
+    private static final BookieId NEW_BOOKIE = BookieId.parse("127.0.0.3:3181");
+
+    private static ByteBuf storedEntry(DigestManager digestManager, long entryId) {
+        ByteBufList packaged = (ByteBufList) digestManager.computeDigestAndPackageForSending(entryId, entryId - 1,
+                (entryId + 1) * 1024, Unpooled.wrappedBuffer(new byte[1024]), new byte[0], 0);
+        ByteBuf entry = ByteBufList.coalesce(packaged);
+        packaged.release();
+        return entry;
+    }
+
+    /**
+     * Copies the entries {@code startEntryId} to {@code endEntryId} from the two source bookies
+     * and returns the ids of the entries written to the new bookie.
+     */
+    private List<Long> copyEntries(long startEntryId, long endEntryId, BookieClientImpl bookieClient)
+            throws Exception {
+        List<Long> writtenEntries = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            long entryId = invocation.getArgument(3);
+            BookkeeperInternalCallbacks.WriteCallback cb = invocation.getArgument(5);
+            writtenEntries.add(entryId);
+            cb.writeComplete(BKException.Code.OK, LEDGER_ID, entryId, invocation.getArgument(0),
+                    invocation.getArgument(6));
+            return null;
+        }).when(bookieClient)
+            .addEntry(any(), anyLong(), any(), anyLong(), any(), any(), any(), anyInt(), anyBoolean(), any());
+
+        BookKeeper bkc = Mockito.mock(BookKeeper.class);
+        when(bkc.getBookieClient()).thenReturn(bookieClient);
+
+        LedgerHandle lh = Mockito.mock(LedgerHandle.class);
+        when(lh.getId()).thenReturn(LEDGER_ID);
+        when(lh.getDigestManager()).thenReturn(digestManager());
+        when(lh.getLedgerKey()).thenReturn(DigestManager.generateMasterKey("".getBytes()));
+
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        BookkeeperInternalCallbacks.MultiCallback mcb = new BookkeeperInternalCallbacks.MultiCallback(
+                (int) (endEntryId - startEntryId + 1), (rc, path, ctx) -> result.complete(rc), null,
+                BKException.Code.OK, BKException.Code.LedgerRecoveryException);
+
+        LedgerFragmentReplicator lfr = new LedgerFragmentReplicator(bkc, new ClientConfiguration());
+        lfr.copyLedgerFragmentEntriesFromBookie(startEntryId, endEntryId, lh,
+                Arrays.asList(SOURCE_BOOKIE_1, SOURCE_BOOKIE_2), 0, mcb,
+                Collections.singleton(NEW_BOOKIE), (lid, eid) -> {});
+        assertEquals(BKException.Code.OK, result.get().intValue());
+        return writtenEntries;
+    }
+
+    private static void answerBatchReads(BookieClientImpl bookieClient, BookieId bookie,
+                                         BiFunction<Long, Integer, ByteBufList> entries) {
+        doAnswer(invocation -> {
+            long startEntryId = invocation.getArgument(2);
+            int maxCount = invocation.getArgument(3);
+            BookkeeperInternalCallbacks.BatchedReadEntryCallback cb = invocation.getArgument(5);
+            ByteBufList bufList = entries.apply(startEntryId, maxCount);
+            cb.readEntriesComplete(BKException.Code.OK, LEDGER_ID, startEntryId, bufList,
+                    invocation.getArgument(6));
+            bufList.release();
+            return null;
+        }).when(bookieClient)
+            .batchReadEntries(eq(bookie), anyLong(), anyLong(), anyInt(), anyLong(), any(), any(), anyInt());
+    }
+
+    private static DigestManager digestManager() {
+        try {
+            return DigestManager.instantiate(LEDGER_ID, new byte[0], DigestType.CRC32C, ByteBufAllocator.DEFAULT,
+                    false);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Gets the entries as stored by the bookies, with a mismatching digest for {@code corruptedEntryId}.
+     */
+    private static ByteBufList storedEntries(long startEntryId, int count, long corruptedEntryId) {
+        DigestManager digestManager = digestManager();
+        ByteBufList bufList = ByteBufList.get();
+        for (long entryId = startEntryId; entryId < startEntryId + count; entryId++) {
+            ByteBuf entry = storedEntry(digestManager, entryId);
+            if (entryId == corruptedEntryId) {
+                entry.setByte(entry.writerIndex() - 1, entry.getByte(entry.writerIndex() - 1) + 1);
+            }
+            bufList.add(entry);
+        }
+        return bufList;
+    }
+
+    @Test
+    public void testCopyLedgerFragmentEntriesFromBookie() throws Exception {
+        BookieClientImpl bookieClient = Mockito.mock(BookieClientImpl.class);
+        answerBatchReads(bookieClient, SOURCE_BOOKIE_1, (start, count) -> storedEntries(start, count, -1L));
+
+        List<Long> writtenEntries = copyEntries(0L, 9L, bookieClient);
+        assertEquals(LongStream.rangeClosed(0L, 9L).boxed().collect(Collectors.toList()), writtenEntries);
+        verify(bookieClient, times(1)).batchReadEntries(eq(SOURCE_BOOKIE_1), eq(LEDGER_ID), eq(0L), eq(10),
+                anyLong(), any(), any(), anyInt());
+        verify(bookieClient, never()).batchReadEntries(eq(SOURCE_BOOKIE_2), anyLong(), anyLong(), anyInt(),
+                anyLong(), any(), any(), anyInt());
+    }
+
+    @Test
+    public void testCopyLedgerFragmentEntriesFailsOverOnEmptyResponse() throws Exception {
+        BookieClientImpl bookieClient = Mockito.mock(BookieClientImpl.class);
+        answerBatchReads(bookieClient, SOURCE_BOOKIE_1, (start, count) -> ByteBufList.get());
+        answerBatchReads(bookieClient, SOURCE_BOOKIE_2, (start, count) -> storedEntries(start, count, -1L));
+
+        List<Long> writtenEntries = copyEntries(0L, 9L, bookieClient);
+        assertEquals(LongStream.rangeClosed(0L, 9L).boxed().collect(Collectors.toList()), writtenEntries);
+        verify(bookieClient, times(1)).batchReadEntries(eq(SOURCE_BOOKIE_1), eq(LEDGER_ID), eq(0L), eq(10),
+                anyLong(), any(), any(), anyInt());
+        verify(bookieClient, times(1)).batchReadEntries(eq(SOURCE_BOOKIE_2), eq(LEDGER_ID), eq(0L), eq(10),
+                anyLong(), any(), any(), anyInt());
+    }
+
+    @Test
+    public void testCopyLedgerFragmentEntriesFailsOverOnDigestMismatch() throws Exception {
+        BookieClientImpl bookieClient = Mockito.mock(BookieClientImpl.class);
+        answerBatchReads(bookieClient, SOURCE_BOOKIE_1, (start, count) -> storedEntries(start, count, 5L));
+        answerBatchReads(bookieClient, SOURCE_BOOKIE_2, (start, count) -> storedEntries(start, count, -1L));
+
+        // the entries before the corrupted one are copied from the first bookie, the others from the second one
+        List<Long> writtenEntries = copyEntries(0L, 9L, bookieClient);
+        assertEquals(LongStream.rangeClosed(0L, 9L).boxed().collect(Collectors.toList()), writtenEntries);
+        verify(bookieClient, times(1)).batchReadEntries(eq(SOURCE_BOOKIE_1), eq(LEDGER_ID), eq(0L), eq(10),
+                anyLong(), any(), any(), anyInt());
+        verify(bookieClient, times(1)).batchReadEntries(eq(SOURCE_BOOKIE_2), eq(LEDGER_ID), eq(5L), eq(5),
+                anyLong(), any(), any(), anyInt());
+    }
 }
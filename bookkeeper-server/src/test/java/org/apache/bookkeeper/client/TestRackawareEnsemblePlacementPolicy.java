@@ -460,6 +460,68 @@ public class TestRackawareEnsemblePlacementPolicy extends TestCase {
         assertEquals("expect bookie idx 2 first", expectedSet, reorderSet);
     }
 
+    /*
+     * Tests the reordering of the writeSet based on the least outstanding requests of
+     * two random bookies of the write set. The loaded bookie is never read first and the
+     * reads are spread over the other bookies.
+     */
+    @Test
+    public void testLeastOutstandingRequestsReorder() throws Exception {
+        repp.uninitalize();
+        updateMyRack("/r1/rack1");
+
+        repp = new RackawareEnsemblePlacementPolicy();
+        ClientConfiguration conf = (ClientConfiguration) this.conf.clone();
+        conf.setReorderReadsLeastOutstandingRequestsEnabled(true);
+        repp.initialize(conf, Optional.<DNSToSwitchMapping>empty(), timer,
+                DISABLE_ALL, NullStatsLogger.INSTANCE, BookieSocketAddress.LEGACY_BOOKIEID_RESOLVER);
+        repp.withDefaultRack(NetworkTopology.DEFAULT_REGION_AND_RACK);
+
+        Set<BookieId> addrs = new HashSet<BookieId>();
+        addrs.add(addr1.toBookieId());
+        addrs.add(addr2.toBookieId());
+        addrs.add(addr3.toBookieId());
+        addrs.add(addr4.toBookieId());
+        repp.onClusterChanged(addrs, new HashSet<BookieId>());
+        Map<BookieId, Long> bookiePendingMap = new HashMap<>();
+        bookiePendingMap.put(addr1.toBookieId(), 100L);
+        BookiesHealthInfo healthInfo = getBookiesHealthInfo(new HashMap<>(), bookiePendingMap);
+
+        int[] readFirst = new int[ensemble.size()];
+        for (int i = 0; i < 200; i++) {
+            DistributionSchedule.WriteSet reorderSet = repp.reorderReadSequence(
+                    ensemble, healthInfo, writeSetFromValues(0, 1, 2, 3));
+            readFirst[reorderSet.get(0)]++;
+        }
+        assertEquals("loaded bookie should never be read first", 0, readFirst[0]);
+        for (int i = 1; i < ensemble.size(); i++) {
+            assertTrue("reads should be spread over the other bookies", readFirst[i] > 0);
+        }
+
+        // with the same number of pending requests, the faster bookie is read first
+        BookiesHealthInfo latencyHealthInfo = new BookiesHealthInfo() {
+            @Override
+            public long getBookieFailureHistory(BookieId bookieSocketAddress) {
+                return -1L;
+            }
+
+            @Override
+            public long getBookiePendingRequests(BookieId bookieSocketAddress) {
+                return 1L;
+            }
+
+            @Override
+            public long getBookieReadLatencyMicros(BookieId bookieSocketAddress) {
+                return addr2.toBookieId().equals(bookieSocketAddress) ? 100L : 10000L;
+            }
+        };
+        for (int i = 0; i < 10; i++) {
+            DistributionSchedule.WriteSet reorderSet = repp.reorderReadSequence(
+                    ensemble, latencyHealthInfo, writeSetFromValues(0, 1));
+            assertEquals("expect the faster bookie first", writeSetFromValues(1, 0), reorderSet);
+        }
+    }
+
     /*
      * Tests the reordering of the writeSet based on number of pending requests for
      * an ensemble that is larger than the writeSet.
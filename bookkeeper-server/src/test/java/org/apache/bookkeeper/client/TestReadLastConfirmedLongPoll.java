@@ -23,6 +23,7 @@ import static org.junit.Assert.assertTrue;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.bookkeeper.bookie.InterleavedLedgerStorage;
@@ -30,7 +31,9 @@ import org.apache.bookkeeper.bookie.LedgerStorage;
 import org.apache.bookkeeper.bookie.SortedLedgerStorage;
 import org.apache.bookkeeper.bookie.storage.ldb.DbLedgerStorage;
 import org.apache.bookkeeper.client.BookKeeper.DigestType;
+import org.apache.bookkeeper.conf.ClientConfiguration;
 import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.net.BookieId;
 import org.apache.bookkeeper.test.BookKeeperClusterTestCase;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -46,18 +49,23 @@ public class TestReadLastConfirmedLongPoll extends BookKeeperClusterTestCase {
     private static final Logger log = LoggerFactory.getLogger(TestReadLastConfirmedLongPoll.class);
     final DigestType digestType;
 
-    public TestReadLastConfirmedLongPoll(Class<? extends LedgerStorage> storageClass) {
+    public TestReadLastConfirmedLongPoll(Class<? extends LedgerStorage> storageClass,
+                                         boolean batchNotifications) {
         super(6);
         this.digestType = DigestType.CRC32;
         baseConf.setLedgerStorageClass(storageClass.getName());
+        baseConf.setLongPollBatchNotificationsEnabled(batchNotifications);
     }
 
     @Parameters
     public static Collection<Object[]> configs() {
         return Arrays.asList(new Object[][] {
-            { InterleavedLedgerStorage.class },
-            { SortedLedgerStorage.class },
-            { DbLedgerStorage.class },
+            { InterleavedLedgerStorage.class, false },
+            { SortedLedgerStorage.class, false },
+            { DbLedgerStorage.class, false },
+            { InterleavedLedgerStorage.class, true },
+            { SortedLedgerStorage.class, true },
+            { DbLedgerStorage.class, true },
         });
     }
 
@@ -191,4 +199,58 @@ public class TestReadLastConfirmedLongPoll extends BookKeeperClusterTestCase {
             }
         }
     }
+
+    @Test
+    public void testLongPollReadsDontChangeReadOrdering() throws Exception {
+        ClientConfiguration conf = new ClientConfiguration()
+            .setReorderReadSequenceEnabled(true)
+            .setMetadataServiceUri(zkUtil.getMetadataServiceUri());
+        conf.setReorderReadsLeastOutstandingRequestsEnabled(true);
+        BookKeeper readBkc = new BookKeeper(conf);
+
+        final LedgerHandle lh = bkc.createLedger(3, 3, 1, digestType, "".getBytes());
+        lh.addEntry("data".getBytes());
+        lh.addEntry("data".getBytes());
+        LedgerHandle readLh = readBkc.openLedgerNoRecovery(lh.getId(), digestType, "".getBytes());
+        assertEquals(0L, readLh.getLastAddConfirmed());
+
+        // each long poll waits for the next entry, so its latency is mostly the wait
+        final long waitMs = 20;
+        for (int i = 0; i < 2 * BookieLatencyTracker.DEFAULT_MIN_SAMPLES; i++) {
+            final AtomicInteger rcHolder = new AtomicInteger(-12345);
+            final CountDownLatch readComplete = new CountDownLatch(1);
+            readLh.asyncReadLastConfirmedAndEntry(readLh.getLastAddConfirmed() + 1, 10000, true,
+                    (rc, lastConfirmed, entry, ctx) -> {
+                        rcHolder.set(rc);
+                        readComplete.countDown();
+                    }, null);
+            Thread.sleep(waitMs);
+            lh.addEntry("data".getBytes());
+            readComplete.await();
+            assertEquals(BKException.Code.OK, rcHolder.get());
+        }
+        // the long poll reads are not taken into account by the read ordering
+        for (BookieId bookie : readLh.getLedgerMetadata().getAllEnsembles().get(0L)) {
+            assertEquals(-1L, readLh.getBookiesHealthInfo().getBookieReadLatencyMicros(bookie));
+        }
+
+        // while the regular reads are
+        for (int i = 0; i < 10 * BookieLatencyTracker.DEFAULT_MIN_SAMPLES; i++) {
+            readLh.read(0, 0).close();
+        }
+        int numKnownLatencies = 0;
+        for (BookieId bookie : readLh.getLedgerMetadata().getAllEnsembles().get(0L)) {
+            long latencyMicros = readLh.getBookiesHealthInfo().getBookieReadLatencyMicros(bookie);
+            if (latencyMicros > 0) {
+                numKnownLatencies++;
+                assertTrue("long poll reads shouldn't be in the read latency : " + latencyMicros,
+                        latencyMicros < TimeUnit.MILLISECONDS.toMicros(waitMs));
+            }
+        }
+        assertTrue(numKnownLatencies > 0);
+
+        lh.close();
+        readLh.close();
+        readBkc.close();
+    }
 }
@@ -22,6 +22,8 @@ package org.apache.bookkeeper.client;
 
 import static org.apache.bookkeeper.client.BookKeeperClientStats.CLIENT_SCOPE;
 import static org.apache.bookkeeper.client.BookKeeperClientStats.SPECULATIVE_READ_COUNT;
+import static org.apache.bookkeeper.client.BookKeeperClientStats.SPECULATIVE_READ_HEDGES_ISSUED;
+import static org.apache.bookkeeper.client.BookKeeperClientStats.SPECULATIVE_READ_HEDGES_WON;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -182,6 +184,54 @@ public class TestSpeculativeRead extends BookKeeperClusterTestCase {
         }
     }
 
+    /**
+     * Test that latency aware speculative reads hedge a read to a slow bookie once it is
+     * pending for longer than the usual latency of the bookie, rather than after the
+     * configured speculative read timeout.
+     */
+    @Test
+    public void testLatencyAwareSpeculativeRead() throws Exception {
+        long id = getLedgerToRead(3, 2);
+        ClientConfiguration conf = new ClientConfiguration()
+            .setFirstSpeculativeReadTimeout(10000)
+            .setMaxSpeculativeReadTimeout(10000)
+            .setLatencyAwareSpeculativeReadEnabled(true)
+            .setSpeculativeReadLatencyPercentile(99)
+            .setSpeculativeReadMaxHedgeRatio(1.0)
+            .setReadTimeout(30000)
+            .setMetadataServiceUri(zkUtil.getMetadataServiceUri());
+        BookKeeperTestClient bkspec = new BookKeeperTestClient(conf, new TestStatsProvider());
+        LedgerHandle lspec = bkspec.openLedger(id, digestType, passwd);
+
+        // learn the latencies of the bookies
+        for (int i = 0; i < 30; i++) {
+            lspec.readEntries(0, 9);
+        }
+
+        CountDownLatch sleepLatch = new CountDownLatch(1);
+        BookieId second = lspec.getLedgerMetadata().getAllEnsembles().get(0L).get(1);
+        sleepBookie(second, sleepLatch);
+
+        try {
+            // the read of entry 1 goes to the second bookie first and is hedged long
+            // before the speculative read timeout of 10 seconds
+            LatchCallback speccb = new LatchCallback();
+            lspec.asyncReadEntries(1, 1, speccb, null);
+            speccb.expectSuccess(5000);
+
+            assertTrue("Stats should reflect hedged reads",
+                    bkspec.getTestStatsProvider()
+                            .getCounter(CLIENT_SCOPE + "." + SPECULATIVE_READ_HEDGES_ISSUED).get() > 0);
+            assertTrue("Stats should reflect won hedged reads",
+                    bkspec.getTestStatsProvider()
+                            .getCounter(CLIENT_SCOPE + "." + SPECULATIVE_READ_HEDGES_WON).get() > 0);
+        } finally {
+            sleepLatch.countDown();
+            lspec.close();
+            bkspec.close();
+        }
+    }
+
     /**
      * Test that if more than one replica is down, we can still read, as long as the quorum
      * size is larger than the number of down replicas.
@@ -166,4 +166,37 @@ public class NetworkTopologyImplTest {
       }
 
   }
-}
\ No newline at end of file
+
+  @Test
+  public void getSnapshotShouldReturnLeavesInScopeAndBeRebuiltOnChanges() {
+      NetworkTopologyImpl networkTopology = new NetworkTopologyImpl();
+      BookieNode region0Rack0Node = new BookieNode(BookieId.parse("bookie-0"), "/region-0/rack-0");
+      BookieNode region0Rack1Node = new BookieNode(BookieId.parse("bookie-1"), "/region-0/rack-1");
+      BookieNode region1Rack0Node = new BookieNode(BookieId.parse("bookie-2"), "/region-1/rack-0");
+      networkTopology.add(region0Rack0Node);
+      networkTopology.add(region0Rack1Node);
+      networkTopology.add(region1Rack0Node);
+
+      TopologySnapshot snapshot = networkTopology.getSnapshot();
+      assertEquals(3, snapshot.size());
+      assertTrue(snapshot == networkTopology.getSnapshot());
+      assertEquals(1, snapshot.getLeaves("/region-0/rack-0").size());
+      assertTrue(snapshot.getLeaves("/region-0/rack-0").getLeaf(0) == region0Rack0Node);
+      assertEquals(2, snapshot.getLeaves("/region-0").size());
+      assertEquals(2, snapshot.getLeaves("/region-0/").size());
+      assertEquals(0, snapshot.getLeaves("/region-0/rack").size());
+      assertEquals(0, snapshot.getLeaves("/non-existing-scope").size());
+      assertEquals(3, snapshot.getLeaves(NodeBase.ROOT).size());
+      for (int i = 0; i < snapshot.size(); i++) {
+          assertEquals(snapshot.getLeaf(i) != region1Rack0Node, snapshot.isLeafUnderScope(i, "/region-0"));
+      }
+
+      networkTopology.remove(region0Rack1Node);
+      TopologySnapshot newSnapshot = networkTopology.getSnapshot();
+      assertTrue(snapshot != newSnapshot);
+      assertEquals(2, newSnapshot.size());
+      assertEquals(1, newSnapshot.getLeaves("/region-0").size());
+      // the old snapshot is not affected by the change
+      assertEquals(3, snapshot.size());
+  }
+}
@@ -0,0 +1,212 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test {@link FairRequestScheduler}.
+ */
+public class FairRequestSchedulerTest {
+
+    private static final long LEDGER_ID = 10;
+
+    private OrderedExecutor executor;
+    private final CountDownLatch blocked = new CountDownLatch(1);
+    private final List<String> executed = new CopyOnWriteArrayList<>();
+    private final AtomicInteger rejected = new AtomicInteger(0);
+
+    @Before
+    public void setup() {
+        executor = OrderedExecutor.newBuilder().numThreads(2).name("test-fair-scheduler").build();
+    }
+
+    @After
+    public void teardown() {
+        blocked.countDown();
+        executor.shutdownNow();
+    }
+
+    private FairRequestScheduler newScheduler(int maxOutstandingRequests, long maxOutstandingBytes,
+                                              int maxQueuedRequests) {
+        return newScheduler(maxOutstandingRequests, maxOutstandingBytes, maxQueuedRequests, 100);
+    }
+
+    private FairRequestScheduler newScheduler(int maxOutstandingRequests, long maxOutstandingBytes,
+                                              int maxQueuedRequests, int maxTenants) {
+        return new FairRequestScheduler(executor, maxOutstandingRequests, maxOutstandingBytes,
+                maxQueuedRequests, maxTenants, NullStatsLogger.INSTANCE);
+    }
+
+    private void submit(FairRequestScheduler scheduler, String tenant, boolean tail, long size, String name) {
+        scheduler.executeOrdered(tenant, LEDGER_ID, tail, size, () -> executed.add(name),
+                rejected::incrementAndGet);
+    }
+
+    private void submitBlocking(FairRequestScheduler scheduler, String tenant, long size) {
+        scheduler.executeOrdered(tenant, LEDGER_ID, true, size, () -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, rejected::incrementAndGet);
+    }
+
+    private void waitForTenants(FairRequestScheduler scheduler, int numTenants) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (scheduler.getNumTenants() > numTenants && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(numTenants, scheduler.getNumTenants());
+    }
+
+    private void waitForExecuted(int numExecuted) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (executed.size() < numExecuted && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(numExecuted, executed.size());
+    }
+
+    @Test
+    public void testOutstandingRequestsPerTenant() throws Exception {
+        FairRequestScheduler scheduler = newScheduler(2, Long.MAX_VALUE, 100);
+        submitBlocking(scheduler, "noisy", 0);
+        submitBlocking(scheduler, "noisy", 0);
+        for (int i = 0; i < 3; i++) {
+            submit(scheduler, "noisy", true, 0, "noisy-" + i);
+        }
+        assertEquals(2, scheduler.getNumOutstandingRequests("noisy"));
+        assertEquals(3, scheduler.getNumQueuedRequests("noisy"));
+
+        // the requests of the other tenants aren't queued behind the noisy tenant
+        submit(scheduler, "quiet", true, 0, "quiet");
+        assertEquals(0, scheduler.getNumQueuedRequests("quiet"));
+        assertEquals(1, scheduler.getNumOutstandingRequests("quiet"));
+
+        blocked.countDown();
+        waitForExecuted(4);
+        assertEquals(0, scheduler.getNumOutstandingRequests("noisy"));
+        assertEquals(0, scheduler.getNumQueuedRequests("noisy"));
+        assertEquals(0, rejected.get());
+    }
+
+    @Test
+    public void testTailRequestsFirst() throws Exception {
+        FairRequestScheduler scheduler = newScheduler(1, Long.MAX_VALUE, 100);
+        submitBlocking(scheduler, "tenant", 0);
+        submit(scheduler, "tenant", false, 0, "catchup-0");
+        submit(scheduler, "tenant", false, 0, "catchup-1");
+        submit(scheduler, "tenant", true, 0, "tail-0");
+        assertEquals(3, scheduler.getNumQueuedRequests("tenant"));
+
+        blocked.countDown();
+        waitForExecuted(3);
+        assertEquals("tail-0", executed.get(0));
+        assertEquals("catchup-0", executed.get(1));
+        assertEquals("catchup-1", executed.get(2));
+    }
+
+    @Test
+    public void testOutstandingBytesPerTenant() throws Exception {
+        FairRequestScheduler scheduler = newScheduler(100, 100, 100);
+        submitBlocking(scheduler, "tenant", 60);
+        submit(scheduler, "tenant", true, 60, "large");
+        assertEquals(1, scheduler.getNumQueuedRequests("tenant"));
+
+        blocked.countDown();
+        waitForExecuted(1);
+
+        // a request larger than the budget is executed alone
+        submit(scheduler, "tenant", true, 1000, "larger");
+        waitForExecuted(2);
+        assertEquals(0, rejected.get());
+    }
+
+    @Test
+    public void testRejectWhenQueueIsFull() throws Exception {
+        FairRequestScheduler scheduler = newScheduler(1, Long.MAX_VALUE, 1);
+        submitBlocking(scheduler, "tenant", 0);
+        submit(scheduler, "tenant", true, 0, "queued");
+        submit(scheduler, "tenant", true, 0, "rejected");
+        assertEquals(1, rejected.get());
+
+        blocked.countDown();
+        waitForExecuted(1);
+        assertEquals("queued", executed.get(0));
+    }
+
+    @Test
+    public void testRejectedByExecutor() throws Exception {
+        FairRequestScheduler scheduler = newScheduler(1, Long.MAX_VALUE, 100);
+        executor.shutdown();
+        submit(scheduler, "tenant", true, 0, "rejected");
+        assertEquals(1, rejected.get());
+        assertEquals(0, scheduler.getNumOutstandingRequests("tenant"));
+        assertFalse(executed.contains("rejected"));
+    }
+
+    @Test
+    public void testTenantsOverLimitShareDefaultQueue() throws Exception {
+        FairRequestScheduler scheduler = newScheduler(1, Long.MAX_VALUE, 100, 2);
+        submitBlocking(scheduler, "first", 0);
+        submitBlocking(scheduler, "second", 0);
+        submitBlocking(scheduler, "third", 0);
+        submit(scheduler, "fourth", true, 0, "fourth");
+        assertEquals(3, scheduler.getNumTenants());
+        assertEquals(0, scheduler.getNumOutstandingRequests("third"));
+        assertEquals(1, scheduler.getNumOutstandingRequests(FairRequestScheduler.DEFAULT_TENANT));
+        assertEquals(1, scheduler.getNumQueuedRequests(FairRequestScheduler.DEFAULT_TENANT));
+
+        blocked.countDown();
+        waitForExecuted(1);
+        assertEquals(0, rejected.get());
+    }
+
+    @Test
+    public void testIdleTenantsAreDropped() throws Exception {
+        FairRequestScheduler scheduler = newScheduler(1, Long.MAX_VALUE, 100, 1);
+        submitBlocking(scheduler, "tenant", 0);
+        submit(scheduler, "tenant", true, 0, "queued");
+        assertEquals(1, scheduler.getNumTenants());
+
+        blocked.countDown();
+        waitForExecuted(1);
+        waitForTenants(scheduler, 0);
+
+        // the dropped queue makes room for another tenant
+        submit(scheduler, "other", true, 0, "other");
+        waitForExecuted(2);
+        waitForTenants(scheduler, 0);
+        assertEquals(0, rejected.get());
+    }
+}
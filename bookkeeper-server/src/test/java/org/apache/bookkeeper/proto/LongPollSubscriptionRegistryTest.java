@@ -0,0 +1,220 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.protobuf.ByteString;
+import io.netty.buffer.Unpooled;
+import io.netty.util.HashedWheelTimer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.bookie.LastAddConfirmedUpdateNotification;
+import org.apache.bookkeeper.common.util.MathUtils;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
+import org.apache.bookkeeper.common.util.Watcher;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test {@link LongPollSubscriptionRegistry}.
+ */
+public class LongPollSubscriptionRegistryTest {
+
+    private static final long LEDGER_ID = 10;
+
+    private OrderedExecutor executor;
+    private HashedWheelTimer timer;
+    private Bookie bookie;
+    private LongPollSubscriptionRegistry registry;
+    private final AtomicReference<Watcher<LastAddConfirmedUpdateNotification>> watcher = new AtomicReference<>();
+
+    private static class TestSubscriber implements LongPollSubscriptionRegistry.Subscriber {
+        final long previousLAC;
+        final long deadlineNanos;
+        final CompletableFuture<ByteString> advanced = new CompletableFuture<>();
+        final CompletableFuture<Void> timedOut = new CompletableFuture<>();
+
+        TestSubscriber(long previousLAC, long timeoutMs) {
+            this.previousLAC = previousLAC;
+            this.deadlineNanos = MathUtils.nowInNano() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        }
+
+        @Override
+        public long getLedgerId() {
+            return LEDGER_ID;
+        }
+
+        @Override
+        public long getPreviousLastAddConfirmed() {
+            return previousLAC;
+        }
+
+        @Override
+        public long getDeadlineNanos() {
+            return deadlineNanos;
+        }
+
+        @Override
+        public boolean shouldPiggybackEntry() {
+            return true;
+        }
+
+        @Override
+        public void onLastAddConfirmedAdvanced(long lac, long lacUpdateTimestamp, ByteString piggybackedEntry) {
+            advanced.complete(piggybackedEntry);
+        }
+
+        @Override
+        public void onTimeout() {
+            timedOut.complete(null);
+        }
+    }
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+        executor = OrderedExecutor.newBuilder().numThreads(1).name("test-long-poll").build();
+        timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS);
+        bookie = mock(Bookie.class);
+        when(bookie.waitForLastAddConfirmedUpdate(anyLong(), anyLong(), any())).thenAnswer(invocation -> {
+            watcher.set(invocation.getArgument(2));
+            return true;
+        });
+        when(bookie.readLastAddConfirmed(anyLong())).thenReturn(5L);
+        when(bookie.readEntry(anyLong(), anyLong())).thenAnswer(invocation -> Unpooled.wrappedBuffer(
+                ("entry-" + invocation.getArgument(1)).getBytes()));
+        registry = new LongPollSubscriptionRegistry(bookie, executor, timer,
+                new RequestStats(NullStatsLogger.INSTANCE));
+    }
+
+    @After
+    public void teardown() {
+        timer.stop();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSubscribersShareWatcherAndPiggybackedEntry() throws Exception {
+        TestSubscriber[] subscribers = new TestSubscriber[10];
+        for (int i = 0; i < subscribers.length; i++) {
+            subscribers[i] = new TestSubscriber(5, 60000);
+            assertTrue(registry.subscribe(subscribers[i]));
+        }
+        verify(bookie, times(1)).waitForLastAddConfirmedUpdate(eq(LEDGER_ID), eq(5L), any());
+        assertEquals(1, registry.getNumSubscribedLedgers());
+
+        watcher.get().update(LastAddConfirmedUpdateNotification.of(6));
+
+        ByteString entry = subscribers[0].advanced.get(10, TimeUnit.SECONDS);
+        assertNotNull(entry);
+        assertEquals("entry-6", entry.toStringUtf8());
+        for (TestSubscriber subscriber : subscribers) {
+            assertSame(entry, subscriber.advanced.get(10, TimeUnit.SECONDS));
+        }
+        verify(bookie, times(1)).readEntry(LEDGER_ID, 6L);
+    }
+
+    @Test
+    public void testOnlyAdvancedSubscribersAreWoken() throws Exception {
+        TestSubscriber behind = new TestSubscriber(5, 60000);
+        TestSubscriber ahead = new TestSubscriber(7, 60000);
+        assertTrue(registry.subscribe(behind));
+        assertTrue(registry.subscribe(ahead));
+
+        watcher.get().update(LastAddConfirmedUpdateNotification.of(6));
+        assertEquals("entry-6", behind.advanced.get(10, TimeUnit.SECONDS).toStringUtf8());
+
+        // the remaining subscriber is watched again from its own previous lac
+        verify(bookie, times(1)).waitForLastAddConfirmedUpdate(eq(LEDGER_ID), eq(7L), any());
+        assertFalse(ahead.advanced.isDone());
+
+        watcher.get().update(LastAddConfirmedUpdateNotification.of(8));
+        assertEquals("entry-8", ahead.advanced.get(10, TimeUnit.SECONDS).toStringUtf8());
+    }
+
+    @Test
+    public void testSubscribeBehindKnownLac() throws Exception {
+        assertTrue(registry.subscribe(new TestSubscriber(5, 60000)));
+        // the watcher only tells about the updates past 5
+        assertFalse(registry.subscribe(new TestSubscriber(3, 60000)));
+    }
+
+    @Test
+    public void testSubscribeBehindWatchedLac() throws Exception {
+        TestSubscriber ahead = new TestSubscriber(7, 60000);
+        TestSubscriber behind = new TestSubscriber(5, 60000);
+        assertTrue(registry.subscribe(ahead));
+        assertTrue(registry.subscribe(behind));
+
+        // the watcher is registered again from the lower previous lac
+        verify(bookie, times(1)).waitForLastAddConfirmedUpdate(eq(LEDGER_ID), eq(5L), any());
+        verify(bookie, times(1)).cancelWaitForLastAddConfirmedUpdate(eq(LEDGER_ID), any());
+
+        watcher.get().update(LastAddConfirmedUpdateNotification.of(6));
+        assertEquals("entry-6", behind.advanced.get(10, TimeUnit.SECONDS).toStringUtf8());
+        assertFalse(ahead.advanced.isDone());
+    }
+
+    @Test
+    public void testAlreadyAdvanced() throws Exception {
+        when(bookie.waitForLastAddConfirmedUpdate(anyLong(), anyLong(), any())).thenReturn(false);
+        assertFalse(registry.subscribe(new TestSubscriber(3, 60000)));
+        assertEquals(0, registry.getNumSubscribedLedgers());
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        CompletableFuture<Void> cancelled = new CompletableFuture<>();
+        doAnswer(invocation -> {
+            cancelled.complete(null);
+            return null;
+        }).when(bookie).cancelWaitForLastAddConfirmedUpdate(anyLong(), any());
+
+        TestSubscriber shortTimeout = new TestSubscriber(5, 50);
+        TestSubscriber longTimeout = new TestSubscriber(5, 200);
+        assertTrue(registry.subscribe(longTimeout));
+        assertTrue(registry.subscribe(shortTimeout));
+
+        shortTimeout.timedOut.get(10, TimeUnit.SECONDS);
+        assertFalse(longTimeout.timedOut.isDone());
+        assertFalse(cancelled.isDone());
+
+        longTimeout.timedOut.get(10, TimeUnit.SECONDS);
+        cancelled.get(10, TimeUnit.SECONDS);
+        assertFalse(shortTimeout.advanced.isDone());
+        assertFalse(longTimeout.advanced.isDone());
+    }
+}
@@ -39,14 +39,17 @@ import org.apache.bookkeeper.common.concurrent.FutureUtils;
 import org.apache.bookkeeper.common.util.OrderedExecutor;
 import org.apache.bookkeeper.net.BookieId;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ForceLedgerCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.FutureGetEntriesOfLedgerSummaries;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.FutureGetListOfEntriesOfLedger;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.GetBookieInfoCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadEntryCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.ReadLacCallback;
+import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.StreamReadEntryCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteCallback;
 import org.apache.bookkeeper.proto.BookkeeperInternalCallbacks.WriteLacCallback;
 import org.apache.bookkeeper.util.AvailabilityOfEntriesOfLedger;
 import org.apache.bookkeeper.util.ByteBufList;
+import org.apache.bookkeeper.util.EntriesOfLedgerSummary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -301,6 +304,29 @@ public class MockBookieClient implements BookieClient {
         return futureResult;
     }
 
+    @Override
+    public CompletableFuture<List<EntriesOfLedgerSummary>> getEntriesOfLedgerSummaries(BookieId address,
+            long ledgerId, List<EntriesOfLedgerSummary> ranges) {
+        FutureGetEntriesOfLedgerSummaries futureResult = new FutureGetEntriesOfLedgerSummaries(ledgerId);
+        executor.executeOrdered(address, () ->
+                futureResult.completeExceptionally(
+                        BKException.create(BKException.Code.IllegalOpException).fillInStackTrace())
+        );
+        return futureResult;
+    }
+
+    @Override
+    public CompletableFuture<StreamReadSubscription> streamReadEntries(BookieId address, long ledgerId,
+            long startEntryId, int credits, int ensembleSize, int writeQuorumSize, int bookieIndex,
+            StreamReadEntryCallback cb, Object ctx) {
+        CompletableFuture<StreamReadSubscription> futureResult = new CompletableFuture<>();
+        executor.executeOrdered(address, () ->
+                futureResult.completeExceptionally(
+                        BKException.create(BKException.Code.IllegalOpException).fillInStackTrace())
+        );
+        return futureResult;
+    }
+
     @Override
     public boolean isClosed() {
         return false;
@@ -0,0 +1,318 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.bookkeeper.proto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultChannelPromise;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.bookkeeper.bookie.Bookie;
+import org.apache.bookkeeper.bookie.LastAddConfirmedUpdateNotification;
+import org.apache.bookkeeper.common.util.OrderedExecutor;
+import org.apache.bookkeeper.common.util.Watcher;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.BKPacketHeader;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.OperationType;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.ProtocolVersion;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Request;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.Response;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.StatusCode;
+import org.apache.bookkeeper.proto.BookkeeperProtocol.StreamReadRequest;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test {@link StreamReadRegistry}.
+ */
+public class StreamReadRegistryTest {
+
+    private static final long LEDGER_ID = 10;
+
+    private OrderedExecutor readExecutor;
+    private OrderedExecutor executor;
+    private HashedWheelTimer timer;
+    private Bookie bookie;
+    private Channel channel;
+    private ChannelPromise closeFuture;
+    private StreamReadRegistry registry;
+    private final Set<Long> storedEntries = ConcurrentHashMap.newKeySet();
+    private final AtomicLong lac = new AtomicLong(BookieProtocol.INVALID_ENTRY_ID);
+    private final AtomicReference<Watcher<LastAddConfirmedUpdateNotification>> watcher = new AtomicReference<>();
+    private final LinkedBlockingQueue<Response> responses = new LinkedBlockingQueue<>();
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+        readExecutor = OrderedExecutor.newBuilder().numThreads(1).name("test-stream-read").build();
+        executor = OrderedExecutor.newBuilder().numThreads(1).name("test-stream-push").build();
+        timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS);
+        bookie = mock(Bookie.class);
+        when(bookie.readLastAddConfirmed(anyLong())).thenAnswer(invocation -> lac.get());
+        when(bookie.readEntry(anyLong(), anyLong())).thenAnswer(invocation -> {
+            long entryId = invocation.getArgument(1);
+            if (!storedEntries.contains(entryId)) {
+                throw new Bookie.NoEntryException(LEDGER_ID, entryId);
+            }
+            return Unpooled.wrappedBuffer(("entry-" + entryId).getBytes());
+        });
+        when(bookie.waitForLastAddConfirmedUpdate(anyLong(), anyLong(), any())).thenAnswer(invocation -> {
+            watcher.set(invocation.getArgument(2));
+            return true;
+        });
+
+        channel = mock(Channel.class);
+        closeFuture = new DefaultChannelPromise(channel, ImmediateEventExecutor.INSTANCE);
+        when(channel.isActive()).thenReturn(true);
+        when(channel.closeFuture()).thenReturn(closeFuture);
+        doAnswer(invocation -> {
+            responses.add(invocation.getArgument(0));
+            return null;
+        }).when(channel).writeAndFlush(any(), any());
+
+        registry = new StreamReadRegistry(bookie, readExecutor, executor, timer,
+                new RequestStats(NullStatsLogger.INSTANCE));
+    }
+
+    @After
+    public void teardown() {
+        timer.stop();
+        readExecutor.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    private void storeEntries(long firstEntryId, long lastEntryId) {
+        for (long entryId = firstEntryId; entryId <= lastEntryId; entryId++) {
+            storedEntries.add(entryId);
+        }
+    }
+
+    private static Request newRequest(long txnId, StreamReadRequest.Builder streamReadRequest) {
+        return Request.newBuilder()
+                .setHeader(BKPacketHeader.newBuilder()
+                        .setVersion(ProtocolVersion.VERSION_THREE)
+                        .setOperation(OperationType.STREAM_READ_ENTRY)
+                        .setTxnId(txnId))
+                .setStreamReadRequest(streamReadRequest.setLedgerId(LEDGER_ID))
+                .build();
+    }
+
+    private void subscribe(long txnId, long startEntryId, int credits) {
+        registry.processRequest(newRequest(txnId, StreamReadRequest.newBuilder()
+                .setType(StreamReadRequest.Type.SUBSCRIBE)
+                .setStartEntryId(startEntryId)
+                .setCredits(credits)), channel);
+    }
+
+    private void subscribe(long txnId, long startEntryId, int credits,
+                           int ensembleSize, int writeQuorumSize, int bookieIndex) {
+        registry.processRequest(newRequest(txnId, StreamReadRequest.newBuilder()
+                .setType(StreamReadRequest.Type.SUBSCRIBE)
+                .setStartEntryId(startEntryId)
+                .setCredits(credits)
+                .setEnsembleSize(ensembleSize)
+                .setWriteQuorumSize(writeQuorumSize)
+                .setBookieIndex(bookieIndex)), channel);
+    }
+
+    private void grantCredits(long txnId, int credits) {
+        registry.processRequest(newRequest(txnId, StreamReadRequest.newBuilder()
+                .setType(StreamReadRequest.Type.GRANT_CREDITS)
+                .setCredits(credits)), channel);
+    }
+
+    private void unsubscribe(long txnId) {
+        registry.processRequest(newRequest(txnId, StreamReadRequest.newBuilder()
+                .setType(StreamReadRequest.Type.UNSUBSCRIBE)), channel);
+    }
+
+    private Response nextResponse() throws Exception {
+        Response response = responses.poll(10, TimeUnit.SECONDS);
+        assertNotNull(response);
+        return response;
+    }
+
+    private void assertNextEntry(long txnId, long entryId, long maxLAC) throws Exception {
+        Response response = nextResponse();
+        assertEquals(txnId, response.getHeader().getTxnId());
+        assertEquals(StatusCode.EOK, response.getStatus());
+        assertEquals(entryId, response.getReadResponse().getEntryId());
+        assertEquals("entry-" + entryId, response.getReadResponse().getBody().toStringUtf8());
+        assertEquals(maxLAC, response.getReadResponse().getMaxLAC());
+    }
+
+    private void assertNoResponse() throws Exception {
+        assertNull(responses.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testPushEntriesWithinCredits() throws Exception {
+        storeEntries(0, 9);
+        lac.set(8);
+        subscribe(1L, 0, 4);
+        for (long entryId = 0; entryId < 4; entryId++) {
+            assertNextEntry(1L, entryId, 8);
+        }
+        assertNoResponse();
+
+        grantCredits(1L, 10);
+        for (long entryId = 4; entryId < 10; entryId++) {
+            assertNextEntry(1L, entryId, 8);
+        }
+        // the remaining credits wait for the last add confirmed to advance
+        verify(bookie, timeout(10000)).waitForLastAddConfirmedUpdate(eq(LEDGER_ID), eq(8L), any());
+        assertNoResponse();
+
+        storeEntries(10, 10);
+        lac.set(9);
+        watcher.get().update(LastAddConfirmedUpdateNotification.of(9));
+        assertNextEntry(1L, 10, 9);
+    }
+
+    @Test
+    public void testSkipEntriesStoredByOtherBookies() throws Exception {
+        storedEntries.add(0L);
+        storedEntries.add(2L);
+        storedEntries.add(4L);
+        lac.set(4);
+        subscribe(1L, 0, 10);
+        assertNextEntry(1L, 0, 4);
+        assertNextEntry(1L, 2, 4);
+        assertNextEntry(1L, 4, 4);
+        verify(bookie, timeout(10000)).waitForLastAddConfirmedUpdate(eq(LEDGER_ID), eq(4L), any());
+
+        // entry 5 is stored by another bookie, and entry 6 isn't added yet
+        lac.set(5);
+        watcher.get().update(LastAddConfirmedUpdateNotification.of(5));
+        Response response = nextResponse();
+        assertEquals(BookieProtocol.LAST_ADD_CONFIRMED, response.getReadResponse().getEntryId());
+        assertFalse(response.getReadResponse().hasBody());
+        assertEquals(5L, response.getReadResponse().getMaxLAC());
+
+        storedEntries.add(6L);
+        lac.set(6);
+        watcher.get().update(LastAddConfirmedUpdateNotification.of(6));
+        assertNextEntry(1L, 6, 6);
+    }
+
+    @Test
+    public void testOnlyReadEntriesStripedToTheBookie() throws Exception {
+        // the bookie 0 of an ensemble of 3 bookies with a write quorum of 2 stores the entries 0, 2, 3, 5, ...
+        storedEntries.add(0L);
+        storedEntries.add(2L);
+        storedEntries.add(3L);
+        lac.set(4);
+        subscribe(1L, 0, 10, 3, 2, 0);
+        assertNextEntry(1L, 0, 4);
+        assertNextEntry(1L, 2, 4);
+        assertNextEntry(1L, 3, 4);
+        verify(bookie, timeout(10000)).waitForLastAddConfirmedUpdate(eq(LEDGER_ID), eq(4L), any());
+        verify(bookie, never()).readEntry(LEDGER_ID, 1L);
+        verify(bookie, never()).readEntry(LEDGER_ID, 4L);
+        // the next entry striped to the bookie isn't added yet
+        verify(bookie).readEntry(LEDGER_ID, 5L);
+
+        storedEntries.add(5L);
+        lac.set(5);
+        watcher.get().update(LastAddConfirmedUpdateNotification.of(5));
+        assertNextEntry(1L, 5, 5);
+    }
+
+    @Test
+    public void testUnsubscribe() throws Exception {
+        subscribe(1L, 0, 10);
+        subscribe(2L, 0, 10);
+        verify(bookie, timeout(10000).times(2)).waitForLastAddConfirmedUpdate(eq(LEDGER_ID), anyLong(), any());
+        assertEquals(2, registry.getNumSubscriptions());
+
+        unsubscribe(1L);
+        assertEquals(1, registry.getNumSubscriptions());
+        verify(bookie, timeout(10000)).cancelWaitForLastAddConfirmedUpdate(eq(LEDGER_ID), any());
+
+        // the credits of an unknown subscription are ignored
+        grantCredits(1L, 10);
+        assertNoResponse();
+    }
+
+    @Test
+    public void testChannelClosed() throws Exception {
+        subscribe(1L, 0, 10);
+        subscribe(2L, 5, 10);
+        verify(bookie, timeout(10000).times(2)).waitForLastAddConfirmedUpdate(eq(LEDGER_ID), anyLong(), any());
+        assertEquals(2, registry.getNumSubscriptions());
+
+        closeFuture.setSuccess();
+        assertEquals(0, registry.getNumSubscriptions());
+        verify(bookie, timeout(10000).times(2)).cancelWaitForLastAddConfirmedUpdate(eq(LEDGER_ID), any());
+    }
+
+    @Test
+    public void testBadRequests() throws Exception {
+        // no start entry
+        registry.processRequest(newRequest(1L, StreamReadRequest.newBuilder()
+                .setType(StreamReadRequest.Type.SUBSCRIBE)), channel);
+        assertEquals(StatusCode.EBADREQ, nextResponse().getStatus());
+
+        // duplicated subscription
+        subscribe(2L, 0, 10);
+        subscribe(2L, 0, 10);
+        Response response = nextResponse();
+        assertEquals(2L, response.getHeader().getTxnId());
+        assertEquals(StatusCode.EBADREQ, response.getStatus());
+        assertEquals(1, registry.getNumSubscriptions());
+
+        // a bookie out of the ensemble
+        subscribe(3L, 0, 10, 3, 2, 3);
+        response = nextResponse();
+        assertEquals(3L, response.getHeader().getTxnId());
+        assertEquals(StatusCode.EBADREQ, response.getStatus());
+        assertEquals(1, registry.getNumSubscriptions());
+    }
+
+    @Test
+    public void testNoLedger() throws Exception {
+        when(bookie.readLastAddConfirmed(anyLong())).thenThrow(new Bookie.NoLedgerException(LEDGER_ID));
+        subscribe(1L, 0, 10);
+        Response response = nextResponse();
+        assertEquals(StatusCode.ENOLEDGER, response.getStatus());
+        assertEquals(0, registry.getNumSubscriptions());
+    }
+}
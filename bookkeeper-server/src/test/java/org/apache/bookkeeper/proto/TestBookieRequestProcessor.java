@@ -20,21 +20,28 @@
  */
 package org.apache.bookkeeper.proto;
 
+import static org.apache.bookkeeper.bookie.BookKeeperServerStats.FAIR_SCHEDULER_QUEUE_LATENCY;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import com.google.protobuf.ByteString;
+import io.netty.buffer.Unpooled;
 import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.channel.group.ChannelGroup;
 import io.netty.channel.group.DefaultChannelGroup;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.bookkeeper.bookie.Bookie;
 import org.apache.bookkeeper.conf.ServerConfiguration;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.AddRequest;
@@ -46,6 +53,7 @@ import org.apache.bookkeeper.proto.BookkeeperProtocol.ReadRequest;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.Request;
 import org.apache.bookkeeper.proto.BookkeeperProtocol.WriteLacRequest;
 import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.test.TestStatsProvider;
 import org.junit.Test;
 
 /**
@@ -90,6 +98,105 @@ public class TestBookieRequestProcessor {
         }
     }
 
+    @Test
+    public void testConstructCatchUpReadThreads() throws Exception {
+        // no catch-up read threads by default
+        ServerConfiguration conf = new ServerConfiguration();
+        try (BookieRequestProcessor processor = new BookieRequestProcessor(
+            conf, mock(Bookie.class), NullStatsLogger.INSTANCE, null, UnpooledByteBufAllocator.DEFAULT,
+                channelGroup)) {
+            assertNull(processor.getCatchUpReadThreadPool());
+        }
+
+        conf = new ServerConfiguration();
+        conf.setNumCatchUpReadWorkerThreads(2);
+        try (BookieRequestProcessor processor = new BookieRequestProcessor(
+            conf, mock(Bookie.class), NullStatsLogger.INSTANCE, null, UnpooledByteBufAllocator.DEFAULT,
+                channelGroup)) {
+            assertNotNull(processor.getCatchUpReadThreadPool());
+            assertNotSame(processor.getReadThreadPool(), processor.getCatchUpReadThreadPool());
+        }
+    }
+
+    @Test
+    public void testCatchUpReadsAreScheduledFairly() throws Exception {
+        Bookie bookie = mock(Bookie.class);
+        when(bookie.isCatchUpRead(anyLong(), anyLong())).thenReturn(true);
+        when(bookie.readEntry(anyLong(), anyLong())).thenAnswer(invocation -> Unpooled.buffer(0));
+        ServerConfiguration conf = new ServerConfiguration();
+        conf.setFairRequestSchedulingEnabled(true);
+        conf.setNumCatchUpReadWorkerThreads(1);
+        TestStatsProvider statsProvider = new TestStatsProvider();
+        try (BookieRequestProcessor processor = new BookieRequestProcessor(
+            conf, bookie, statsProvider.getStatsLogger(""), null, UnpooledByteBufAllocator.DEFAULT,
+                channelGroup)) {
+            ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+            when(ctx.channel()).thenReturn(new EmbeddedChannel());
+            BookieRequestHandler requestHandler = mock(BookieRequestHandler.class);
+            when(requestHandler.ctx()).thenReturn(ctx);
+            processor.processRequest(BookieProtocol.ReadRequest.create(BookieProtocol.CURRENT_PROTOCOL_VERSION,
+                    1L, 0L, BookieProtocol.FLAG_NONE, null), requestHandler);
+
+            // the catch-up read is queued by the scheduler of the catch-up read threads
+            AtomicLong numCatchUpReads = new AtomicLong();
+            AtomicLong numReads = new AtomicLong();
+            statsProvider.forEachOpStatLogger((name, stats) -> {
+                if (name.endsWith(FAIR_SCHEDULER_QUEUE_LATENCY)) {
+                    (name.contains("pool_catchup") ? numCatchUpReads : numReads).addAndGet(stats.getSuccessCount());
+                }
+            });
+            assertEquals(1, numCatchUpReads.get());
+            assertEquals(0, numReads.get());
+        }
+    }
+
+    @Test
+    public void testAddPacingResumesOnlyTheChannelsItPaused() throws Exception {
+        final long delayNanos = TimeUnit.MILLISECONDS.toNanos(5);
+        Bookie bookie = mock(Bookie.class);
+        when(bookie.getWriteThrottleDelayNanos()).thenReturn(delayNanos);
+        ServerConfiguration conf = new ServerConfiguration();
+        conf.setMaxReadsInProgressLimit(1);
+        try (BookieRequestProcessor processor = new BookieRequestProcessor(
+            conf, bookie, NullStatsLogger.INSTANCE, null, UnpooledByteBufAllocator.DEFAULT,
+                channelGroup)) {
+            // the channel is paused for the delay of the adds
+            EmbeddedChannel channel = new EmbeddedChannel();
+            processor.onAddRequestStart(channel);
+            assertFalse(channel.config().isAutoRead());
+            TimeUnit.NANOSECONDS.sleep(2 * delayNanos);
+            channel.runScheduledPendingTasks();
+            assertTrue(channel.config().isAutoRead());
+            processor.onAddRequestFinish();
+
+            // a channel paused by another throttling is not resumed by the add pacing
+            channel.config().setAutoRead(false);
+            processor.onAddRequestStart(channel);
+            TimeUnit.NANOSECONDS.sleep(2 * delayNanos);
+            channel.runScheduledPendingTasks();
+            assertFalse(channel.config().isAutoRead());
+            processor.onAddRequestFinish();
+            channel.config().setAutoRead(true);
+
+            // the read throttling takes over a channel paused by the add pacing
+            processor.onAddRequestStart(channel);
+            processor.onReadRequestStart(channel);
+            Thread reader = new Thread(() -> processor.onReadRequestStart(channel));
+            reader.start();
+            while (!processor.readsSemaphore.hasQueuedThreads()) {
+                Thread.sleep(1);
+            }
+            TimeUnit.NANOSECONDS.sleep(2 * delayNanos);
+            channel.runScheduledPendingTasks();
+            assertFalse(channel.config().isAutoRead());
+            processor.onReadRequestFinish();
+            reader.join();
+            assertTrue(channel.config().isAutoRead());
+            processor.onReadRequestFinish();
+            processor.onAddRequestFinish();
+        }
+    }
+
     @Test
     public void testFlagsV3() {
         ReadRequest read = ReadRequest.newBuilder()
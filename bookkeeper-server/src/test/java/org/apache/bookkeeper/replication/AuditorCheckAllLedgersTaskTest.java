@@ -19,9 +19,13 @@ package org.apache.bookkeeper.replication;
 
 import static org.apache.bookkeeper.replication.ReplicationStats.AUDITOR_SCOPE;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Semaphore;
+import org.apache.bookkeeper.client.BKException;
 import org.apache.bookkeeper.client.BookKeeper;
 import org.apache.bookkeeper.client.BookKeeperAdmin;
 import org.apache.bookkeeper.client.LedgerHandle;
@@ -32,6 +36,7 @@ import org.apache.bookkeeper.meta.LedgerUnderreplicationManager;
 import org.apache.bookkeeper.stats.NullStatsLogger;
 import org.apache.bookkeeper.test.BookKeeperClusterTestCase;
 import org.apache.bookkeeper.test.TestStatsProvider;
+import org.apache.commons.lang3.reflect.FieldUtils;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -101,4 +106,130 @@ public class AuditorCheckAllLedgersTaskTest extends BookKeeperClusterTestCase {
         assertEquals("NUM_LEDGERS_CHECKED", numLedgers,
                 (long) statsLogger.getCounter(ReplicationStats.NUM_LEDGERS_CHECKED).get());
     }
+
+    @Test
+    public void testCheckAllLedgersResumesFromCheckpoint() throws Exception {
+        final int numLedgers = 10;
+        List<Long> ids = new LinkedList<Long>();
+        for (int i = 0; i < numLedgers; i++) {
+            LedgerHandle lh = bkc.createLedger(3, 3, BookKeeper.DigestType.CRC32, "passwd".getBytes());
+            ids.add(lh.getId());
+            lh.addEntry("testdata".getBytes());
+            lh.close();
+        }
+
+        // pretend a previous auditor checked the first half of the ledgers
+        long checkpoint = ids.get(numLedgers / 2 - 1);
+        ledgerUnderreplicationManager.setCheckAllLedgersCheckpoint(checkpoint);
+
+        final TestStatsProvider statsProvider = new TestStatsProvider();
+        final TestStatsProvider.TestStatsLogger statsLogger = statsProvider.getStatsLogger(AUDITOR_SCOPE);
+        final AuditorStats auditorStats = new AuditorStats(statsLogger);
+
+        baseConf.setAuditorMaxConcurrentCheckAllLedgersRanges(4);
+        AuditorCheckAllLedgersTask auditorCheckAllLedgersTask = new AuditorCheckAllLedgersTask(
+                baseConf, auditorStats, admin, ledgerManager,
+                ledgerUnderreplicationManager, null, (flag, throwable) -> flag.set(false));
+
+        auditorCheckAllLedgersTask.runTask();
+
+        assertEquals("CHECK_ALL_LEDGERS_TIME", 1, ((TestStatsProvider.TestOpStatsLogger) statsLogger
+                .getOpStatsLogger(ReplicationStats.CHECK_ALL_LEDGERS_TIME)).getSuccessCount());
+        assertEquals("NUM_LEDGERS_CHECKED", numLedgers - numLedgers / 2,
+                (long) statsLogger.getCounter(ReplicationStats.NUM_LEDGERS_CHECKED).get());
+        assertTrue(auditorStats.getCheckAllLedgersRangesCheckedGuageValue().get() > 0);
+        assertEquals(0, auditorStats.getCheckAllLedgersRangesInFlightGuageValue().get());
+        // a completed check clears the checkpoint
+        assertEquals(-1, ledgerUnderreplicationManager.getCheckAllLedgersCheckpoint());
+    }
+
+    @Test
+    public void testCheckAllLedgersAbortedOnReplicationDisabled() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            LedgerHandle lh = bkc.createLedger(3, 3, BookKeeper.DigestType.CRC32, "passwd".getBytes());
+            lh.addEntry("testdata".getBytes());
+            lh.close();
+        }
+        final TestStatsProvider statsProvider = new TestStatsProvider();
+        final TestStatsProvider.TestStatsLogger statsLogger = statsProvider.getStatsLogger(AUDITOR_SCOPE);
+        final AuditorStats auditorStats = new AuditorStats(statsLogger);
+        AuditorCheckAllLedgersTask auditorCheckAllLedgersTask = new AuditorCheckAllLedgersTask(
+                baseConf, auditorStats, admin, ledgerManager,
+                ledgerUnderreplicationManager, null, (flag, throwable) -> flag.set(false));
+        long checkAllLedgersCTime = ledgerUnderreplicationManager.getCheckAllLedgersCTime();
+
+        ledgerUnderreplicationManager.disableLedgerReplication();
+        try {
+            auditorCheckAllLedgersTask.checkAllLedgers();
+        } finally {
+            ledgerUnderreplicationManager.enableLedgerReplication();
+        }
+
+        // the aborted check neither checks the ledgers nor completes the pass
+        assertEquals("NUM_LEDGERS_CHECKED", 0,
+                (long) statsLogger.getCounter(ReplicationStats.NUM_LEDGERS_CHECKED).get());
+        assertEquals(checkAllLedgersCTime, ledgerUnderreplicationManager.getCheckAllLedgersCTime());
+        assertEquals(-1, ledgerUnderreplicationManager.getCheckAllLedgersCheckpoint());
+    }
+
+    @Test
+    public void testCheckAllLedgersFailsLedgersWithoutOpenLedgerPermit() throws Exception {
+        final int numLedgers = 10;
+        for (int i = 0; i < numLedgers; i++) {
+            LedgerHandle lh = bkc.createLedger(3, 3, BookKeeper.DigestType.CRC32, "passwd".getBytes());
+            lh.addEntry("testdata".getBytes());
+            lh.close();
+        }
+        final TestStatsProvider statsProvider = new TestStatsProvider();
+        final TestStatsProvider.TestStatsLogger statsLogger = statsProvider.getStatsLogger(AUDITOR_SCOPE);
+        final AuditorStats auditorStats = new AuditorStats(statsLogger);
+        baseConf.setAuditorAcquireConcurrentOpenLedgerOperationsTimeoutMSec(0);
+        AuditorCheckAllLedgersTask auditorCheckAllLedgersTask = new AuditorCheckAllLedgersTask(
+                baseConf, auditorStats, admin, ledgerManager,
+                ledgerUnderreplicationManager, null, (flag, throwable) -> flag.set(false));
+        long checkAllLedgersCTime = ledgerUnderreplicationManager.getCheckAllLedgersCTime();
+
+        // no open ledger operation permit is available
+        Semaphore openLedgerNoRecoverySemaphore = (Semaphore) FieldUtils.readField(
+                auditorCheckAllLedgersTask, "openLedgerNoRecoverySemaphore", true);
+        openLedgerNoRecoverySemaphore.drainPermits();
+
+        try {
+            auditorCheckAllLedgersTask.checkAllLedgers();
+            fail("The check of the ledgers without an open ledger permit should fail");
+        } catch (BKException bke) {
+            // expected
+        }
+        assertEquals("NUM_LEDGERS_CHECKED", 0,
+                (long) statsLogger.getCounter(ReplicationStats.NUM_LEDGERS_CHECKED).get());
+        // the pass went on with the other ranges, none of them completed
+        assertEquals(0, auditorStats.getCheckAllLedgersRangesCheckedGuageValue().get());
+        assertEquals(0, auditorStats.getCheckAllLedgersRangesInFlightGuageValue().get());
+        assertEquals(checkAllLedgersCTime, ledgerUnderreplicationManager.getCheckAllLedgersCTime());
+    }
+
+    @Test
+    public void testCheckAllLedgersProgress() {
+        AuditorCheckAllLedgersTask.CheckAllLedgersProgress progress =
+                new AuditorCheckAllLedgersTask.CheckAllLedgersProgress(-1);
+        long first = progress.addRange(0, 9);
+        long second = progress.addRange(10, 19);
+        long third = progress.addRange(20, 29);
+
+        progress.completeRange(second);
+        assertEquals(-1, progress.takeCheckpointToPersist());
+        progress.completeRange(first);
+        assertEquals(19, progress.takeCheckpointToPersist());
+        assertEquals(-1, progress.takeCheckpointToPersist());
+        progress.completeRange(third);
+        assertEquals(29, progress.getCheckpoint());
+
+        // ranges out of order disable checkpointing
+        progress = new AuditorCheckAllLedgersTask.CheckAllLedgersProgress(-1);
+        first = progress.addRange(10, 19);
+        second = progress.addRange(0, 9);
+        progress.completeRange(first);
+        progress.completeRange(second);
+        assertEquals(-1, progress.takeCheckpointToPersist());
+    }
 }
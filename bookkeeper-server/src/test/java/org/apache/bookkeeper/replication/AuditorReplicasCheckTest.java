@@ -65,6 +65,7 @@ import org.apache.bookkeeper.test.TestStatsProvider;
 import org.apache.bookkeeper.test.TestStatsProvider.TestOpStatsLogger;
 import org.apache.bookkeeper.test.TestStatsProvider.TestStatsLogger;
 import org.apache.bookkeeper.util.AvailabilityOfEntriesOfLedger;
+import org.apache.bookkeeper.util.EntriesOfLedgerSummary;
 import org.apache.bookkeeper.util.StaticDNSResolver;
 import org.apache.commons.collections4.map.MultiKeyMap;
 import org.apache.commons.lang3.mutable.MutableObject;
@@ -137,6 +138,14 @@ public class AuditorReplicasCheckTest extends BookKeeperClusterTestCase {
             }
             return futureResult;
         }
+
+        @Override
+        public CompletableFuture<List<EntriesOfLedgerSummary>> asyncGetEntriesOfLedgerSummaries(
+                BookieId address, long ledgerId, List<EntriesOfLedgerSummary> ranges) {
+            return asyncGetListOfEntriesOfLedger(address, ledgerId).thenApply(
+                    availabilityOfEntriesOfLedger -> EntriesOfLedgerSummary.summarize(availabilityOfEntriesOfLedger,
+                            ranges));
+        }
     }
 
     private TestStatsLogger startAuditorAndWaitForReplicasCheck(ServerConfiguration servConf,
@@ -227,8 +236,20 @@ public class AuditorReplicasCheckTest extends BookKeeperClusterTestCase {
             int expectedNumLedgersFoundHavingNoReplicaOfAnEntry,
             int expectedNumLedgersHavingLessThanAQReplicasOfAnEntry,
             int expectedNumLedgersHavingLessThanWQReplicasOfAnEntry) throws Exception {
+        runTestScenario(returnAvailabilityOfEntriesOfLedger, errorReturnValueForGetAvailabilityOfEntriesOfLedger,
+                expectedNumLedgersFoundHavingNoReplicaOfAnEntry, expectedNumLedgersHavingLessThanAQReplicasOfAnEntry,
+                expectedNumLedgersHavingLessThanWQReplicasOfAnEntry, false);
+    }
+
+    private void runTestScenario(MultiKeyMap<String, AvailabilityOfEntriesOfLedger> returnAvailabilityOfEntriesOfLedger,
+            MultiKeyMap<String, Integer> errorReturnValueForGetAvailabilityOfEntriesOfLedger,
+            int expectedNumLedgersFoundHavingNoReplicaOfAnEntry,
+            int expectedNumLedgersHavingLessThanAQReplicasOfAnEntry,
+            int expectedNumLedgersHavingLessThanWQReplicasOfAnEntry,
+            boolean replicasCheckSummaryEnabled) throws Exception {
         ServerConfiguration servConf = new ServerConfiguration(confByIndex(0));
         setServerConfigProperties(servConf);
+        servConf.setAuditorReplicasCheckSummaryEnabled(replicasCheckSummaryEnabled);
         MutableObject<Auditor> auditorRef = new MutableObject<Auditor>();
         try {
             TestStatsLogger statsLogger = startAuditorAndWaitForReplicasCheck(servConf, auditorRef,
@@ -236,6 +257,16 @@ public class AuditorReplicasCheckTest extends BookKeeperClusterTestCase {
             checkReplicasCheckStats(statsLogger, expectedNumLedgersFoundHavingNoReplicaOfAnEntry,
                     expectedNumLedgersHavingLessThanAQReplicasOfAnEntry,
                     expectedNumLedgersHavingLessThanWQReplicasOfAnEntry);
+            if (replicasCheckSummaryEnabled) {
+                long numSummariesMismatched = statsLogger
+                        .getCounter(ReplicationStats.NUM_REPLICAS_CHECK_SUMMARIES_MISMATCHED).get();
+                if (expectedNumLedgersFoundHavingNoReplicaOfAnEntry > 0
+                        || expectedNumLedgersHavingLessThanAQReplicasOfAnEntry > 0
+                        || expectedNumLedgersHavingLessThanWQReplicasOfAnEntry > 0) {
+                    assertTrue("summaries of entries with missing entries shouldn't match",
+                            numSummariesMismatched > 0);
+                }
+            }
         } finally {
             Auditor auditor = auditorRef.getValue();
             if (auditor != null) {
@@ -372,6 +403,15 @@ public class AuditorReplicasCheckTest extends BookKeeperClusterTestCase {
      */
     @Test
     public void testReplicasCheckForLedgersFoundHavingNoReplica() throws Exception {
+        replicasCheckForLedgersFoundHavingNoReplica(false);
+    }
+
+    @Test
+    public void testReplicasCheckForLedgersFoundHavingNoReplicaWithSummaries() throws Exception {
+        replicasCheckForLedgersFoundHavingNoReplica(true);
+    }
+
+    private void replicasCheckForLedgersFoundHavingNoReplica(boolean replicasCheckSummaryEnabled) throws Exception {
         int numOfBookies = 5;
         MultiKeyMap<String, AvailabilityOfEntriesOfLedger> returnAvailabilityOfEntriesOfLedger =
                 new MultiKeyMap<String, AvailabilityOfEntriesOfLedger>();
@@ -497,7 +537,7 @@ public class AuditorReplicasCheckTest extends BookKeeperClusterTestCase {
         numLedgersFoundHavingNoReplicaOfAnEntry++;
 
         runTestScenario(returnAvailabilityOfEntriesOfLedger, errorReturnValueForGetAvailabilityOfEntriesOfLedger,
-                numLedgersFoundHavingNoReplicaOfAnEntry, 0, 0);
+                numLedgersFoundHavingNoReplicaOfAnEntry, 0, 0, replicasCheckSummaryEnabled);
     }
 
     /*
@@ -661,6 +701,16 @@ public class AuditorReplicasCheckTest extends BookKeeperClusterTestCase {
      */
     @Test
     public void testReplicasCheckForLedgersFoundHavingLessThanWQReplicasOfAnEntry() throws Exception {
+        replicasCheckForLedgersFoundHavingLessThanWQReplicasOfAnEntry(false);
+    }
+
+    @Test
+    public void testReplicasCheckForLedgersFoundHavingLessThanWQReplicasOfAnEntryWithSummaries() throws Exception {
+        replicasCheckForLedgersFoundHavingLessThanWQReplicasOfAnEntry(true);
+    }
+
+    private void replicasCheckForLedgersFoundHavingLessThanWQReplicasOfAnEntry(boolean replicasCheckSummaryEnabled)
+            throws Exception {
         int numOfBookies = 5;
         MultiKeyMap<String, AvailabilityOfEntriesOfLedger> returnAvailabilityOfEntriesOfLedger =
                 new MultiKeyMap<String, AvailabilityOfEntriesOfLedger>();
@@ -805,7 +855,7 @@ public class AuditorReplicasCheckTest extends BookKeeperClusterTestCase {
         numLedgersFoundHavingLessThanWQReplicasOfAnEntry++;
 
         runTestScenario(returnAvailabilityOfEntriesOfLedger, errorReturnValueForGetAvailabilityOfEntriesOfLedger, 0, 0,
-                numLedgersFoundHavingLessThanWQReplicasOfAnEntry);
+                numLedgersFoundHavingLessThanWQReplicasOfAnEntry, replicasCheckSummaryEnabled);
     }
 
     /*
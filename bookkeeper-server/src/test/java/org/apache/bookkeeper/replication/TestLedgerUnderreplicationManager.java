@@ -792,6 +792,25 @@ public class TestLedgerUnderreplicationManager {
         assertEquals(curTime, underReplicaMgr1.getCheckAllLedgersCTime());
     }
 
+    @Test
+    public void testCheckAllLedgersCheckpoint() throws Exception {
+        @Cleanup
+        LedgerUnderreplicationManager underReplicaMgr1 = lmf1.newLedgerUnderreplicationManager();
+        @Cleanup
+        LedgerUnderreplicationManager underReplicaMgr2 = lmf2.newLedgerUnderreplicationManager();
+        assertEquals(-1, underReplicaMgr1.getCheckAllLedgersCheckpoint());
+        underReplicaMgr2.setCheckAllLedgersCheckpoint(100L);
+        assertEquals(100L, underReplicaMgr1.getCheckAllLedgersCheckpoint());
+        long curTime = System.currentTimeMillis();
+        underReplicaMgr2.setCheckAllLedgersCTime(curTime);
+        underReplicaMgr2.setCheckAllLedgersCheckpoint(200L);
+        assertEquals(200L, underReplicaMgr1.getCheckAllLedgersCheckpoint());
+        assertEquals(curTime, underReplicaMgr1.getCheckAllLedgersCTime());
+        // completing checkAllLedgers clears the checkpoint
+        underReplicaMgr2.setCheckAllLedgersCTime(curTime + 1);
+        assertEquals(-1, underReplicaMgr1.getCheckAllLedgersCheckpoint());
+    }
+
     @Test
     public void testPlacementPolicyCheckCTime() throws Exception {
         @Cleanup
@@ -36,6 +36,7 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.net.URI;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Map.Entry;
@@ -44,6 +45,7 @@ import java.util.Optional;
 import java.util.TimerTask;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -437,6 +439,63 @@ public class TestReplicationWorker extends BookKeeperClusterTestCase {
 
     }
 
+    @Test
+    public void testConcurrentLedgerReplicationWithReplicationWorker() throws Exception {
+        final int numLedgers = 4;
+        List<LedgerHandle> ledgers = new ArrayList<>();
+        for (int i = 0; i < numLedgers; i++) {
+            LedgerHandle lh = bkc.createLedger(3, 3, BookKeeper.DigestType.CRC32, TESTPASSWD);
+            for (int j = 0; j < 10; j++) {
+                lh.addEntry(data);
+            }
+            ledgers.add(lh);
+        }
+        BookieId replicaToKill = ledgers.get(0).getLedgerMetadata().getAllEnsembles().get(0L).get(0);
+        LOG.info("Killing Bookie : {}", replicaToKill);
+        killBookie(replicaToKill);
+        for (LedgerHandle lh : ledgers) {
+            lh.close();
+        }
+
+        BookieId newBkAddr = startNewBookieAndReturnBookieId();
+        LOG.info("New Bookie addr : {}", newBkAddr);
+
+        ServerConfiguration conf = new ServerConfiguration(baseConf);
+        conf.setRwMaxConcurrentRereplicatingLedgers(numLedgers);
+        ReplicationWorker rw = new ReplicationWorker(conf);
+
+        // hold the writes to the new bookie, so the ledgers stay in replication
+        CountDownLatch resumeNewBookie = new CountDownLatch(1);
+        sleepBookie(newBkAddr, resumeNewBookie);
+        rw.start();
+        try {
+            for (LedgerHandle lh : ledgers) {
+                underReplicationManager.markLedgerUnderreplicated(lh.getId(), replicaToKill.toString());
+            }
+
+            Awaitility.waitAtMost(30, TimeUnit.SECONDS).untilAsserted(() ->
+                    assertEquals(numLedgers, rw.getNumLedgersInReplication()));
+            resumeNewBookie.countDown();
+
+            for (LedgerHandle lh : ledgers) {
+                while (ReplicationTestUtil.isLedgerInUnderReplication(zkc, lh.getId(), basePath)) {
+                    Thread.sleep(100);
+                }
+            }
+            Awaitility.waitAtMost(30, TimeUnit.SECONDS).untilAsserted(() ->
+                    assertEquals(0, rw.getNumLedgersInReplication()));
+
+            killAllBookies(ledgers.get(0), newBkAddr);
+
+            // Should be able to read the entries from 0-9
+            for (LedgerHandle lh : ledgers) {
+                verifyRecoveredLedgers(lh, 0, 9);
+            }
+        } finally {
+            rw.shutdown();
+        }
+    }
+
     @Test
     public void testMultipleLedgerReplicationWithReplicationWorkerBatchRead() throws Exception {
         LedgerHandle lh1 = bkc.createLedger(3, 3, BookKeeper.DigestType.CRC32, TESTPASSWD);
@@ -500,6 +559,49 @@ public class TestReplicationWorker extends BookKeeperClusterTestCase {
         }
     }
 
+    @Test
+    public void testLedgerReplicationWithReplicationWorkerDirectCopy() throws Exception {
+        LedgerHandle lh = bkc.createLedger(3, 3, BookKeeper.DigestType.CRC32, TESTPASSWD);
+        for (int i = 0; i < 200; ++i) {
+            lh.addEntry(data);
+        }
+        BookieId replicaToKill = lh.getLedgerMetadata().getAllEnsembles().get(0L).get(0);
+
+        LOG.info("Killing Bookie : {}", replicaToKill);
+        killBookie(replicaToKill);
+        lh.close();
+
+        BookieId newBkAddr = startNewBookieAndReturnBookieId();
+        LOG.info("New Bookie addr : {}", newBkAddr);
+
+        ClientConfiguration clientConfiguration = new ClientConfiguration(baseClientConf);
+        clientConfiguration.setUseV2WireProtocol(true);
+        clientConfiguration.setBatchReadEnabled(true);
+        clientConfiguration.setRereplicationDirectCopyEnabled(true);
+        clientConfiguration.setRereplicationEntryBatchSize(100);
+        TestStatsProvider statsProvider = new TestStatsProvider();
+        TestStatsLogger statsLogger = statsProvider.getStatsLogger(REPLICATION_SCOPE);
+        ReplicationWorker rw = new ReplicationWorker(new ServerConfiguration(clientConfiguration), statsLogger);
+
+        rw.start();
+        try {
+            underReplicationManager.markLedgerUnderreplicated(lh.getId(), replicaToKill.toString());
+
+            while (ReplicationTestUtil.isLedgerInUnderReplication(zkc, lh.getId(), basePath)) {
+                Thread.sleep(100);
+            }
+            // all the entries are copied from the surviving bookies
+            assertEquals(200L, statsLogger.getCounter(ReplicationStats.NUM_ENTRIES_COPIED).get().longValue());
+
+            killAllBookies(lh, newBkAddr);
+
+            // Should be able to read the entries from 0-199
+            verifyRecoveredLedgers(lh, 0, 199);
+        } finally {
+            rw.shutdown();
+        }
+    }
+
     /**
      * Tests that ReplicationWorker should fence the ledger and release ledger
      * lock after timeout. Then replication should happen normally.
@@ -1099,6 +1201,25 @@ public class TestReplicationWorker extends BookKeeperClusterTestCase {
 
     @Test
     public void testRWShutDownInTheCaseOfZKOperationFailures() throws Exception {
+        testRWShutDownInTheCaseOfZKOperationFailures(baseConf);
+    }
+
+    /**
+     * The ledger fails on a re-replication pool thread, which can't wait for its own pool on shutdown.
+     */
+    @Test
+    public void testConcurrentRWShutDownInTheCaseOfZKOperationFailures() throws Exception {
+        ServerConfiguration conf = new ServerConfiguration(baseConf);
+        conf.setRwMaxConcurrentRereplicatingLedgers(2);
+        ReplicationWorker rw = testRWShutDownInTheCaseOfZKOperationFailures(conf);
+        ExecutorService rereplicationExecutor =
+                (ExecutorService) FieldUtils.readField(rw, "rereplicationExecutor", true);
+        // the worker thread shuts the worker down and waits for the re-replication pool to terminate
+        Awaitility.waitAtMost(10, TimeUnit.SECONDS).until(rereplicationExecutor::isTerminated);
+    }
+
+    private ReplicationWorker testRWShutDownInTheCaseOfZKOperationFailures(ServerConfiguration conf)
+            throws Exception {
         /*
          * create MockZooKeeperClient instance and wait for it to be connected.
          */
@@ -1155,7 +1276,7 @@ public class TestReplicationWorker extends BookKeeperClusterTestCase {
         /*
          * Start RW.
          */
-        ReplicationWorker rw = new ReplicationWorker(baseConf, bkWithMockZK, false, NullStatsLogger.INSTANCE);
+        ReplicationWorker rw = new ReplicationWorker(conf, bkWithMockZK, false, NullStatsLogger.INSTANCE);
         rw.start();
         try {
             for (int i = 0; i < 40; i++) {
@@ -1219,6 +1340,7 @@ public class TestReplicationWorker extends BookKeeperClusterTestCase {
             zkFaultInjectionWrapper.close();
             bkWithMockZK.close();
         }
+        return rw;
     }
 
     @Test
@@ -31,6 +31,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.PrimitiveIterator;
 import java.util.Set;
+import java.util.stream.Collectors;
 import org.junit.Test;
 
 /**
@@ -93,6 +94,32 @@ public class AvailabilityOfEntriesOfLedgerTest {
         }
     }
 
+    @Test
+    public void testAvailableEntriesIterator() {
+        long[][] arrays = {
+                { 0, 1, 2 },
+                { 1, 2, 3, 5, 6, 7, 8 },
+                { 0, 1, 5 },
+                { 3 },
+                { 1, 2, 4, 5, 7, 8 },
+                { 0, 2, 4, 6, 8, 9, 10, 12 },
+                {},
+                { 1, 2, 3, 5, 6, 11, 12, 13, 14, 15, 16, 17, 100, 1000, 1001, 10000, 20000, 20001 }
+        };
+        for (int i = 0; i < arrays.length; i++) {
+            long[] tempArray = arrays[i];
+            AvailabilityOfEntriesOfLedger availabilityOfEntriesOfLedger = new AvailabilityOfEntriesOfLedger(
+                    Arrays.stream(tempArray).iterator());
+            AvailabilityOfEntriesOfLedger availabilityOfEntriesOfLedgerUsingSer = new AvailabilityOfEntriesOfLedger(
+                    availabilityOfEntriesOfLedger.serializeStateOfEntriesOfLedger());
+            List<Long> availableEntries = new ArrayList<Long>();
+            availabilityOfEntriesOfLedgerUsingSer.getAvailableEntriesIterator().forEachRemaining(
+                    (long entryId) -> availableEntries.add(entryId));
+            assertEquals("Expected available entries", Arrays.stream(tempArray).boxed().collect(Collectors.toList()),
+                    availableEntries);
+        }
+    }
+
     @Test
     public void testSerializeDeserialize() {
         long[][] arrays = {
@@ -0,0 +1,125 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.bookkeeper.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import org.apache.bookkeeper.client.RoundRobinDistributionSchedule;
+import org.junit.Test;
+
+/**
+ * Testsuite for EntriesOfLedgerSummary.
+ */
+public class EntriesOfLedgerSummaryTest {
+
+    @Test
+    public void testSummarizeMatchesExpectedSummary() {
+        long[] entries = { 0, 2, 3, 5, 6, 8, 9, 11 };
+        List<EntriesOfLedgerSummary> ranges = Arrays.asList(new EntriesOfLedgerSummary(0, 5),
+                new EntriesOfLedgerSummary(6, 11), new EntriesOfLedgerSummary(12, 20));
+        List<EntriesOfLedgerSummary> summaries = EntriesOfLedgerSummary
+                .summarize(Arrays.stream(entries).iterator(), ranges);
+        assertEquals(3, summaries.size());
+        assertEquals(4, summaries.get(0).getNumEntries());
+        assertEquals(4, summaries.get(1).getNumEntries());
+        assertEquals(0, summaries.get(2).getNumEntries());
+
+        // entries striped to the first bookie of an ensemble of 3 with write quorum 2
+        RoundRobinDistributionSchedule schedule = new RoundRobinDistributionSchedule(2, 2, 3);
+        BitSet expected = schedule.getEntriesStripedToTheBookie(0, 0, 5);
+        assertTrue(EntriesOfLedgerSummary.expectedSummary(0, 5, expected).matches(summaries.get(0)));
+        assertFalse(EntriesOfLedgerSummary.expectedSummary(0, 5, schedule.getEntriesStripedToTheBookie(1, 0, 5))
+                .matches(summaries.get(0)));
+        expected = schedule.getEntriesStripedToTheBookie(0, 6, 11);
+        assertTrue(EntriesOfLedgerSummary.expectedSummary(6, 11, expected).matches(summaries.get(1)));
+        assertTrue(EntriesOfLedgerSummary.expectedSummary(12, 20, new BitSet()).matches(summaries.get(2)));
+
+        // summarizing the complete list of entries gives the same summaries
+        List<EntriesOfLedgerSummary> summariesOfAvailability = EntriesOfLedgerSummary
+                .summarize(new AvailabilityOfEntriesOfLedger(entries), ranges);
+        for (int i = 0; i < ranges.size(); i++) {
+            assertTrue(summaries.get(i).matches(summariesOfAvailability.get(i)));
+        }
+    }
+
+    @Test
+    public void testSummarizeUnsortedAndOverlappingRanges() {
+        long[] entries = { 1, 2, 4, 7, 8, 9, 15, 16, 30 };
+        List<EntriesOfLedgerSummary> ranges = Arrays.asList(new EntriesOfLedgerSummary(10, 20),
+                new EntriesOfLedgerSummary(0, 8), new EntriesOfLedgerSummary(4, 15),
+                new EntriesOfLedgerSummary(21, 29), new EntriesOfLedgerSummary(2, 2));
+        List<EntriesOfLedgerSummary> summaries = EntriesOfLedgerSummary
+                .summarize(Arrays.stream(entries).iterator(), ranges);
+        assertEquals(ranges.size(), summaries.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            EntriesOfLedgerSummary range = ranges.get(i);
+            BitSet expected = new BitSet();
+            for (long entryId : entries) {
+                if (entryId >= range.getFirstEntryId() && entryId <= range.getLastEntryId()) {
+                    expected.set((int) (entryId - range.getFirstEntryId()));
+                }
+            }
+            EntriesOfLedgerSummary expectedSummary = EntriesOfLedgerSummary.expectedSummary(
+                    range.getFirstEntryId(), range.getLastEntryId(), expected);
+            assertTrue(expectedSummary + " != " + summaries.get(i), expectedSummary.matches(summaries.get(i)));
+        }
+        assertEquals(2, summaries.get(0).getNumEntries());
+        assertEquals(5, summaries.get(1).getNumEntries());
+        assertEquals(5, summaries.get(2).getNumEntries());
+        assertEquals(0, summaries.get(3).getNumEntries());
+        assertEquals(1, summaries.get(4).getNumEntries());
+
+        // summarizing the complete list of entries gives the same summaries
+        List<EntriesOfLedgerSummary> summariesOfAvailability = EntriesOfLedgerSummary
+                .summarize(new AvailabilityOfEntriesOfLedger(entries), ranges);
+        for (int i = 0; i < ranges.size(); i++) {
+            assertTrue(summaries.get(i).matches(summariesOfAvailability.get(i)));
+        }
+    }
+
+    @Test
+    public void testMissingEntryDoesNotMatch() {
+        List<EntriesOfLedgerSummary> ranges = Arrays.asList(new EntriesOfLedgerSummary(0, 9));
+        BitSet expected = new BitSet();
+        expected.set(0, 10);
+        EntriesOfLedgerSummary expectedSummary = EntriesOfLedgerSummary.expectedSummary(0, 9, expected);
+
+        long[] allEntries = { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+        assertTrue(expectedSummary.matches(EntriesOfLedgerSummary
+                .summarize(Arrays.stream(allEntries).iterator(), ranges).get(0)));
+
+        long[] missingEntry = { 0, 1, 2, 3, 5, 6, 7, 8, 9 };
+        assertFalse(expectedSummary.matches(EntriesOfLedgerSummary
+                .summarize(Arrays.stream(missingEntry).iterator(), ranges).get(0)));
+
+        // same number of entries, but a different entry
+        long[] replacedEntry = { 0, 1, 2, 3, 5, 6, 7, 8, 9, 10 };
+        ranges = Arrays.asList(new EntriesOfLedgerSummary(0, 10));
+        expectedSummary = EntriesOfLedgerSummary.expectedSummary(0, 10, expected);
+        assertFalse(expectedSummary.matches(EntriesOfLedgerSummary
+                .summarize(Arrays.stream(replacedEntry).iterator(), ranges).get(0)));
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.bookie;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.bookie.CheckpointSource.Checkpoint;
+import org.apache.bookkeeper.conf.ServerConfiguration;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Microbenchmark comparing the insert, get and flush of {@link EntryMemTable} and
+ * {@link OffHeapEntryMemTable}.
+ */
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 10)
+public class EntryMemTableBenchmark {
+
+    private static final int NUM_LEDGERS = 10;
+    private static final int ENTRIES_PER_LEDGER = 1000;
+    private static final int NUM_ENTRIES = NUM_LEDGERS * ENTRIES_PER_LEDGER;
+
+    private static final CacheCallback NOOP_CALLBACK = cp -> { };
+
+    private static final CheckpointSource CHECKPOINT_SOURCE = new CheckpointSource() {
+        @Override
+        public Checkpoint newCheckpoint() {
+            return Checkpoint.MIN;
+        }
+
+        @Override
+        public void checkpointComplete(Checkpoint checkpoint, boolean compact) {
+        }
+    };
+
+    /**
+     * State holding a memtable of the given implementation.
+     */
+    @State(Scope.Thread)
+    public static class MemTableState {
+        @Param({ "heap", "offheap" })
+        private String memTable;
+
+        @Param({ "100", "1024" })
+        private int entrySize;
+
+        ByteBuffer entry;
+        EntryMemTable table;
+
+        EntryMemTable newMemTable() {
+            if (entry == null) {
+                byte[] data = new byte[entrySize];
+                ThreadLocalRandom.current().nextBytes(data);
+                entry = ByteBuffer.wrap(data);
+            }
+            ServerConfiguration conf = new ServerConfiguration();
+            conf.setSkipListSizeLimit(256 * 1024 * 1024);
+            return "offheap".equals(memTable)
+                    ? new OffHeapEntryMemTable(conf, CHECKPOINT_SOURCE, NullStatsLogger.INSTANCE)
+                    : new EntryMemTable(conf, CHECKPOINT_SOURCE, NullStatsLogger.INSTANCE);
+        }
+
+        void fill() throws IOException {
+            for (long entryId = 0; entryId < ENTRIES_PER_LEDGER; entryId++) {
+                for (long ledgerId = 0; ledgerId < NUM_LEDGERS; ledgerId++) {
+                    table.addEntry(ledgerId, entryId, entry.duplicate(), NOOP_CALLBACK);
+                }
+            }
+        }
+    }
+
+    /**
+     * State with an empty memtable for each invocation.
+     */
+    public static class EmptyMemTableState extends MemTableState {
+        @Setup(Level.Invocation)
+        public void setup() {
+            table = newMemTable();
+        }
+
+        @TearDown(Level.Invocation)
+        public void teardown() throws Exception {
+            table.close();
+        }
+    }
+
+    /**
+     * State with a filled memtable.
+     */
+    public static class FilledMemTableState extends MemTableState {
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            table = newMemTable();
+            fill();
+        }
+
+        @TearDown(Level.Trial)
+        public void teardown() throws Exception {
+            table.close();
+        }
+    }
+
+    /**
+     * State with a snapshotted memtable for each invocation.
+     */
+    public static class SnapshotMemTableState extends MemTableState {
+        @Setup(Level.Invocation)
+        public void setup() throws IOException {
+            table = newMemTable();
+            fill();
+            table.snapshot();
+        }
+
+        @TearDown(Level.Invocation)
+        public void teardown() throws Exception {
+            table.close();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_ENTRIES)
+    public void insert(EmptyMemTableState s) throws IOException {
+        s.fill();
+    }
+
+    @Benchmark
+    public EntryKeyValue get(FilledMemTableState s) throws IOException {
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        return s.table.getEntry(r.nextInt(NUM_LEDGERS), r.nextInt(ENTRIES_PER_LEDGER));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_ENTRIES)
+    public long flush(SnapshotMemTableState s, Blackhole bh) throws IOException {
+        return s.table.flush((ledgerId, entryId, entry) -> bh.consume(entry.getByte(entry.readerIndex())));
+    }
+}
@@ -23,6 +23,7 @@ package org.apache.bookkeeper.bookie;
 
 import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import org.apache.bookkeeper.bookie.storage.ldb.ArrayGroupSort;
@@ -31,9 +32,11 @@ import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.annotations.Warmup;
 
 @OutputTimeUnit(TimeUnit.SECONDS)
@@ -83,6 +86,49 @@ public class GroupSortBenchmark {
         }
     }
 
+    /**
+     * The items to sort in parallel, large enough for the parallel sort to split them.
+     */
+    @State(Scope.Benchmark)
+    public static class ParallelTestState {
+
+        private static final int PARALLEL_N = 1_000_000;
+
+        @Param({"1", "2", "4", "8"})
+        private int parallelism;
+
+        private final long[] randomItems = new long[PARALLEL_N * 4];
+        private final long[] groupSortedItems;
+
+        private ForkJoinPool pool;
+        private long[] items;
+
+        public ParallelTestState() {
+            Random r = ThreadLocalRandom.current();
+            for (int i = 0; i < (PARALLEL_N * 4); i++) {
+                randomItems[i] = r.nextLong();
+            }
+
+            groupSortedItems = Arrays.copyOf(randomItems, randomItems.length);
+            ArrayGroupSort.sort(groupSortedItems);
+        }
+
+        @Setup(Level.Trial)
+        public void setupTrial() {
+            pool = new ForkJoinPool(parallelism);
+        }
+
+        @TearDown(Level.Trial)
+        public void teardownTrial() {
+            pool.shutdown();
+        }
+
+        @Setup(Level.Invocation)
+        public void setupInvocation() {
+            items = Arrays.copyOf(randomItems, randomItems.length);
+        }
+    }
+
     @Benchmark
     public void randomGroupSort(GroupSortBenchmark.TestState s) {
         ArrayGroupSort.sort(s.items);
@@ -116,4 +162,19 @@ public class GroupSortBenchmark {
     public void reverseSortedArraySort(GroupSortBenchmark.TestState s) {
         Arrays.sort(s.reverseSortedItems);
     }
+
+    @Benchmark
+    public void randomLargeGroupSort(GroupSortBenchmark.ParallelTestState s) {
+        ArrayGroupSort.sort(s.items);
+    }
+
+    @Benchmark
+    public void randomParallelGroupSort(GroupSortBenchmark.ParallelTestState s) {
+        ArrayGroupSort.parallelSort(s.items, 0, s.items.length, s.pool);
+    }
+
+    @Benchmark
+    public void preSortedParallelGroupSort(GroupSortBenchmark.ParallelTestState s) {
+        ArrayGroupSort.parallelSort(s.groupSortedItems, 0, s.groupSortedItems.length, s.pool);
+    }
 }
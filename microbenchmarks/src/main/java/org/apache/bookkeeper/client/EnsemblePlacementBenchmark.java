@@ -0,0 +1,136 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.bookkeeper.client;
+
+import io.netty.util.HashedWheelTimer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.BKException.BKNotEnoughBookiesException;
+import org.apache.bookkeeper.conf.ClientConfiguration;
+import org.apache.bookkeeper.feature.SettableFeatureProvider;
+import org.apache.bookkeeper.net.BookieId;
+import org.apache.bookkeeper.net.BookieSocketAddress;
+import org.apache.bookkeeper.net.DNSToSwitchMapping;
+import org.apache.bookkeeper.net.NetworkTopology;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Microbenchmark of {@link RackawareEnsemblePlacementPolicy#newEnsemble} across cluster sizes.
+ */
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 10)
+public class EnsemblePlacementBenchmark {
+
+    private static final int BOOKIES_PER_RACK = 20;
+
+    /**
+     * Resolves the bookies "10.x.y.z" to the rack "/rack-x-y".
+     */
+    static class RackPerSubnetResolver implements DNSToSwitchMapping {
+        @Override
+        public List<String> resolve(List<String> names) {
+            List<String> racks = new ArrayList<>(names.size());
+            for (String name : names) {
+                String[] octets = name.split("\\.");
+                racks.add(octets.length == 4 ? "/rack-" + octets[1] + "-" + octets[2]
+                        : NetworkTopology.DEFAULT_RACK);
+            }
+            return racks;
+        }
+
+        @Override
+        public void reloadCachedMappings() {
+        }
+
+        @Override
+        public boolean useHostName() {
+            return false;
+        }
+    }
+
+    /**
+     * State holding a placement policy aware of a cluster of numBookies bookies.
+     */
+    @State(Scope.Benchmark)
+    public static class PlacementState {
+        @Param({ "100", "500", "2000" })
+        private int numBookies;
+
+        @Param({ "3", "5" })
+        private int ensembleSize;
+
+        private HashedWheelTimer timer;
+        private RackawareEnsemblePlacementPolicy policy;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            ClientConfiguration conf = new ClientConfiguration();
+            timer = new HashedWheelTimer();
+            policy = new RackawareEnsemblePlacementPolicy();
+            policy.initialize(conf, Optional.of(new RackPerSubnetResolver()), timer,
+                    SettableFeatureProvider.DISABLE_ALL, NullStatsLogger.INSTANCE,
+                    BookieSocketAddress.LEGACY_BOOKIEID_RESOLVER);
+            policy.withDefaultRack(NetworkTopology.DEFAULT_RACK);
+
+            Set<BookieId> writableBookies = new HashSet<>();
+            for (int i = 0; i < numBookies; i++) {
+                int rack = i / BOOKIES_PER_RACK;
+                writableBookies.add(new BookieSocketAddress(
+                        "10." + (rack / 256) + "." + (rack % 256) + "." + (i % BOOKIES_PER_RACK + 1), 3181)
+                        .toBookieId());
+            }
+            policy.onClusterChanged(writableBookies, Collections.emptySet());
+        }
+
+        @TearDown(Level.Trial)
+        public void teardown() {
+            policy.uninitalize();
+            timer.stop();
+        }
+    }
+
+    @Benchmark
+    public Object newEnsemble(PlacementState s) throws BKNotEnoughBookiesException {
+        return s.policy.newEnsemble(s.ensembleSize, Math.min(3, s.ensembleSize), 2,
+                Collections.emptyMap(), Collections.emptySet());
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.distributedlog.io;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Microbenchmarks of the compression codecs of the distributedlog record sets.
+ *
+ * <p>The record sets are made of small json events, with the record framing of the record sets.
+ * The compression ratio of each codec is printed when the trial starts.
+ * To run:
+ * build project from command line.
+ * execute ./run.sh
+ */
+public class CompressionCodecBenchmark {
+
+    private static final int NUM_SAMPLES = 1000;
+    private static final int DICTIONARY_SIZE = 16 * 1024;
+
+    static byte[] newRecord(Random random, int i) {
+        return ("{\"id\":" + i
+                + ",\"timestamp\":" + (1700000000000L + random.nextInt(1000000))
+                + ",\"type\":\"" + (random.nextBoolean() ? "click" : "view")
+                + "\",\"user\":\"user-" + random.nextInt(10000)
+                + "\",\"page\":\"/products/" + random.nextInt(500)
+                + "\",\"session\":\"" + Long.toHexString(random.nextLong())
+                + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * CodecState.
+     */
+    @State(Scope.Thread)
+    public static class CodecState {
+
+        @Param({"lz4", "zstd", "zstd-dict", "snappy"})
+        public String codecName;
+
+        @Param({"1024", "16384", "262144"})
+        public int recordSetSize;
+
+        private CompressionCodec codec;
+
+        public ByteBuf uncompressed;
+        public ByteBuf compressed;
+
+        @Setup(Level.Trial)
+        public void doSetup() throws Exception {
+            Random random = new Random(1234L);
+            if ("zstd-dict".equals(codecName)) {
+                List<byte[]> samples = new ArrayList<>(NUM_SAMPLES);
+                for (int i = 0; i < NUM_SAMPLES; i++) {
+                    samples.add(newRecord(random, i));
+                }
+                byte[] dictionary = ZstdCompressionCodec.trainDictionary(samples, DICTIONARY_SIZE);
+                codec = CompressionUtils.getCompressionCodec(
+                        CompressionCodec.Type.ZSTD, ZstdCompressionCodec.DEFAULT_LEVEL, dictionary);
+            } else {
+                codec = CompressionUtils.getCompressionCodec(CompressionUtils.stringToType(codecName));
+            }
+
+            // a record set of length prefixed records
+            uncompressed = PooledByteBufAllocator.DEFAULT.directBuffer(recordSetSize, recordSetSize);
+            for (int i = 0; uncompressed.writableBytes() > Integer.BYTES; i++) {
+                byte[] record = newRecord(random, i);
+                int len = Math.min(record.length, uncompressed.writableBytes() - Integer.BYTES);
+                uncompressed.writeInt(len);
+                uncompressed.writeBytes(record, 0, len);
+            }
+            compressed = codec.compress(uncompressed, 0);
+            System.out.printf("%n%s compression ratio of %d bytes record sets : %.2f%n",
+                    codecName, recordSetSize, (double) recordSetSize / compressed.readableBytes());
+        }
+
+        @TearDown(Level.Trial)
+        public void doTearDown() {
+            uncompressed.release();
+            compressed.release();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2, time = 3, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 3, time = 10, timeUnit = TimeUnit.SECONDS)
+    @Threads(1)
+    @Fork(1)
+    public void compress(CodecState state) {
+        state.codec.compress(state.uncompressed, 0).release();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2, time = 3, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 3, time = 10, timeUnit = TimeUnit.SECONDS)
+    @Threads(1)
+    @Fork(1)
+    public void decompress(CodecState state) {
+        state.codec.decompress(state.compressed, state.recordSetSize).release();
+    }
+}
@@ -30,7 +30,9 @@ public interface CompressionCodec {
 
         UNKNOWN(-0x1),
         NONE(0x0),
-        LZ4(0x1);
+        LZ4(0x1),
+        ZSTD(0x2),
+        SNAPPY(0x3);
 
         private int code;
 
@@ -48,6 +50,10 @@ public interface CompressionCodec {
                     return NONE;
                 case 0x1:
                     return LZ4;
+                case 0x2:
+                    return ZSTD;
+                case 0x3:
+                    return SNAPPY;
                 default:
                     return UNKNOWN;
             }
@@ -17,14 +17,28 @@
  */
 package org.apache.distributedlog.io;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /**
  * Utils for compression related operations.
  */
 public class CompressionUtils {
 
     public static final String LZ4 = "lz4";
+    public static final String ZSTD = "zstd";
+    public static final String SNAPPY = "snappy";
     public static final String NONE = "none";
 
+    // dictionaries loaded from files, by file name
+    private static final ConcurrentMap<String, byte[]> dictionaries = new ConcurrentHashMap<>();
+
     /**
      * Get a cached compression codec instance for the specified type.
      * @param type compression codec type
@@ -33,11 +47,72 @@ public class CompressionUtils {
     public static CompressionCodec getCompressionCodec(CompressionCodec.Type type) {
         if (type == CompressionCodec.Type.LZ4) {
             return LZ4CompressionCodec.of();
+        } else if (type == CompressionCodec.Type.ZSTD) {
+            return ZstdCompressionCodec.of();
+        } else if (type == CompressionCodec.Type.SNAPPY) {
+            return SnappyCompressionCodec.of();
         }
         // No Compression
         return IdentityCompressionCodec.of();
     }
 
+    /**
+     * Get a compression codec instance for the specified type, compressing at the given level with the
+     * given dictionary. The level and the dictionary only apply to the zstd codec.
+     *
+     * @param type compression codec type
+     * @param level compression level
+     * @param dictionary compression dictionary, or null if none
+     * @return compression codec instance
+     */
+    public static CompressionCodec getCompressionCodec(CompressionCodec.Type type, int level, byte[] dictionary) {
+        if (type == CompressionCodec.Type.ZSTD) {
+            return ZstdCompressionCodec.of(level, dictionary);
+        }
+        return getCompressionCodec(type);
+    }
+
+    /**
+     * Load a compression dictionary from a file, and register it to decompress the data compressed with it.
+     * The dictionaries are loaded once and cached.
+     *
+     * @param dictionaryFile file of the dictionary, or empty if none
+     * @return the dictionary, or null if no dictionary file is specified
+     * @throws IOException if failed to read the dictionary file
+     */
+    public static byte[] loadDictionary(String dictionaryFile) throws IOException {
+        if (null == dictionaryFile || dictionaryFile.isEmpty()) {
+            return null;
+        }
+        try {
+            return dictionaries.computeIfAbsent(dictionaryFile, file -> {
+                try {
+                    byte[] dictionary = Files.readAllBytes(Paths.get(file));
+                    ZstdCompressionCodec.registerDictionary(dictionary);
+                    return dictionary;
+                } catch (IOException ioe) {
+                    throw new UncheckedIOException(ioe);
+                }
+            });
+        } catch (UncheckedIOException uioe) {
+            throw uioe.getCause();
+        }
+    }
+
+    /**
+     * Get a direct buffer with the readable bytes of the buffer, for the native codecs.
+     * The buffer is returned if it is already direct, otherwise the returned copy has to be released.
+     */
+    static ByteBuf toDirectBuffer(ByteBuf buf) {
+        if (buf.isDirect() && buf.nioBufferCount() == 1) {
+            return buf;
+        }
+        int len = buf.readableBytes();
+        ByteBuf direct = PooledByteBufAllocator.DEFAULT.directBuffer(len, len);
+        direct.writeBytes(buf, buf.readerIndex(), len);
+        return direct;
+    }
+
     /**
      * Compression type value from string.
      * @param compressionString compression codec presentation in string
@@ -46,6 +121,10 @@ public class CompressionUtils {
     public static CompressionCodec.Type stringToType(String compressionString) {
         if (compressionString.equals(LZ4)) {
             return CompressionCodec.Type.LZ4;
+        } else if (compressionString.equals(ZSTD)) {
+            return CompressionCodec.Type.ZSTD;
+        } else if (compressionString.equals(SNAPPY)) {
+            return CompressionCodec.Type.SNAPPY;
         } else if (compressionString.equals(NONE)) {
             return CompressionCodec.Type.NONE;
         } else {
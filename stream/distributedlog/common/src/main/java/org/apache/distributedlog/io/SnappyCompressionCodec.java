@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.distributedlog.io;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.util.ReferenceCountUtil;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import org.xerial.snappy.Snappy;
+
+/**
+ * A snappy compression codec implementation for {@link CompressionCodec}.
+ */
+public class SnappyCompressionCodec implements CompressionCodec {
+
+    public static SnappyCompressionCodec of() {
+        return INSTANCE;
+    }
+
+    private static final SnappyCompressionCodec INSTANCE = new SnappyCompressionCodec();
+
+    @Override
+    public ByteBuf compress(ByteBuf uncompressed, int headerLen) {
+        checkNotNull(uncompressed);
+        checkArgument(uncompressed.readableBytes() > 0);
+
+        int uncompressedLen = uncompressed.readableBytes();
+        int maxLen = Snappy.maxCompressedLength(uncompressedLen);
+
+        ByteBuf source = CompressionUtils.toDirectBuffer(uncompressed);
+        ByteBuf compressed = PooledByteBufAllocator.DEFAULT.directBuffer(maxLen + headerLen, maxLen + headerLen);
+        try {
+            ByteBuffer uncompressedNio = source.nioBuffer(source.readerIndex(), uncompressedLen);
+            ByteBuffer compressedNio = compressed.nioBuffer(headerLen, maxLen);
+            int compressedLen = Snappy.compress(uncompressedNio, compressedNio);
+            compressed.writerIndex(compressedLen + headerLen);
+            return compressed;
+        } catch (IOException ioe) {
+            ReferenceCountUtil.release(compressed);
+            throw new UncheckedIOException("Failed to compress data", ioe);
+        } finally {
+            if (source != uncompressed) {
+                ReferenceCountUtil.release(source);
+            }
+        }
+    }
+
+    @Override
+    public ByteBuf decompress(ByteBuf compressed, int decompressedSize) {
+        checkNotNull(compressed);
+        checkArgument(compressed.readableBytes() >= 0);
+        checkArgument(decompressedSize >= 0);
+
+        ByteBuf source = CompressionUtils.toDirectBuffer(compressed);
+        ByteBuf uncompressed = PooledByteBufAllocator.DEFAULT.directBuffer(decompressedSize, decompressedSize);
+        try {
+            ByteBuffer compressedNio = source.nioBuffer(source.readerIndex(), source.readableBytes());
+            ByteBuffer uncompressedNio = uncompressed.nioBuffer(0, decompressedSize);
+            int uncompressedLen = Snappy.uncompress(compressedNio, uncompressedNio);
+            if (uncompressedLen != decompressedSize) {
+                throw new IOException("Inconsistent decompressed size : expected = " + decompressedSize
+                        + ", actual = " + uncompressedLen);
+            }
+            uncompressed.writerIndex(decompressedSize);
+            return uncompressed;
+        } catch (IOException ioe) {
+            ReferenceCountUtil.release(uncompressed);
+            throw new UncheckedIOException("Failed to decompress data", ioe);
+        } finally {
+            if (source != compressed) {
+                ReferenceCountUtil.release(source);
+            }
+        }
+    }
+}
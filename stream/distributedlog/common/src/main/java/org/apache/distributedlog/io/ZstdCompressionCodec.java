@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.distributedlog.io;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.util.ReferenceCountUtil;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A zstd compression codec implementation for {@link CompressionCodec}.
+ *
+ * <p>The codec optionally compresses the data with a dictionary, trained from samples of the data by
+ * {@link #trainDictionary(List, int)}. A dictionary greatly improves the compression ratio of small
+ * entries. The id of the dictionary is written in the zstd frame, so the dictionary used to compress
+ * an entry is looked up by its id when decompressing it: a dictionary has to be registered by
+ * {@link #registerDictionary(byte[])} in the processes reading the entries compressed with it.
+ */
+public class ZstdCompressionCodec implements CompressionCodec {
+
+    public static final int DEFAULT_LEVEL = 3;
+
+    private static final ZstdCompressionCodec INSTANCE = new ZstdCompressionCodec(DEFAULT_LEVEL, null);
+
+    // codecs compressing with a dictionary, by level and dictionary id
+    private static final ConcurrentMap<String, ZstdCompressionCodec> codecs = new ConcurrentHashMap<>();
+    // dictionaries used for decompression, by dictionary id
+    private static final ConcurrentMap<Long, ZstdDictDecompress> decompressDictionaries = new ConcurrentHashMap<>();
+
+    public static ZstdCompressionCodec of() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get a zstd codec compressing at the given level with the given dictionary.
+     *
+     * @param level compression level
+     * @param dictionary dictionary to compress with, or null to compress without dictionary
+     * @return zstd compression codec
+     */
+    public static ZstdCompressionCodec of(int level, byte[] dictionary) {
+        if (DEFAULT_LEVEL == level && null == dictionary) {
+            return INSTANCE;
+        }
+        long dictId = null == dictionary ? 0L : registerDictionary(dictionary);
+        return codecs.computeIfAbsent(level + ":" + dictId, key -> new ZstdCompressionCodec(level, dictionary));
+    }
+
+    /**
+     * Register a dictionary to decompress the data compressed with it.
+     *
+     * @param dictionary zstd dictionary
+     * @return the id of the dictionary
+     */
+    public static long registerDictionary(byte[] dictionary) {
+        checkNotNull(dictionary);
+        long dictId = Zstd.getDictIdFromDict(dictionary);
+        checkArgument(dictId != 0, "Invalid zstd dictionary");
+        decompressDictionaries.computeIfAbsent(dictId, id -> new ZstdDictDecompress(dictionary));
+        return dictId;
+    }
+
+    /**
+     * Train a dictionary from samples of the data to compress.
+     *
+     * @param samples samples of the data to compress
+     * @param dictionarySize max size of the dictionary
+     * @return the dictionary
+     */
+    public static byte[] trainDictionary(List<byte[]> samples, int dictionarySize) {
+        byte[] dictionary = new byte[dictionarySize];
+        long size = Zstd.trainFromBuffer(samples.toArray(new byte[samples.size()][]), dictionary);
+        if (Zstd.isError(size)) {
+            throw new IllegalArgumentException("Failed to train zstd dictionary : " + Zstd.getErrorName(size));
+        }
+        byte[] trained = new byte[(int) size];
+        System.arraycopy(dictionary, 0, trained, 0, trained.length);
+        return trained;
+    }
+
+    private final int level;
+    private final ZstdDictCompress compressDictionary;
+
+    private ZstdCompressionCodec(int level, byte[] dictionary) {
+        this.level = level;
+        this.compressDictionary = null == dictionary ? null : new ZstdDictCompress(dictionary, level);
+    }
+
+    @Override
+    public ByteBuf compress(ByteBuf uncompressed, int headerLen) {
+        checkNotNull(uncompressed);
+        checkArgument(uncompressed.readableBytes() > 0);
+
+        int uncompressedLen = uncompressed.readableBytes();
+        int maxLen = (int) Zstd.compressBound(uncompressedLen);
+
+        ByteBuf source = CompressionUtils.toDirectBuffer(uncompressed);
+        ByteBuf compressed = PooledByteBufAllocator.DEFAULT.directBuffer(maxLen + headerLen, maxLen + headerLen);
+        try {
+            ByteBuffer uncompressedNio = source.nioBuffer(source.readerIndex(), uncompressedLen);
+            ByteBuffer compressedNio = compressed.nioBuffer(headerLen, maxLen);
+            long compressedLen;
+            if (null == compressDictionary) {
+                compressedLen = Zstd.compressDirectByteBuffer(
+                        compressedNio, compressedNio.position(), maxLen,
+                        uncompressedNio, uncompressedNio.position(), uncompressedLen,
+                        level);
+            } else {
+                compressedLen = Zstd.compressDirectByteBufferFastDict(
+                        compressedNio, compressedNio.position(), maxLen,
+                        uncompressedNio, uncompressedNio.position(), uncompressedLen,
+                        compressDictionary);
+            }
+            if (Zstd.isError(compressedLen)) {
+                ReferenceCountUtil.release(compressed);
+                throw new IllegalStateException("Failed to compress data : " + Zstd.getErrorName(compressedLen));
+            }
+            compressed.writerIndex((int) compressedLen + headerLen);
+            return compressed;
+        } finally {
+            if (source != uncompressed) {
+                ReferenceCountUtil.release(source);
+            }
+        }
+    }
+
+    @Override
+    public ByteBuf decompress(ByteBuf compressed, int decompressedSize) {
+        checkNotNull(compressed);
+        checkArgument(compressed.readableBytes() >= 0);
+        checkArgument(decompressedSize >= 0);
+
+        ByteBuf source = CompressionUtils.toDirectBuffer(compressed);
+        ByteBuf uncompressed = PooledByteBufAllocator.DEFAULT.directBuffer(decompressedSize, decompressedSize);
+        try {
+            ByteBuffer compressedNio = source.nioBuffer(source.readerIndex(), source.readableBytes());
+            ByteBuffer uncompressedNio = uncompressed.nioBuffer(0, decompressedSize);
+            long dictId = Zstd.getDictIdFromFrameBuffer(compressedNio);
+            long uncompressedLen;
+            if (0 == dictId) {
+                uncompressedLen = Zstd.decompressDirectByteBuffer(
+                        uncompressedNio, uncompressedNio.position(), decompressedSize,
+                        compressedNio, compressedNio.position(), compressedNio.remaining());
+            } else {
+                ZstdDictDecompress dictionary = decompressDictionaries.get(dictId);
+                if (null == dictionary) {
+                    ReferenceCountUtil.release(uncompressed);
+                    throw new IllegalStateException("Unknown zstd dictionary " + dictId);
+                }
+                uncompressedLen = Zstd.decompressDirectByteBufferFastDict(
+                        uncompressedNio, uncompressedNio.position(), decompressedSize,
+                        compressedNio, compressedNio.position(), compressedNio.remaining(),
+                        dictionary);
+            }
+            if (Zstd.isError(uncompressedLen)) {
+                ReferenceCountUtil.release(uncompressed);
+                throw new IllegalStateException("Failed to decompress data : " + Zstd.getErrorName(uncompressedLen));
+            }
+            if (uncompressedLen != decompressedSize) {
+                ReferenceCountUtil.release(uncompressed);
+                throw new IllegalStateException("Inconsistent decompressed size : expected = " + decompressedSize
+                        + ", actual = " + uncompressedLen);
+            }
+            uncompressed.writerIndex(decompressedSize);
+            return uncompressed;
+        } finally {
+            if (source != compressed) {
+                ReferenceCountUtil.release(source);
+            }
+        }
+    }
+}
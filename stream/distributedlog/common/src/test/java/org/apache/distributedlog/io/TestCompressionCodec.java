@@ -20,12 +20,17 @@ package org.apache.distributedlog.io;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import io.netty.util.ReferenceCountUtil;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Test;
 
 /**
@@ -50,6 +55,16 @@ public class TestCompressionCodec {
         testCompressionCodec(CompressionUtils.getCompressionCodec(CompressionCodec.Type.LZ4));
     }
 
+    @Test(timeout = 10000)
+    public void testZstdCompressionCodec() throws Exception {
+        testCompressionCodec(CompressionUtils.getCompressionCodec(CompressionCodec.Type.ZSTD));
+    }
+
+    @Test(timeout = 10000)
+    public void testSnappyCompressionCodec() throws Exception {
+        testCompressionCodec(CompressionUtils.getCompressionCodec(CompressionCodec.Type.SNAPPY));
+    }
+
     @Test(timeout = 10000)
     public void testIdentityCompressionCodec2() throws Exception {
         testCompressionCodec2(CompressionUtils.getCompressionCodec(CompressionCodec.Type.NONE));
@@ -60,6 +75,73 @@ public class TestCompressionCodec {
         testCompressionCodec2(CompressionUtils.getCompressionCodec(CompressionCodec.Type.LZ4));
     }
 
+    @Test(timeout = 10000)
+    public void testZstdCompressionCodec2() throws Exception {
+        testCompressionCodec2(CompressionUtils.getCompressionCodec(CompressionCodec.Type.ZSTD));
+        testCompressionCodec2(CompressionUtils.getCompressionCodec(CompressionCodec.Type.ZSTD, 9, null));
+    }
+
+    @Test(timeout = 10000)
+    public void testSnappyCompressionCodec2() throws Exception {
+        testCompressionCodec2(CompressionUtils.getCompressionCodec(CompressionCodec.Type.SNAPPY));
+    }
+
+    @Test(timeout = 10000)
+    public void testZstdDecompressInconsistentSize() throws Exception {
+        CompressionCodec codec = CompressionUtils.getCompressionCodec(CompressionCodec.Type.ZSTD);
+        byte[] data = "zstd-compression-codec".getBytes(UTF_8);
+        ByteBuf buf = Unpooled.wrappedBuffer(data);
+        ByteBuf compressedBuf = codec.compress(buf, 0);
+        try {
+            codec.decompress(compressedBuf, data.length + 16);
+            fail("Should fail to decompress a frame shorter than the expected size");
+        } catch (IllegalStateException ise) {
+            // expected
+        } finally {
+            ReferenceCountUtil.release(buf);
+            ReferenceCountUtil.release(compressedBuf);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testCompressionTypes() throws Exception {
+        assertEquals(CompressionCodec.Type.ZSTD, CompressionUtils.stringToType("zstd"));
+        assertEquals(CompressionCodec.Type.SNAPPY, CompressionUtils.stringToType("snappy"));
+        for (CompressionCodec.Type type : CompressionCodec.Type.values()) {
+            assertSame(type, CompressionCodec.Type.of(type.code()));
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testZstdCompressionCodecWithDictionary() throws Exception {
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            samples.add(("{\"id\":" + i + ",\"type\":\"event\",\"source\":\"host-" + (i % 10)
+                    + "\",\"payload\":\"value-" + i + "\"}").getBytes(UTF_8));
+        }
+        byte[] dictionary = ZstdCompressionCodec.trainDictionary(samples, 4096);
+        CompressionCodec codec = CompressionUtils.getCompressionCodec(CompressionCodec.Type.ZSTD, 3, dictionary);
+        assertSame(codec, CompressionUtils.getCompressionCodec(CompressionCodec.Type.ZSTD, 3, dictionary));
+
+        byte[] data = samples.get(42);
+        ByteBuf buf = Unpooled.wrappedBuffer(data);
+        ByteBuf compressedWithDict = codec.compress(buf, 0);
+        ByteBuf compressedWithoutDict = ZstdCompressionCodec.of().compress(buf, 0);
+        assertTrue("The dictionary should improve the compression ratio",
+                compressedWithDict.readableBytes() < compressedWithoutDict.readableBytes());
+
+        // the default codec looks up the dictionary to decompress the data
+        ByteBuf decompressedBuf = ZstdCompressionCodec.of().decompress(compressedWithDict, data.length);
+        byte[] decompressedData = new byte[data.length];
+        decompressedBuf.readBytes(decompressedData);
+        assertArrayEquals("The decompressed bytes should be same as the original bytes",
+                data, decompressedData);
+        ReferenceCountUtil.release(buf);
+        ReferenceCountUtil.release(compressedWithDict);
+        ReferenceCountUtil.release(compressedWithoutDict);
+        ReferenceCountUtil.release(decompressedBuf);
+    }
+
     private void testCompressionCodec(CompressionCodec codec) throws Exception {
         byte[] data = "identity-compression-codec".getBytes(UTF_8);
         ByteBuf buf = Unpooled.wrappedBuffer(data);
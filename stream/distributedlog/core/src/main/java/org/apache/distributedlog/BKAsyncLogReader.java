@@ -129,6 +129,7 @@ class BKAsyncLogReader implements AsyncLogReader, Runnable, AsyncNotification {
     private final Counter idleReaderCheckIdleReadRequestCount;
     private final Counter idleReaderCheckIdleReadAheadCount;
     private final Counter idleReaderError;
+    private final StatsLogger readAheadStatsLogger;
 
     private class PendingReadRequest {
         private final Stopwatch enqueueTime;
@@ -238,6 +239,7 @@ class BKAsyncLogReader implements AsyncLogReader, Runnable, AsyncNotification {
         idleReaderCheckCount = asyncReaderStatsLogger.getCounter("idle_reader_check_total");
         idleReaderCheckIdleReadRequestCount = asyncReaderStatsLogger.getCounter("idle_reader_check_idle_read_requests");
         idleReaderCheckIdleReadAheadCount = asyncReaderStatsLogger.getCounter("idle_reader_check_idle_readahead");
+        readAheadStatsLogger = asyncReaderStatsLogger.scope("readahead");
 
         // Lock the stream if requested. The lock will be released when the reader is closed.
         this.lockStream = false;
@@ -426,7 +428,8 @@ class BKAsyncLogReader implements AsyncLogReader, Runnable, AsyncNotification {
                     bkDistributedLogManager.getReaderEntryStore(),
                     bkDistributedLogManager.getScheduler(),
                     Ticker.systemTicker(),
-                    bkDistributedLogManager.alertStatsLogger);
+                    bkDistributedLogManager.alertStatsLogger,
+                    readAheadStatsLogger);
             readHandler.checkLogStreamExists().whenComplete(new FutureEventListener<Void>() {
                 @Override
                 public void onSuccess(Void value) {
@@ -123,6 +123,8 @@ class BKDistributedLogManager implements DistributedLogManager {
     // Writer Related Variables
     //
     private final PermitLimiter writeLimiter;
+    // shared periodic flush of the log segment writers, null if the writers flush by themselves
+    private final SharedFlushScheduler sharedFlushScheduler;
 
     //
     // Reader Related Variables
@@ -168,6 +170,37 @@ class BKDistributedLogManager implements DistributedLogManager {
                             StatsLogger statsLogger,
                             StatsLogger perLogStatsLogger,
                             Optional<AsyncCloseable> resourcesCloseable) {
+        this(name, conf, dynConf, uri, driver, logSegmentMetadataCache, scheduler, clientId, regionId,
+                writeLimiter, null, featureProvider, failureInjector, statsLogger, perLogStatsLogger,
+                resourcesCloseable);
+    }
+
+    /**
+     * Create a {@link DistributedLogManager} with supplied resources, whose log segment writers are
+     * flushed by the shared periodic flush <i>sharedFlushScheduler</i>.
+     *
+     * @param sharedFlushScheduler shared periodic flush of the log segment writers, or null if the
+     *                             log segment writers schedule their own periodic flush
+     * @see #BKDistributedLogManager(String, DistributedLogConfiguration, DynamicDistributedLogConfiguration,
+     *      URI, NamespaceDriver, LogSegmentMetadataCache, OrderedScheduler, String, Integer, PermitLimiter,
+     *      FeatureProvider, AsyncFailureInjector, StatsLogger, StatsLogger, Optional)
+     */
+    BKDistributedLogManager(String name,
+                            DistributedLogConfiguration conf,
+                            DynamicDistributedLogConfiguration dynConf,
+                            URI uri,
+                            NamespaceDriver driver,
+                            LogSegmentMetadataCache logSegmentMetadataCache,
+                            OrderedScheduler scheduler,
+                            String clientId,
+                            Integer regionId,
+                            PermitLimiter writeLimiter,
+                            SharedFlushScheduler sharedFlushScheduler,
+                            FeatureProvider featureProvider,
+                            AsyncFailureInjector failureInjector,
+                            StatsLogger statsLogger,
+                            StatsLogger perLogStatsLogger,
+                            Optional<AsyncCloseable> resourcesCloseable) {
         this.name = name;
         this.conf = conf;
         this.dynConf = dynConf;
@@ -182,6 +215,7 @@ class BKDistributedLogManager implements DistributedLogManager {
         this.clientId = clientId;
         this.streamIdentifier = conf.getUnpartitionedStreamName();
         this.writeLimiter = writeLimiter;
+        this.sharedFlushScheduler = sharedFlushScheduler;
         // Feature Provider
         this.featureProvider = featureProvider;
         // Failure Injector
@@ -397,6 +431,7 @@ class BKDistributedLogManager implements DistributedLogManager {
                 writeLimiter,
                 featureProvider,
                 dynConf,
+                sharedFlushScheduler,
                 lock);
         if (lockHandler) {
             writeHandler.lockHandler().whenComplete(new FutureEventListener<DistributedLock>() {
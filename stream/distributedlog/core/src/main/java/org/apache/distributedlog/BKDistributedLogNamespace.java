@@ -92,6 +92,7 @@ public class BKDistributedLogNamespace implements Namespace {
     // resources
     private final OrderedScheduler scheduler;
     private final PermitLimiter writeLimiter;
+    private final SharedFlushScheduler sharedFlushScheduler;
     private final AsyncFailureInjector failureInjector;
     // log segment metadata store
     private final LogSegmentMetadataCache logSegmentMetadataCache;
@@ -129,6 +130,14 @@ public class BKDistributedLogNamespace implements Namespace {
 
         // create a log segment metadata cache
         this.logSegmentMetadataCache = new LogSegmentMetadataCache(conf, Ticker.systemTicker());
+
+        // create a shared periodic flush for the log segment writers
+        if (conf.getSharedFlushTickMilliSeconds() > 0) {
+            this.sharedFlushScheduler = new SharedFlushScheduler(
+                    scheduler, conf.getSharedFlushTickMilliSeconds(), statsLogger.scope("shared_flush"));
+        } else {
+            this.sharedFlushScheduler = null;
+        }
     }
 
     @Override
@@ -306,6 +315,7 @@ public class BKDistributedLogNamespace implements Namespace {
                 clientId,                           /* Client Id */
                 regionId,                           /* Region Id */
                 writeLimiter,                       /* Write Limiter */
+                sharedFlushScheduler,               /* Shared Periodic Flush */
                 featureProvider.scope("dl"),        /* Feature Provider */
                 failureInjector,                    /* Failure Injector */
                 statsLogger,                        /* Stats Logger */
@@ -337,6 +347,10 @@ public class BKDistributedLogNamespace implements Namespace {
         }
         // close the write limiter
         this.writeLimiter.close();
+        // stop the shared periodic flush
+        if (null != sharedFlushScheduler) {
+            sharedFlushScheduler.close();
+        }
         // shutdown the driver
         Utils.close(driver);
         // Shutdown the schedulers
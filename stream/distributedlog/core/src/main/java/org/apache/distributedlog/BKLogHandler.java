@@ -31,12 +31,14 @@ import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.function.Function;
 import org.apache.bookkeeper.common.concurrent.FutureEventListener;
 import org.apache.bookkeeper.common.concurrent.FutureUtils;
 import org.apache.bookkeeper.common.util.OrderedScheduler;
 import org.apache.bookkeeper.stats.AlertStatsLogger;
+import org.apache.bookkeeper.stats.Counter;
 import org.apache.bookkeeper.stats.OpStatsLogger;
 import org.apache.bookkeeper.stats.StatsLogger;
 import org.apache.bookkeeper.versioning.Version;
@@ -76,6 +78,14 @@ import org.slf4j.LoggerFactory;
  * <li>negative_get_completed_segment: record the negative values for `get_completed_segment`.
  * <li>recover_last_entry: recovering last entry from a log segment
  * <li>recover_scanned_entries: the number of entries that are scanned during recovering.
+ * <li>metadata_bytes_read: the bytes of log segment metadata, as returned by the metadata store,
+ * read on updating the log segment list.
+ * </ul>
+ *
+ * <p>The counters of the log segments added to the log segment list on updating it:
+ * <ul>
+ * <li>segments_fetched: the log segments whose metadata is read from the metadata store.
+ * <li>segments_reused: the log segments whose metadata is found in the log segment metadata cache.
  * </ul>
  * @see BKLogWriteHandler
  * @see BKLogReadHandler
@@ -114,6 +124,9 @@ abstract class BKLogHandler implements AsyncCloseable, AsyncAbortable {
     private final OpStatsLogger negativeGetCompletedSegmentStat;
     private final OpStatsLogger recoverLastEntryStats;
     private final OpStatsLogger recoverScannedEntriesStats;
+    private final Counter segmentsFetchedCounter;
+    private final Counter segmentsReusedCounter;
+    private final OpStatsLogger metadataBytesReadStats;
 
     /**
      * Construct a Bookkeeper journal manager.
@@ -154,6 +167,9 @@ abstract class BKLogHandler implements AsyncCloseable, AsyncAbortable {
         negativeGetCompletedSegmentStat = segmentsLogger.getOpStatsLogger("negative_get_completed_segment");
         recoverLastEntryStats = segmentsLogger.getOpStatsLogger("recover_last_entry");
         recoverScannedEntriesStats = segmentsLogger.getOpStatsLogger("recover_scanned_entries");
+        segmentsFetchedCounter = segmentsLogger.getCounter("segments_fetched");
+        segmentsReusedCounter = segmentsLogger.getCounter("segments_reused");
+        metadataBytesReadStats = segmentsLogger.getOpStatsLogger("metadata_bytes_read");
     }
 
     BKLogHandler checkMetadataException() throws IOException {
@@ -554,23 +570,26 @@ abstract class BKLogHandler implements AsyncCloseable, AsyncAbortable {
      * @return log segment metadata
      */
     protected LogSegmentMetadata removeLogSegmentFromCache(String name) {
-        metadataCache.invalidate(name);
+        metadataCache.invalidate(logMetadata.getLogSegmentPath(name));
         return logSegmentCache.remove(name);
     }
 
     /**
      * Update the log segment cache with updated mapping.
      *
+     * <p>The log segment metadata is cached by the path of the log segment in the metadata cache shared
+     * by the handlers of the namespace, so the metadata of the log segments is parsed once.
+     *
      * @param logSegmentsRemoved log segments removed
      * @param logSegmentsAdded log segments added
      */
     protected void updateLogSegmentCache(Set<String> logSegmentsRemoved,
                                          Map<String, LogSegmentMetadata> logSegmentsAdded) {
         for (String segmentName : logSegmentsRemoved) {
-            metadataCache.invalidate(segmentName);
+            metadataCache.invalidate(logMetadata.getLogSegmentPath(segmentName));
         }
         for (Map.Entry<String, LogSegmentMetadata> entry : logSegmentsAdded.entrySet()) {
-            metadataCache.put(entry.getKey(), entry.getValue());
+            metadataCache.put(logMetadata.getLogSegmentPath(entry.getKey()), entry.getValue());
         }
         logSegmentCache.update(logSegmentsRemoved, logSegmentsAdded);
     }
@@ -603,6 +622,12 @@ abstract class BKLogHandler implements AsyncCloseable, AsyncAbortable {
         return readResult;
     }
 
+    /**
+     * Update the log segment list with the log segment names received from the store.
+     *
+     * <p>The log segment list is updated incrementally: only the metadata of the log segments added since
+     * last update is read, unless it is found in the metadata cache. The unchanged log segments are kept.
+     */
     protected void readLogSegmentsFromStore(final Versioned<List<String>> logSegmentNames,
                                             final Comparator<LogSegmentMetadata> comparator,
                                             final LogSegmentFilter segmentFilter,
@@ -639,10 +664,12 @@ abstract class BKLogHandler implements AsyncCloseable, AsyncAbortable {
 
         final AtomicInteger numChildren = new AtomicInteger(segmentsAdded.size());
         final AtomicInteger numFailures = new AtomicInteger(0);
+        final AtomicLong numBytesRead = new AtomicLong(0L);
         for (final String segment: segmentsAdded) {
             String logSegmentPath = logMetadata.getLogSegmentPath(segment);
             LogSegmentMetadata cachedSegment = metadataCache.get(logSegmentPath);
             if (null != cachedSegment) {
+                segmentsReusedCounter.inc();
                 addedSegments.put(segment, cachedSegment);
                 completeReadLogSegmentsFromStore(
                         removedSegments,
@@ -651,10 +678,12 @@ abstract class BKLogHandler implements AsyncCloseable, AsyncAbortable {
                         readResult,
                         logSegmentNames.getVersion(),
                         numChildren,
-                        numFailures);
+                        numFailures,
+                        numBytesRead);
                 continue;
             }
-            metadataStore.getLogSegment(logSegmentPath)
+            segmentsFetchedCounter.inc();
+            metadataStore.getLogSegment(logSegmentPath, numBytesRead::addAndGet)
                     .whenComplete(new FutureEventListener<LogSegmentMetadata>() {
 
                         @Override
@@ -689,7 +718,8 @@ abstract class BKLogHandler implements AsyncCloseable, AsyncAbortable {
                                     readResult,
                                     logSegmentNames.getVersion(),
                                     numChildren,
-                                    numFailures);
+                                    numFailures,
+                                    numBytesRead);
                         }
                     });
         }
@@ -702,13 +732,15 @@ abstract class BKLogHandler implements AsyncCloseable, AsyncAbortable {
                                                           readResult,
                                                   final Version logSegmentNamesVersion,
                                                   final AtomicInteger numChildren,
-                                                  final AtomicInteger numFailures) {
+                                                  final AtomicInteger numFailures,
+                                                  final AtomicLong numBytesRead) {
         if (0 != numChildren.decrementAndGet()) {
             return;
         }
         if (numFailures.get() > 0) {
             return;
         }
+        metadataBytesReadStats.registerSuccessfulValue(numBytesRead.get());
         // update the cache only when fetch completed and before #getCachedLogSegments
         updateLogSegmentCache(removedSegments, addedSegments);
         List<LogSegmentMetadata> segmentList;
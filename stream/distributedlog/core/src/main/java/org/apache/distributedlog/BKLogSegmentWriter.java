@@ -107,6 +107,9 @@ import org.slf4j.LoggerFactory;
 class BKLogSegmentWriter implements LogSegmentWriter, AddCallback, Runnable, Sizable {
     static final Logger LOG = LoggerFactory.getLogger(BKLogSegmentWriter.class);
 
+    // weight of the arrival rate of the last tick in the smoothed record arrival rate
+    private static final double RECORD_ARRIVAL_RATE_WEIGHT = 0.2;
+
     final Writer REJECT_WRITES_WRITER = new Writer() {
         @Override
         public void writeRecord(LogRecord record, CompletableFuture<DLSN> transmitPromise)
@@ -134,6 +137,11 @@ class BKLogSegmentWriter implements LogSegmentWriter, AddCallback, Runnable, Siz
             return INVALID_TXID;
         }
 
+        @Override
+        public long getMinTxId() {
+            return INVALID_TXID;
+        }
+
         @Override
         public ByteBuf getBuffer() throws InvalidEnvelopedEntryException, IOException {
             throw new IOException("GetBuffer is not supported.");
@@ -166,6 +174,7 @@ class BKLogSegmentWriter implements LogSegmentWriter, AddCallback, Runnable, Siz
     private final int transmissionThreshold;
     protected final LogSegmentEntryWriter entryWriter;
     private final CompressionCodec.Type compressionType;
+    private final CompressionCodec compressionCodec;
     private final ReentrantLock transmitLock = new ReentrantLock();
     private static final AtomicIntegerFieldUpdater<BKLogSegmentWriter> transmitResultUpdater =
         AtomicIntegerFieldUpdater.newUpdater(BKLogSegmentWriter.class, "transmitResult");
@@ -192,6 +201,15 @@ class BKLogSegmentWriter implements LogSegmentWriter, AddCallback, Runnable, Siz
     private Stopwatch lastTransmit;
     private boolean streamEnded = false;
     private final ScheduledFuture<?> periodicFlushSchedule;
+    // the shared periodic flush of the namespace, if the writer is flushed by it
+    private final SharedFlushScheduler sharedFlushScheduler;
+    private final boolean adaptiveFlushInterval;
+    private final long maxFlushIntervalNanos;
+    private long lastFlushNanos;
+    private long lastRateUpdateNanos;
+    private long numRecordsSinceRateUpdate = 0L;
+    // the arrival rate of the records in records per second, smoothed over the periodic flush intervals
+    private double recordArrivalRate = 0.0;
     private final ScheduledFuture<?> periodicKeepAliveSchedule;
     private static final AtomicReferenceFieldUpdater<BKLogSegmentWriter, ScheduledFuture>
         transmitSchedFutureRefUpdater = AtomicReferenceFieldUpdater.newUpdater(
@@ -216,6 +234,8 @@ class BKLogSegmentWriter implements LogSegmentWriter, AddCallback, Runnable, Siz
     private final boolean enableRecordCounts;
     private int positionWithinLogSegment = 0;
     private final long logSegmentSequenceNumber;
+    // the sparse index of the transaction ids, stored in the metadata on completion. null if disabled
+    private final LogSegmentTxIdIndex.Builder txIdIndexBuilder;
     // Used only for values that *could* change (e.g. buffer size etc.)
     private final DistributedLogConfiguration conf;
     private final OrderedScheduler scheduler;
@@ -270,6 +290,28 @@ class BKLogSegmentWriter implements LogSegmentWriter, AddCallback, Runnable, Siz
                                  FeatureProvider featureProvider,
                                  DynamicDistributedLogConfiguration dynConf)
         throws IOException {
+        this(streamName, logSegmentName, conf, logSegmentMetadataVersion, entryWriter, lock, startTxId,
+                logSegmentSequenceNumber, scheduler, statsLogger, perLogStatsLogger, alertStatsLogger,
+                globalWriteLimiter, featureProvider, dynConf, null);
+    }
+
+    protected BKLogSegmentWriter(String streamName,
+                                 String logSegmentName,
+                                 DistributedLogConfiguration conf,
+                                 int logSegmentMetadataVersion,
+                                 LogSegmentEntryWriter entryWriter,
+                                 DistributedLock lock, /** the lock needs to be acquired **/
+                                 long startTxId,
+                                 long logSegmentSequenceNumber,
+                                 OrderedScheduler scheduler,
+                                 StatsLogger statsLogger,
+                                 StatsLogger perLogStatsLogger,
+                                 AlertStatsLogger alertStatsLogger,
+                                 PermitLimiter globalWriteLimiter,
+                                 FeatureProvider featureProvider,
+                                 DynamicDistributedLogConfiguration dynConf,
+                                 SharedFlushScheduler sharedFlushScheduler)
+        throws IOException {
         super();
 
         // set up a write limiter
@@ -339,18 +381,32 @@ class BKLogSegmentWriter implements LogSegmentWriter, AddCallback, Runnable, Siz
             this.transmissionThreshold = configuredTransmissionThreshold;
         }
         this.compressionType = CompressionUtils.stringToType(conf.getCompressionType());
+        this.compressionCodec = CompressionUtils.getCompressionCodec(
+                compressionType,
+                conf.getCompressionLevel(),
+                CompressionUtils.loadDictionary(conf.getCompressionDictionaryFile()));
 
         this.logSegmentSequenceNumber = logSegmentSequenceNumber;
         this.recordSetWriter = Entry.newEntry(
                 streamName,
                 Math.max(transmissionThreshold, 1024),
                 envelopeBeforeTransmit(),
-                compressionType);
+                compressionType,
+                compressionCodec);
         this.packetPrevious = null;
         this.startTxId = startTxId;
         this.lastTxId = startTxId;
         this.lastTxIdAcknowledged = startTxId;
         this.enableRecordCounts = conf.getEnableRecordCounts();
+        if (LogSegmentMetadata.supportsTxIdIndex(logSegmentMetadataVersion)
+                && (conf.getTxIdIndexIntervalEntries() > 0 || conf.getTxIdIndexIntervalBytes() > 0)) {
+            this.txIdIndexBuilder = new LogSegmentTxIdIndex.Builder(
+                    conf.getTxIdIndexIntervalEntries(),
+                    conf.getTxIdIndexIntervalBytes(),
+                    conf.getTxIdIndexMaxSize());
+        } else {
+            this.txIdIndexBuilder = null;
+        }
         this.immediateFlushEnabled = conf.getImmediateFlushEnabled();
         this.isDurableWriteEnabled = dynConf.isDurableWriteEnabled();
         this.scheduler = scheduler;
@@ -365,9 +421,14 @@ class BKLogSegmentWriter implements LogSegmentWriter, AddCallback, Runnable, Siz
         // If we are transmitting immediately (threshold == 0) and if immediate
         // flush is enabled, we don't need the periodic flush task
         final int configuredPeriodicFlushFrequency = dynConf.getPeriodicFlushFrequencyMilliSeconds();
+        boolean sharedFlush = false;
         if (!immediateFlushEnabled || (0 != this.transmissionThreshold)) {
             int periodicFlushFrequency = configuredPeriodicFlushFrequency;
-            if (periodicFlushFrequency > 0 && scheduler != null) {
+            if (periodicFlushFrequency > 0 && sharedFlushScheduler != null) {
+                // the writer is flushed by the shared periodic flush of the namespace
+                sharedFlush = true;
+                periodicFlushSchedule = null;
+            } else if (periodicFlushFrequency > 0 && scheduler != null) {
                 periodicFlushSchedule = scheduler.scheduleAtFixedRate(this,
                         periodicFlushFrequency / 2, periodicFlushFrequency / 2, TimeUnit.MILLISECONDS);
             } else {
@@ -379,6 +440,10 @@ class BKLogSegmentWriter implements LogSegmentWriter, AddCallback, Runnable, Siz
             minDelayBetweenImmediateFlushMs = conf.getMinDelayBetweenImmediateFlushMs();
             periodicFlushSchedule = null;
         }
+        this.sharedFlushScheduler = sharedFlush ? sharedFlushScheduler : null;
+        this.adaptiveFlushInterval = conf.getAdaptiveFlushIntervalEnabled();
+        this.maxFlushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(configuredPeriodicFlushFrequency / 2);
+        this.lastFlushNanos = this.lastRateUpdateNanos = MathUtils.nowInNano();
         this.periodicKeepAliveMs = conf.getPeriodicKeepAliveMilliSeconds();
         if (periodicKeepAliveMs > 0 && scheduler != null) {
             periodicKeepAliveSchedule = scheduler.scheduleAtFixedRate(new Runnable() {
@@ -394,6 +459,14 @@ class BKLogSegmentWriter implements LogSegmentWriter, AddCallback, Runnable, Siz
         this.conf = conf;
         assert(!this.immediateFlushEnabled || (null != this.scheduler));
         this.lastTransmit = Stopwatch.createStarted();
+
+        if (null != this.sharedFlushScheduler) {
+            this.sharedFlushScheduler.register(this);
+        }
+    }
+
+    String getStreamName() {
+        return streamName;
     }
 
     String getFullyQualifiedLogSegment() {
@@ -472,6 +545,15 @@ class BKLogSegmentWriter implements LogSegmentWriter, AddCallback, Runnable, Siz
         return lastEntryId;
     }
 
+    /**
+     * Get the sparse index of the transaction ids of the acknowledged entries.
+     *
+     * @return the transaction id index.
+     */
+    synchronized LogSegmentTxIdIndex getTxIdIndex() {
+        return null != txIdIndexBuilder ? txIdIndexBuilder.build() : LogSegmentTxIdIndex.EMPTY;
+    }
+
     /**
      * Get the last dlsn of the last acknowledged record.
      *
@@ -505,7 +587,8 @@ class BKLogSegmentWriter implements LogSegmentWriter, AddCallback, Runnable, Siz
                 streamName,
                 Math.max(transmissionThreshold, getAverageTransmitSize()),
                 envelopeBeforeTransmit(),
-                compressionType);
+                compressionType,
+                compressionCodec);
     }
 
     private boolean envelopeBeforeTransmit() {
@@ -583,6 +666,9 @@ class BKLogSegmentWriter implements LogSegmentWriter, AddCallback, Runnable, Siz
                 LOG.info("Periodic flush for log segment {} isn't cancelled.", getFullyQualifiedLogSegment());
             }
         }
+        if (null != sharedFlushScheduler) {
+            sharedFlushScheduler.unregister(this);
+        }
 
         // If it is a normal close and the stream isn't in an error state, we attempt to flush any buffered data
         if (!abort && !isLogSegmentInError()) {
@@ -779,6 +865,7 @@ class BKLogSegmentWriter implements LogSegmentWriter, AddCallback, Runnable, Siz
             // moved for {numRecords}, but since we already moved the record by 1
             // so advance the position for other {numRecords - 1}.
             positionWithinLogSegment += (numRecords - 1);
+            numRecordsSinceRateUpdate += numRecords;
         } catch (IOException ex) {
             writeLimiter.release();
             pendingWrites.dec();
@@ -1310,6 +1397,9 @@ class BKLogSegmentWriter implements LogSegmentWriter, AddCallback, Runnable, Siz
                     if (null != lastDLSNInPacket && lastDLSN.compareTo(lastDLSNInPacket) < 0) {
                         lastDLSN = lastDLSNInPacket;
                     }
+                    if (null != txIdIndexBuilder) {
+                        txIdIndexBuilder.addEntry(recordSet.getMinTxId(), entryId, recordSet.getNumBytes());
+                    }
                 }
             }
         }
@@ -1340,14 +1430,60 @@ class BKLogSegmentWriter implements LogSegmentWriter, AddCallback, Runnable, Siz
         backgroundFlush(false);
     }
 
-    private synchronized  void backgroundFlush(boolean controlFlushOnly)  {
+    /**
+     * Flush the buffered records if the periodic flush interval elapsed. It is called by the shared
+     * periodic flush on every tick.
+     *
+     * @param nowNanos time of the tick
+     * @return true if the buffered records are transmitted, otherwise false.
+     */
+    synchronized boolean flushIfNecessary(long nowNanos) {
+        long elapsedNanos = nowNanos - lastRateUpdateNanos;
+        // the rate is measured over windows of the periodic flush interval: measured over a tick, a single
+        // record on an idle stream would look like a high rate
+        if (elapsedNanos > 0 && elapsedNanos >= maxFlushIntervalNanos) {
+            double rate = numRecordsSinceRateUpdate * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+            recordArrivalRate = RECORD_ARRIVAL_RATE_WEIGHT * rate
+                    + (1.0 - RECORD_ARRIVAL_RATE_WEIGHT) * recordArrivalRate;
+            numRecordsSinceRateUpdate = 0L;
+            lastRateUpdateNanos = nowNanos;
+        }
+        if (nowNanos - lastFlushNanos < getFlushIntervalNanos()) {
+            return false;
+        }
+        lastFlushNanos = nowNanos;
+        return backgroundFlush(false);
+    }
+
+    /**
+     * Get the periodic flush interval of the writer.
+     *
+     * <p>With adaptive flush intervals, the interval shrinks with the number of records expected to
+     * arrive within the periodic flush interval: waiting doesn't batch more records for a writer
+     * receiving less than one record per interval, so its records are flushed at the next tick.
+     *
+     * @return the periodic flush interval in nanoseconds.
+     */
+    @VisibleForTesting
+    synchronized long getFlushIntervalNanos() {
+        if (!adaptiveFlushInterval) {
+            return maxFlushIntervalNanos;
+        }
+        double expectedRecords = recordArrivalRate * maxFlushIntervalNanos / TimeUnit.SECONDS.toNanos(1);
+        if (expectedRecords <= 1.0) {
+            return 0L;
+        }
+        return (long) (maxFlushIntervalNanos * (1.0 - 1.0 / expectedRecords));
+    }
+
+    private synchronized boolean backgroundFlush(boolean controlFlushOnly)  {
         if (null != closeFuture) {
             // if the log segment is closing, skip any background flushing
             if (LOG.isDebugEnabled()) {
                 LOG.debug("Skip background flushing since log segment {} is closing.",
                         getFullyQualifiedLogSegment());
             }
-            return;
+            return false;
         }
         try {
             boolean newData = haveDataToTransmit();
@@ -1362,12 +1498,14 @@ class BKLogSegmentWriter implements LogSegmentWriter, AddCallback, Runnable, Siz
 
                 transmit();
                 pFlushSuccesses.inc();
+                return true;
             } else {
                 pFlushMisses.inc();
             }
         } catch (IOException exc) {
             LOG.error("Log Segment {}: Error encountered by the periodic flush", fullyQualifiedLogSegment, exc);
         }
+        return false;
     }
 
     private synchronized  void keepAlive() {
@@ -109,6 +109,7 @@ class BKLogWriteHandler extends BKLogHandler {
     protected final PermitLimiter writeLimiter;
     protected final FeatureProvider featureProvider;
     protected final DynamicDistributedLogConfiguration dynConf;
+    protected final SharedFlushScheduler sharedFlushScheduler;
     protected final MetadataUpdater metadataUpdater;
     // tracking the inprogress log segments
     protected final LinkedList<Long> inprogressLSSNs;
@@ -190,6 +191,7 @@ class BKLogWriteHandler extends BKLogHandler {
                       PermitLimiter writeLimiter,
                       FeatureProvider featureProvider,
                       DynamicDistributedLogConfiguration dynConf,
+                      SharedFlushScheduler sharedFlushScheduler,
                       DistributedLock lock /** owned by handler **/) {
         super(logMetadata,
                 conf,
@@ -206,6 +208,7 @@ class BKLogWriteHandler extends BKLogHandler {
         this.writeLimiter = writeLimiter;
         this.featureProvider = featureProvider;
         this.dynConf = dynConf;
+        this.sharedFlushScheduler = sharedFlushScheduler;
         this.lock = lock;
         this.metadataUpdater = LogSegmentMetadataStoreUpdater.createMetadataUpdater(conf, metadataStore);
 
@@ -648,6 +651,15 @@ class BKLogWriteHandler extends BKLogHandler {
                             LogSegmentMetadata.supportsEnvelopedEntries(conf.getDLLedgerMetadataLayoutVersion()))
                     .build();
 
+        // Fence the segment creation by the ownership of the lock
+        try {
+            lock.fence(txn);
+        } catch (LockingException le) {
+            txn.abort(le);
+            failStartLogSegment(promise, bestEffort, le);
+            return;
+        }
+
         // Create an inprogress segment
         writeLogSegment(txn, l);
 
@@ -678,7 +690,8 @@ class BKLogWriteHandler extends BKLogHandler {
                             alertStatsLogger,
                             writeLimiter,
                             featureProvider,
-                            dynConf));
+                            dynConf,
+                            sharedFlushScheduler));
                 } catch (IOException ioe) {
                     failStartLogSegment(promise, false, ioe);
                 }
@@ -734,6 +747,7 @@ class BKLogWriteHandler extends BKLogHandler {
                         writer.getPositionWithinLogSegment(),
                         writer.getLastDLSN().getEntryId(),
                         writer.getLastDLSN().getSlotId(),
+                        writer.getTxIdIndex(),
                         promise);
             }
 
@@ -840,6 +854,7 @@ class BKLogWriteHandler extends BKLogHandler {
                 recordCount,
                 lastEntryId,
                 lastSlotId,
+                LogSegmentTxIdIndex.EMPTY,
                 promise);
         return Utils.ioResult(promise);
     }
@@ -852,6 +867,7 @@ class BKLogWriteHandler extends BKLogHandler {
                                                 final int recordCount,
                                                 final long lastEntryId,
                                                 final long lastSlotId,
+                                                final LogSegmentTxIdIndex txIdIndex,
                                                 final CompletableFuture<LogSegmentMetadata> promise) {
         fetchForWrite.whenComplete(new FutureEventListener<Versioned<List<LogSegmentMetadata>>>() {
             @Override
@@ -870,6 +886,7 @@ class BKLogWriteHandler extends BKLogHandler {
                         recordCount,
                         lastEntryId,
                         lastSlotId,
+                        txIdIndex,
                         promise);
             }
         });
@@ -884,6 +901,7 @@ class BKLogWriteHandler extends BKLogHandler {
             int recordCount,
             long lastEntryId,
             long lastSlotId,
+            LogSegmentTxIdIndex txIdIndex,
             final CompletableFuture<LogSegmentMetadata> promise) {
         try {
             lock.checkOwnershipAndReacquire();
@@ -974,12 +992,22 @@ class BKLogWriteHandler extends BKLogHandler {
                         recordCount,
                         lastEntryId,
                         lastSlotId,
-                        startSequenceId);
+                        startSequenceId,
+                        txIdIndex);
         setLastLedgerRollingTimeMillis(completedLogSegment.getCompletionTime());
 
         // prepare the transaction
         Transaction<Object> txn = streamMetadataStore.newTransaction();
 
+        // fence the completion by the ownership of the lock
+        try {
+            lock.fence(txn);
+        } catch (LockingException le) {
+            txn.abort(le);
+            FutureUtils.completeExceptionally(promise, le);
+            return;
+        }
+
         // create completed log segment
         writeLogSegment(txn, completedLogSegment);
         // delete inprogress log segment
@@ -1075,6 +1103,8 @@ class BKLogWriteHandler extends BKLogHandler {
                         recordCount,
                         lastEntryId,
                         lastSlotId,
+                        // the recovered log segments are not indexed, the readers search the whole log segment
+                        LogSegmentTxIdIndex.EMPTY,
                         promise);
                 return promise;
             }
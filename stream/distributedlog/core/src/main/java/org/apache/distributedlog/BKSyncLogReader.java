@@ -78,18 +78,18 @@ class BKSyncLogReader implements LogReader, AsyncNotification {
         this.shouldCheckIdleReader = idleErrorThresholdMillis > 0 && idleErrorThresholdMillis < Integer.MAX_VALUE;
         this.startTransactionId = startTransactionId;
 
+        // Stats
+        StatsLogger syncReaderStatsLogger = statsLogger.scope("sync_reader");
+        idleReaderError = syncReaderStatsLogger.getCounter("idle_reader_error");
+
         // start readahead
-        startReadAhead(startDLSN);
+        startReadAhead(startDLSN, syncReaderStatsLogger.scope("readahead"));
         if (!startTransactionId.isPresent()) {
             positioned = true;
         }
-
-        // Stats
-        StatsLogger syncReaderStatsLogger = statsLogger.scope("sync_reader");
-        idleReaderError = syncReaderStatsLogger.getCounter("idle_reader_error");
     }
 
-    private void startReadAhead(DLSN startDLSN) throws IOException {
+    private void startReadAhead(DLSN startDLSN, StatsLogger readAheadStatsLogger) throws IOException {
         readAheadReader = new ReadAheadEntryReader(
                     bkdlm.getStreamName(),
                     startDLSN,
@@ -98,7 +98,8 @@ class BKSyncLogReader implements LogReader, AsyncNotification {
                     bkdlm.getReaderEntryStore(),
                     bkdlm.getScheduler(),
                     Ticker.systemTicker(),
-                    bkdlm.alertStatsLogger);
+                    bkdlm.alertStatsLogger,
+                    readAheadStatsLogger);
         readHandler.registerListener(readAheadReader);
         readHandler.asyncStartFetchLogSegments()
                 .thenApply(logSegments -> {
@@ -200,6 +200,12 @@ public class DistributedLogConfiguration extends CompositeConfiguration {
     public static final boolean BKDL_LOGSEGMENT_SEQUENCE_NUMBER_VALIDATION_ENABLED_DEFAULT = true;
     public static final String BKDL_ENABLE_RECORD_COUNTS = "enableRecordCounts";
     public static final boolean BKDL_ENABLE_RECORD_COUNTS_DEFAULT = true;
+    public static final String BKDL_TXID_INDEX_INTERVAL_ENTRIES = "txIdIndexIntervalEntries";
+    public static final int BKDL_TXID_INDEX_INTERVAL_ENTRIES_DEFAULT = 100;
+    public static final String BKDL_TXID_INDEX_INTERVAL_BYTES = "txIdIndexIntervalBytes";
+    public static final long BKDL_TXID_INDEX_INTERVAL_BYTES_DEFAULT = 1024 * 1024;
+    public static final String BKDL_TXID_INDEX_MAX_SIZE = "txIdIndexMaxSize";
+    public static final int BKDL_TXID_INDEX_MAX_SIZE_DEFAULT = 256;
     public static final String BKDL_MAXID_SANITYCHECK = "maxIdSanityCheck";
     public static final boolean BKDL_MAXID_SANITYCHECK_DEFAULT = true;
     public static final String BKDL_ENCODE_REGION_ID_IN_VERSION = "encodeRegionIDInVersion";
@@ -233,10 +239,16 @@ public class DistributedLogConfiguration extends CompositeConfiguration {
      *  ---------------------     ------------------------------------
      *          NONE               none
      *          LZ4                lz4
+     *          ZSTD               zstd
+     *          SNAPPY             snappy
      *          UNKNOWN            any other instance of String.class
      */
     public static final String BKDL_COMPRESSION_TYPE = "compressionType";
     public static final String BKDL_COMPRESSION_TYPE_DEFAULT = "none";
+    public static final String BKDL_COMPRESSION_LEVEL = "compressionLevel";
+    public static final int BKDL_COMPRESSION_LEVEL_DEFAULT = 3;
+    public static final String BKDL_COMPRESSION_DICTIONARY_FILE = "compressionDictionaryFile";
+    public static final String BKDL_COMPRESSION_DICTIONARY_FILE_DEFAULT = "";
     public static final String BKDL_FAILFAST_ON_STREAM_NOT_READY = "failFastOnStreamNotReady";
     public static final boolean BKDL_FAILFAST_ON_STREAM_NOT_READY_DEFAULT = false;
     public static final String BKDL_DISABLE_ROLLING_ON_LOG_SEGMENT_ERROR = "disableRollingOnLogSegmentError";
@@ -252,6 +264,10 @@ public class DistributedLogConfiguration extends CompositeConfiguration {
     public static final int BKDL_OUTPUT_BUFFER_SIZE_DEFAULT = 1024;
     public static final String BKDL_PERIODIC_FLUSH_FREQUENCY_MILLISECONDS = "periodicFlushFrequencyMilliSeconds";
     public static final int BKDL_PERIODIC_FLUSH_FREQUENCY_MILLISECONDS_DEFAULT = 0;
+    public static final String BKDL_SHARED_FLUSH_TICK_MILLISECONDS = "sharedFlushTickMilliSeconds";
+    public static final int BKDL_SHARED_FLUSH_TICK_MILLISECONDS_DEFAULT = 0;
+    public static final String BKDL_ADAPTIVE_FLUSH_INTERVAL_ENABLED = "adaptiveFlushIntervalEnabled";
+    public static final boolean BKDL_ADAPTIVE_FLUSH_INTERVAL_ENABLED_DEFAULT = false;
     public static final String BKDL_ENABLE_IMMEDIATE_FLUSH = "enableImmediateFlush";
     public static final boolean BKDL_ENABLE_IMMEDIATE_FLUSH_DEFAULT = false;
     public static final String BKDL_MINIMUM_DELAY_BETWEEN_IMMEDIATE_FLUSH_MILLISECONDS =
@@ -286,6 +302,8 @@ public class DistributedLogConfiguration extends CompositeConfiguration {
             DistributedLogConstants.LOCK_REACQUIRE_TIMEOUT_DEFAULT;
     public static final String BKDL_LOCK_OP_TIMEOUT = "lockOpTimeoutSeconds";
     public static final long BKDL_LOCK_OP_TIMEOUT_DEFAULT = DistributedLogConstants.LOCK_OP_TIMEOUT_DEFAULT;
+    public static final String BKDL_LOCK_LEASE_TIMEOUT = "lockLeaseTimeoutMilliSeconds";
+    public static final int BKDL_LOCK_LEASE_TIMEOUT_DEFAULT = 0;
 
     // Ledger Allocator Settings
     public static final String BKDL_ENABLE_LEDGER_ALLOCATOR_POOL = "enableLedgerAllocatorPool";
@@ -296,6 +314,10 @@ public class DistributedLogConfiguration extends CompositeConfiguration {
     public static final String BKDL_LEDGER_ALLOCATOR_POOL_NAME_DEFAULT = null;
     public static final String BKDL_LEDGER_ALLOCATOR_POOL_CORE_SIZE = "ledgerAllocatorPoolCoreSize";
     public static final int BKDL_LEDGER_ALLOCATOR_POOL_CORE_SIZE_DEFAULT = 20;
+    public static final String BKDL_LEDGER_ALLOCATOR_POOL_MAX_SIZE = "ledgerAllocatorPoolMaxSize";
+    public static final int BKDL_LEDGER_ALLOCATOR_POOL_MAX_SIZE_DEFAULT = 0;
+    public static final String BKDL_LEDGER_ALLOCATOR_ENSEMBLE_WARMUP_ENABLED = "ledgerAllocatorEnsembleWarmupEnabled";
+    public static final boolean BKDL_LEDGER_ALLOCATOR_ENSEMBLE_WARMUP_ENABLED_DEFAULT = false;
 
     // Write Limit Settings
     public static final String BKDL_PER_WRITER_OUTSTANDING_WRITE_LIMIT = "perWriterOutstandingWriteLimit";
@@ -340,6 +362,8 @@ public class DistributedLogConfiguration extends CompositeConfiguration {
     public static final String BKDL_READAHEAD_MAX_RECORDS = "readAheadMaxRecords";
     public static final String BKDL_READAHEAD_MAX_RECORDS_OLD = "ReadAheadMaxEntries";
     public static final int BKDL_READAHEAD_MAX_RECORDS_DEFAULT = 10;
+    public static final String BKDL_READAHEAD_MAX_BYTES = "readAheadMaxBytes";
+    public static final long BKDL_READAHEAD_MAX_BYTES_DEFAULT = 0L;
     public static final String BKDL_READAHEAD_BATCHSIZE = "readAheadBatchSize";
     public static final String BKDL_READAHEAD_BATCHSIZE_OLD = "ReadAheadBatchSize";
     public static final int BKDL_READAHEAD_BATCHSIZE_DEFAULT = 2;
@@ -358,6 +382,12 @@ public class DistributedLogConfiguration extends CompositeConfiguration {
     public static final int BKDL_NUM_PREFETCH_ENTRIES_PER_LOGSEGMENT_DEFAULT = 4;
     public static final String BKDL_MAX_PREFETCH_ENTRIES_PER_LOGSEGMENT = "maxPrefetchEntriesPerLogSegment";
     public static final int BKDL_MAX_PREFETCH_ENTRIES_PER_LOGSEGMENT_DEFAULT = 32;
+    public static final String BKDL_READAHEAD_MAX_PARALLEL_LOGSEGMENTS = "readAheadMaxParallelLogSegments";
+    public static final int BKDL_READAHEAD_MAX_PARALLEL_LOGSEGMENTS_DEFAULT = 1;
+    public static final String BKDL_READAHEAD_BATCH_READ_ENABLED = "readAheadBatchReadEnabled";
+    public static final boolean BKDL_READAHEAD_BATCH_READ_ENABLED_DEFAULT = false;
+    public static final String BKDL_READER_ENTRY_CACHE_SIZE = "readerEntryCacheSize";
+    public static final long BKDL_READER_ENTRY_CACHE_SIZE_DEFAULT = 0L;
 
     // Scan Settings
     public static final String BKDL_FIRST_NUM_ENTRIES_PER_READ_LAST_RECORD_SCAN =
@@ -1582,6 +1612,82 @@ public class DistributedLogConfiguration extends CompositeConfiguration {
         return this;
     }
 
+    /**
+     * Get the number of entries between two entries indexed by the transaction id index.
+     *
+     * <p>The writer indexes the first transaction id of an entry every <i>N</i> entries or <i>M</i> bytes
+     * written, and stores the index in the metadata of the log segment on completion, so the readers
+     * seeking by transaction id only search the entries between two index points. The index is only
+     * written with the ledger metadata layout version
+     * {@link LogSegmentMetadata.LogSegmentMetadataVersion#VERSION_V6_TXID_INDEX} or newer.
+     * Default is 100. 0 or less to index by bytes only.
+     *
+     * @return the number of entries between two entries indexed.
+     * @see #getTxIdIndexIntervalBytes()
+     */
+    public int getTxIdIndexIntervalEntries() {
+        return getInt(BKDL_TXID_INDEX_INTERVAL_ENTRIES, BKDL_TXID_INDEX_INTERVAL_ENTRIES_DEFAULT);
+    }
+
+    /**
+     * Set the number of entries between two entries indexed by the transaction id index.
+     *
+     * @param intervalEntries the number of entries between two entries indexed.
+     * @return distributed log configuration
+     * @see #getTxIdIndexIntervalEntries()
+     */
+    public DistributedLogConfiguration setTxIdIndexIntervalEntries(int intervalEntries) {
+        setProperty(BKDL_TXID_INDEX_INTERVAL_ENTRIES, intervalEntries);
+        return this;
+    }
+
+    /**
+     * Get the number of bytes between two entries indexed by the transaction id index.
+     * Default is 1MB. 0 or less to index by entries only.
+     *
+     * @return the number of bytes between two entries indexed.
+     * @see #getTxIdIndexIntervalEntries()
+     */
+    public long getTxIdIndexIntervalBytes() {
+        return getLong(BKDL_TXID_INDEX_INTERVAL_BYTES, BKDL_TXID_INDEX_INTERVAL_BYTES_DEFAULT);
+    }
+
+    /**
+     * Set the number of bytes between two entries indexed by the transaction id index.
+     *
+     * @param intervalBytes the number of bytes between two entries indexed.
+     * @return distributed log configuration
+     * @see #getTxIdIndexIntervalBytes()
+     */
+    public DistributedLogConfiguration setTxIdIndexIntervalBytes(long intervalBytes) {
+        setProperty(BKDL_TXID_INDEX_INTERVAL_BYTES, intervalBytes);
+        return this;
+    }
+
+    /**
+     * Get the max number of entries indexed by the transaction id index of a log segment.
+     *
+     * <p>Once the index is full, every other entry indexed is dropped and the interval doubles,
+     * to bound the size of the log segment metadata. Default is 256.
+     *
+     * @return the max number of entries indexed.
+     */
+    public int getTxIdIndexMaxSize() {
+        return getInt(BKDL_TXID_INDEX_MAX_SIZE, BKDL_TXID_INDEX_MAX_SIZE_DEFAULT);
+    }
+
+    /**
+     * Set the max number of entries indexed by the transaction id index of a log segment.
+     *
+     * @param maxSize the max number of entries indexed.
+     * @return distributed log configuration
+     * @see #getTxIdIndexMaxSize()
+     */
+    public DistributedLogConfiguration setTxIdIndexMaxSize(int maxSize) {
+        setProperty(BKDL_TXID_INDEX_MAX_SIZE, maxSize);
+        return this;
+    }
+
     /**
      * Whether sanity check txn id on starting log segments.
      *
@@ -1827,6 +1933,56 @@ public class DistributedLogConfiguration extends CompositeConfiguration {
         return this;
     }
 
+    /**
+     * The compression level to use while sending data to bookkeeper.
+     *
+     * <p>It only applies to the zstd compression. Higher levels result in higher compression ratio
+     * and higher cpu usage. The default value is 3.
+     *
+     * @return compression level to use
+     */
+    public int getCompressionLevel() {
+        return getInt(BKDL_COMPRESSION_LEVEL, BKDL_COMPRESSION_LEVEL_DEFAULT);
+    }
+
+    /**
+     * Set the compression level to use while sending data to bookkeeper.
+     *
+     * @param compressionLevel compression level
+     * @return distributedlog configuration
+     * @see #getCompressionLevel()
+     */
+    public DistributedLogConfiguration setCompressionLevel(int compressionLevel) {
+        setProperty(BKDL_COMPRESSION_LEVEL, compressionLevel);
+        return this;
+    }
+
+    /**
+     * The file of the dictionary to compress data with.
+     *
+     * <p>It only applies to the zstd compression. A dictionary trained from samples of the records
+     * improves the compression ratio of small entries. The readers of the entries compressed with a
+     * dictionary have to be configured with the same dictionary file. No dictionary is used by default.
+     *
+     * @return file of the compression dictionary, or empty if none
+     * @see org.apache.distributedlog.io.ZstdCompressionCodec#trainDictionary(java.util.List, int)
+     */
+    public String getCompressionDictionaryFile() {
+        return getString(BKDL_COMPRESSION_DICTIONARY_FILE, BKDL_COMPRESSION_DICTIONARY_FILE_DEFAULT);
+    }
+
+    /**
+     * Set the file of the dictionary to compress data with.
+     *
+     * @param compressionDictionaryFile file of the compression dictionary
+     * @return distributedlog configuration
+     * @see #getCompressionDictionaryFile()
+     */
+    public DistributedLogConfiguration setCompressionDictionaryFile(String compressionDictionaryFile) {
+        setProperty(BKDL_COMPRESSION_DICTIONARY_FILE, compressionDictionaryFile);
+        return this;
+    }
+
     /**
      * Whether to fail immediately if the stream is not ready rather than queueing the request.
      *
@@ -1965,6 +2121,60 @@ public class DistributedLogConfiguration extends CompositeConfiguration {
         return this;
     }
 
+    /**
+     * Get the tick in milliseconds of the periodic flush shared by the writers of a namespace.
+     *
+     * <p>If the setting is set with a positive value, the writers of a namespace don't schedule their own
+     * periodic flush tasks: a single task of the namespace flushes all the writers whose periodic flush
+     * interval elapsed at every tick. This saves a scheduled task per writer in processes writing to many
+     * streams. The default value is 0, every writer schedules its own periodic flush task.
+     *
+     * @return the tick in milliseconds of the shared periodic flush.
+     * @see #getPeriodicFlushFrequencyMilliSeconds()
+     */
+    public int getSharedFlushTickMilliSeconds() {
+        return this.getInt(BKDL_SHARED_FLUSH_TICK_MILLISECONDS, BKDL_SHARED_FLUSH_TICK_MILLISECONDS_DEFAULT);
+    }
+
+    /**
+     * Set the tick in milliseconds of the periodic flush shared by the writers of a namespace.
+     *
+     * @param tickMs the tick in milliseconds of the shared periodic flush.
+     * @return distributed log configuration
+     * @see #getSharedFlushTickMilliSeconds()
+     */
+    public DistributedLogConfiguration setSharedFlushTickMilliSeconds(int tickMs) {
+        setProperty(BKDL_SHARED_FLUSH_TICK_MILLISECONDS, tickMs);
+        return this;
+    }
+
+    /**
+     * Whether to adapt the periodic flush interval of the writers to the rate of their writes.
+     *
+     * <p>It applies to the writers flushed by the shared periodic flush only. A writer whose records
+     * arrive slower than the periodic flush frequency won't batch more records by waiting, so its buffered
+     * records are flushed at the next tick, while a writer with a high rate of records waits up to the
+     * periodic flush frequency to batch its records. The default value is false.
+     *
+     * @return true if the periodic flush interval adapts to the rate of writes.
+     * @see #getSharedFlushTickMilliSeconds()
+     */
+    public boolean getAdaptiveFlushIntervalEnabled() {
+        return this.getBoolean(BKDL_ADAPTIVE_FLUSH_INTERVAL_ENABLED, BKDL_ADAPTIVE_FLUSH_INTERVAL_ENABLED_DEFAULT);
+    }
+
+    /**
+     * Enable or disable adapting the periodic flush interval of the writers to the rate of their writes.
+     *
+     * @param enabled flag to enable or disable adaptive flush intervals.
+     * @return distributed log configuration
+     * @see #getAdaptiveFlushIntervalEnabled()
+     */
+    public DistributedLogConfiguration setAdaptiveFlushIntervalEnabled(boolean enabled) {
+        setProperty(BKDL_ADAPTIVE_FLUSH_INTERVAL_ENABLED, enabled);
+        return this;
+    }
+
     /**
      * Is immediate flush enabled.
      *
@@ -2284,6 +2494,33 @@ public class DistributedLogConfiguration extends CompositeConfiguration {
         return this;
     }
 
+    /**
+     * Get the lease timeout of the locks in milliseconds. If it is positive, the locks are backed by leases
+     * stored in zookeeper, which are taken over by the lock waiters once their owners failed to renew them
+     * for the lease timeout, instead of once the zookeeper sessions of their owners expired. Otherwise,
+     * the locks are backed by the zookeeper sessions of their owners. It is 0 by default.
+     *
+     * <p>The lease locks and the zookeeper session locks don't exclude each other: all the clients of a
+     * namespace must use the same setting.
+     *
+     * @return lease timeout of the locks in milliseconds.
+     */
+    public int getLockLeaseTimeoutMilliSeconds() {
+        return this.getInt(BKDL_LOCK_LEASE_TIMEOUT, BKDL_LOCK_LEASE_TIMEOUT_DEFAULT);
+    }
+
+    /**
+     * Set the lease timeout of the locks in milliseconds.
+     *
+     * @param lockLeaseTimeoutMs lease timeout of the locks in milliseconds.
+     * @return distributed log configuration
+     * @see #getLockLeaseTimeoutMilliSeconds()
+     */
+    public DistributedLogConfiguration setLockLeaseTimeoutMilliSeconds(int lockLeaseTimeoutMs) {
+        setProperty(BKDL_LOCK_LEASE_TIMEOUT, lockLeaseTimeoutMs);
+        return this;
+    }
+
     //
     // Ledger Allocator Settings
     //
@@ -2378,6 +2615,60 @@ public class DistributedLogConfiguration extends CompositeConfiguration {
         return this;
     }
 
+    /**
+     * Get the max size of ledger allocator pool.
+     *
+     * <p>The ledger allocator pool grows from its core size up to its max size when the log segment rolls
+     * drain it, i.e. when all its allocators are handing over their ledgers. So the size of the pool follows
+     * the roll rate of the log segments. The default value is 0, the pool doesn't grow beyond its core size.
+     *
+     * @return max size of ledger allocator pool.
+     * @see #getLedgerAllocatorPoolCoreSize()
+     */
+    public int getLedgerAllocatorPoolMaxSize() {
+        return getInt(BKDL_LEDGER_ALLOCATOR_POOL_MAX_SIZE, BKDL_LEDGER_ALLOCATOR_POOL_MAX_SIZE_DEFAULT);
+    }
+
+    /**
+     * Set max size of ledger allocator pool.
+     *
+     * @param poolSize
+     *          max size of ledger allocator pool.
+     * @return distributedlog configuration.
+     * @see #getLedgerAllocatorPoolMaxSize()
+     */
+    public DistributedLogConfiguration setLedgerAllocatorPoolMaxSize(int poolSize) {
+        setProperty(BKDL_LEDGER_ALLOCATOR_POOL_MAX_SIZE, poolSize);
+        return this;
+    }
+
+    /**
+     * Whether to warm up the ensembles of the ledgers allocated by the ledger allocators.
+     *
+     * <p>If it is enabled, the ledger allocators connect to the bookies of the ensemble of a ledger once
+     * the ledger is created, so the first writes of the log segment don't pay for the connections.
+     * The default value is false.
+     *
+     * @return true if the ensembles of the allocated ledgers are warmed up.
+     */
+    public boolean getLedgerAllocatorEnsembleWarmupEnabled() {
+        return getBoolean(BKDL_LEDGER_ALLOCATOR_ENSEMBLE_WARMUP_ENABLED,
+                BKDL_LEDGER_ALLOCATOR_ENSEMBLE_WARMUP_ENABLED_DEFAULT);
+    }
+
+    /**
+     * Enable or disable warming up the ensembles of the ledgers allocated by the ledger allocators.
+     *
+     * @param enabled
+     *          flag to enable or disable ensemble warmup.
+     * @return distributedlog configuration.
+     * @see #getLedgerAllocatorEnsembleWarmupEnabled()
+     */
+    public DistributedLogConfiguration setLedgerAllocatorEnsembleWarmupEnabled(boolean enabled) {
+        setProperty(BKDL_LEDGER_ALLOCATOR_ENSEMBLE_WARMUP_ENABLED, enabled);
+        return this;
+    }
+
     //
     // Write Limit Settings
     //
@@ -2704,6 +2995,31 @@ public class DistributedLogConfiguration extends CompositeConfiguration {
         return this;
     }
 
+    /**
+     * Get the max bytes cached by readahead cache.
+     *
+     * <p>The readahead cache is bounded by the size of the entries cached rather than their number
+     * if this value is positive, which bounds the memory used by the readahead whatever the size of
+     * the entries. The default value is 0, the cache is bounded by {@link #getReadAheadMaxRecords()}.
+     *
+     * @return max bytes cached by readahead cache.
+     */
+    public long getReadAheadMaxBytes() {
+        return this.getLong(BKDL_READAHEAD_MAX_BYTES, BKDL_READAHEAD_MAX_BYTES_DEFAULT);
+    }
+
+    /**
+     * Set the max bytes cached by readahead cache.
+     *
+     * @param readAheadMaxBytes max bytes to cache.
+     * @return distributed log configuration
+     * @see #getReadAheadMaxBytes()
+     */
+    public DistributedLogConfiguration setReadAheadMaxBytes(long readAheadMaxBytes) {
+        setProperty(BKDL_READAHEAD_MAX_BYTES, readAheadMaxBytes);
+        return this;
+    }
+
     /**
      * Get number of entries read as a batch by readahead worker.
      *
@@ -2878,6 +3194,81 @@ public class DistributedLogConfiguration extends CompositeConfiguration {
         return this;
     }
 
+    /**
+     * Get the max number of log segments prefetched in parallel by readahead. Default value is 1.
+     *
+     * <p>A reader catching up on a backlog of completed log segments prefetches the entries of up to
+     * this number of log segments in parallel, the entries are still returned in order. Each log segment
+     * prefetches up to {@link #getMaxPrefetchEntriesPerLogSegment()} entries, so this bounds the memory
+     * used by the prefetched entries.
+     *
+     * @return the max number of log segments prefetched in parallel.
+     */
+    public int getReadAheadMaxParallelLogSegments() {
+        return getInt(BKDL_READAHEAD_MAX_PARALLEL_LOGSEGMENTS, BKDL_READAHEAD_MAX_PARALLEL_LOGSEGMENTS_DEFAULT);
+    }
+
+    /**
+     * Set the max number of log segments prefetched in parallel by readahead.
+     *
+     * @param numLogSegments the max number of log segments prefetched in parallel.
+     * @return configuration
+     * @see #getReadAheadMaxParallelLogSegments()
+     */
+    public DistributedLogConfiguration setReadAheadMaxParallelLogSegments(int numLogSegments) {
+        setProperty(BKDL_READAHEAD_MAX_PARALLEL_LOGSEGMENTS, numLogSegments);
+        return this;
+    }
+
+    /**
+     * Whether to prefetch the entries of completed log segments by batch reads. Default value is false.
+     *
+     * <p>The entries are read in one request per batch instead of one request per entry if the bookies
+     * support batch reads.
+     *
+     * @return true if the entries of completed log segments are prefetched by batch reads.
+     */
+    public boolean getReadAheadBatchReadEnabled() {
+        return getBoolean(BKDL_READAHEAD_BATCH_READ_ENABLED, BKDL_READAHEAD_BATCH_READ_ENABLED_DEFAULT);
+    }
+
+    /**
+     * Enable or disable prefetching the entries of completed log segments by batch reads.
+     *
+     * @param enabled flag to enable or disable batch reads.
+     * @return configuration
+     * @see #getReadAheadBatchReadEnabled()
+     */
+    public DistributedLogConfiguration setReadAheadBatchReadEnabled(boolean enabled) {
+        setProperty(BKDL_READAHEAD_BATCH_READ_ENABLED, enabled);
+        return this;
+    }
+
+    /**
+     * Get the size in bytes of the entry cache shared by the readers of a namespace. Default value is 0.
+     *
+     * <p>The readers reading the same entries, e.g. the subscribers of a stream reading at the same
+     * position, read the entries from the bookies once and from the cache afterwards. The cache is
+     * disabled if the size is 0.
+     *
+     * @return the size in bytes of the entry cache shared by the readers.
+     */
+    public long getReaderEntryCacheSize() {
+        return getLong(BKDL_READER_ENTRY_CACHE_SIZE, BKDL_READER_ENTRY_CACHE_SIZE_DEFAULT);
+    }
+
+    /**
+     * Set the size in bytes of the entry cache shared by the readers of a namespace.
+     *
+     * @param cacheSize the size in bytes of the entry cache, 0 to disable the cache.
+     * @return configuration
+     * @see #getReaderEntryCacheSize()
+     */
+    public DistributedLogConfiguration setReaderEntryCacheSize(long cacheSize) {
+        setProperty(BKDL_READER_ENTRY_CACHE_SIZE, cacheSize);
+        return this;
+    }
+
     //
     // DL Reader Scan Settings
     //
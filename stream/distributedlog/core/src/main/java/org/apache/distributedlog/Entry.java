@@ -57,6 +57,35 @@ public class Entry {
                 codec);
     }
 
+    /**
+     * Create a new log record set compressed by the given compression codec.
+     *
+     * @param logName
+     *          name of the log
+     * @param initialBufferSize
+     *          initial buffer size
+     * @param envelopeBeforeTransmit
+     *          if envelope the buffer before transmit
+     * @param codec
+     *          compression codec type
+     * @param compressor
+     *          compression codec of the codec type
+     * @return writer to build a log record set.
+     */
+    public static Writer newEntry(
+            String logName,
+            int initialBufferSize,
+            boolean envelopeBeforeTransmit,
+            CompressionCodec.Type codec,
+            CompressionCodec compressor) {
+        return new EnvelopedEntryWriter(
+                logName,
+                initialBufferSize,
+                envelopeBeforeTransmit,
+                codec,
+                compressor);
+    }
+
     public static Builder newBuilder() {
         return new Builder();
     }
@@ -221,6 +250,13 @@ public class Entry {
          */
         boolean skipTo(DLSN dlsn) throws IOException;
 
+        /**
+         * Return the size of the (decompressed) data of the entry.
+         *
+         * @return the size of the data of the entry in bytes.
+         */
+        int getNumBytes();
+
         /**
          * Release the resources held by the entry reader.
          */
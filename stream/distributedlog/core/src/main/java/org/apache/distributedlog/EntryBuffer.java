@@ -56,6 +56,13 @@ interface EntryBuffer extends TransmitListener {
      */
     long getMaxTxId();
 
+    /**
+     * Return min tx id in current record set.
+     *
+     * @return min tx id.
+     */
+    long getMinTxId();
+
     /**
      * Get the buffer to transmit.
      *
@@ -70,15 +70,25 @@ class EnvelopedEntryWriter implements Writer {
     private final List<WriteRequest> writeRequests;
     private final boolean envelopeBeforeTransmit;
     private final CompressionCodec.Type codec;
+    private final CompressionCodec compressor;
     private final int flags;
     private int count = 0;
     private boolean hasUserData = false;
     private long maxTxId = Long.MIN_VALUE;
+    private long minTxId = Long.MAX_VALUE;
 
     EnvelopedEntryWriter(String logName,
                          int initialBufferSize,
                          boolean envelopeBeforeTransmit,
                          CompressionCodec.Type codec) {
+        this(logName, initialBufferSize, envelopeBeforeTransmit, codec, CompressionUtils.getCompressionCodec(codec));
+    }
+
+    EnvelopedEntryWriter(String logName,
+                         int initialBufferSize,
+                         boolean envelopeBeforeTransmit,
+                         CompressionCodec.Type codec,
+                         CompressionCodec compressor) {
         this.logName = logName;
         this.buffer = PooledByteBufAllocator.DEFAULT.buffer(
                 Math.min(Math.max(initialBufferSize * 6 / 5, HEADER_LENGTH), MAX_LOGRECORDSET_SIZE),
@@ -87,6 +97,7 @@ class EnvelopedEntryWriter implements Writer {
         this.writeRequests = new LinkedList<WriteRequest>();
         this.envelopeBeforeTransmit = envelopeBeforeTransmit;
         this.codec = codec;
+        this.compressor = compressor;
         this.flags = codec.code() & COMPRESSION_CODEC_MASK;
         if (envelopeBeforeTransmit) {
             this.buffer.writerIndex(HEADER_LENGTH);
@@ -116,6 +127,7 @@ class EnvelopedEntryWriter implements Writer {
             count += numRecords;
             writeRequests.add(new WriteRequest(numRecords, transmitPromise));
             maxTxId = Math.max(maxTxId, record.getTransactionId());
+            minTxId = Math.min(minTxId, record.getTransactionId());
         } catch (IOException e) {
             logger.error("Failed to append record to record set of {} : ",
                     logName, e);
@@ -145,6 +157,11 @@ class EnvelopedEntryWriter implements Writer {
         return maxTxId;
     }
 
+    @Override
+    public synchronized long getMinTxId() {
+        return minTxId;
+    }
+
     @Override
     public synchronized boolean hasUserRecords() {
         return hasUserData;
@@ -188,8 +205,6 @@ class EnvelopedEntryWriter implements Writer {
         }
 
         // compression
-        CompressionCodec compressor =
-                CompressionUtils.getCompressionCodec(codec);
         ByteBuf uncompressedBuf = buffer.slice(dataOffset, dataLen);
         ByteBuf compressedBuf = compressor.compress(uncompressedBuf, HEADER_LENGTH);
         // update version
@@ -25,6 +25,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Comparator;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.LongConsumer;
 import org.apache.bookkeeper.common.concurrent.FutureUtils;
 import org.apache.distributedlog.exceptions.DLInterruptedException;
 import org.apache.distributedlog.exceptions.LogSegmentNotFoundException;
@@ -54,7 +55,8 @@ public class LogSegmentMetadata {
         VERSION_V2_LEDGER_SEQNO(2),
         VERSION_V3_MIN_ACTIVE_DLSN(3),
         VERSION_V4_ENVELOPED_ENTRIES(4),
-        VERSION_V5_SEQUENCE_ID(5);
+        VERSION_V5_SEQUENCE_ID(5),
+        VERSION_V6_TXID_INDEX(6);
 
         public final int value;
 
@@ -64,6 +66,8 @@ public class LogSegmentMetadata {
 
         public static LogSegmentMetadataVersion of(int version) {
             switch (version) {
+                case 6:
+                    return VERSION_V6_TXID_INDEX;
                 case 5:
                     return VERSION_V5_SEQUENCE_ID;
                 case 4:
@@ -113,6 +117,7 @@ public class LogSegmentMetadata {
         protected long minActiveSlotId;
         protected long startSequenceId;
         protected boolean inprogress;
+        protected LogSegmentTxIdIndex txIdIndex;
 
         // This is a derived attribute.
         // Since we overwrite the original version with the target version, information that is
@@ -151,6 +156,7 @@ public class LogSegmentMetadata {
             minActiveSlotId = 0;
             startSequenceId = DistributedLogConstants.UNASSIGNED_SEQUENCE_ID;
             inprogress = true;
+            txIdIndex = LogSegmentTxIdIndex.EMPTY;
         }
 
         LogSegmentMetadataBuilder setRegionId(int regionId) {
@@ -223,6 +229,11 @@ public class LogSegmentMetadata {
             return this;
         }
 
+        LogSegmentMetadataBuilder setTxIdIndex(LogSegmentTxIdIndex txIdIndex) {
+            this.txIdIndex = txIdIndex;
+            return this;
+        }
+
         public LogSegmentMetadata build() {
             return new LogSegmentMetadata(
                 zkPath,
@@ -241,7 +252,8 @@ public class LogSegmentMetadata {
                 minActiveEntryId,
                 minActiveSlotId,
                 startSequenceId,
-                envelopeEntries
+                envelopeEntries,
+                txIdIndex
             );
         }
 
@@ -268,6 +280,7 @@ public class LogSegmentMetadata {
             this.minActiveSlotId = original.getMinActiveDLSN().getSlotId();
             this.startSequenceId = original.getStartSequenceId();
             this.envelopeEntries = original.getEnvelopeEntries();
+            this.txIdIndex = original.getTxIdIndex();
         }
 
         @VisibleForTesting
@@ -333,6 +346,8 @@ public class LogSegmentMetadata {
     // is lost while parsing.
     // NOTE: This value is not stored in the Metadata store.
     private final boolean envelopeEntries;
+    // The sparse index of the transaction ids, only stored for the completed log segments
+    private final LogSegmentTxIdIndex txIdIndex;
 
     public static final Comparator<LogSegmentMetadata> COMPARATOR =
             new Comparator<LogSegmentMetadata>() {
@@ -402,7 +417,7 @@ public class LogSegmentMetadata {
     };
 
     public static final int LEDGER_METADATA_CURRENT_LAYOUT_VERSION =
-                LogSegmentMetadataVersion.VERSION_V5_SEQUENCE_ID.value;
+                LogSegmentMetadataVersion.VERSION_V6_TXID_INDEX.value;
 
     public static final int LEDGER_METADATA_OLDEST_SUPPORTED_VERSION =
         LogSegmentMetadataVersion.VERSION_V2_LEDGER_SEQNO.value;
@@ -437,7 +452,8 @@ public class LogSegmentMetadata {
                                long minActiveEntryId,
                                long minActiveSlotId,
                                long startSequenceId,
-                               boolean envelopeEntries) {
+                               boolean envelopeEntries,
+                               LogSegmentTxIdIndex txIdIndex) {
         this.zkPath = zkPath;
         this.logSegmentId = logSegmentId;
         this.version = version;
@@ -452,6 +468,7 @@ public class LogSegmentMetadata {
         this.regionId = regionId;
         this.status = status;
         this.envelopeEntries = envelopeEntries;
+        this.txIdIndex = txIdIndex;
     }
 
     public String getZkPath() {
@@ -498,6 +515,15 @@ public class LogSegmentMetadata {
         return status;
     }
 
+    /**
+     * Get the sparse index of the transaction ids of the log segment.
+     *
+     * @return the transaction id index, empty if the log segment is inprogress or wasn't indexed.
+     */
+    public LogSegmentTxIdIndex getTxIdIndex() {
+        return txIdIndex;
+    }
+
     public long getStartSequenceId() {
         // generate negative sequence id for log segments that created <= v4
         return supportsSequenceId() && startSequenceId != DistributedLogConstants.UNASSIGNED_SEQUENCE_ID
@@ -604,6 +630,25 @@ public class LogSegmentMetadata {
                                                 long lastEntryId,
                                                 long lastSlotId,
                                                 long startSequenceId) {
+        return completeLogSegment(zkPath, newLastTxId, recordCount, lastEntryId, lastSlotId, startSequenceId,
+                LogSegmentTxIdIndex.EMPTY);
+    }
+
+    /**
+     * complete current log segment with the transaction id index built while writing it.
+     *
+     * @param txIdIndex
+     *          transaction id index
+     * @return completed log segment.
+     * @see #completeLogSegment(String, long, int, long, long, long)
+     */
+    LogSegmentMetadata completeLogSegment(String zkPath,
+                                                long newLastTxId,
+                                                int recordCount,
+                                                long lastEntryId,
+                                                long lastSlotId,
+                                                long startSequenceId,
+                                                LogSegmentTxIdIndex txIdIndex) {
         assert this.lastTxId == DistributedLogConstants.INVALID_TXID;
 
         return new Mutator(this)
@@ -614,6 +659,7 @@ public class LogSegmentMetadata {
                 .setCompletionTime(Utils.nowInMillis())
                 .setRecordCount(recordCount)
                 .setStartSequenceId(startSequenceId)
+                .setTxIdIndex(txIdIndex)
                 .build();
     }
 
@@ -623,6 +669,12 @@ public class LogSegmentMetadata {
 
     public static CompletableFuture<LogSegmentMetadata> read(ZooKeeperClient zkc,
                                                              String path, final boolean skipMinVersionCheck) {
+        return read(zkc, path, skipMinVersionCheck, null);
+    }
+
+    public static CompletableFuture<LogSegmentMetadata> read(ZooKeeperClient zkc,
+                                                             String path, final boolean skipMinVersionCheck,
+                                                             final LongConsumer bytesReadListener) {
         final CompletableFuture<LogSegmentMetadata> result = new CompletableFuture<LogSegmentMetadata>();
         try {
             zkc.get().getData(path, false, new AsyncCallback.DataCallback() {
@@ -638,6 +690,9 @@ public class LogSegmentMetadata {
                         }
                         return;
                     }
+                    if (null != bytesReadListener && null != data) {
+                        bytesReadListener.accept(data.length);
+                    }
                     try {
                         LogSegmentMetadata metadata = parseData(path, data, skipMinVersionCheck);
                         FutureUtils.complete(result, metadata);
@@ -859,7 +914,7 @@ public class LogSegmentMetadata {
                     .setStartSequenceId(startSequenceId)
                     .setEnvelopeEntries(true);
             return builder.build();
-        } else if (parts.length == 11) {
+        } else if (parts.length == 11 || (parts.length == 12 && supportsTxIdIndex((int) version))) {
             long recordCount = (versionStatusCount & LOGRECORD_COUNT_MASK) >> LOGRECORD_COUNT_SHIFT;
             assert (recordCount >= Integer.MIN_VALUE && recordCount <= Integer.MAX_VALUE);
 
@@ -873,6 +928,8 @@ public class LogSegmentMetadata {
             long minActiveEntryId = Long.parseLong(parts[8]);
             long minActiveSlotId = Long.parseLong(parts[9]);
             long startSequenceId = Long.parseLong(parts[10]);
+            LogSegmentTxIdIndex txIdIndex = parts.length == 12
+                    ? LogSegmentTxIdIndex.parse(parts[11]) : LogSegmentTxIdIndex.EMPTY;
             LogSegmentMetadataBuilder builder = new LogSegmentMetadataBuilder(path, llmv, logSegmentId, firstTxId)
                     .setInprogress(false)
                     .setLastTxId(lastTxId)
@@ -886,7 +943,8 @@ public class LogSegmentMetadata {
                     .setRegionId(regionId)
                     .setStatus(status)
                     .setStartSequenceId(startSequenceId)
-                    .setEnvelopeEntries(true);
+                    .setEnvelopeEntries(true)
+                    .setTxIdIndex(txIdIndex);
             return builder.build();
         } else {
             throw new IOException("Invalid log segment metadata : "
@@ -990,6 +1048,9 @@ public class LogSegmentMetadata {
                     finalisedData = String.format("%d;%d;%d;%d;%d;%d;%d;%d;%d;%d;%d",
                         versionStatusCount, logSegmentId, firstTxId, lastTxId, completionTime,
                         logSegmentSeqNo, lastEntryId, lastSlotId, minActiveEntryId, minActiveSlotId, startSequenceId);
+                    if (supportsTxIdIndex(version.value) && !txIdIndex.isEmpty()) {
+                        finalisedData = finalisedData + ";" + txIdIndex.serialize();
+                    }
                 }
             } else {
                 throw new IllegalStateException("Unsupported log segment ledger metadata version '" + version + "'");
@@ -1101,6 +1162,7 @@ public class LogSegmentMetadata {
                 + ", inprogress:" + inprogress
                 + ", minActiveDLSN:" + minActiveDLSN
                 + ", startSequenceId:" + startSequenceId
+                + ", txIdIndexSize:" + txIdIndex.size()
                 + "]";
     }
 
@@ -1154,4 +1216,19 @@ public class LogSegmentMetadata {
         return version >= LogSegmentMetadataVersion.VERSION_V5_SEQUENCE_ID.value;
     }
 
+    public boolean supportsTxIdIndex() {
+        return supportsTxIdIndex(version.value);
+    }
+
+    /**
+     * Whether the provided version supports the transaction id index.
+     *
+     * @param version
+     *          log segment metadata version
+     * @return true if the log segment supports the transaction id index.
+     */
+    public static boolean supportsTxIdIndex(int version) {
+        return version >= LogSegmentMetadataVersion.VERSION_V6_TXID_INDEX.value;
+    }
+
 }
@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.distributedlog;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A sparse index of the transaction ids of a log segment.
+ *
+ * <p>The index maps the first transaction id of some entries of the log segment to their entry id.
+ * An entry is indexed every <i>N</i> entries or <i>M</i> bytes written, so a reader seeking by
+ * transaction id only searches the entries between two index points, instead of the whole log
+ * segment. The index is built by the log segment writer and stored in the metadata of the log
+ * segment when the log segment is completed.
+ *
+ * <p>The index is stored as <code>txid:entryid</code> pairs separated by <code>,</code>.
+ */
+public class LogSegmentTxIdIndex {
+
+    public static final LogSegmentTxIdIndex EMPTY = new LogSegmentTxIdIndex(new long[0], new long[0]);
+
+    private static final char ENTRY_SEPARATOR = ',';
+    private static final char TXID_SEPARATOR = ':';
+
+    /**
+     * Builder to build the index while writing the log segment.
+     */
+    static class Builder {
+
+        private final int maxSize;
+        private int intervalEntries;
+        private long intervalBytes;
+
+        private long[] txIds;
+        private long[] entryIds;
+        private int size = 0;
+        private int numEntriesSinceLastIndex = 0;
+        private long numBytesSinceLastIndex = 0;
+
+        /**
+         * @param intervalEntries index an entry every <i>intervalEntries</i> entries, disabled if 0 or less
+         * @param intervalBytes index an entry every <i>intervalBytes</i> bytes, disabled if 0 or less
+         * @param maxSize max number of entries indexed, the interval doubles once the index is full
+         */
+        Builder(int intervalEntries, long intervalBytes, int maxSize) {
+            this.intervalEntries = intervalEntries > 0 ? intervalEntries : Integer.MAX_VALUE;
+            this.intervalBytes = intervalBytes > 0 ? intervalBytes : Long.MAX_VALUE;
+            this.maxSize = Math.max(2, maxSize);
+            this.txIds = new long[Math.min(16, this.maxSize)];
+            this.entryIds = new long[txIds.length];
+        }
+
+        /**
+         * Add an entry written to the log segment. The entries are added in the order of their entry ids.
+         *
+         * @param firstTxId the first transaction id of the entry
+         * @param entryId the entry id
+         * @param numBytes the size of the entry
+         */
+        void addEntry(long firstTxId, long entryId, long numBytes) {
+            if (numEntriesSinceLastIndex >= intervalEntries || numBytesSinceLastIndex >= intervalBytes) {
+                if (size > 0 && (firstTxId <= txIds[size - 1] || entryId <= entryIds[size - 1])) {
+                    // the transaction id didn't move forward, wait for the next entry
+                    numEntriesSinceLastIndex++;
+                    numBytesSinceLastIndex += numBytes;
+                    return;
+                }
+                if (size == maxSize) {
+                    compact();
+                }
+                if (size == txIds.length) {
+                    txIds = Arrays.copyOf(txIds, Math.min(size * 2, maxSize));
+                    entryIds = Arrays.copyOf(entryIds, txIds.length);
+                }
+                txIds[size] = firstTxId;
+                entryIds[size] = entryId;
+                size++;
+                numEntriesSinceLastIndex = 0;
+                numBytesSinceLastIndex = 0;
+            }
+            numEntriesSinceLastIndex++;
+            numBytesSinceLastIndex += numBytes;
+        }
+
+        /**
+         * Keep every other entry indexed and double the interval, to bound the size of the index.
+         */
+        private void compact() {
+            int newSize = 0;
+            for (int i = 1; i < size; i += 2) {
+                txIds[newSize] = txIds[i];
+                entryIds[newSize] = entryIds[i];
+                newSize++;
+            }
+            size = newSize;
+            if (intervalEntries != Integer.MAX_VALUE) {
+                intervalEntries = (int) Math.min(2L * intervalEntries, Integer.MAX_VALUE - 1);
+            }
+            if (intervalBytes != Long.MAX_VALUE) {
+                intervalBytes = Math.min(2 * intervalBytes, Long.MAX_VALUE - 1);
+            }
+        }
+
+        LogSegmentTxIdIndex build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            return new LogSegmentTxIdIndex(Arrays.copyOf(txIds, size), Arrays.copyOf(entryIds, size));
+        }
+    }
+
+    private final long[] txIds;
+    private final long[] entryIds;
+
+    private LogSegmentTxIdIndex(long[] txIds, long[] entryIds) {
+        this.txIds = txIds;
+        this.entryIds = entryIds;
+    }
+
+    public int size() {
+        return txIds.length;
+    }
+
+    public boolean isEmpty() {
+        return txIds.length == 0;
+    }
+
+    public long getTxId(int index) {
+        return txIds[index];
+    }
+
+    public long getEntryId(int index) {
+        return entryIds[index];
+    }
+
+    /**
+     * Get the entry to start searching the first record whose transaction id is not less than
+     * <code>transactionId</code> from.
+     *
+     * @param transactionId transaction id to search
+     * @return the last entry indexed whose first transaction id is less than <code>transactionId</code>,
+     *         or 0 if none.
+     */
+    public long getFloorEntryId(long transactionId) {
+        int index = search(transactionId) - 1;
+        return index >= 0 ? entryIds[index] : 0L;
+    }
+
+    /**
+     * Get the entry to stop searching the first record whose transaction id is not less than
+     * <code>transactionId</code> at.
+     *
+     * @param transactionId transaction id to search
+     * @return the first entry indexed whose first transaction id is not less than <code>transactionId</code>,
+     *         or -1 if none.
+     */
+    public long getCeilingEntryId(long transactionId) {
+        int index = search(transactionId);
+        return index < entryIds.length ? entryIds[index] : -1L;
+    }
+
+    // the index of the first entry indexed whose first transaction id is not less than transactionId
+    private int search(long transactionId) {
+        int low = 0;
+        int high = txIds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (txIds[mid] < transactionId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    String serialize() {
+        StringBuilder sb = new StringBuilder(txIds.length * 16);
+        for (int i = 0; i < txIds.length; i++) {
+            if (i > 0) {
+                sb.append(ENTRY_SEPARATOR);
+            }
+            sb.append(txIds[i]).append(TXID_SEPARATOR).append(entryIds[i]);
+        }
+        return sb.toString();
+    }
+
+    static LogSegmentTxIdIndex parse(String data) throws IOException {
+        if (data.isEmpty()) {
+            return EMPTY;
+        }
+        String[] parts = data.split(String.valueOf(ENTRY_SEPARATOR));
+        long[] txIds = new long[parts.length];
+        long[] entryIds = new long[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            int separatorIndex = parts[i].indexOf(TXID_SEPARATOR);
+            if (separatorIndex < 0) {
+                throw new IOException("Invalid transaction id index : " + data);
+            }
+            try {
+                txIds[i] = Long.parseLong(parts[i].substring(0, separatorIndex));
+                entryIds[i] = Long.parseLong(parts[i].substring(separatorIndex + 1));
+            } catch (NumberFormatException nfe) {
+                throw new IOException("Invalid transaction id index : " + data, nfe);
+            }
+            if (i > 0 && (txIds[i] <= txIds[i - 1] || entryIds[i] <= entryIds[i - 1])) {
+                throw new IOException("Transaction id index is not sorted : " + data);
+            }
+        }
+        return new LogSegmentTxIdIndex(txIds, entryIds);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof LogSegmentTxIdIndex)) {
+            return false;
+        }
+        LogSegmentTxIdIndex other = (LogSegmentTxIdIndex) o;
+        return Arrays.equals(txIds, other.txIds) && Arrays.equals(entryIds, other.entryIds);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(txIds) + Arrays.hashCode(entryIds);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + serialize() + "]";
+    }
+}
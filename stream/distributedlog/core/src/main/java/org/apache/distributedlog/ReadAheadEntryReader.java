@@ -26,19 +26,23 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import org.apache.bookkeeper.common.collections.GrowableMpScArrayConsumerBlockingQueue;
 import org.apache.bookkeeper.common.concurrent.FutureEventListener;
 import org.apache.bookkeeper.common.concurrent.FutureUtils;
 import org.apache.bookkeeper.common.util.OrderedScheduler;
 import org.apache.bookkeeper.common.util.SafeRunnable;
 import org.apache.bookkeeper.stats.AlertStatsLogger;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.stats.StatsLogger;
 import org.apache.bookkeeper.versioning.Versioned;
 import org.apache.distributedlog.callback.LogSegmentListener;
 import org.apache.distributedlog.exceptions.AlreadyTruncatedTransactionException;
@@ -59,6 +63,10 @@ import org.slf4j.LoggerFactory;
  *
  * <p>NOTE: all the state changes happen in the same thread. All *unsafe* methods should be submitted to the order
  * scheduler using stream name as the key.</p>
+ *
+ * <p>The entries read ahead are buffered in a multi-producer single-consumer array queue, bounded by
+ * {@link DistributedLogConfiguration#getReadAheadMaxBytes()} bytes, or by
+ * {@link DistributedLogConfiguration#getReadAheadMaxRecords()} entries if no byte limit is configured.</p>
  */
 class ReadAheadEntryReader implements
         AsyncCloseable,
@@ -92,12 +100,14 @@ class ReadAheadEntryReader implements
 
     class SegmentReader implements FutureEventListener<LogSegmentEntryReader> {
 
-        private LogSegmentMetadata metadata;
+        // the segment reader is driven by the ordered scheduler of the stream, the fields are volatile
+        // as the entry reader is opened and closed in the threads of the entry store
+        private volatile LogSegmentMetadata metadata;
         private final long startEntryId;
-        private CompletableFuture<LogSegmentEntryReader> openFuture = null;
-        private LogSegmentEntryReader reader = null;
-        private boolean isStarted = false;
-        private boolean isClosed = false;
+        private volatile CompletableFuture<LogSegmentEntryReader> openFuture = null;
+        private volatile LogSegmentEntryReader reader = null;
+        private volatile boolean isStarted = false;
+        private volatile boolean isClosed = false;
 
         SegmentReader(LogSegmentMetadata metadata,
                       long startEntryId) {
@@ -105,34 +115,34 @@ class ReadAheadEntryReader implements
             this.startEntryId = startEntryId;
         }
 
-        synchronized LogSegmentEntryReader getEntryReader() {
+        LogSegmentEntryReader getEntryReader() {
             return reader;
         }
 
-        synchronized boolean isBeyondLastAddConfirmed() {
+        boolean isBeyondLastAddConfirmed() {
             return null != reader && reader.isBeyondLastAddConfirmed();
         }
 
-        synchronized LogSegmentMetadata getSegment() {
+        LogSegmentMetadata getSegment() {
             return metadata;
         }
 
-        synchronized boolean isReaderOpen() {
+        boolean isReaderOpen() {
             return null != openFuture;
         }
 
-        synchronized void openReader() {
+        void openReader() {
             if (null != openFuture) {
                 return;
             }
             openFuture = entryStore.openReader(metadata, startEntryId).whenComplete(this);
         }
 
-        synchronized boolean isReaderStarted() {
+        boolean isReaderStarted() {
             return isStarted;
         }
 
-        synchronized void startRead() {
+        void startRead() {
             if (isStarted) {
                 return;
             }
@@ -144,7 +154,7 @@ class ReadAheadEntryReader implements
             }
         }
 
-        synchronized CompletableFuture<List<Entry.Reader>> readNext() {
+        CompletableFuture<List<Entry.Reader>> readNext() {
             if (null != reader) {
                 checkCatchingUpStatus(reader);
                 return reader.readNext(numReadAheadEntries);
@@ -153,22 +163,20 @@ class ReadAheadEntryReader implements
             }
         }
 
-        synchronized void updateLogSegmentMetadata(final LogSegmentMetadata segment) {
+        void updateLogSegmentMetadata(final LogSegmentMetadata segment) {
             if (null != reader) {
                 reader.onLogSegmentMetadataUpdated(segment);
                 this.metadata = segment;
             } else {
                 openFuture.thenAccept(reader1 -> {
                     reader1.onLogSegmentMetadataUpdated(segment);
-                    synchronized (SegmentReader.this) {
-                        SegmentReader.this.metadata = segment;
-                    }
+                    SegmentReader.this.metadata = segment;
                 });
             }
         }
 
         @Override
-        public synchronized  void onSuccess(LogSegmentEntryReader reader) {
+        public void onSuccess(LogSegmentEntryReader reader) {
             this.reader = reader;
             if (reader.getSegment().isInProgress()) {
                 reader.registerListener(ReadAheadEntryReader.this);
@@ -180,21 +188,17 @@ class ReadAheadEntryReader implements
             // no-op, the failure will be propagated on first read.
         }
 
-        synchronized boolean isClosed() {
+        boolean isClosed() {
             return isClosed;
         }
 
-        synchronized CompletableFuture<Void> close() {
+        CompletableFuture<Void> close() {
             if (null == openFuture) {
                 return FutureUtils.Void();
             }
             return FutureUtils.ensure(
                 openFuture.thenCompose(reader1 -> reader1.asyncClose()),
-                () -> {
-                    synchronized (SegmentReader.this) {
-                        isClosed = true;
-                    }
-                });
+                () -> isClosed = true);
         }
     }
 
@@ -217,10 +221,8 @@ class ReadAheadEntryReader implements
 
         @Override
         public void run() {
-            synchronized (ReadAheadEntryReader.this) {
-                if (null != closePromise) {
-                    return;
-                }
+            if (null != closePromise) {
+                return;
             }
             try {
                 safeRun();
@@ -251,13 +253,18 @@ class ReadAheadEntryReader implements
     private final String streamName;
     private final DLSN fromDLSN;
     private final int maxCachedEntries;
+    private final long maxCachedBytes;
     private final int numReadAheadEntries;
+    private final int maxParallelSegments;
     private final int idleWarnThresholdMillis;
 
     //
     // Cache
     //
-    private final LinkedBlockingQueue<Entry.Reader> entryQueue;
+    private final GrowableMpScArrayConsumerBlockingQueue<Entry.Reader> entryQueue;
+    private static final AtomicLongFieldUpdater<ReadAheadEntryReader> numCachedBytesUpdater =
+            AtomicLongFieldUpdater.newUpdater(ReadAheadEntryReader.class, "numCachedBytes");
+    private volatile long numCachedBytes = 0L;
 
     //
     // State of the reader
@@ -265,8 +272,9 @@ class ReadAheadEntryReader implements
 
     private final AtomicBoolean started = new AtomicBoolean(false);
     private boolean isInitialized = false;
-    private boolean readAheadPaused = false;
-    private CompletableFuture<Void> closePromise = null;
+    // whether the readahead is paused on a full cache, to resume it once the cache is drained
+    private volatile boolean readAheadPaused = false;
+    private volatile CompletableFuture<Void> closePromise = null;
     // segment readers
     private long currentSegmentSequenceNumber;
     private SegmentReader currentSegmentReader;
@@ -290,6 +298,9 @@ class ReadAheadEntryReader implements
     // Stats
     //
     private final AlertStatsLogger alertStatsLogger;
+    private final Counter cachedEntriesCounter;
+    private final Counter cachedBytesCounter;
+    private final Counter cacheFullCounter;
 
     public ReadAheadEntryReader(String streamName,
                                 DLSN fromDLSN,
@@ -299,6 +310,19 @@ class ReadAheadEntryReader implements
                                 OrderedScheduler scheduler,
                                 Ticker ticker,
                                 AlertStatsLogger alertStatsLogger) {
+        this(streamName, fromDLSN, conf, readHandler, entryStore, scheduler, ticker, alertStatsLogger,
+                NullStatsLogger.INSTANCE);
+    }
+
+    public ReadAheadEntryReader(String streamName,
+                                DLSN fromDLSN,
+                                DistributedLogConfiguration conf,
+                                BKLogReadHandler readHandler,
+                                LogSegmentEntryStore entryStore,
+                                OrderedScheduler scheduler,
+                                Ticker ticker,
+                                AlertStatsLogger alertStatsLogger,
+                                StatsLogger statsLogger) {
         this.streamName = streamName;
         this.fromDLSN = lastDLSN = fromDLSN;
         this.nextEntryPosition = new EntryPosition(
@@ -306,19 +330,25 @@ class ReadAheadEntryReader implements
                 fromDLSN.getEntryId());
         this.conf = conf;
         this.maxCachedEntries = conf.getReadAheadMaxRecords();
+        this.maxCachedBytes = conf.getReadAheadMaxBytes();
         this.numReadAheadEntries = conf.getReadAheadBatchSize();
+        this.maxParallelSegments = conf.getReadAheadMaxParallelLogSegments();
         this.idleWarnThresholdMillis = conf.getReaderIdleWarnThresholdMillis();
         this.readHandler = readHandler;
         this.entryStore = entryStore;
         this.scheduler = scheduler;
         this.readFunc = new ReadEntriesFunc(numReadAheadEntries);
         this.alertStatsLogger = alertStatsLogger;
+        // the fill level of the readahead cache
+        this.cachedEntriesCounter = statsLogger.getCounter("cached_entries");
+        this.cachedBytesCounter = statsLogger.getCounter("cached_bytes");
+        this.cacheFullCounter = statsLogger.getCounter("cache_full");
 
         // create the segment reader list
         this.segmentReaders = new LinkedList<SegmentReader>();
         this.segmentReadersToClose = new LinkedList<SegmentReader>();
         // create the readahead entry queue
-        this.entryQueue = new LinkedBlockingQueue<Entry.Reader>();
+        this.entryQueue = new GrowableMpScArrayConsumerBlockingQueue<Entry.Reader>();
 
         // start the idle reader detection
         lastEntryAddedTime = Stopwatch.createStarted(ticker);
@@ -398,10 +428,8 @@ class ReadAheadEntryReader implements
     }
 
     private void orderedSubmit(Runnable runnable) {
-        synchronized (this) {
-            if (null != closePromise) {
-                return;
-            }
+        if (null != closePromise) {
+            return;
         }
         try {
             scheduler.executeOrdered(streamName, runnable);
@@ -443,7 +471,7 @@ class ReadAheadEntryReader implements
         }
     }
 
-    synchronized boolean isClosed() {
+    boolean isClosed() {
         return null != closePromise;
     }
 
@@ -589,7 +617,14 @@ class ReadAheadEntryReader implements
         }
 
         lastEntryAddedTime.reset().start();
-        entryQueue.addAll(entries);
+        for (Entry.Reader entry : entries) {
+            // account the entry before it is visible to the reader
+            int numBytes = entry.getNumBytes();
+            numCachedBytesUpdater.addAndGet(this, numBytes);
+            cachedBytesCounter.addCount(numBytes);
+            cachedEntriesCounter.inc();
+            entryQueue.add(entry);
+        }
         if (!entries.isEmpty()) {
             Entry.Reader lastEntry = entries.get(entries.size() - 1);
             nextEntryPosition.advance(lastEntry.getLSSN(), lastEntry.getEntryId() + 1);
@@ -632,14 +667,17 @@ class ReadAheadEntryReader implements
             Thread.currentThread().interrupt();
             throw new DLInterruptedException("Interrupted on waiting next readahead entry : ", e);
         }
-        try {
-            return entry;
-        } finally {
-            // resume readahead if the cache becomes empty
-            if (null != entry && !isCacheFull()) {
+        if (null != entry) {
+            int numBytes = entry.getNumBytes();
+            numCachedBytesUpdater.addAndGet(this, -numBytes);
+            cachedBytesCounter.addCount(-numBytes);
+            cachedEntriesCounter.dec();
+            // resume readahead if it was paused on a full cache
+            if (readAheadPaused && !isCacheFull()) {
                 scheduleRead();
             }
         }
+        return entry;
     }
 
     /**
@@ -651,12 +689,24 @@ class ReadAheadEntryReader implements
         return entryQueue.size();
     }
 
+    /**
+     * Return number of bytes of the cached entries.
+     *
+     * @return number of bytes of the cached entries.
+     */
+    public long getNumCachedBytes() {
+        return numCachedBytes;
+    }
+
     /**
      * Return if the cache is full.
      *
      * @return true if the cache is full, otherwise false.
      */
     public boolean isCacheFull() {
+        if (maxCachedBytes > 0) {
+            return numCachedBytes >= maxCachedBytes;
+        }
         return getNumCachedEntries() >= maxCachedEntries;
     }
 
@@ -789,6 +839,8 @@ class ReadAheadEntryReader implements
         }
         if (null == currentSegmentReader) {
             unsafeMoveToNextLogSegment();
+        } else {
+            unsafePrefetchParallelSegments();
         }
         // resume readahead if necessary
         scheduleRead();
@@ -854,6 +906,7 @@ class ReadAheadEntryReader implements
                 reader.openReader();
             }
             unsafePrefetchNextSegment(true);
+            unsafePrefetchParallelSegments();
         }
         // mark the reader initialized
         isInitialized = true;
@@ -872,6 +925,25 @@ class ReadAheadEntryReader implements
         }
     }
 
+    /**
+     * Start reading the completed log segments following the current log segment when catching up,
+     * so up to <i>maxParallelSegments</i> log segments are prefetched in parallel. The entries are
+     * still read from the current log segment only, so they are returned in order.
+     */
+    private void unsafePrefetchParallelSegments() {
+        if (maxParallelSegments <= 1 || !isCatchingUp || null == currentSegmentReader) {
+            return;
+        }
+        int numSegmentsStarted = null == nextSegmentReader ? 1 : 2;
+        for (SegmentReader reader : segmentReaders) {
+            if (numSegmentsStarted >= maxParallelSegments || reader.getSegment().isInProgress()) {
+                break;
+            }
+            reader.startRead();
+            ++numSegmentsStarted;
+        }
+    }
+
     /**
      * Check if we are allowed to position the reader at <i>fromDLSN</i>.
      *
@@ -953,6 +1025,8 @@ class ReadAheadEntryReader implements
                         readHandler.getFullyQualifiedName());
                 isCatchingUp = false;
             }
+        } else {
+            unsafePrefetchParallelSegments();
         }
 
         scheduleRead();
@@ -986,15 +1060,21 @@ class ReadAheadEntryReader implements
                     }
                     switch (state) {
                     case IDLE:
+                    case PAUSED:
+                        if (cacheFull && hasMoreSegments) {
+                            // publish the pause before checking the cache again, so either the reader
+                            // draining the cache sees the pause and resumes the readahead, or we see
+                            // the cache drained here
+                            readAheadPaused = true;
+                            cacheFull = isCacheFull();
+                        }
                         if (cacheFull || !hasMoreSegments) {
+                            if (cacheFull && state == State.IDLE) {
+                                cacheFullCounter.inc();
+                            }
                             state = State.PAUSED;
                         } else {
-                            reader.readNext().whenComplete(ReadAheadEntryReader.this);
-                            state = State.READING;
-                        }
-                        break;
-                    case PAUSED:
-                        if (!cacheFull && hasMoreSegments) {
+                            readAheadPaused = false;
                             reader.readNext().whenComplete(ReadAheadEntryReader.this);
                             state = State.READING;
                         }
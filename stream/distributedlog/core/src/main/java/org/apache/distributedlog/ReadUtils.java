@@ -470,6 +470,9 @@ public class ReadUtils {
      *   <code>transactionId</code>.
      *
      * N could be chosen based on trading off concurrency and latency.
+     *
+     * If the log segment has a transaction id index, the search starts from the entries between the two
+     * index points around the provided <code>transactionId</code>, instead of the whole log segment.
      * </p>
      *
      * @param logName
@@ -548,7 +551,7 @@ public class ReadUtils {
                             transactionId,
                             executorService,
                             reader,
-                            Lists.newArrayList(0L, lastEntryId),
+                            getEntriesToSearch(segment, transactionId, lastEntryId),
                             nWays,
                             Optional.<LogRecordWithDLSN>empty(),
                             promise);
@@ -565,6 +568,40 @@ public class ReadUtils {
         return promise;
     }
 
+    /**
+     * Get the first entries to search provided <code>transactionId</code> in the log <code>segment</code>.
+     * The search is bounded by the transaction id index of the log segment, or covers the whole log segment
+     * if it isn't indexed.
+     *
+     * @param segment
+     *          log segment
+     * @param transactionId
+     *          transaction id to search
+     * @param lastEntryId
+     *          last entry id of the log segment
+     * @return the list of entries to search
+     */
+    static List<Long> getEntriesToSearch(
+            LogSegmentMetadata segment,
+            long transactionId,
+            long lastEntryId) {
+        LogSegmentTxIdIndex txIdIndex = segment.getTxIdIndex();
+        if (txIdIndex.isEmpty()) {
+            return Lists.newArrayList(0L, lastEntryId);
+        }
+        // the records before the floor entry are less than transactionId, the first record of the
+        // ceiling entry is not less than transactionId
+        long endEntryId = txIdIndex.getCeilingEntryId(transactionId);
+        if (endEntryId < 0 || endEntryId > lastEntryId) {
+            endEntryId = lastEntryId;
+        }
+        long startEntryId = Math.min(txIdIndex.getFloorEntryId(transactionId), endEntryId);
+        if (startEntryId == endEntryId) {
+            return Lists.newArrayList(startEntryId);
+        }
+        return Lists.newArrayList(startEntryId, endEntryId);
+    }
+
     /**
      * Find the log record whose transaction id is not less than provided <code>transactionId</code> from
      * entries between <code>startEntryId</code> and <code>endEntryId</code>.
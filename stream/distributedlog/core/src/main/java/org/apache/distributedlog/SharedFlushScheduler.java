@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.distributedlog;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.common.util.MathUtils;
+import org.apache.bookkeeper.common.util.OrderedScheduler;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.OpStatsLogger;
+import org.apache.bookkeeper.stats.StatsLogger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A periodic flush shared by the log segment writers of a namespace.
+ *
+ * <p>The log segment writers register to the shared flush instead of scheduling their own periodic flush
+ * tasks. On every tick, the shared flush dispatches a flush of each registered writer to the ordered thread
+ * of its stream, which flushes the writer if its periodic flush interval elapsed. So there is a single
+ * scheduled task for all the writers, while the writers are still flushed in parallel.
+ *
+ * <p>Stats:
+ * <ul>
+ * <li> `tick`: opstats. the time spent on dispatching the flushes of the writers on a tick.
+ * <li> `flushed_writers`: counter. the number of writers flushed.
+ * </ul>
+ */
+class SharedFlushScheduler implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedFlushScheduler.class);
+
+    private final OrderedScheduler scheduler;
+    private final Set<BKLogSegmentWriter> writers = ConcurrentHashMap.newKeySet();
+    private final ScheduledFuture<?> tickSchedule;
+
+    // Stats
+    private final OpStatsLogger tickTime;
+    private final Counter flushedWriters;
+
+    SharedFlushScheduler(OrderedScheduler scheduler, int tickMs, StatsLogger statsLogger) {
+        this.scheduler = scheduler;
+        this.tickTime = statsLogger.getOpStatsLogger("tick");
+        this.flushedWriters = statsLogger.getCounter("flushed_writers");
+        this.tickSchedule = scheduler.scheduleAtFixedRate(this, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    void register(BKLogSegmentWriter writer) {
+        writers.add(writer);
+    }
+
+    void unregister(BKLogSegmentWriter writer) {
+        writers.remove(writer);
+    }
+
+    int getNumWriters() {
+        return writers.size();
+    }
+
+    @Override
+    public void run() {
+        long tickNanos = MathUtils.nowInNano();
+        for (BKLogSegmentWriter writer : writers) {
+            scheduler.executeOrdered(writer.getStreamName(), () -> flush(writer, tickNanos));
+        }
+        tickTime.registerSuccessfulEvent(MathUtils.elapsedMicroSec(tickNanos), TimeUnit.MICROSECONDS);
+    }
+
+    private void flush(BKLogSegmentWriter writer, long tickNanos) {
+        try {
+            if (writer.flushIfNecessary(tickNanos)) {
+                flushedWriters.inc();
+            }
+        } catch (RuntimeException re) {
+            LOG.error("Failed to flush log segment {}", writer.getFullyQualifiedLogSegment(), re);
+        }
+    }
+
+    void close() {
+        tickSchedule.cancel(false);
+        writers.clear();
+    }
+}
@@ -37,6 +37,7 @@ import org.apache.distributedlog.config.DynamicDistributedLogConfiguration;
 import org.apache.distributedlog.feature.CoreFeatureKeys;
 import org.apache.distributedlog.injector.AsyncFailureInjector;
 import org.apache.distributedlog.injector.AsyncRandomFailureInjector;
+import org.apache.distributedlog.io.CompressionUtils;
 import org.apache.distributedlog.namespace.NamespaceDriver;
 import org.apache.distributedlog.namespace.NamespaceDriverManager;
 import org.apache.distributedlog.util.ConfUtils;
@@ -199,6 +200,8 @@ public class NamespaceBuilder {
 
         // validate the configuration
         _conf.validate();
+        // load the compression dictionary, to read the entries compressed with it
+        CompressionUtils.loadDictionary(_conf.getCompressionDictionaryFile());
         if (null == _dynConf) {
             _dynConf = ConfUtils.getConstDynConf(_conf);
         }
@@ -52,6 +52,11 @@ import org.slf4j.LoggerFactory;
 
 /**
  * LedgerAllocator impl.
+ *
+ * <p>The pool starts with <i>corePoolSize</i> allocators. If the max pool size is larger than the core
+ * size, the pool adds an allocator whenever an allocation takes its last idle allocator, up to the max
+ * pool size: the pool grows while the log segment rolls drain it faster than the allocators hand over
+ * their ledgers, so its size follows the roll rate of the log segments.
  */
 public class LedgerAllocatorPool implements LedgerAllocator {
 
@@ -64,6 +69,10 @@ public class LedgerAllocatorPool implements LedgerAllocator {
     private final ScheduledExecutorService scheduledExecutorService;
     private final String poolPath;
     private final int corePoolSize;
+    private final int maxPoolSize;
+    private final boolean ensembleWarmupEnabled;
+    // number of allocators of the pool, including the allocators being added
+    private int poolSize = 0;
 
     private final LinkedList<SimpleLedgerAllocator> pendingList =
             new LinkedList<SimpleLedgerAllocator>();
@@ -83,6 +92,8 @@ public class LedgerAllocatorPool implements LedgerAllocator {
                                ScheduledExecutorService scheduledExecutorService) throws IOException {
         this.poolPath = poolPath;
         this.corePoolSize = corePoolSize;
+        this.maxPoolSize = Math.max(corePoolSize, conf.getLedgerAllocatorPoolMaxSize());
+        this.ensembleWarmupEnabled = conf.getLedgerAllocatorEnsembleWarmupEnabled();
         this.conf = conf;
         this.quorumConfigProvider =
                 new ImmutableQuorumConfigProvider(conf.getQuorumConfig());
@@ -120,6 +131,11 @@ public class LedgerAllocatorPool implements LedgerAllocator {
         return rescueMap.size();
     }
 
+    @VisibleForTesting
+    synchronized int poolSize() {
+        return poolSize;
+    }
+
     @VisibleForTesting
     synchronized SimpleLedgerAllocator getLedgerAllocator(LedgerHandle lh) {
         return obtainMap.get(lh);
@@ -199,8 +215,7 @@ public class LedgerAllocatorPool implements LedgerAllocator {
                 }
                 Versioned<byte[]> allocatorData =
                         new Versioned<byte[]>(data, new LongVersion(stat.getVersion()));
-                SimpleLedgerAllocator allocator =
-                        new SimpleLedgerAllocator(path, allocatorData, quorumConfigProvider, zkc, bkc);
+                SimpleLedgerAllocator allocator = newAllocator(path, allocatorData);
                 allocator.start();
                 pendingList.add(allocator);
                 if (numPendings.decrementAndGet() == 0 && numFailures.get() == 0) {
@@ -216,6 +231,55 @@ public class LedgerAllocatorPool implements LedgerAllocator {
         if (numFailures.get() > 0) {
             throw new IOException("Failed to initialize allocators : " + allocators);
         }
+        poolSize = allocators.size();
+    }
+
+    private SimpleLedgerAllocator newAllocator(String path, Versioned<byte[]> allocatorData) {
+        return new SimpleLedgerAllocator(path, allocatorData, quorumConfigProvider, zkc, bkc)
+                .setEnsembleWarmupEnabled(ensembleWarmupEnabled);
+    }
+
+    /**
+     * Add an allocator to the pool. The allocator starts allocating a ledger once it is created.
+     */
+    private void addAllocator() {
+        AsyncCallback.StringCallback createCallback = new AsyncCallback.StringCallback() {
+            @Override
+            public void processResult(int rc, String path, Object ctx, String name) {
+                if (KeeperException.Code.OK.intValue() != rc) {
+                    logger.warn("Failed to add allocator to ledger allocator pool {} : ",
+                            poolPath, KeeperException.create(KeeperException.Code.get(rc)));
+                    synchronized (LedgerAllocatorPool.this) {
+                        --poolSize;
+                    }
+                    return;
+                }
+                // the allocator node was just created, so its version is 0
+                SimpleLedgerAllocator allocator =
+                        newAllocator(name, new Versioned<byte[]>(new byte[0], new LongVersion(0)));
+                allocator.start();
+                try {
+                    allocator.allocate();
+                } catch (IOException ioe) {
+                    logger.warn("Failed to allocate ledger by new allocator {} : ", name, ioe);
+                }
+                synchronized (LedgerAllocatorPool.this) {
+                    pendingList.addLast(allocator);
+                }
+                logger.info("Added allocator {} to ledger allocator pool {}.", name, poolPath);
+            }
+        };
+        try {
+            zkc.get().create(poolPath + "/A", new byte[0],
+                             zkc.getDefaultACL(),
+                             CreateMode.PERSISTENT_SEQUENTIAL,
+                             createCallback, null);
+        } catch (ZooKeeperClient.ZooKeeperConnectionException e) {
+            createCallback.processResult(KeeperException.Code.CONNECTIONLOSS.intValue(), poolPath, null, null);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            createCallback.processResult(KeeperException.Code.SYSTEMERROR.intValue(), poolPath, null, null);
+        }
     }
 
     private void scheduleAllocatorRescue(final SimpleLedgerAllocator ledgerAllocator) {
@@ -259,7 +323,7 @@ public class LedgerAllocatorPool implements LedgerAllocator {
                         Versioned<byte[]> allocatorData =
                                 new Versioned<byte[]>(data, new LongVersion(stat.getVersion()));
                         logger.info("Rescuing ledger allocator {}.", path);
-                        newAllocator = new SimpleLedgerAllocator(path, allocatorData, quorumConfigProvider, zkc, bkc);
+                        newAllocator = newAllocator(path, allocatorData);
                         newAllocator.start();
                         logger.info("Rescued ledger allocator {}.", path);
                     } else if (KeeperException.Code.NONODE.intValue() == rc) {
@@ -299,6 +363,7 @@ public class LedgerAllocatorPool implements LedgerAllocator {
     @Override
     public void allocate() throws IOException {
         SimpleLedgerAllocator allocator;
+        boolean growPool = false;
         synchronized (this) {
             if (pendingList.isEmpty()) {
                 // if no ledger allocator available, we should fail it immediately,
@@ -307,6 +372,14 @@ public class LedgerAllocatorPool implements LedgerAllocator {
             } else {
                 allocator = pendingList.removeFirst();
             }
+            // the last idle allocator is taken, grow the pool ahead of the next allocations
+            if (pendingList.isEmpty() && poolSize < maxPoolSize) {
+                ++poolSize;
+                growPool = true;
+            }
+        }
+        if (growPool) {
+            addAllocator();
         }
         boolean success = false;
         try {
@@ -109,6 +109,8 @@ public class SimpleLedgerAllocator implements LedgerAllocator, FutureEventListen
 
     // Ledger configuration
     private final QuorumConfigProvider quorumConfigProvider;
+    // whether to warm up the ensembles of the allocated ledgers
+    private volatile boolean ensembleWarmupEnabled = false;
 
     static CompletableFuture<Versioned<byte[]>> getAndCreateAllocationData(final String allocatePath,
                                                                 final ZooKeeperClient zkc) {
@@ -230,6 +232,18 @@ public class SimpleLedgerAllocator implements LedgerAllocator, FutureEventListen
         initialize(allocationData);
     }
 
+    /**
+     * Enable or disable warming up the ensembles of the allocated ledgers.
+     *
+     * @param enabled
+     *          flag to enable or disable ensemble warmup.
+     * @return ledger allocator.
+     */
+    public SimpleLedgerAllocator setEnsembleWarmupEnabled(boolean enabled) {
+        this.ensembleWarmupEnabled = enabled;
+        return this;
+    }
+
     /**
      * Initialize the allocator.
      *
@@ -394,10 +408,27 @@ public class SimpleLedgerAllocator implements LedgerAllocator, FutureEventListen
 
     @Override
     public void onSuccess(LedgerHandle lh) {
+        if (ensembleWarmupEnabled) {
+            warmupEnsemble(lh);
+        }
         // a ledger is created, update the ledger to allocation path before handling it over for usage.
         markAsAllocated(lh);
     }
 
+    /**
+     * Warm up the ensemble of the allocated ledger while it is marked as allocated. Reading the last add
+     * confirmed of the ledger reaches every bookie of its ensemble, so the connections to the bookies are
+     * established before the first writes to the ledger.
+     */
+    private void warmupEnsemble(final LedgerHandle lh) {
+        lh.readLastAddConfirmedAsync().whenComplete((lac, cause) -> {
+            if (null != cause && LOG.isDebugEnabled()) {
+                LOG.debug("Failed to warm up the ensemble of ledger {} allocated under {} : ",
+                        lh.getId(), allocatePath, cause);
+            }
+        });
+    }
+
     @Override
     public void onFailure(Throwable cause) {
         LOG.error("Error creating ledger for allocating {} : ", allocatePath, cause);
@@ -57,6 +57,7 @@ import org.apache.distributedlog.exceptions.AlreadyClosedException;
 import org.apache.distributedlog.exceptions.InvalidStreamNameException;
 import org.apache.distributedlog.impl.acl.ZKAccessControlManager;
 import org.apache.distributedlog.impl.federated.FederatedZKLogMetadataStore;
+import org.apache.distributedlog.impl.logsegment.BKLogSegmentEntryCache;
 import org.apache.distributedlog.impl.logsegment.BKLogSegmentEntryStore;
 import org.apache.distributedlog.impl.metadata.BKDLConfig;
 import org.apache.distributedlog.impl.metadata.ZKLogStreamMetadataStore;
@@ -152,6 +153,8 @@ public class BKNamespaceDriver implements NamespaceDriver {
     // log segment entry stores
     private LogSegmentEntryStore writerEntryStore;
     private LogSegmentEntryStore readerEntryStore;
+    // entry cache shared by the readers
+    private BKLogSegmentEntryCache readerEntryCache;
 
     // access control manager
     private AccessControlManager accessControlManager;
@@ -405,6 +408,9 @@ public class BKNamespaceDriver implements NamespaceDriver {
         readerBKC.close();
         writerZKC.close();
         readerZKC.close();
+        if (null != readerEntryCache) {
+            readerEntryCache.close();
+        }
         // release bookkeeper resources
         eventLoopGroup.shutdownGracefully();
         LOG.info("Release external resources used by channel factory.");
@@ -462,6 +468,12 @@ public class BKNamespaceDriver implements NamespaceDriver {
 
     private LogSegmentEntryStore getReaderEntryStore() {
         if (null == readerEntryStore) {
+            if (conf.getReaderEntryCacheSize() > 0) {
+                readerEntryCache = new BKLogSegmentEntryCache(
+                        conf.getReaderEntryCacheSize(),
+                        scheduler,
+                        statsLogger.scope("reader_entry_cache"));
+            }
             readerEntryStore = new BKLogSegmentEntryStore(
                     conf,
                     dynConf,
@@ -470,7 +482,8 @@ public class BKNamespaceDriver implements NamespaceDriver {
                     scheduler,
                     allocator,
                     statsLogger,
-                    failureInjector);
+                    failureInjector,
+                    readerEntryCache);
         }
         return readerEntryStore;
     }
@@ -31,6 +31,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
 import org.apache.bookkeeper.common.concurrent.FutureEventListener;
 import org.apache.bookkeeper.common.util.OrderedScheduler;
 import org.apache.bookkeeper.versioning.LongVersion;
@@ -353,6 +354,12 @@ public class ZKLogSegmentMetadataStore implements LogSegmentMetadataStore, Watch
         return LogSegmentMetadata.read(zkc, logSegmentPath, skipMinVersionCheck);
     }
 
+    @Override
+    public CompletableFuture<LogSegmentMetadata> getLogSegment(String logSegmentPath,
+                                                               LongConsumer bytesReadListener) {
+        return LogSegmentMetadata.read(zkc, logSegmentPath, skipMinVersionCheck, bytesReadListener);
+    }
+
     CompletableFuture<Versioned<List<String>>> zkGetLogSegmentNames(String logSegmentsPath, Watcher watcher) {
         CompletableFuture<Versioned<List<String>>> result = new CompletableFuture<Versioned<List<String>>>();
         try {
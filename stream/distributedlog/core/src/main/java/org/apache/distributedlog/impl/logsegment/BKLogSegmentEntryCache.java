@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.distributedlog.impl.logsegment;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import java.io.Closeable;
+import java.util.Enumeration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.apache.bookkeeper.bookie.EntryKey;
+import org.apache.bookkeeper.bookie.storage.ldb.ReadCache;
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.client.LedgerEntry;
+import org.apache.bookkeeper.client.LedgerHandle;
+import org.apache.bookkeeper.common.util.OrderedScheduler;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.Gauge;
+import org.apache.bookkeeper.stats.StatsLogger;
+
+/**
+ * A cache of the entries read from bookkeeper, shared by the log segment readers of a namespace.
+ *
+ * <p>The readers reading the same stream at the same position read the same entries: an entry is read
+ * from the bookies once and served from the cache to the other readers. Only the entries not beyond the
+ * last add confirmed of their ledgers are read through the cache, as they are immutable. The concurrent
+ * reads of an entry missing in the cache are coalesced into a single bookie read.
+ *
+ * <p>The cache is bounded by memory: the entries are copied into the segments of a {@link ReadCache},
+ * which drops the oldest segment once it is full.
+ *
+ * <p>Once the cache is closed, the entries are read from the bookies, as the readers may still read
+ * entries while the namespace is closed.
+ */
+public class BKLogSegmentEntryCache implements Closeable {
+
+    /**
+     * Callback on reading an entry through the cache.
+     */
+    public interface ReadEntryCallback {
+
+        /**
+         * Callback on reading the entry <i>entryId</i>.
+         *
+         * @param rc return code of the read
+         * @param entryId the entry id
+         * @param entry the entry data if the read succeeds, otherwise null. The callback owns the buffer.
+         */
+        void readEntryComplete(int rc, long entryId, ByteBuf entry);
+    }
+
+    private final ReadCache cache;
+    private final OrderedScheduler scheduler;
+    // the outstanding bookie reads, completed with their return code once the entry is cached
+    private final ConcurrentMap<EntryKey, CompletableFuture<Integer>> pendingReads;
+    // the cache is accessed under the read lock and closed under the write lock
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private boolean closed = false;
+
+    // Stats
+    private final Counter hitsCounter;
+    private final Counter missesCounter;
+    private final Counter coalescedReadsCounter;
+
+    public BKLogSegmentEntryCache(long maxCacheSize,
+                                  OrderedScheduler scheduler,
+                                  StatsLogger statsLogger) {
+        this.cache = new ReadCache(PooledByteBufAllocator.DEFAULT, maxCacheSize);
+        this.scheduler = scheduler;
+        this.pendingReads = new ConcurrentHashMap<>();
+        this.hitsCounter = statsLogger.getCounter("hits");
+        this.missesCounter = statsLogger.getCounter("misses");
+        this.coalescedReadsCounter = statsLogger.getCounter("coalesced_reads");
+        statsLogger.registerGauge("cached_bytes", new Gauge<Number>() {
+            @Override
+            public Number getDefaultValue() {
+                return 0L;
+            }
+
+            @Override
+            public Number getSample() {
+                return cache.size();
+            }
+        });
+    }
+
+    /**
+     * Read the entry <i>entryId</i> of ledger <i>lh</i>, from the cache if it is cached, otherwise from
+     * the bookies. The entry must not be beyond the last add confirmed of the ledger.
+     *
+     * @param lh ledger handle to read the entry from
+     * @param entryId entry id
+     * @param callback callback on reading the entry
+     */
+    public void asyncReadEntry(LedgerHandle lh, long entryId, ReadEntryCallback callback) {
+        final long ledgerId = lh.getId();
+        ByteBuf entry = getCachedEntry(ledgerId, entryId);
+        if (null != entry) {
+            hitsCounter.inc();
+            // complete the callback asynchronously as a bookie read does, not to recurse into the reader
+            try {
+                scheduler.executeOrdered(ledgerId,
+                        () -> callback.readEntryComplete(BKException.Code.OK, entryId, entry));
+            } catch (RejectedExecutionException ree) {
+                // the scheduler is shutting down
+                entry.release();
+                callback.readEntryComplete(BKException.Code.ClientClosedException, entryId, null);
+            }
+            return;
+        }
+        final EntryKey key = new EntryKey(ledgerId, entryId);
+        final CompletableFuture<Integer> readFuture = new CompletableFuture<>();
+        CompletableFuture<Integer> pendingRead = pendingReads.putIfAbsent(key, readFuture);
+        if (null != pendingRead) {
+            coalescedReadsCounter.inc();
+            pendingRead.thenAccept(rc -> onPendingReadComplete(rc, lh, entryId, callback));
+            return;
+        }
+        missesCounter.inc();
+        lh.asyncReadEntries(entryId, entryId, (rc, handle, entries, ctx) -> {
+            ByteBuf entryRead = null;
+            if (BKException.Code.OK == rc) {
+                entryRead = getEntry(entryId, entries);
+                if (null == entryRead) {
+                    rc = BKException.Code.UnexpectedConditionException;
+                } else {
+                    putCachedEntry(ledgerId, entryId, entryRead);
+                }
+            }
+            pendingReads.remove(key, readFuture);
+            readFuture.complete(rc);
+            callback.readEntryComplete(rc, entryId, entryRead);
+        }, null);
+    }
+
+    private ByteBuf getCachedEntry(long ledgerId, long entryId) {
+        closeLock.readLock().lock();
+        try {
+            return closed ? null : cache.get(ledgerId, entryId);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    private void putCachedEntry(long ledgerId, long entryId, ByteBuf entry) {
+        closeLock.readLock().lock();
+        try {
+            if (!closed) {
+                cache.put(ledgerId, entryId, entry);
+            }
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    private static ByteBuf getEntry(long entryId, Enumeration<LedgerEntry> entries) {
+        ByteBuf entry = null;
+        while (entries.hasMoreElements()) {
+            LedgerEntry ledgerEntry = entries.nextElement();
+            if (null == entry && ledgerEntry.getEntryId() == entryId) {
+                entry = ledgerEntry.getEntryBuffer();
+            } else {
+                ledgerEntry.getEntryBuffer().release();
+            }
+        }
+        return entry;
+    }
+
+    private void onPendingReadComplete(int rc, LedgerHandle lh, long entryId, ReadEntryCallback callback) {
+        if (BKException.Code.OK != rc) {
+            callback.readEntryComplete(rc, entryId, null);
+            return;
+        }
+        ByteBuf entry = getCachedEntry(lh.getId(), entryId);
+        if (null != entry) {
+            callback.readEntryComplete(rc, entryId, entry);
+            return;
+        }
+        // the entry is not cached, it is too large, already evicted or the cache is closed
+        lh.asyncReadEntries(entryId, entryId, (readRc, handle, entries, ctx) -> {
+            ByteBuf entryRead = null;
+            if (BKException.Code.OK == readRc) {
+                entryRead = getEntry(entryId, entries);
+                if (null == entryRead) {
+                    readRc = BKException.Code.UnexpectedConditionException;
+                }
+            }
+            callback.readEntryComplete(readRc, entryId, entryRead);
+        }, null);
+    }
+
+    /**
+     * @return the number of the entries cached
+     */
+    public long getNumCachedEntries() {
+        return cache.count();
+    }
+
+    @Override
+    public void close() {
+        closeLock.writeLock().lock();
+        try {
+            if (!closed) {
+                closed = true;
+                cache.close();
+            }
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+    }
+}
@@ -21,6 +21,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
+import io.netty.buffer.ByteBuf;
 import io.netty.util.ReferenceCountUtil;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -64,11 +65,11 @@ public class BKLogSegmentEntryReader implements Runnable, LogSegmentEntryReader,
     private static final Logger logger = LoggerFactory.getLogger(BKLogSegmentEntryReader.class);
 
     private class CacheEntry implements Runnable, AsyncCallback.ReadCallback,
-            AsyncCallback.ReadLastConfirmedAndEntryCallback {
+            AsyncCallback.ReadLastConfirmedAndEntryCallback, BKLogSegmentEntryCache.ReadEntryCallback {
 
         protected final long entryId;
         private boolean done;
-        private LedgerEntry entry;
+        private ByteBuf entry;
         private int rc;
 
         private CacheEntry(long entryId) {
@@ -88,18 +89,18 @@ public class BKLogSegmentEntryReader implements Runnable, LogSegmentEntryReader,
 
         synchronized void release() {
             if (null != this.entry) {
-                this.entry.getEntryBuffer().release();
+                this.entry.release();
                 this.entry = null;
             }
         }
 
-        void release(LedgerEntry entry) {
+        void release(ByteBuf entry) {
             if (null != entry) {
-                entry.getEntryBuffer().release();
+                entry.release();
             }
         }
 
-        void complete(LedgerEntry entry) {
+        void complete(ByteBuf entry) {
             // the reader is already closed
             if (isClosed()) {
                 release(entry);
@@ -135,10 +136,9 @@ public class BKLogSegmentEntryReader implements Runnable, LogSegmentEntryReader,
             return BKException.Code.OK == rc;
         }
 
-        synchronized LedgerEntry getEntry() {
+        synchronized ByteBuf getEntry() {
             // retain reference for the caller
-            this.entry.getEntryBuffer().retain();
-            return this.entry;
+            return this.entry.retain();
         }
 
         synchronized int getRc() {
@@ -179,6 +179,20 @@ public class BKLogSegmentEntryReader implements Runnable, LogSegmentEntryReader,
                 completeExceptionally(BKException.Code.UnexpectedConditionException);
                 return;
             }
+            complete(entry.getEntryBuffer());
+        }
+
+        @Override
+        public void readEntryComplete(int rc, long entryId, ByteBuf entry) {
+            if (failureInjector.shouldInjectCorruption(entryId, entryId)) {
+                release(entry);
+                entry = null;
+                rc = BKException.Code.DigestMatchException;
+            }
+            if (isDone() || !checkReturnCodeAndHandleFailure(rc, false)) {
+                release(entry);
+                return;
+            }
             complete(entry);
         }
 
@@ -204,7 +218,7 @@ public class BKLogSegmentEntryReader implements Runnable, LogSegmentEntryReader,
                 return;
             }
             if (null != entry && this.entryId == entryId) {
-                complete(entry);
+                complete(entry.getEntryBuffer());
                 return;
             }
             // the long poll is timeout or interrupted; we will retry it again.
@@ -244,6 +258,61 @@ public class BKLogSegmentEntryReader implements Runnable, LogSegmentEntryReader,
         }
     }
 
+    /**
+     * Callback of a batch read of the consecutive entries of <i>cacheEntries</i>.
+     */
+    private class BatchReadCallback implements AsyncCallback.ReadCallback {
+
+        private final List<CacheEntry> cacheEntries;
+
+        private BatchReadCallback(List<CacheEntry> cacheEntries) {
+            this.cacheEntries = cacheEntries;
+        }
+
+        @Override
+        public void readComplete(int rc,
+                                 LedgerHandle lh,
+                                 Enumeration<LedgerEntry> entries,
+                                 Object ctx) {
+            if (failureInjector.shouldInjectCorruption(
+                    cacheEntries.get(0).getEntryId(),
+                    cacheEntries.get(cacheEntries.size() - 1).getEntryId())) {
+                if (BKException.Code.OK == rc) {
+                    // the entries read are dropped
+                    while (entries.hasMoreElements()) {
+                        entries.nextElement().getEntryBuffer().release();
+                    }
+                }
+                rc = BKException.Code.DigestMatchException;
+            }
+            if (BKException.Code.OK != rc) {
+                // retry or fail the entries one by one
+                for (CacheEntry cacheEntry : cacheEntries) {
+                    if (!cacheEntry.isDone()) {
+                        cacheEntry.checkReturnCodeAndHandleFailure(rc, false);
+                    }
+                }
+                return;
+            }
+            numReadErrorsUpdater.set(BKLogSegmentEntryReader.this, 0);
+            int idx = 0;
+            while (entries.hasMoreElements()) {
+                LedgerEntry entry = entries.nextElement();
+                if (idx < cacheEntries.size() && cacheEntries.get(idx).getEntryId() == entry.getEntryId()
+                        && !cacheEntries.get(idx).isDone()) {
+                    cacheEntries.get(idx++).complete(entry.getEntryBuffer());
+                } else {
+                    entry.getEntryBuffer().release();
+                }
+            }
+            // the batch read returns less entries than requested if it reaches the max size of a response,
+            // read the remaining entries one by one
+            for (; idx < cacheEntries.size(); idx++) {
+                issueRead(cacheEntries.get(idx));
+            }
+        }
+    }
+
     private class PendingReadRequest {
         private final int numEntries;
         private final List<Entry.Reader> entries;
@@ -294,6 +363,9 @@ public class BKLogSegmentEntryReader implements Runnable, LogSegmentEntryReader,
     private final boolean deserializeRecordSet;
     private final int numPrefetchEntries;
     private final int maxPrefetchEntries;
+    private final boolean batchReadEnabled;
+    private final int minBatchReadEntries;
+    private final BKLogSegmentEntryCache entryCache;
     // state
     private CompletableFuture<Void> closePromise = null;
     private LogSegmentMetadata metadata;
@@ -328,6 +400,7 @@ public class BKLogSegmentEntryReader implements Runnable, LogSegmentEntryReader,
     private final AsyncFailureInjector failureInjector;
     // Stats
     private final Counter skippedBrokenEntriesCounter;
+    private final Counter batchReadsCounter;
 
     BKLogSegmentEntryReader(LogSegmentMetadata metadata,
                             LedgerHandle lh,
@@ -337,6 +410,18 @@ public class BKLogSegmentEntryReader implements Runnable, LogSegmentEntryReader,
                             DistributedLogConfiguration conf,
                             StatsLogger statsLogger,
                             AsyncFailureInjector failureInjector) {
+        this(metadata, lh, startEntryId, bk, scheduler, conf, statsLogger, failureInjector, null);
+    }
+
+    BKLogSegmentEntryReader(LogSegmentMetadata metadata,
+                            LedgerHandle lh,
+                            long startEntryId,
+                            BookKeeper bk,
+                            OrderedScheduler scheduler,
+                            DistributedLogConfiguration conf,
+                            StatsLogger statsLogger,
+                            AsyncFailureInjector failureInjector,
+                            BKLogSegmentEntryCache entryCache) {
         this.metadata = metadata;
         this.lssn = metadata.getLogSegmentSequenceNumber();
         this.startSequenceId = metadata.getStartSequenceId();
@@ -348,6 +433,9 @@ public class BKLogSegmentEntryReader implements Runnable, LogSegmentEntryReader,
         this.conf = conf;
         this.numPrefetchEntries = conf.getNumPrefetchEntriesPerLogSegment();
         this.maxPrefetchEntries = conf.getMaxPrefetchEntriesPerLogSegment();
+        this.batchReadEnabled = conf.getReadAheadBatchReadEnabled();
+        this.minBatchReadEntries = Math.max(1, numPrefetchEntries / 2);
+        this.entryCache = entryCache;
         this.scheduler = scheduler;
         this.openLedgerHandles = Lists.newArrayList();
         this.openLedgerHandles.add(lh);
@@ -366,6 +454,7 @@ public class BKLogSegmentEntryReader implements Runnable, LogSegmentEntryReader,
         this.failureInjector = failureInjector;
         // Stats
         this.skippedBrokenEntriesCounter = statsLogger.getCounter("skipped_broken_entries");
+        this.batchReadsCounter = statsLogger.getCounter("batch_reads");
     }
 
     @VisibleForTesting
@@ -575,6 +664,7 @@ public class BKLogSegmentEntryReader implements Runnable, LogSegmentEntryReader,
 
     private void prefetchIfNecessary() {
         List<CacheEntry> entriesToFetch;
+        boolean batchRead;
         synchronized (this) {
             if (cachedEntries >= maxPrefetchEntries) {
                 return;
@@ -584,6 +674,12 @@ public class BKLogSegmentEntryReader implements Runnable, LogSegmentEntryReader,
             if (numEntriesToFetch <= 0) {
                 return;
             }
+            // the entries of a closed ledger are read by batches, wait for enough outstanding entries
+            // to complete before issuing the next batch
+            batchRead = batchReadEnabled && isLedgerClosed();
+            if (batchRead && numOutstandingEntries > 0 && numEntriesToFetch < minBatchReadEntries) {
+                return;
+            }
             entriesToFetch = new ArrayList<CacheEntry>(numEntriesToFetch);
             for (int i = 0; i < numEntriesToFetch; i++) {
                 if (cachedEntries >= maxPrefetchEntries) {
@@ -601,11 +697,29 @@ public class BKLogSegmentEntryReader implements Runnable, LogSegmentEntryReader,
                 ++nextEntryId;
             }
         }
+        if (batchRead && entriesToFetch.size() > 1) {
+            issueBatchRead(entriesToFetch);
+            return;
+        }
         for (CacheEntry entry : entriesToFetch) {
             issueRead(entry);
         }
     }
 
+    private void issueBatchRead(List<CacheEntry> cacheEntries) {
+        if (isClosed()) {
+            return;
+        }
+        batchReadsCounter.inc();
+        // the max size of the response is bounded by the max frame size of the bookkeeper client
+        getLh().asyncBatchReadEntries(
+                cacheEntries.get(0).getEntryId(),
+                cacheEntries.size(),
+                0L,
+                new BatchReadCallback(cacheEntries),
+                null);
+    }
+
 
     private void issueRead(CacheEntry cacheEntry) {
         if (isClosed()) {
@@ -629,6 +743,10 @@ public class BKLogSegmentEntryReader implements Runnable, LogSegmentEntryReader,
     }
 
     private void issueSimpleRead(CacheEntry cacheEntry) {
+        if (null != entryCache) {
+            entryCache.asyncReadEntry(getLh(), cacheEntry.entryId, cacheEntry);
+            return;
+        }
         getLh().asyncReadEntries(cacheEntry.entryId, cacheEntry.entryId, cacheEntry, null);
     }
 
@@ -654,13 +772,13 @@ public class BKLogSegmentEntryReader implements Runnable, LogSegmentEntryReader,
     // Foreground Read Operations
     //
 
-    Entry.Reader processReadEntry(LedgerEntry entry) throws IOException {
+    Entry.Reader processReadEntry(long entryId, ByteBuf entry) throws IOException {
         return Entry.newBuilder()
                 .setLogSegmentInfo(lssn, startSequenceId)
-                .setEntryId(entry.getEntryId())
+                .setEntryId(entryId)
                 .setEnvelopeEntry(envelopeEntries)
                 .deserializeRecordSet(deserializeRecordSet)
-                .setEntry(entry.getEntryBuffer())
+                .setEntry(entry)
                 .buildReader();
     }
 
@@ -794,7 +912,7 @@ public class BKLogSegmentEntryReader implements Runnable, LogSegmentEntryReader,
                     try {
                         // the reference is retained on `entry.getEntry()`.
                         // Entry.Reader is responsible for releasing it.
-                        nextRequest.addEntry(processReadEntry(entry.getEntry()));
+                        nextRequest.addEntry(processReadEntry(entry.getEntryId(), entry.getEntry()));
                     } catch (IOException e) {
                         completeExceptionally(e, false);
                         return;
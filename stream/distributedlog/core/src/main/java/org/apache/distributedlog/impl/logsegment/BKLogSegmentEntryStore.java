@@ -100,6 +100,8 @@ public class BKLogSegmentEntryStore implements
     private final AsyncFailureInjector failureInjector;
     // ledger allocator
     private final LedgerAllocator allocator;
+    // entry cache shared by the readers
+    private final BKLogSegmentEntryCache entryCache;
 
     public BKLogSegmentEntryStore(DistributedLogConfiguration conf,
                                   DynamicDistributedLogConfiguration dynConf,
@@ -109,6 +111,18 @@ public class BKLogSegmentEntryStore implements
                                   LedgerAllocator allocator,
                                   StatsLogger statsLogger,
                                   AsyncFailureInjector failureInjector) {
+        this(conf, dynConf, zkc, bkc, scheduler, allocator, statsLogger, failureInjector, null);
+    }
+
+    public BKLogSegmentEntryStore(DistributedLogConfiguration conf,
+                                  DynamicDistributedLogConfiguration dynConf,
+                                  ZooKeeperClient zkc,
+                                  BookKeeperClient bkc,
+                                  OrderedScheduler scheduler,
+                                  LedgerAllocator allocator,
+                                  StatsLogger statsLogger,
+                                  AsyncFailureInjector failureInjector,
+                                  BKLogSegmentEntryCache entryCache) {
         this.conf = conf;
         this.dynConf = dynConf;
         this.zkc = zkc;
@@ -118,6 +132,7 @@ public class BKLogSegmentEntryStore implements
         this.allocator = allocator;
         this.statsLogger = statsLogger;
         this.failureInjector = failureInjector;
+        this.entryCache = entryCache;
     }
 
     @Override
@@ -167,7 +182,7 @@ public class BKLogSegmentEntryStore implements
                     quorumConfigProvider,
                     zkc,
                     bkc,
-                    ledgerMetadata);
+                    ledgerMetadata).setEnsembleWarmupEnabled(conf.getLedgerAllocatorEnsembleWarmupEnabled());
             ledgerAllocatorDelegator = new LedgerAllocatorDelegator(allocator, true);
         } else {
             ledgerAllocatorDelegator = allocator;
@@ -243,7 +258,8 @@ public class BKLogSegmentEntryStore implements
                     scheduler,
                     conf,
                     statsLogger,
-                    failureInjector);
+                    failureInjector,
+                    entryCache);
             FutureUtils.complete(request.openPromise, reader);
         } catch (IOException e) {
             FutureUtils.completeExceptionally(request.openPromise, e);
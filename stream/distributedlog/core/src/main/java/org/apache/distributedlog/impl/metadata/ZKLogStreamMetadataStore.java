@@ -67,6 +67,7 @@ import org.apache.distributedlog.impl.ZKLogSegmentMetadataStore;
 import org.apache.distributedlog.lock.DistributedLock;
 import org.apache.distributedlog.lock.SessionLockFactory;
 import org.apache.distributedlog.lock.ZKDistributedLock;
+import org.apache.distributedlog.lock.ZKLeaseSessionLockFactory;
 import org.apache.distributedlog.lock.ZKSessionLockFactory;
 import org.apache.distributedlog.logsegment.LogSegmentMetadataStore;
 import org.apache.distributedlog.metadata.LogMetadata;
@@ -144,14 +145,26 @@ public class ZKLogStreamMetadataStore implements LogStreamMetadataStore {
 
     private synchronized SessionLockFactory getLockFactory(boolean createIfNull) {
         if (createIfNull && null == lockFactory) {
-            lockFactory = new ZKSessionLockFactory(
-                    zooKeeperClient,
-                    clientId,
-                    getLockStateExecutor(createIfNull),
-                    conf.getZKNumRetries(),
-                    conf.getLockTimeoutMilliSeconds(),
-                    conf.getZKRetryBackoffStartMillis(),
-                    statsLogger);
+            if (conf.getLockLeaseTimeoutMilliSeconds() > 0) {
+                lockFactory = new ZKLeaseSessionLockFactory(
+                        zooKeeperClient,
+                        clientId,
+                        getLockStateExecutor(createIfNull),
+                        conf.getZKNumRetries(),
+                        conf.getLockTimeoutMilliSeconds(),
+                        conf.getLockLeaseTimeoutMilliSeconds(),
+                        conf.getZKRetryBackoffStartMillis(),
+                        statsLogger);
+            } else {
+                lockFactory = new ZKSessionLockFactory(
+                        zooKeeperClient,
+                        clientId,
+                        getLockStateExecutor(createIfNull),
+                        conf.getZKNumRetries(),
+                        conf.getLockTimeoutMilliSeconds(),
+                        conf.getZKRetryBackoffStartMillis(),
+                        statsLogger);
+            }
         }
         return lockFactory;
     }
@@ -20,6 +20,7 @@ package org.apache.distributedlog.lock;
 import java.util.concurrent.CompletableFuture;
 import org.apache.distributedlog.exceptions.LockingException;
 import org.apache.distributedlog.io.AsyncCloseable;
+import org.apache.distributedlog.util.Transaction;
 
 /**
  * Interface for distributed locking.
@@ -51,4 +52,15 @@ public interface DistributedLock extends AsyncCloseable {
      */
     void checkOwnership() throws LockingException;
 
+    /**
+     * Fence the metadata updates of the given transaction by the ownership of the lock, so the transaction
+     * fails if the lock was acquired by another owner before it is executed. Locks whose ownership can't
+     * be checked in the transaction don't add anything to it.
+     *
+     * @param txn the transaction of the metadata updates
+     * @throws LockingException if the lock isn't held
+     */
+    default void fence(Transaction<Object> txn) throws LockingException {
+    }
+
 }
@@ -21,6 +21,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import org.apache.distributedlog.exceptions.LockingException;
 import org.apache.distributedlog.exceptions.OwnershipAcquireFailedException;
+import org.apache.distributedlog.util.Transaction;
 
 /**
  * One time lock.
@@ -125,4 +126,14 @@ public interface SessionLock {
      */
     CompletableFuture<Void> asyncUnlock();
 
+    /**
+     * Fence the metadata updates of the given transaction by the ownership of the lock.
+     *
+     * @param txn the transaction of the metadata updates
+     * @throws LockingException if the lock isn't held
+     * @see DistributedLock#fence(Transaction)
+     */
+    default void fence(Transaction<Object> txn) throws LockingException {
+    }
+
 }
@@ -36,6 +36,7 @@ import org.apache.distributedlog.common.concurrent.AsyncSemaphore;
 import org.apache.distributedlog.exceptions.LockingException;
 import org.apache.distributedlog.exceptions.OwnershipAcquireFailedException;
 import org.apache.distributedlog.exceptions.UnexpectedException;
+import org.apache.distributedlog.util.Transaction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -327,6 +328,14 @@ public class ZKDistributedLock implements LockListener, DistributedLock {
         }
     }
 
+    @Override
+    public synchronized void fence(Transaction<Object> txn) throws LockingException {
+        if (null == internalLock) {
+            throw new LockingException(lockPath, "fence before acquiring");
+        }
+        internalLock.fence(txn);
+    }
+
     @VisibleForTesting
     int getReacquireCount() {
         return reacquireCountUpdater.get(this);
@@ -0,0 +1,838 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.distributedlog.lock;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.bookkeeper.common.concurrent.FutureUtils;
+import org.apache.bookkeeper.common.util.MathUtils;
+import org.apache.bookkeeper.common.util.OrderedScheduler;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.OpStatsLogger;
+import org.apache.bookkeeper.stats.StatsLogger;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.distributedlog.DistributedLogConstants;
+import org.apache.distributedlog.ZooKeeperClient;
+import org.apache.distributedlog.common.stats.OpStatsListener;
+import org.apache.distributedlog.exceptions.DLInterruptedException;
+import org.apache.distributedlog.exceptions.LockingException;
+import org.apache.distributedlog.exceptions.OwnershipAcquireFailedException;
+import org.apache.distributedlog.exceptions.ZKException;
+import org.apache.distributedlog.lock.ZKSessionLock.State;
+import org.apache.distributedlog.util.Transaction;
+import org.apache.distributedlog.zk.DefaultZKOp;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.data.Stat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A lock backed by a lease stored in a persistent znode next to the lock path. This is a one-time lock,
+ * as {@link ZKSessionLock}.
+ *
+ * <p>The lease znode is a sibling of the lock path. It records the owner of the lease (client id and
+ * zookeeper session id). A free lock is acquired by creating the lease znode; the lease znode is deleted
+ * when the lock is released. The owner renews the lease by a conditional update of the lease znode every
+ * third of the lease timeout.
+ *
+ * <p>A waiter watches the lease znode. If the lease znode isn't updated for a lease timeout, measured
+ * by the waiter's clock from the time it observed the last update, the owner is considered dead and
+ * the waiter takes over the lease by a conditional update of the lease znode, without waiting for the
+ * zookeeper session of the owner to expire. No clock is compared with the clocks of the zookeeper servers
+ * or of other clients. The owner considers its lease expired once it failed to renew it for two thirds
+ * of the lease timeout, so it expires before it is taken over, and notifies its {@link LockListener}.
+ *
+ * <p>The epoch of a lease is the version of the epoch znode, another sibling of the lock path, which is
+ * updated in the same metadata transaction as the lease znode whenever the lease is granted, so the epochs
+ * of the successive owners increase. The owner {@link #fence(Transaction) fences} its log segment updates
+ * by checking the epoch znode in their transactions, so an owner whose lease was taken over can't create,
+ * complete or roll a log segment any more. A lease is only taken over if the modification zxid of its znode
+ * is still the one observed expired, so a lease released and granted again in between, at the same version,
+ * isn't taken over.
+ *
+ * <p>A lease lock is also a member of the lock path, as the session locks, so the two kinds of locks
+ * exclude each other: a session lock waits for the lease locks ahead of it, and a lease lock doesn't
+ * claim the lease while a session lock is ahead of it.
+ *
+ * <h3>Metrics</h3>
+ * <ul>
+ * <li>tryAcquire: opstats. latency spent on try locking operations. it includes timeouts.
+ * <li>tryTimeouts: counter. the number of timeouts on try locking operations
+ * <li>unlock: opstats. latency spent on unlock operations.
+ * <li>renewLease: opstats. latency spent on renewing the lease.
+ * <li>takeovers: counter. the number of leases taken over from another owner.
+ * </ul>
+ */
+class ZKLeaseSessionLock implements SessionLock, Watcher {
+
+    static final Logger LOG = LoggerFactory.getLogger(ZKLeaseSessionLock.class);
+
+    private static final String LEASE_NODE_SUFFIX = "_lease";
+    private static final String EPOCH_NODE_SUFFIX = "_epoch";
+    private static final String LEASE_PART_SEP = ":";
+    // the client id of the members of the lease locks, so they are told from the members of the session locks
+    private static final String LEASE_MEMBER_CLIENT_PREFIX = "lease:";
+    // member_<urlencoded lease member client id>
+    private static final String LEASE_MEMBER_NAME_PREFIX = "member_lease%3A";
+
+    static String getLeasePath(String lockPath) {
+        return lockPath + LEASE_NODE_SUFFIX;
+    }
+
+    static String getEpochPath(String lockPath) {
+        return lockPath + EPOCH_NODE_SUFFIX;
+    }
+
+    static boolean isLeaseMember(String nodeName) {
+        return nodeName.startsWith(LEASE_MEMBER_NAME_PREFIX);
+    }
+
+    static byte[] serializeLeaseOwner(Pair<String, Long> owner) {
+        // <owner_session>:<clientid>
+        return (owner.getRight() + LEASE_PART_SEP + owner.getLeft()).getBytes(UTF_8);
+    }
+
+    static Pair<String, Long> deserializeLeaseOwner(byte[] data) {
+        String owner = new String(data, UTF_8);
+        String[] parts = owner.split(LEASE_PART_SEP, 2);
+        if (2 == parts.length) {
+            try {
+                return Pair.of(parts[1], Long.parseLong(parts[0]));
+            } catch (NumberFormatException nfe) {
+                // fall through
+            }
+        }
+        // a malformed lease is owned by an unknown owner, it is taken over as it isn't renewed
+        LOG.warn("Malformed lease data {}", owner);
+        return Pair.of(owner, -1L);
+    }
+
+    private final ZooKeeperClient zkClient;
+    private final ZooKeeper zk;
+    private final String lockPath;
+    private final String leasePath;
+    private final String epochPath;
+    private final String memberPathPrefix;
+    // Identify a unique lock
+    private final Pair<String, Long> lockId;
+    private final byte[] leaseData;
+    private final byte[] memberData;
+    private final DistributedLockContext lockContext;
+    private final OrderedScheduler lockStateExecutor;
+    private final long lockOpTimeout;
+    private final long leaseTimeoutNanos;
+    private final long renewIntervalMs;
+
+    private final CompletableFuture<Boolean> acquireFuture;
+    private volatile State state = State.INIT;
+    private LockListener lockListener = null;
+
+    // following variables are only accessed in the lock state executor
+    private boolean waitForLease = false;
+    private CompletableFuture<String> tryPromise = null;
+    private boolean leaseOpPending = false;
+    private ScheduledFuture<?> leaseTask = null;
+    private String memberPath = null;
+    // whether a member of a session lock might be ahead of this lock
+    private boolean blockedByMember = true;
+    // the lease observed by a waiter
+    private long observedLeaseZxid = -1L;
+    private long observedLeaseNanos = 0L;
+    // the lease owned by this lock
+    private volatile int leaseEpoch = -1;
+    private int leaseVersion = -1;
+    private volatile long leaseRenewedNanos = 0L;
+
+    private final OpStatsLogger tryStats;
+    private final Counter tryTimeouts;
+    private final OpStatsLogger unlockStats;
+    private final OpStatsLogger renewStats;
+    private final Counter takeovers;
+
+    /**
+     * Creates a lease lock using the given {@code zkClient} to coordinate locking.
+     *
+     * @param zkClient The ZooKeeper client to use.
+     * @param lockPath The path used to manage the lock under.
+     * @param clientId client id use for lock.
+     * @param lockStateExecutor executor to execute all lock state changes.
+     * @param lockOpTimeout timeout of lock operations
+     * @param leaseTimeoutMs timeout of the lease
+     * @param statsLogger stats logger
+     * @param lockContext context shared by the locks of a distributed lock
+     */
+    ZKLeaseSessionLock(ZooKeeperClient zkClient,
+                       String lockPath,
+                       String clientId,
+                       OrderedScheduler lockStateExecutor,
+                       long lockOpTimeout,
+                       long leaseTimeoutMs,
+                       StatsLogger statsLogger,
+                       DistributedLockContext lockContext)
+            throws IOException {
+        this.zkClient = zkClient;
+        try {
+            this.zk = zkClient.get();
+        } catch (ZooKeeperClient.ZooKeeperConnectionException zce) {
+            throw new ZKException("Failed to get zookeeper client for lock " + lockPath,
+                    KeeperException.Code.CONNECTIONLOSS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DLInterruptedException("Interrupted on getting zookeeper client for lock " + lockPath, e);
+        }
+        this.lockPath = lockPath;
+        this.leasePath = getLeasePath(lockPath);
+        this.epochPath = getEpochPath(lockPath);
+        this.lockId = Pair.of(clientId, this.zk.getSessionId());
+        this.leaseData = serializeLeaseOwner(lockId);
+        this.memberPathPrefix = ZKSessionLock.getLockPathPrefixV3(
+                lockPath, LEASE_MEMBER_CLIENT_PREFIX + clientId, lockId.getRight());
+        this.memberData = ZKSessionLock.serializeClientId(LEASE_MEMBER_CLIENT_PREFIX + clientId);
+        this.lockContext = lockContext;
+        this.lockStateExecutor = lockStateExecutor;
+        this.lockOpTimeout = lockOpTimeout;
+        this.leaseTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(leaseTimeoutMs);
+        this.renewIntervalMs = Math.max(1L, leaseTimeoutMs / 3);
+
+        this.tryStats = statsLogger.getOpStatsLogger("tryAcquire");
+        this.tryTimeouts = statsLogger.getCounter("tryTimeouts");
+        this.unlockStats = statsLogger.getOpStatsLogger("unlock");
+        this.renewStats = statsLogger.getOpStatsLogger("renewLease");
+        this.takeovers = statsLogger.getCounter("takeovers");
+
+        // Attach interrupt handler to acquire future so clients can abort the future.
+        this.acquireFuture = FutureUtils.createFuture();
+        this.acquireFuture.whenComplete((value, cause) -> {
+            if (null != cause) {
+                ZKLeaseSessionLock.this.asyncUnlock(cause);
+            }
+        });
+    }
+
+    @Override
+    public ZKLeaseSessionLock setLockListener(LockListener lockListener) {
+        this.lockListener = lockListener;
+        return this;
+    }
+
+    @VisibleForTesting
+    State getLockState() {
+        return state;
+    }
+
+    @VisibleForTesting
+    Pair<String, Long> getLockId() {
+        return lockId;
+    }
+
+    @VisibleForTesting
+    int getLeaseEpoch() {
+        return leaseEpoch;
+    }
+
+    @Override
+    public boolean isLockExpired() {
+        return State.EXPIRED == state || State.CLOSING == state || State.CLOSED == state;
+    }
+
+    @Override
+    public boolean isLockHeld() {
+        return State.CLAIMED == state && !isLeaseExpired(MathUtils.nowInNano());
+    }
+
+    @Override
+    public void fence(Transaction<Object> txn) throws LockingException {
+        if (!isLockHeld() || !zk.getState().isAlive()) {
+            // the member of this lock is gone with the session, so a session lock might be claimed
+            throw new LockingException(lockPath, "Lease isn't held by " + lockId);
+        }
+        // the transaction fails if the lease was granted to another owner since this lock claimed it
+        txn.addOp(DefaultZKOp.of(Op.check(epochPath, leaseEpoch), null));
+    }
+
+    private boolean isTrying() {
+        return State.PREPARING == state || State.WAITING == state;
+    }
+
+    private boolean isLeaseExpired(long nowNanos) {
+        // expire the lease before the waiters could take it over
+        return nowNanos - leaseRenewedNanos >= leaseTimeoutNanos - TimeUnit.MILLISECONDS.toNanos(renewIntervalMs);
+    }
+
+    private boolean isOwnedByContext(Pair<String, Long> owner) {
+        return lockId.equals(owner) || lockContext.hasLockId(owner);
+    }
+
+    @Override
+    public void process(WatchedEvent event) {
+        if (Event.EventType.None == event.getType()) {
+            return;
+        }
+        lockStateExecutor.executeOrdered(lockPath, () -> {
+            if (State.WAITING != state || leaseOpPending) {
+                return;
+            }
+            if (blockedByMember) {
+                // a member ahead of this lock might be gone
+                checkMembers();
+            } else if (lockPath.equals(event.getPath())) {
+                // the members don't matter any more, only the lease does
+                return;
+            } else if (Event.EventType.NodeDeleted == event.getType()) {
+                // the lease is released
+                createLease();
+            } else {
+                readLease();
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<LockWaiter> asyncTryLock(final long timeout, final TimeUnit unit) {
+        final CompletableFuture<String> result = new CompletableFuture<String>();
+        final boolean wait = DistributedLogConstants.LOCK_IMMEDIATE != timeout;
+        lockStateExecutor.executeOrdered(lockPath, () -> {
+            if (State.INIT != state) {
+                result.completeExceptionally(new LockStateChangedException(lockPath, lockId, State.INIT, state));
+                return;
+            }
+            state = State.PREPARING;
+            waitForLease = wait;
+            tryPromise = result;
+            createMember();
+        });
+
+        final CompletableFuture<Boolean> waiterAcquireFuture = FutureUtils.createFuture();
+        waiterAcquireFuture.whenComplete((value, cause) -> acquireFuture.completeExceptionally(cause));
+        return result.thenApply(currentOwner -> {
+            final Exception acquireException = new OwnershipAcquireFailedException(lockPath, currentOwner);
+            FutureUtils.within(
+                    acquireFuture,
+                    timeout,
+                    unit,
+                    acquireException,
+                    lockStateExecutor,
+                    lockPath
+            ).whenComplete((acquired, cause) -> {
+                if (isLockHeld()) {
+                    waiterAcquireFuture.complete(true);
+                } else {
+                    asyncUnlock().whenComplete((value, unlockCause) ->
+                            waiterAcquireFuture.completeExceptionally(acquireException));
+                }
+            });
+            return new LockWaiter(
+                    lockId.getLeft(),
+                    currentOwner,
+                    waiterAcquireFuture);
+        });
+    }
+
+    @Override
+    public void tryLock(long timeout, TimeUnit unit) throws LockingException {
+        final long startNanos = MathUtils.nowInNano();
+        CompletableFuture<LockWaiter> tryFuture = asyncTryLock(timeout, unit);
+        boolean success = false;
+        LockWaiter waiter;
+        try {
+            waiter = FutureUtils.result(tryFuture, lockOpTimeout, TimeUnit.MILLISECONDS);
+            success = true;
+        } catch (LockingException ex) {
+            throw ex;
+        } catch (TimeoutException toe) {
+            tryTimeouts.inc();
+            throw new LockingException(lockPath, "Timeout during try phase of lock acquire", toe);
+        } catch (Exception ex) {
+            String message = lockId + " failed to lock " + lockPath;
+            throw new LockingException(lockPath, message, ex);
+        } finally {
+            if (success) {
+                tryStats.registerSuccessfulEvent(MathUtils.elapsedMicroSec(startNanos), TimeUnit.MICROSECONDS);
+            } else {
+                tryStats.registerFailedEvent(MathUtils.elapsedMicroSec(startNanos), TimeUnit.MICROSECONDS);
+                unlock();
+            }
+        }
+        boolean acquired = waiter.waitForAcquireQuietly();
+        if (!acquired) {
+            throw new OwnershipAcquireFailedException(lockPath, waiter.getCurrentOwner());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> asyncUnlock() {
+        return asyncUnlock(new LockClosedException(lockPath, lockId, state));
+    }
+
+    CompletableFuture<Void> asyncUnlock(final Throwable cause) {
+        final CompletableFuture<Void> promise = new CompletableFuture<Void>();
+        lockStateExecutor.executeOrdered(lockPath, () -> {
+            acquireFuture.completeExceptionally(cause);
+            unlockInternal(promise);
+            promise.whenComplete(new OpStatsListener<Void>(unlockStats));
+        });
+        return promise;
+    }
+
+    @Override
+    public void unlock() {
+        CompletableFuture<Void> unlockResult = asyncUnlock();
+        try {
+            FutureUtils.result(unlockResult, lockOpTimeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException toe) {
+            LOG.error("Timeout unlocking {} owned by {} : ", lockPath, lockId, toe);
+        } catch (Exception e) {
+            LOG.warn("{} failed to unlock {} : ", lockId, lockPath, e);
+        }
+    }
+
+    // Lock State Changes (all state changes should be executed in the lock state executor)
+
+    private void failTry(Throwable cause) {
+        tryPromise.completeExceptionally(cause);
+        acquireFuture.completeExceptionally(cause);
+    }
+
+    private void failLeaseOp(String op, int rc) {
+        if (State.WAITING == state) {
+            // keep waiting, the lease will be checked again on next tick
+            LOG.warn("{} failed to {} of lock {} : {}", lockId, op, lockPath, KeeperException.Code.get(rc));
+        } else {
+            failTry(KeeperException.create(KeeperException.Code.get(rc)));
+        }
+    }
+
+    private void waitForOwner(String owner) {
+        if (!waitForLease) {
+            tryPromise.complete(owner);
+            acquireFuture.complete(false);
+            return;
+        }
+        state = State.WAITING;
+        tryPromise.complete(owner);
+        scheduleLeaseTask();
+    }
+
+    private void createMember() {
+        zk.create(memberPathPrefix, memberData, zkClient.getDefaultACL(), CreateMode.EPHEMERAL_SEQUENTIAL,
+                (rc, path, ctx, name) -> lockStateExecutor.executeOrdered(lockPath, () -> {
+                    if (KeeperException.Code.OK.intValue() != rc) {
+                        if (isTrying()) {
+                            failTry(KeeperException.create(KeeperException.Code.get(rc)));
+                        }
+                    } else if (isTrying()) {
+                        memberPath = name;
+                    } else {
+                        // the lock was closed while creating the member
+                        deleteMember(name);
+                    }
+                }), null);
+        // the requests of a session are ordered, so the members are listed after this member is created
+        checkMembers();
+    }
+
+    private void checkMembers() {
+        leaseOpPending = true;
+        zk.getChildren(lockPath, waitForLease ? this : null,
+                (rc, path, ctx, children) -> lockStateExecutor.executeOrdered(lockPath, () -> {
+                    leaseOpPending = false;
+                    if (!isTrying() || null == memberPath) {
+                        return;
+                    }
+                    if (KeeperException.Code.OK.intValue() != rc) {
+                        failLeaseOp("list the members", rc);
+                        return;
+                    }
+                    final String sessionMember = getSessionMemberAhead(children);
+                    if (null == sessionMember) {
+                        // the members ahead only go away, so no session lock can be ahead of this lock any more
+                        blockedByMember = false;
+                        if (State.PREPARING == state) {
+                            createLease();
+                        } else {
+                            readLease();
+                        }
+                    } else if (State.PREPARING == state) {
+                        ZKSessionLock.asyncParseClientID(zk, lockPath, sessionMember)
+                                .whenCompleteAsync((owner, cause) -> {
+                                    if (State.PREPARING == state) {
+                                        waitForOwner(null == owner ? sessionMember : owner.getLeft());
+                                    }
+                                }, lockStateExecutor.chooseThread(lockPath));
+                    }
+                }), null);
+    }
+
+    private String getSessionMemberAhead(List<String> children) {
+        final int memberId = ZKSessionLock.parseMemberID(ZKSessionLock.getLockIdFromPath(memberPath));
+        String sessionMember = null;
+        int sessionMemberId = memberId;
+        for (String child : children) {
+            if (isLeaseMember(child)) {
+                continue;
+            }
+            int childId = ZKSessionLock.parseMemberID(child);
+            if (childId < sessionMemberId) {
+                sessionMember = child;
+                sessionMemberId = childId;
+            }
+        }
+        return sessionMember;
+    }
+
+    private void deleteMember(String path) {
+        zk.delete(path, -1, (rc, p, ctx) -> {
+            if (KeeperException.Code.OK.intValue() != rc && KeeperException.Code.NONODE.intValue() != rc) {
+                LOG.warn("{} failed to delete its member {} of lock {} : {}",
+                        lockId, path, lockPath, KeeperException.Code.get(rc));
+            }
+        }, null);
+    }
+
+    private void createLease() {
+        final long sentNanos = MathUtils.nowInNano();
+        leaseOpPending = true;
+        // grant the lease and bump its epoch at once
+        List<Op> ops = Arrays.asList(
+                Op.create(leasePath, leaseData, zkClient.getDefaultACL(), CreateMode.PERSISTENT),
+                Op.setData(epochPath, leaseData, -1));
+        zk.multi(ops, (rc, path, ctx, results) -> lockStateExecutor.executeOrdered(lockPath, () -> {
+            leaseOpPending = false;
+            if (KeeperException.Code.OK.intValue() == rc) {
+                claimLease(getEpoch(results), 0, sentNanos);
+            } else if (!isTrying()) {
+                return;
+            } else if (KeeperException.Code.NODEEXISTS.intValue() == rc) {
+                readLease();
+            } else if (KeeperException.Code.NONODE.intValue() == rc) {
+                // the first lease of the lock
+                createEpoch(this::createLease);
+            } else {
+                failLeaseOp("create the lease", rc);
+            }
+        }), null);
+    }
+
+    private static int getEpoch(List<OpResult> results) {
+        return ((OpResult.SetDataResult) results.get(1)).getStat().getVersion();
+    }
+
+    private void createEpoch(final Runnable next) {
+        leaseOpPending = true;
+        zk.create(epochPath, new byte[0], zkClient.getDefaultACL(), CreateMode.PERSISTENT,
+                (rc, path, ctx, name) -> lockStateExecutor.executeOrdered(lockPath, () -> {
+                    leaseOpPending = false;
+                    if (!isTrying()) {
+                        return;
+                    }
+                    if (KeeperException.Code.OK.intValue() == rc
+                            || KeeperException.Code.NODEEXISTS.intValue() == rc) {
+                        next.run();
+                    } else {
+                        failLeaseOp("create the lease epoch", rc);
+                    }
+                }), null);
+    }
+
+    private void readLease() {
+        leaseOpPending = true;
+        zk.getData(leasePath, waitForLease ? this : null,
+                (rc, path, ctx, data, stat) -> lockStateExecutor.executeOrdered(lockPath, () -> {
+                    leaseOpPending = false;
+                    if (!isTrying()) {
+                        return;
+                    }
+                    if (KeeperException.Code.OK.intValue() == rc) {
+                        processLease(deserializeLeaseOwner(data), stat);
+                    } else if (KeeperException.Code.NONODE.intValue() == rc) {
+                        createLease();
+                    } else {
+                        failLeaseOp("check the lease", rc);
+                    }
+                }), null);
+    }
+
+    private void processLease(Pair<String, Long> owner, Stat stat) {
+        final long nowNanos = MathUtils.nowInNano();
+        if (isOwnedByContext(owner)) {
+            takeOverLease(stat.getMzxid());
+        } else if (State.PREPARING == state) {
+            observedLeaseZxid = stat.getMzxid();
+            observedLeaseNanos = nowNanos;
+            waitForOwner(owner.getLeft());
+        } else if (observedLeaseZxid != stat.getMzxid()) {
+            // the owner is alive, or the lease is granted again
+            observedLeaseZxid = stat.getMzxid();
+            observedLeaseNanos = nowNanos;
+        } else if (nowNanos - observedLeaseNanos >= leaseTimeoutNanos) {
+            LOG.info("{} takes over the lease of lock {} from {}, not renewed for {} ms.",
+                    lockId, lockPath, owner, TimeUnit.NANOSECONDS.toMillis(nowNanos - observedLeaseNanos));
+            takeOverLease(stat.getMzxid());
+        }
+    }
+
+    private void takeOverLease(final long leaseZxid) {
+        leaseOpPending = true;
+        // read the epoch before the lease, so the lease is read again if it is granted in between
+        zk.exists(epochPath, false,
+                (rc, path, ctx, stat) -> lockStateExecutor.executeOrdered(lockPath, () -> {
+                    leaseOpPending = false;
+                    if (!isTrying()) {
+                        return;
+                    }
+                    if (KeeperException.Code.OK.intValue() == rc) {
+                        takeOverLease(leaseZxid, stat.getVersion());
+                    } else if (KeeperException.Code.NONODE.intValue() == rc) {
+                        // a lease granted before the epoch was stored
+                        createEpoch(this::readLease);
+                    } else {
+                        failLeaseOp("check the lease epoch", rc);
+                    }
+                }), null);
+    }
+
+    private void takeOverLease(final long leaseZxid, final int epoch) {
+        leaseOpPending = true;
+        zk.getData(leasePath, false,
+                (rc, path, ctx, data, stat) -> lockStateExecutor.executeOrdered(lockPath, () -> {
+                    leaseOpPending = false;
+                    if (!isTrying()) {
+                        return;
+                    }
+                    if (KeeperException.Code.OK.intValue() != rc) {
+                        if (KeeperException.Code.NONODE.intValue() == rc) {
+                            createLease();
+                        } else {
+                            failLeaseOp("check the lease", rc);
+                        }
+                    } else if (leaseZxid != stat.getMzxid()) {
+                        // the lease was updated since it was observed
+                        processLease(deserializeLeaseOwner(data), stat);
+                    } else {
+                        transferLease(deserializeLeaseOwner(data), stat.getVersion(), epoch);
+                    }
+                }), null);
+    }
+
+    private void transferLease(final Pair<String, Long> owner, int version, int epoch) {
+        final boolean takeover = !isOwnedByContext(owner);
+        final long sentNanos = MathUtils.nowInNano();
+        leaseOpPending = true;
+        // grant the lease and bump its epoch at once
+        List<Op> ops = Arrays.asList(
+                Op.setData(leasePath, leaseData, version),
+                Op.setData(epochPath, leaseData, epoch));
+        zk.multi(ops, (rc, path, ctx, results) -> lockStateExecutor.executeOrdered(lockPath, () -> {
+            leaseOpPending = false;
+            if (KeeperException.Code.OK.intValue() == rc) {
+                if (takeover) {
+                    takeovers.inc();
+                }
+                claimLease(getEpoch(results),
+                        ((OpResult.SetDataResult) results.get(0)).getStat().getVersion(), sentNanos);
+            } else if (!isTrying()) {
+                return;
+            } else if (KeeperException.Code.BADVERSION.intValue() == rc) {
+                // the lease was updated concurrently, check it again
+                readLease();
+            } else if (KeeperException.Code.NONODE.intValue() == rc) {
+                createLease();
+            } else {
+                failLeaseOp("take over the lease", rc);
+            }
+        }), null);
+    }
+
+    private void claimLease(int epoch, int version, long sentNanos) {
+        leaseEpoch = epoch;
+        leaseVersion = version;
+        leaseRenewedNanos = sentNanos;
+        if (!isTrying()) {
+            // the lock was closed while claiming the lease
+            releaseLease();
+            return;
+        }
+        cancelLeaseTask();
+        state = State.CLAIMED;
+        // clear previous lock ids
+        lockContext.clearLockIds();
+        // add current lock id
+        lockContext.addLockId(lockId);
+        LOG.info("{} claimed the lease of lock {} at epoch {}.", lockId, lockPath, epoch);
+        tryPromise.complete(lockId.getLeft());
+        acquireFuture.complete(true);
+        scheduleLeaseTask();
+    }
+
+    private void scheduleLeaseTask() {
+        leaseTask = lockStateExecutor.scheduleAtFixedRateOrdered(
+                lockPath, this::onLeaseTick, renewIntervalMs, renewIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelLeaseTask() {
+        if (null != leaseTask) {
+            leaseTask.cancel(false);
+            leaseTask = null;
+        }
+    }
+
+    private void onLeaseTick() {
+        if (State.CLAIMED == state) {
+            if (isLeaseExpired(MathUtils.nowInNano())) {
+                expireLease("not renewed in time");
+            } else if (!leaseOpPending) {
+                renewLease();
+            }
+        } else if (State.WAITING == state && !leaseOpPending) {
+            if (blockedByMember) {
+                checkMembers();
+            } else {
+                readLease();
+            }
+        }
+    }
+
+    private void renewLease() {
+        final long sentNanos = MathUtils.nowInNano();
+        leaseOpPending = true;
+        zk.setData(leasePath, leaseData, leaseVersion,
+                (rc, path, ctx, stat) -> lockStateExecutor.executeOrdered(lockPath, () -> {
+                    leaseOpPending = false;
+                    if (KeeperException.Code.OK.intValue() == rc) {
+                        renewStats.registerSuccessfulEvent(
+                                MathUtils.elapsedMicroSec(sentNanos), TimeUnit.MICROSECONDS);
+                        leaseVersion = stat.getVersion();
+                        leaseRenewedNanos = sentNanos;
+                        return;
+                    }
+                    renewStats.registerFailedEvent(MathUtils.elapsedMicroSec(sentNanos), TimeUnit.MICROSECONDS);
+                    if (State.CLAIMED != state) {
+                        return;
+                    }
+                    if (KeeperException.Code.BADVERSION.intValue() == rc) {
+                        // the response of a previous renew might be lost, check if the lease is still owned
+                        verifyLease(sentNanos);
+                    } else if (KeeperException.Code.NONODE.intValue() == rc) {
+                        expireLease("lease is deleted");
+                    } else if (KeeperException.Code.SESSIONEXPIRED.intValue() == rc) {
+                        // the member of this lock is gone, so a session lock might be claimed
+                        expireLease("session is expired");
+                    } else {
+                        LOG.warn("{} failed to renew the lease of lock {} : {}",
+                                lockId, lockPath, KeeperException.Code.get(rc));
+                    }
+                }), null);
+    }
+
+    private void verifyLease(final long sentNanos) {
+        leaseOpPending = true;
+        zk.getData(leasePath, false,
+                (rc, path, ctx, data, stat) -> lockStateExecutor.executeOrdered(lockPath, () -> {
+                    leaseOpPending = false;
+                    if (State.CLAIMED != state || KeeperException.Code.OK.intValue() != rc) {
+                        return;
+                    }
+                    Pair<String, Long> owner = deserializeLeaseOwner(data);
+                    if (lockId.equals(owner)) {
+                        leaseVersion = stat.getVersion();
+                        leaseRenewedNanos = sentNanos;
+                    } else {
+                        expireLease("lease is taken over by " + owner);
+                    }
+                }), null);
+    }
+
+    private void expireLease(String reason) {
+        LOG.warn("Lease of lock {} owned by {} at epoch {} is expired : {}", lockPath, lockId, leaseEpoch, reason);
+        cancelLeaseTask();
+        state = State.EXPIRED;
+        if (null != lockListener) {
+            lockListener.onExpired();
+        }
+    }
+
+    private CompletableFuture<Void> releaseLease() {
+        final CompletableFuture<Void> promise = new CompletableFuture<Void>();
+        // conditionally delete the lease, not to release a lease taken over by others
+        zk.delete(leasePath, leaseVersion,
+                (rc, path, ctx) -> {
+                    if (KeeperException.Code.OK.intValue() == rc) {
+                        LOG.info("Released the lease of lock {} owned by {} at epoch {}.",
+                                lockPath, lockId, leaseEpoch);
+                    } else {
+                        LOG.info("Failed to release the lease of lock {} owned by {} at epoch {} : {}",
+                                lockPath, lockId, leaseEpoch, KeeperException.Code.get(rc));
+                    }
+                    promise.complete(null);
+                }, null);
+        return promise;
+    }
+
+    private void unlockInternal(final CompletableFuture<Void> promise) {
+        cancelLeaseTask();
+        if (State.CLOSED == state) {
+            promise.complete(null);
+            return;
+        }
+
+        LOG.info("Lock {} for {} is closed from state {}.", lockId, lockPath, state);
+
+        if (null != tryPromise) {
+            tryPromise.completeExceptionally(new LockClosedException(lockPath, lockId, state));
+        }
+        final boolean ownsLease = State.CLAIMED == state || State.EXPIRED == state;
+        state = State.CLOSING;
+
+        // a member created while closing is deleted when created
+        final String member = memberPath;
+        memberPath = null;
+        if (!ownsLease) {
+            // a lease claimed while closing is released when claimed
+            if (null != member) {
+                deleteMember(member);
+            }
+            state = State.CLOSED;
+            promise.complete(null);
+            return;
+        }
+
+        // Set the state to closed after we've released the lease, and delete the member after it,
+        // so no session lock is claimed before the lease is released
+        releaseLease().whenCompleteAsync((value, cause) -> {
+            if (null != member) {
+                deleteMember(member);
+            }
+            state = State.CLOSED;
+            promise.complete(null);
+        }, lockStateExecutor.chooseThread(lockPath));
+    }
+}
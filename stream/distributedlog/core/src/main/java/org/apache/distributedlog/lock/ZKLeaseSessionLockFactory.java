@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.distributedlog.lock;
+
+import java.io.IOException;
+import org.apache.bookkeeper.common.util.OrderedScheduler;
+import org.apache.bookkeeper.stats.StatsLogger;
+import org.apache.distributedlog.ZooKeeperClient;
+
+/**
+ * Factory to create zookeeper lease based locks.
+ *
+ * @see ZKLeaseSessionLock
+ */
+public class ZKLeaseSessionLockFactory extends ZKSessionLockFactory {
+
+    private final long leaseTimeoutMs;
+
+    public ZKLeaseSessionLockFactory(ZooKeeperClient zkc,
+                                     String clientId,
+                                     OrderedScheduler lockStateExecutor,
+                                     int lockCreationRetries,
+                                     long lockOpTimeout,
+                                     long leaseTimeoutMs,
+                                     long zkRetryBackoffMs,
+                                     StatsLogger statsLogger) {
+        super(zkc, clientId, lockStateExecutor, lockCreationRetries, lockOpTimeout, zkRetryBackoffMs, statsLogger);
+        this.leaseTimeoutMs = leaseTimeoutMs;
+    }
+
+    @Override
+    SessionLock newLock(String lockPath, DistributedLockContext context) throws IOException {
+        return new ZKLeaseSessionLock(
+                zkc,
+                lockPath,
+                clientId,
+                lockStateExecutor,
+                lockOpTimeout,
+                leaseTimeoutMs,
+                lockStatsLogger,
+                context);
+    }
+}
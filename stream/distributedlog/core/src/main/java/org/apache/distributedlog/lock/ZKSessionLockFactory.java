@@ -34,15 +34,15 @@ import org.apache.distributedlog.exceptions.DLInterruptedException;
  */
 public class ZKSessionLockFactory implements SessionLockFactory {
 
-    private final ZooKeeperClient zkc;
-    private final String clientId;
-    private final OrderedScheduler lockStateExecutor;
-    private final long lockOpTimeout;
+    protected final ZooKeeperClient zkc;
+    protected final String clientId;
+    protected final OrderedScheduler lockStateExecutor;
+    protected final long lockOpTimeout;
     private final int lockCreationRetries;
     private final long zkRetryBackoffMs;
 
     // Stats
-    private final StatsLogger lockStatsLogger;
+    protected final StatsLogger lockStatsLogger;
 
     public ZKSessionLockFactory(ZooKeeperClient zkc,
                                 String clientId,
@@ -94,14 +94,7 @@ public class ZKSessionLockFactory implements SessionLockFactory {
                 return;
             }
             try {
-                SessionLock lock = new ZKSessionLock(
-                        zkc,
-                        lockPath,
-                        clientId,
-                        lockStateExecutor,
-                        lockOpTimeout,
-                        lockStatsLogger,
-                        context);
+                SessionLock lock = newLock(lockPath, context);
                 createPromise.complete(lock);
             } catch (DLInterruptedException dlie) {
                 // if the creation is interrupted, throw the exception without retrie.
@@ -122,4 +115,15 @@ public class ZKSessionLockFactory implements SessionLockFactory {
             }
         }, delayMs, TimeUnit.MILLISECONDS);
     }
+
+    SessionLock newLock(String lockPath, DistributedLockContext context) throws IOException {
+        return new ZKSessionLock(
+                zkc,
+                lockPath,
+                clientId,
+                lockStateExecutor,
+                lockOpTimeout,
+                lockStatsLogger,
+                context);
+    }
 }
@@ -21,6 +21,7 @@ import com.google.common.annotations.Beta;
 import java.io.Closeable;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.LongConsumer;
 import org.apache.bookkeeper.versioning.Version;
 import org.apache.bookkeeper.versioning.Versioned;
 import org.apache.distributedlog.LogSegmentMetadata;
@@ -137,6 +138,17 @@ public interface LogSegmentMetadataStore extends Closeable {
      */
     CompletableFuture<LogSegmentMetadata> getLogSegment(String logSegmentPath);
 
+    /**
+     * Retrieve the log segment associated <code>path</code>, reporting the size of the metadata read.
+     *
+     * @param logSegmentPath
+     *          path to store log segment metadata
+     * @param bytesReadListener
+     *          listener notified of the number of bytes of metadata read from the store
+     * @return future of the retrieved log segment metadata
+     */
+    CompletableFuture<LogSegmentMetadata> getLogSegment(String logSegmentPath, LongConsumer bytesReadListener);
+
     /**
      * Retrieve the list of log segments under <code>logSegmentsPath</code> and register a <i>listener</i>
      * for subsequent changes for the list of log segments.
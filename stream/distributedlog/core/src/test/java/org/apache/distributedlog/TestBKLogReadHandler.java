@@ -19,6 +19,8 @@ package org.apache.distributedlog;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -260,6 +262,45 @@ public class TestBKLogReadHandler extends TestDistributedLogBase {
         assertEquals(0, Utils.ioResult(count).longValue());
     }
 
+    @Test(timeout = 60000)
+    public void testReuseCachedLogSegmentMetadata() throws Exception {
+        String dlName = runtime.getMethodName();
+        BKDistributedLogManager dlm = createNewDLM(conf, dlName);
+        DLMTestUtil.generateCompletedLogSegments(dlm, conf, 3, 3);
+
+        BKLogReadHandler readHandler1 = dlm.createReadHandler();
+        List<LogSegmentMetadata> segments1 = Utils.ioResult(
+                readHandler1.readLogSegmentsFromStore(
+                        LogSegmentMetadata.COMPARATOR,
+                        LogSegmentFilter.DEFAULT_FILTER,
+                        null)).getValue();
+        assertEquals(3, segments1.size());
+        for (LogSegmentMetadata segment : segments1) {
+            assertSame(segment, readHandler1.metadataCache.get(segment.getZkPath()));
+            assertNull(readHandler1.metadataCache.get(segment.getZNodeName()));
+        }
+
+        // the handlers of the log share the parsed log segment metadata
+        BKLogReadHandler readHandler2 = dlm.createReadHandler();
+        List<LogSegmentMetadata> segments2 = Utils.ioResult(
+                readHandler2.readLogSegmentsFromStore(
+                        LogSegmentMetadata.COMPARATOR,
+                        LogSegmentFilter.DEFAULT_FILTER,
+                        null)).getValue();
+        assertEquals(3, segments2.size());
+        for (int i = 0; i < segments1.size(); i++) {
+            assertSame(segments1.get(i), segments2.get(i));
+        }
+
+        // removing a log segment invalidates its cached metadata
+        readHandler2.removeLogSegmentFromCache(segments2.get(0).getZNodeName());
+        assertNull(readHandler2.metadataCache.get(segments2.get(0).getZkPath()));
+
+        Utils.ioResult(readHandler1.asyncClose());
+        Utils.ioResult(readHandler2.asyncClose());
+        dlm.close();
+    }
+
     @Test(timeout = 60000)
     public void testGetLogRecordCountWithSingleInProgressLedger() throws Exception {
         String streamName = runtime.getMethodName();
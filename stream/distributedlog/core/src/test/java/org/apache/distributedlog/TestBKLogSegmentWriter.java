@@ -29,6 +29,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.apache.bookkeeper.client.BKException;
 import org.apache.bookkeeper.client.BookKeeper;
 import org.apache.bookkeeper.client.LedgerHandle;
@@ -182,6 +183,15 @@ public class TestBKLogSegmentWriter extends TestDistributedLogBase {
                                                       long logSegmentSequenceNumber,
                                                       long startTxId,
                                                       ZKDistributedLock lock) throws Exception {
+        return createLogSegmentWriter(conf, logSegmentSequenceNumber, startTxId, lock, null);
+    }
+
+    private BKLogSegmentWriter createLogSegmentWriter(DistributedLogConfiguration conf,
+                                                      long logSegmentSequenceNumber,
+                                                      long startTxId,
+                                                      ZKDistributedLock lock,
+                                                      SharedFlushScheduler sharedFlushScheduler)
+            throws Exception {
         LedgerHandle lh = bkc.get().createLedger(3, 2, 2,
                 BookKeeper.DigestType.CRC32, conf.getBKDigestPW().getBytes(UTF_8));
         return new BKLogSegmentWriter(
@@ -199,7 +209,8 @@ public class TestBKLogSegmentWriter extends TestDistributedLogBase {
                 new AlertStatsLogger(NullStatsLogger.INSTANCE, "test"),
                 PermitLimiter.NULL_PERMIT_LIMITER,
                 new SettableFeatureProvider("", 0),
-                ConfUtils.getConstDynConf(conf));
+                ConfUtils.getConstDynConf(conf),
+                sharedFlushScheduler);
     }
 
     private LedgerHandle openLedgerNoRecovery(LedgerHandle lh) throws Exception {
@@ -786,4 +797,113 @@ public class TestBKLogSegmentWriter extends TestDistributedLogBase {
 
         closeWriterAndLock(writer, lock);
     }
+
+    /**
+     * Log segment writers registered to the shared periodic flush should be flushed by its ticks.
+     *
+     * @throws Exception
+     */
+    @Test(timeout = 60000)
+    public void testSharedPeriodicFlush() throws Exception {
+        DistributedLogConfiguration confLocal = newLocalConf();
+        confLocal.setImmediateFlushEnabled(false);
+        confLocal.setOutputBufferSize(Integer.MAX_VALUE);
+        confLocal.setPeriodicFlushFrequencyMilliSeconds(100);
+        SharedFlushScheduler sharedFlushScheduler =
+                new SharedFlushScheduler(scheduler, 10, NullStatsLogger.INSTANCE);
+        ZKDistributedLock lock = createLock("/test/lock-" + runtime.getMethodName(), zkc, true);
+        BKLogSegmentWriter writer =
+                createLogSegmentWriter(confLocal, 0L, -1L, lock, sharedFlushScheduler);
+        assertEquals("Writer should be registered to the shared periodic flush",
+                1, sharedFlushScheduler.getNumWriters());
+        assertEquals("Flush interval should be half of the periodic flush frequency",
+                TimeUnit.MILLISECONDS.toNanos(50), writer.getFlushIntervalNanos());
+
+        int numRecords = 10;
+        List<CompletableFuture<DLSN>> futureList = new ArrayList<CompletableFuture<DLSN>>(numRecords);
+        for (int i = 0; i < numRecords; i++) {
+            futureList.add(writer.asyncWrite(DLMTestUtil.getLogRecordInstance(i)));
+        }
+        // the buffered records are transmitted by the shared periodic flush
+        List<DLSN> dlsns = Utils.ioResult(FutureUtils.collect(futureList));
+        assertEquals("All records should be written",
+                numRecords, dlsns.size());
+        assertEquals("Last acked tx id should become " + (numRecords - 1),
+                numRecords - 1, writer.getLastTxIdAcknowledged());
+
+        closeWriterAndLock(writer, lock);
+        assertEquals("Writer should be unregistered from the shared periodic flush once closed",
+                0, sharedFlushScheduler.getNumWriters());
+        sharedFlushScheduler.close();
+    }
+
+    /**
+     * Writers receiving less than one record per periodic flush interval shouldn't wait for the interval.
+     *
+     * @throws Exception
+     */
+    @Test(timeout = 60000)
+    public void testAdaptivePeriodicFlushInterval() throws Exception {
+        DistributedLogConfiguration confLocal = newLocalConf();
+        confLocal.setImmediateFlushEnabled(false);
+        confLocal.setOutputBufferSize(Integer.MAX_VALUE);
+        confLocal.setPeriodicFlushFrequencyMilliSeconds(60000);
+        confLocal.setAdaptiveFlushIntervalEnabled(true);
+        SharedFlushScheduler sharedFlushScheduler =
+                new SharedFlushScheduler(scheduler, 10, NullStatsLogger.INSTANCE);
+        ZKDistributedLock lock = createLock("/test/lock-" + runtime.getMethodName(), zkc, true);
+        BKLogSegmentWriter writer =
+                createLogSegmentWriter(confLocal, 0L, -1L, lock, sharedFlushScheduler);
+        assertEquals("Flush interval should be zero without records",
+                0L, writer.getFlushIntervalNanos());
+
+        // the record is flushed within a few ticks, not after the flush interval
+        long startNanos = System.nanoTime();
+        DLSN dlsn = Utils.ioResult(writer.asyncWrite(DLMTestUtil.getLogRecordInstance(1L)));
+        assertEquals("Incorrect entry id", 0L, dlsn.getEntryId());
+        long elapsedNanos = System.nanoTime() - startNanos;
+        assertTrue("Record should be flushed by the next ticks : " + elapsedNanos,
+                elapsedNanos < TimeUnit.MILLISECONDS.toNanos(1000));
+        assertEquals("A single record shouldn't change the flush interval",
+                0L, writer.getFlushIntervalNanos());
+
+        closeWriterAndLock(writer, lock);
+        sharedFlushScheduler.close();
+    }
+
+    /**
+     * Writers receiving many records per periodic flush interval should wait for most of the interval.
+     *
+     * @throws Exception
+     */
+    @Test(timeout = 60000)
+    public void testAdaptivePeriodicFlushIntervalOfBusyWriter() throws Exception {
+        DistributedLogConfiguration confLocal = newLocalConf();
+        confLocal.setImmediateFlushEnabled(false);
+        confLocal.setOutputBufferSize(Integer.MAX_VALUE);
+        confLocal.setPeriodicFlushFrequencyMilliSeconds(60000);
+        confLocal.setAdaptiveFlushIntervalEnabled(true);
+        ZKDistributedLock lock = createLock("/test/lock-" + runtime.getMethodName(), zkc, true);
+        BKLogSegmentWriter writer = createLogSegmentWriter(confLocal, 0L, -1L, lock, null);
+
+        int numRecords = 100;
+        List<CompletableFuture<DLSN>> futureList = new ArrayList<CompletableFuture<DLSN>>(numRecords);
+        for (int i = 0; i < numRecords; i++) {
+            futureList.add(writer.asyncWrite(DLMTestUtil.getLogRecordInstance(i)));
+        }
+        // the rate is not measured before a flush interval elapsed
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(30000);
+        long startNanos = System.nanoTime();
+        assertTrue(writer.flushIfNecessary(startNanos + intervalNanos / 2));
+        assertEquals(0L, writer.getFlushIntervalNanos());
+
+        // 100 records over two intervals, smoothed, are 10 records expected within the interval
+        writer.flushIfNecessary(startNanos + 2 * intervalNanos);
+        long flushIntervalNanos = writer.getFlushIntervalNanos();
+        assertTrue("Flush interval should be most of the periodic flush interval : " + flushIntervalNanos,
+                flushIntervalNanos > intervalNanos / 2 && flushIntervalNanos < intervalNanos);
+        assertEquals(numRecords, Utils.ioResult(FutureUtils.collect(futureList)).size());
+
+        closeWriterAndLock(writer, lock);
+    }
 }
@@ -157,4 +157,40 @@ public class TestLogSegmentMetadata extends ZooKeeperClusterTestCase {
                 LogSegmentMetadata.parseData("/metadatav4", datav4.getBytes(UTF_8), false);
         assertTrue(parsedMetadatav4.getStartSequenceId() < 0);
     }
+
+    @Test(timeout = 60000)
+    public void testReadLogSegmentWithTxIdIndex() throws Exception {
+        LogSegmentTxIdIndex.Builder indexBuilder = new LogSegmentTxIdIndex.Builder(10, 0L, 16);
+        for (long entryId = 0; entryId < 100; entryId++) {
+            indexBuilder.addEntry(entryId * 5, entryId, 1024L);
+        }
+        LogSegmentTxIdIndex index = indexBuilder.build();
+        LogSegmentMetadata metadata =
+                new LogSegmentMetadataBuilder(
+                        "/metadata", LogSegmentMetadataVersion.VERSION_V6_TXID_INDEX, 1L, 0L)
+                        .setRegionId(0)
+                        .setLogSegmentSequenceNo(1L)
+                        .setStartSequenceId(999L)
+                        .build();
+        metadata = metadata.completeLogSegment("/completed-metadata", 495L, 100, 99L, 0L, 999L, index);
+        String data = metadata.getFinalisedData();
+        LogSegmentMetadata parsedMetadata =
+                LogSegmentMetadata.parseData("/metadatav6", data.getBytes(UTF_8), false);
+        assertEquals(999L, parsedMetadata.getStartSequenceId());
+        assertEquals(index, parsedMetadata.getTxIdIndex());
+
+        // the index isn't written with the older layout versions
+        LogSegmentMetadata metadatav5 =
+                new LogSegmentMetadataBuilder(
+                        "/metadata", LogSegmentMetadataVersion.VERSION_V5_SEQUENCE_ID, 1L, 0L)
+                        .setRegionId(0)
+                        .setLogSegmentSequenceNo(1L)
+                        .setStartSequenceId(999L)
+                        .build();
+        metadatav5 = metadatav5.completeLogSegment("/completed-metadata", 495L, 100, 99L, 0L, 999L, index);
+        String datav5 = metadatav5.getFinalisedData();
+        LogSegmentMetadata parsedMetadatav5 =
+                LogSegmentMetadata.parseData("/metadatav5", datav5.getBytes(UTF_8), false);
+        assertTrue(parsedMetadatav5.getTxIdIndex().isEmpty());
+    }
 }
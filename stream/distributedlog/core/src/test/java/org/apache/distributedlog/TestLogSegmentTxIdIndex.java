@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.distributedlog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+import org.junit.Test;
+
+/**
+ * Test {@link LogSegmentTxIdIndex}.
+ */
+public class TestLogSegmentTxIdIndex {
+
+    private static LogSegmentTxIdIndex buildIndex(int intervalEntries, long intervalBytes, int maxSize,
+                                                  int numEntries) {
+        LogSegmentTxIdIndex.Builder builder = new LogSegmentTxIdIndex.Builder(intervalEntries, intervalBytes, maxSize);
+        for (long entryId = 0; entryId < numEntries; entryId++) {
+            // 10 records per entry
+            builder.addEntry(entryId * 10, entryId, 100L);
+        }
+        return builder.build();
+    }
+
+    @Test(timeout = 60000)
+    public void testIndexByEntries() {
+        LogSegmentTxIdIndex index = buildIndex(10, 0L, 100, 100);
+        // the first entry isn't indexed, the search starts from it anyway
+        assertEquals(9, index.size());
+        for (int i = 0; i < index.size(); i++) {
+            assertEquals((i + 1) * 10L, index.getEntryId(i));
+            assertEquals((i + 1) * 100L, index.getTxId(i));
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testIndexByBytes() {
+        LogSegmentTxIdIndex index = buildIndex(0, 1000L, 100, 100);
+        assertEquals(9, index.size());
+        assertEquals(10L, index.getEntryId(0));
+        assertEquals(20L, index.getEntryId(1));
+    }
+
+    @Test(timeout = 60000)
+    public void testIndexCompaction() {
+        LogSegmentTxIdIndex index = buildIndex(1, 0L, 8, 1000);
+        assertTrue(index.size() <= 8);
+        assertTrue(index.size() >= 4);
+        // the index still spans the whole log segment
+        assertTrue(index.getEntryId(index.size() - 1) >= 500L);
+        for (int i = 1; i < index.size(); i++) {
+            assertTrue(index.getEntryId(i) > index.getEntryId(i - 1));
+            assertTrue(index.getTxId(i) > index.getTxId(i - 1));
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testSkipNonIncreasingTxIds() {
+        LogSegmentTxIdIndex.Builder builder = new LogSegmentTxIdIndex.Builder(1, 0L, 16);
+        builder.addEntry(0L, 0L, 10L);
+        builder.addEntry(5L, 1L, 10L);
+        builder.addEntry(5L, 2L, 10L);
+        builder.addEntry(8L, 3L, 10L);
+        LogSegmentTxIdIndex index = builder.build();
+        assertEquals(2, index.size());
+        assertEquals(1L, index.getEntryId(0));
+        assertEquals(3L, index.getEntryId(1));
+    }
+
+    @Test(timeout = 60000)
+    public void testSearch() {
+        LogSegmentTxIdIndex index = buildIndex(10, 0L, 100, 100);
+        // index points: txid 100 -> entry 10, txid 200 -> entry 20, ..., txid 900 -> entry 90
+        assertEquals(0L, index.getFloorEntryId(0L));
+        assertEquals(10L, index.getCeilingEntryId(0L));
+        assertEquals(0L, index.getFloorEntryId(100L));
+        assertEquals(10L, index.getCeilingEntryId(100L));
+        assertEquals(20L, index.getFloorEntryId(250L));
+        assertEquals(30L, index.getCeilingEntryId(250L));
+        assertEquals(20L, index.getFloorEntryId(300L));
+        assertEquals(30L, index.getCeilingEntryId(300L));
+        assertEquals(90L, index.getFloorEntryId(1000L));
+        assertEquals(-1L, index.getCeilingEntryId(1000L));
+
+        assertEquals(0L, LogSegmentTxIdIndex.EMPTY.getFloorEntryId(100L));
+        assertEquals(-1L, LogSegmentTxIdIndex.EMPTY.getCeilingEntryId(100L));
+    }
+
+    @Test(timeout = 60000)
+    public void testSerialization() throws Exception {
+        LogSegmentTxIdIndex index = buildIndex(7, 0L, 100, 100);
+        assertEquals(index, LogSegmentTxIdIndex.parse(index.serialize()));
+        assertSame(LogSegmentTxIdIndex.EMPTY, LogSegmentTxIdIndex.parse(""));
+        assertSame(LogSegmentTxIdIndex.EMPTY, buildIndex(10, 0L, 100, 0));
+    }
+
+    @Test(timeout = 60000)
+    public void testParseInvalidIndex() {
+        for (String data : Arrays.asList("1", "1:a", "1:1,2", "2:2,1:3", "1:2,2:2")) {
+            try {
+                LogSegmentTxIdIndex.parse(data);
+                fail("Should fail to parse invalid index " + data);
+            } catch (IOException ioe) {
+                // expected
+            }
+        }
+    }
+}
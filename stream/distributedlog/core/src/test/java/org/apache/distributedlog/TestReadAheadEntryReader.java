@@ -324,6 +324,54 @@ public class TestReadAheadEntryReader extends TestDistributedLogBase {
         dlm.close();
     }
 
+    @Test(timeout = 60000)
+    public void testPrefetchParallelLogSegments() throws Exception {
+        String streamName = runtime.getMethodName();
+        BKDistributedLogManager dlm = createNewDLM(baseConf, streamName);
+
+        // generate list of log segments
+        generateCompletedLogSegments(dlm, 5, 2);
+        List<LogSegmentMetadata> segments = dlm.getLogSegments();
+
+        DistributedLogConfiguration confLocal = new DistributedLogConfiguration();
+        confLocal.addConfiguration(baseConf);
+        confLocal.setReadAheadMaxParallelLogSegments(3);
+        ReadAheadEntryReader readAheadEntryReader =
+                createEntryReader(streamName, DLSN.InitialDLSN, dlm, confLocal);
+        readAheadEntryReader.start(segments);
+
+        ensureOrderSchedulerEmpty(streamName);
+        assertTrue("current segment reader should be started",
+                readAheadEntryReader.getCurrentSegmentReader().isReaderStarted());
+        assertEquals(4, readAheadEntryReader.getSegmentReaders().size());
+        int readerIdx = 0;
+        for (ReadAheadEntryReader.SegmentReader reader : readAheadEntryReader.getSegmentReaders()) {
+            // the current segment and the next 2 segments are prefetched in parallel
+            assertEquals("Segment reader for " + reader.getSegment() + " is not prefetched as expected",
+                    readerIdx < 2, reader.isReaderStarted());
+            ++readerIdx;
+        }
+
+        // the records are still read in order
+        long txId = 1L;
+        while (txId <= 10L) {
+            Entry.Reader entry = readAheadEntryReader.getNextReadAheadEntry(100, TimeUnit.MILLISECONDS);
+            if (null == entry) {
+                continue;
+            }
+            LogRecordWithDLSN record;
+            while (null != (record = entry.nextRecord())) {
+                if (!record.isControl()) {
+                    assertEquals(txId++, record.getTransactionId());
+                }
+            }
+            entry.release();
+        }
+
+        Utils.close(readAheadEntryReader);
+        dlm.close();
+    }
+
     @Test(timeout = 60000)
     public void testPositioningAtInvalidLogSegment() throws Exception {
         String streamName = runtime.getMethodName();
@@ -469,4 +517,45 @@ public class TestReadAheadEntryReader extends TestDistributedLogBase {
         dlm.close();
     }
 
+    @Test(timeout = 60000)
+    public void testReadAheadBoundedByBytes() throws Exception {
+        String streamName = runtime.getMethodName();
+        BKDistributedLogManager dlm = createNewDLM(baseConf, streamName);
+
+        // generate a log segment of 5 records
+        generateCompletedLogSegments(dlm, 1, 5);
+        List<LogSegmentMetadata> segments = dlm.getLogSegments();
+
+        DistributedLogConfiguration confLocal = new DistributedLogConfiguration();
+        confLocal.addConfiguration(baseConf);
+        // any entry fills the cache
+        confLocal.setReadAheadMaxBytes(1L);
+        ReadAheadEntryReader readAheadEntryReader =
+                createEntryReader(streamName, DLSN.InitialDLSN, dlm, confLocal);
+        readAheadEntryReader.start(segments);
+
+        long numRecords = 0L;
+        while (numRecords < 5) {
+            Entry.Reader entry = null;
+            while (null == entry) {
+                if (!readAheadEntryReader.isCacheEmpty()) {
+                    assertTrue("cache should be full once an entry is cached",
+                            readAheadEntryReader.isCacheFull());
+                }
+                entry = readAheadEntryReader.getNextReadAheadEntry(100, TimeUnit.MILLISECONDS);
+            }
+            assertTrue("entry should have data", entry.getNumBytes() > 0);
+            LogRecordWithDLSN record;
+            while (null != (record = entry.nextRecord())) {
+                if (!record.isControl()) {
+                    assertEquals(++numRecords, record.getTransactionId());
+                }
+            }
+            entry.release();
+        }
+
+        Utils.close(readAheadEntryReader);
+        dlm.close();
+    }
+
 }
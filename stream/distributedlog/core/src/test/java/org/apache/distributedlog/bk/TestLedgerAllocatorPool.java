@@ -263,6 +263,39 @@ public class TestLedgerAllocatorPool extends TestDistributedLogBase {
         assertEquals(numLedgers, allocatedLedgers.size());
     }
 
+    @Test(timeout = 60000)
+    public void testGrowPoolWhenDrained() throws Exception {
+        String allocationPath = "/" + runtime.getMethodName();
+        DistributedLogConfiguration confLocal = new DistributedLogConfiguration();
+        confLocal.addConfiguration(dlConf);
+        confLocal.setLedgerAllocatorPoolMaxSize(2);
+        confLocal.setLedgerAllocatorEnsembleWarmupEnabled(true);
+        LedgerAllocatorPool pool =
+                new LedgerAllocatorPool(allocationPath, 1, confLocal, zkc, bkc, allocationExecutor);
+        pool.start();
+        assertEquals(1, pool.poolSize());
+
+        // taking the last idle allocator grows the pool
+        pool.allocate();
+        assertEquals(2, pool.poolSize());
+        while (pool.pendingListSize() < 1) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, zkc.get().getChildren(allocationPath, false).size());
+
+        ZKTransaction txn = newTxn();
+        LedgerHandle lh = Utils.ioResult(pool.tryObtain(txn, NULL_LISTENER));
+        Utils.ioResult(txn.execute());
+        lh.close();
+
+        // the pool doesn't grow beyond its max size
+        pool.allocate();
+        pool.allocate();
+        assertEquals(2, pool.poolSize());
+        assertEquals(2, zkc.get().getChildren(allocationPath, false).size());
+        Utils.close(pool);
+    }
+
     @Test(timeout = 60000)
     public void testConcurrentAllocation() throws Exception {
         final int numAllocators = 5;
@@ -33,6 +33,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.bookkeeper.common.concurrent.FutureUtils;
 import org.apache.bookkeeper.common.util.OrderedScheduler;
 import org.apache.bookkeeper.versioning.LongVersion;
@@ -303,6 +304,21 @@ public class TestZKLogSegmentMetadataStore extends TestDistributedLogBase {
                 segment, readSegment);
     }
 
+    @Test(timeout = 60000)
+    public void testGetLogSegmentReportsBytesRead() throws Exception {
+        LogSegmentMetadata segment = createLogSegment(1L, 99L);
+        Transaction<Object> createTxn = lsmStore.transaction();
+        lsmStore.createLogSegment(createTxn, segment, null);
+        Utils.ioResult(createTxn.execute());
+        AtomicLong numBytesRead = new AtomicLong(0L);
+        LogSegmentMetadata readSegment =
+                Utils.ioResult(lsmStore.getLogSegment(segment.getZkPath(), numBytesRead::addAndGet));
+        assertEquals("Log segment should match",
+                segment, readSegment);
+        assertEquals("Bytes read should be the size of the log segment znode",
+                zkc.get().exists(segment.getZkPath(), false).getDataLength(), numBytesRead.get());
+    }
+
     @Test(timeout = 60000)
     public void testGetLogSegmentNames() throws Exception {
         Transaction<Object> createTxn = lsmStore.transaction();
@@ -17,19 +17,36 @@
  */
 package org.apache.distributedlog.impl.logsegment;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import com.google.common.collect.Lists;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.client.AsyncCallback;
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.client.LedgerEntry;
+import org.apache.bookkeeper.client.LedgerHandle;
 import org.apache.bookkeeper.common.util.OrderedScheduler;
 import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.bookkeeper.stats.StatsLogger;
+import org.apache.bookkeeper.test.TestStatsProvider;
 import org.apache.distributedlog.BookKeeperClient;
 import org.apache.distributedlog.BookKeeperClientBuilder;
 import org.apache.distributedlog.DLMTestUtil;
@@ -109,6 +126,14 @@ public class TestBKLogSegmentEntryReader extends TestDistributedLogBase {
                                               long startEntryId,
                                               DistributedLogConfiguration conf)
             throws Exception {
+        return createEntryReader(segment, startEntryId, conf, NullStatsLogger.INSTANCE);
+    }
+
+    BKLogSegmentEntryReader createEntryReader(LogSegmentMetadata segment,
+                                              long startEntryId,
+                                              DistributedLogConfiguration conf,
+                                              StatsLogger statsLogger)
+            throws Exception {
         LogSegmentEntryStore store = new BKLogSegmentEntryStore(
                 conf,
                 ConfUtils.getConstDynConf(conf),
@@ -116,7 +141,7 @@ public class TestBKLogSegmentEntryReader extends TestDistributedLogBase {
                 bkc,
                 scheduler,
                 null,
-                NullStatsLogger.INSTANCE,
+                statsLogger,
                 AsyncFailureInjector.NULL);
         return (BKLogSegmentEntryReader) Utils.ioResult(store.openReader(segment, startEntryId));
     }
@@ -198,6 +223,249 @@ public class TestBKLogSegmentEntryReader extends TestDistributedLogBase {
         Utils.close(reader);
     }
 
+    @Test(timeout = 60000)
+    public void testReadEntriesFromCompleteLogSegmentByBatchReads() throws Exception {
+        DistributedLogConfiguration confLocal = new DistributedLogConfiguration();
+        confLocal.addConfiguration(conf);
+        confLocal.setOutputBufferSize(0);
+        confLocal.setPeriodicFlushFrequencyMilliSeconds(0);
+        confLocal.setImmediateFlushEnabled(false);
+        confLocal.setNumPrefetchEntriesPerLogSegment(4);
+        confLocal.setMaxPrefetchEntriesPerLogSegment(10);
+        confLocal.setReadAheadBatchReadEnabled(true);
+        DistributedLogManager dlm = createNewDLM(confLocal, runtime.getMethodName());
+        generateCompletedLogSegments(dlm, confLocal, 1, 20);
+        List<LogSegmentMetadata> segments = dlm.getLogSegments();
+        assertEquals(segments.size() + " log segments found, expected to be only one",
+                1, segments.size());
+
+        TestStatsProvider statsProvider = new TestStatsProvider();
+        BKLogSegmentEntryReader reader =
+                createEntryReader(segments.get(0), 0, confLocal, statsProvider.getStatsLogger(""));
+        reader.start();
+        boolean done = false;
+        long txId = 1L;
+        long entryId = 0L;
+        while (!done) {
+            List<Entry.Reader> entryReaders;
+            try {
+                entryReaders = Utils.ioResult(reader.readNext(3));
+            } catch (EndOfLogSegmentException eol) {
+                done = true;
+                continue;
+            }
+            for (Entry.Reader entryReader : entryReaders) {
+                LogRecordWithDLSN record = entryReader.nextRecord();
+                while (null != record) {
+                    if (!record.isControl()) {
+                        DLMTestUtil.verifyLogRecord(record);
+                        assertEquals(txId, record.getTransactionId());
+                        ++txId;
+                    }
+                    assertEquals(entryId, record.getDlsn().getEntryId());
+                    record = entryReader.nextRecord();
+                }
+                ++entryId;
+            }
+        }
+        assertEquals(21, txId);
+        assertFalse(reader.hasCaughtUpOnInprogress());
+        assertTrue("The entries should be read by batch reads",
+                statsProvider.getCounter("batch_reads").get() > 0);
+        Utils.close(reader);
+    }
+
+    private static long readAllRecords(BKLogSegmentEntryReader reader) throws Exception {
+        long txId = 1L;
+        while (true) {
+            Entry.Reader entryReader;
+            try {
+                entryReader = Utils.ioResult(reader.readNext(1)).get(0);
+            } catch (EndOfLogSegmentException eol) {
+                return txId;
+            }
+            LogRecordWithDLSN record = entryReader.nextRecord();
+            while (null != record) {
+                if (!record.isControl()) {
+                    DLMTestUtil.verifyLogRecord(record);
+                    assertEquals(txId, record.getTransactionId());
+                    ++txId;
+                }
+                record = entryReader.nextRecord();
+            }
+            entryReader.release();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testReadEntriesThroughSharedEntryCache() throws Exception {
+        DistributedLogConfiguration confLocal = new DistributedLogConfiguration();
+        confLocal.addConfiguration(conf);
+        confLocal.setOutputBufferSize(0);
+        confLocal.setPeriodicFlushFrequencyMilliSeconds(0);
+        confLocal.setImmediateFlushEnabled(false);
+        confLocal.setNumPrefetchEntriesPerLogSegment(10);
+        confLocal.setMaxPrefetchEntriesPerLogSegment(10);
+        DistributedLogManager dlm = createNewDLM(confLocal, runtime.getMethodName());
+        generateCompletedLogSegments(dlm, confLocal, 1, 20);
+        List<LogSegmentMetadata> segments = dlm.getLogSegments();
+
+        TestStatsProvider statsProvider = new TestStatsProvider();
+        BKLogSegmentEntryCache entryCache =
+                new BKLogSegmentEntryCache(1024 * 1024, scheduler, statsProvider.getStatsLogger(""));
+        LogSegmentEntryStore store = new BKLogSegmentEntryStore(
+                confLocal,
+                ConfUtils.getConstDynConf(confLocal),
+                zkc,
+                bkc,
+                scheduler,
+                null,
+                NullStatsLogger.INSTANCE,
+                AsyncFailureInjector.NULL,
+                entryCache);
+        BKLogSegmentEntryReader reader1 =
+                (BKLogSegmentEntryReader) Utils.ioResult(store.openReader(segments.get(0), 0L));
+        reader1.start();
+        assertEquals(21, readAllRecords(reader1));
+        long numCachedEntries = entryCache.getNumCachedEntries();
+        assertTrue("The entries read should be cached", numCachedEntries > 0);
+        assertEquals(0L, statsProvider.getCounter("hits").get().longValue());
+        assertEquals(numCachedEntries, statsProvider.getCounter("misses").get().longValue());
+
+        // the second reader reads the entries from the cache
+        BKLogSegmentEntryReader reader2 =
+                (BKLogSegmentEntryReader) Utils.ioResult(store.openReader(segments.get(0), 0L));
+        reader2.start();
+        assertEquals(21, readAllRecords(reader2));
+        assertEquals(numCachedEntries, entryCache.getNumCachedEntries());
+        assertEquals(numCachedEntries, statsProvider.getCounter("hits").get().longValue());
+        assertEquals(numCachedEntries, statsProvider.getCounter("misses").get().longValue());
+
+        Utils.close(reader1);
+        Utils.close(reader2);
+        entryCache.close();
+    }
+
+    /**
+     * A ledger handle whose reads are completed by the test.
+     */
+    private static LedgerHandle mockLedgerHandle(List<AsyncCallback.ReadCallback> pendingReads) {
+        LedgerHandle lh = mock(LedgerHandle.class);
+        when(lh.getId()).thenReturn(1L);
+        doAnswer(invocation -> {
+            pendingReads.add(invocation.getArgument(2));
+            return null;
+        }).when(lh).asyncReadEntries(anyLong(), anyLong(), any(AsyncCallback.ReadCallback.class), any());
+        return lh;
+    }
+
+    private static void completeRead(AsyncCallback.ReadCallback pendingRead, LedgerHandle lh, long entryId) {
+        LedgerEntry entry = mock(LedgerEntry.class);
+        when(entry.getEntryId()).thenReturn(entryId);
+        when(entry.getEntryBuffer()).thenReturn(Unpooled.wrappedBuffer(("entry-" + entryId).getBytes(UTF_8)));
+        pendingRead.readComplete(BKException.Code.OK, lh, Collections.enumeration(Collections.singletonList(entry)),
+                null);
+    }
+
+    private static void assertEntryRead(LinkedBlockingQueue<ByteBuf> entriesRead, long entryId) throws Exception {
+        ByteBuf entry = entriesRead.poll(10, TimeUnit.SECONDS);
+        assertNotNull(entry);
+        assertEquals("entry-" + entryId, entry.toString(UTF_8));
+        entry.release();
+    }
+
+    @Test(timeout = 60000)
+    public void testCoalesceConcurrentMissesOfSharedEntryCache() throws Exception {
+        TestStatsProvider statsProvider = new TestStatsProvider();
+        BKLogSegmentEntryCache entryCache =
+                new BKLogSegmentEntryCache(1024 * 1024, scheduler, statsProvider.getStatsLogger(""));
+        List<AsyncCallback.ReadCallback> pendingReads = new CopyOnWriteArrayList<>();
+        LedgerHandle lh = mockLedgerHandle(pendingReads);
+        LinkedBlockingQueue<ByteBuf> entriesRead = new LinkedBlockingQueue<>();
+        BKLogSegmentEntryCache.ReadEntryCallback callback = (rc, entryId, entry) -> entriesRead.add(entry);
+
+        // the concurrent misses of an entry are coalesced into a single bookie read
+        entryCache.asyncReadEntry(lh, 0L, callback);
+        entryCache.asyncReadEntry(lh, 0L, callback);
+        assertEquals(1, pendingReads.size());
+        assertEquals(1L, statsProvider.getCounter("misses").get().longValue());
+        assertEquals(1L, statsProvider.getCounter("coalesced_reads").get().longValue());
+        assertTrue(entriesRead.isEmpty());
+
+        completeRead(pendingReads.get(0), lh, 0L);
+        assertEntryRead(entriesRead, 0L);
+        assertEntryRead(entriesRead, 0L);
+        assertEquals(1, pendingReads.size());
+        assertEquals(1L, entryCache.getNumCachedEntries());
+
+        // the entry is then read from the cache
+        entryCache.asyncReadEntry(lh, 0L, callback);
+        assertEntryRead(entriesRead, 0L);
+        assertEquals(1, pendingReads.size());
+        assertEquals(1L, statsProvider.getCounter("hits").get().longValue());
+        assertEquals(1L, statsProvider.getCounter("misses").get().longValue());
+        entryCache.close();
+    }
+
+    @Test(timeout = 60000)
+    public void testReadEntriesAfterSharedEntryCacheClosed() throws Exception {
+        TestStatsProvider statsProvider = new TestStatsProvider();
+        BKLogSegmentEntryCache entryCache =
+                new BKLogSegmentEntryCache(1024 * 1024, scheduler, statsProvider.getStatsLogger(""));
+        List<AsyncCallback.ReadCallback> pendingReads = new CopyOnWriteArrayList<>();
+        LedgerHandle lh = mockLedgerHandle(pendingReads);
+        LinkedBlockingQueue<ByteBuf> entriesRead = new LinkedBlockingQueue<>();
+        BKLogSegmentEntryCache.ReadEntryCallback callback = (rc, entryId, entry) -> entriesRead.add(entry);
+
+        entryCache.asyncReadEntry(lh, 0L, callback);
+        completeRead(pendingReads.get(0), lh, 0L);
+        assertEntryRead(entriesRead, 0L);
+        assertEquals(1L, entryCache.getNumCachedEntries());
+
+        // a read completed after the cache is closed isn't cached
+        entryCache.asyncReadEntry(lh, 1L, callback);
+        entryCache.close();
+        completeRead(pendingReads.get(1), lh, 1L);
+        assertEntryRead(entriesRead, 1L);
+
+        // the closed cache doesn't serve the entries anymore, they are read from the bookies
+        entryCache.asyncReadEntry(lh, 0L, callback);
+        assertEquals(3, pendingReads.size());
+        completeRead(pendingReads.get(2), lh, 0L);
+        assertEntryRead(entriesRead, 0L);
+        assertEquals(0L, statsProvider.getCounter("hits").get().longValue());
+        assertEquals(3L, statsProvider.getCounter("misses").get().longValue());
+        // closing the cache again is a no-op
+        entryCache.close();
+    }
+
+    @Test(timeout = 60000)
+    public void testReadCachedEntryAfterSchedulerShutdown() throws Exception {
+        OrderedScheduler cacheScheduler = OrderedScheduler.newSchedulerBuilder()
+                .name("test-bk-logsegment-entry-cache")
+                .numThreads(1)
+                .build();
+        BKLogSegmentEntryCache entryCache =
+                new BKLogSegmentEntryCache(1024 * 1024, cacheScheduler, NullStatsLogger.INSTANCE);
+        List<AsyncCallback.ReadCallback> pendingReads = new CopyOnWriteArrayList<>();
+        LedgerHandle lh = mockLedgerHandle(pendingReads);
+        LinkedBlockingQueue<ByteBuf> entriesRead = new LinkedBlockingQueue<>();
+        entryCache.asyncReadEntry(lh, 0L, (rc, entryId, entry) -> entriesRead.add(entry));
+        completeRead(pendingReads.get(0), lh, 0L);
+        assertEntryRead(entriesRead, 0L);
+
+        // a cache hit that can't be completed on the shut down scheduler fails the read
+        cacheScheduler.shutdown();
+        CompletableFuture<Integer> readResult = new CompletableFuture<>();
+        entryCache.asyncReadEntry(lh, 0L, (rc, entryId, entry) -> {
+            assertNull(entry);
+            readResult.complete(rc);
+        });
+        assertEquals(BKException.Code.ClientClosedException, readResult.get().intValue());
+        assertEquals(1, pendingReads.size());
+        entryCache.close();
+    }
+
     @Test(timeout = 60000)
     public void testCloseReaderToCancelPendingReads() throws Exception {
         DistributedLogConfiguration confLocal = new DistributedLogConfiguration();
@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.distributedlog.lock;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.distributedlog.lock.ZKLeaseSessionLock.deserializeLeaseOwner;
+import static org.apache.distributedlog.lock.ZKLeaseSessionLock.getEpochPath;
+import static org.apache.distributedlog.lock.ZKLeaseSessionLock.getLeasePath;
+import static org.apache.distributedlog.lock.ZKLeaseSessionLock.isLeaseMember;
+import static org.apache.distributedlog.lock.ZKLeaseSessionLock.serializeLeaseOwner;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.common.util.OrderedScheduler;
+import org.apache.bookkeeper.stats.NullStatsLogger;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.distributedlog.DLMTestUtil;
+import org.apache.distributedlog.ZooKeeperClient;
+import org.apache.distributedlog.ZooKeeperClientBuilder;
+import org.apache.distributedlog.ZooKeeperClusterTestCase;
+import org.apache.distributedlog.exceptions.LockingException;
+import org.apache.distributedlog.exceptions.OwnershipAcquireFailedException;
+import org.apache.distributedlog.exceptions.ZKException;
+import org.apache.distributedlog.lock.ZKSessionLock.State;
+import org.apache.distributedlog.util.Utils;
+import org.apache.distributedlog.zk.ZKTransaction;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.ZooDefs;
+import org.apache.zookeeper.ZooKeeper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test Cases for {@link ZKLeaseSessionLock}.
+ */
+public class TestZKLeaseSessionLock extends ZooKeeperClusterTestCase {
+
+    private static final int sessionTimeoutMs = 2000;
+    private static final long leaseTimeoutMs = 1500;
+
+    private ZooKeeperClient zkc;
+    private ZooKeeperClient zkc0; // used for checking
+    private OrderedScheduler lockStateExecutor;
+
+    @Before
+    public void setup() throws Exception {
+        zkc = ZooKeeperClientBuilder.newBuilder()
+                .name("zkc")
+                .uri(DLMTestUtil.createDLMURI(zkPort, "/"))
+                .sessionTimeoutMs(sessionTimeoutMs)
+                .zkServers(zkServers)
+                .zkAclId(null)
+                .build();
+        zkc0 = ZooKeeperClientBuilder.newBuilder()
+                .name("zkc0")
+                .uri(DLMTestUtil.createDLMURI(zkPort, "/"))
+                .sessionTimeoutMs(sessionTimeoutMs)
+                .zkServers(zkServers)
+                .zkAclId(null)
+                .build();
+        lockStateExecutor = OrderedScheduler.newSchedulerBuilder()
+                .numThreads(1)
+                .build();
+    }
+
+    @After
+    public void teardown() throws Exception {
+        zkc.close();
+        zkc0.close();
+        lockStateExecutor.shutdown();
+    }
+
+    private static void createLockPath(ZooKeeper zk, String lockPath) throws Exception {
+        zk.create(lockPath, new byte[0], ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+    }
+
+    private ZKLeaseSessionLock newLock(ZooKeeperClient zkc, String lockPath, String clientId) throws Exception {
+        return new ZKLeaseSessionLock(zkc, lockPath, clientId, lockStateExecutor, 60000, leaseTimeoutMs,
+                NullStatsLogger.INSTANCE, new DistributedLockContext());
+    }
+
+    private static Pair<String, Long> getLeaseOwner(ZooKeeperClient zkc, String lockPath) throws Exception {
+        return deserializeLeaseOwner(zkc.get().getData(getLeasePath(lockPath), false, null));
+    }
+
+    @Test(timeout = 60000)
+    public void testSerializeLeaseOwner() throws Exception {
+        Pair<String, Long> owner = Pair.of("client:1", 12345L);
+        assertEquals(owner, deserializeLeaseOwner(serializeLeaseOwner(owner)));
+        assertEquals(Pair.of("malformed", -1L), deserializeLeaseOwner("malformed".getBytes(UTF_8)));
+    }
+
+    @Test(timeout = 60000)
+    public void testLockAndUnlock() throws Exception {
+        String lockPath = "/test-lease-lock-and-unlock";
+        createLockPath(zkc.get(), lockPath);
+
+        ZKLeaseSessionLock lock0 = newLock(zkc, lockPath, "client-0");
+        lock0.tryLock(0, TimeUnit.MILLISECONDS);
+        assertTrue(lock0.isLockHeld());
+        assertTrue(lock0.getLeaseEpoch() > 0);
+        assertEquals(lock0.getLockId(), getLeaseOwner(zkc0, lockPath));
+        // the lease lock is a member of the lock path
+        List<String> members = zkc0.get().getChildren(lockPath, false);
+        assertEquals(1, members.size());
+        assertTrue(isLeaseMember(members.get(0)));
+
+        // the lease is renewed by its owner, so it is not taken over
+        ZKLeaseSessionLock lock1 = newLock(zkc0, lockPath, "client-1");
+        try {
+            lock1.tryLock(0, TimeUnit.MILLISECONDS);
+            fail("Should fail to acquire a lease held by another client");
+        } catch (OwnershipAcquireFailedException oafe) {
+            assertEquals("client-0", oafe.getCurrentOwner());
+        }
+        Thread.sleep(2 * leaseTimeoutMs);
+        assertTrue(lock0.isLockHeld());
+
+        // unlock releases the lease
+        lock0.unlock();
+        assertEquals(State.CLOSED, lock0.getLockState());
+        assertNull(zkc0.get().exists(getLeasePath(lockPath), false));
+        lock1.unlock();
+        assertTrue(zkc0.get().getChildren(lockPath, false).isEmpty());
+
+        // a released lease is acquired immediately, at a greater epoch
+        ZKLeaseSessionLock lock2 = newLock(zkc0, lockPath, "client-2");
+        lock2.tryLock(0, TimeUnit.MILLISECONDS);
+        assertTrue(lock2.isLockHeld());
+        assertTrue(lock2.getLeaseEpoch() > lock0.getLeaseEpoch());
+        lock2.unlock();
+    }
+
+    @Test(timeout = 60000)
+    public void testTakeOverLeaseOfDeadOwner() throws Exception {
+        String lockPath = "/test-lease-take-over-lease-of-dead-owner";
+        createLockPath(zkc.get(), lockPath);
+
+        // a lease of an owner which doesn't renew it
+        zkc0.get().create(getLeasePath(lockPath), serializeLeaseOwner(Pair.of("dead-client", 1L)),
+                ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+
+        ZKLeaseSessionLock lock = newLock(zkc, lockPath, "client");
+        long startMs = System.currentTimeMillis();
+        lock.tryLock(10, TimeUnit.SECONDS);
+        long elapsedMs = System.currentTimeMillis() - startMs;
+        assertTrue(lock.isLockHeld());
+        assertTrue("Lease should be taken over after lease timeout : " + elapsedMs, elapsedMs >= leaseTimeoutMs);
+        assertTrue("Lease should be taken over before session timeout : " + elapsedMs,
+                elapsedMs < leaseTimeoutMs + sessionTimeoutMs);
+
+        assertEquals(zkc0.get().exists(getEpochPath(lockPath), false).getVersion(), lock.getLeaseEpoch());
+        assertEquals(lock.getLockId(), getLeaseOwner(zkc0, lockPath));
+        lock.unlock();
+    }
+
+    @Test(timeout = 60000)
+    public void testExpireLeaseTakenOver() throws Exception {
+        String lockPath = "/test-lease-expire-lease-taken-over";
+        createLockPath(zkc.get(), lockPath);
+
+        final CountDownLatch expiredLatch = new CountDownLatch(1);
+        ZKLeaseSessionLock lock = newLock(zkc, lockPath, "client");
+        lock.setLockListener(() -> expiredLatch.countDown());
+        lock.tryLock(0, TimeUnit.MILLISECONDS);
+        assertTrue(lock.isLockHeld());
+
+        // another client takes over the lease
+        zkc0.get().setData(getLeasePath(lockPath), serializeLeaseOwner(Pair.of("other-client", 1L)), -1);
+
+        assertTrue(expiredLatch.await(2 * leaseTimeoutMs, TimeUnit.MILLISECONDS));
+        assertFalse(lock.isLockHeld());
+        assertTrue(lock.isLockExpired());
+
+        // unlock doesn't release the lease of the other client
+        lock.unlock();
+        assertEquals(Pair.of("other-client", 1L), getLeaseOwner(zkc0, lockPath));
+    }
+
+    @Test(timeout = 60000)
+    public void testSessionLockAfterLeaseLock() throws Exception {
+        String lockPath = "/test-session-lock-after-lease-lock";
+        createLockPath(zkc.get(), lockPath);
+
+        ZKLeaseSessionLock leaseLock = newLock(zkc, lockPath, "lease-client");
+        leaseLock.tryLock(0, TimeUnit.MILLISECONDS);
+        assertTrue(leaseLock.isLockHeld());
+        leaseLock.unlock();
+
+        // a lease left by a dead owner doesn't block the session locks either
+        zkc0.get().create(getLeasePath(lockPath), serializeLeaseOwner(Pair.of("dead-client", 1L)),
+                ZooDefs.Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+
+        ZKSessionLock sessionLock = new ZKSessionLock(zkc, lockPath, "session-client", lockStateExecutor);
+        sessionLock.tryLock(0, TimeUnit.MILLISECONDS);
+        assertTrue(sessionLock.isLockHeld());
+        sessionLock.unlock();
+        assertFalse(sessionLock.isLockHeld());
+    }
+
+    @Test(timeout = 60000)
+    public void testLeaseLockAndSessionLockExcludeEachOther() throws Exception {
+        String lockPath = "/test-lease-lock-and-session-lock-exclude-each-other";
+        createLockPath(zkc.get(), lockPath);
+
+        ZKSessionLock sessionLock = new ZKSessionLock(zkc, lockPath, "session-client", lockStateExecutor);
+        sessionLock.tryLock(0, TimeUnit.MILLISECONDS);
+        assertTrue(sessionLock.isLockHeld());
+
+        // a lease lock doesn't claim the lease while a session lock is ahead of it
+        ZKLeaseSessionLock leaseLock0 = newLock(zkc0, lockPath, "lease-client-0");
+        try {
+            leaseLock0.tryLock(0, TimeUnit.MILLISECONDS);
+            fail("Should fail to acquire the lease behind a session lock");
+        } catch (OwnershipAcquireFailedException oafe) {
+            assertEquals("session-client", oafe.getCurrentOwner());
+        }
+        assertNull(zkc0.get().exists(getLeasePath(lockPath), false));
+
+        // a waiting lease lock claims the lease once the session lock is released
+        ZKLeaseSessionLock leaseLock1 = newLock(zkc0, lockPath, "lease-client-1");
+        final CountDownLatch claimedLatch = new CountDownLatch(1);
+        leaseLock1.asyncTryLock(10, TimeUnit.SECONDS).thenCompose(waiter -> waiter.getAcquireFuture())
+                .thenAccept(acquired -> claimedLatch.countDown());
+        assertFalse(claimedLatch.await(leaseTimeoutMs, TimeUnit.MILLISECONDS));
+        sessionLock.unlock();
+        assertTrue(claimedLatch.await(10, TimeUnit.SECONDS));
+        assertTrue(leaseLock1.isLockHeld());
+
+        // a session lock waits for the lease lock ahead of it
+        ZKSessionLock sessionLock1 = new ZKSessionLock(zkc, lockPath, "session-client-1", lockStateExecutor);
+        try {
+            sessionLock1.tryLock(0, TimeUnit.MILLISECONDS);
+            fail("Should fail to acquire a session lock behind a lease lock");
+        } catch (OwnershipAcquireFailedException oafe) {
+            assertEquals("lease:lease-client-1", oafe.getCurrentOwner());
+        }
+        leaseLock1.unlock();
+    }
+
+    @Test(timeout = 60000)
+    public void testFenceMetadataUpdates() throws Exception {
+        String lockPath = "/test-lease-fence-metadata-updates";
+        createLockPath(zkc.get(), lockPath);
+
+        ZKLeaseSessionLock lock = newLock(zkc, lockPath, "client");
+        lock.tryLock(0, TimeUnit.MILLISECONDS);
+        assertTrue(lock.isLockHeld());
+
+        ZKTransaction txn = new ZKTransaction(zkc);
+        lock.fence(txn);
+        Utils.ioResult(txn.execute());
+
+        // the lease is granted to another owner
+        zkc0.get().setData(getEpochPath(lockPath), serializeLeaseOwner(Pair.of("other-client", 1L)), -1);
+        txn = new ZKTransaction(zkc);
+        lock.fence(txn);
+        try {
+            Utils.ioResult(txn.execute());
+            fail("Should fail the metadata updates fenced by a lease granted to another owner");
+        } catch (ZKException zke) {
+            assertEquals(KeeperException.Code.BADVERSION, zke.getKeeperExceptionCode());
+        }
+
+        // the metadata updates can't be fenced once the lock is released
+        lock.unlock();
+        try {
+            lock.fence(new ZKTransaction(zkc));
+            fail("Should fail to fence the metadata updates by a released lock");
+        } catch (LockingException le) {
+            // expected
+        }
+    }
+}
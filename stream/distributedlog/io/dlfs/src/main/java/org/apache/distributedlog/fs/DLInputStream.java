@@ -20,49 +20,88 @@ package org.apache.distributedlog.fs;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import io.netty.buffer.ByteBuf;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.distributedlog.DLSN;
 import org.apache.distributedlog.LogRecordWithDLSN;
 import org.apache.distributedlog.api.DistributedLogManager;
 import org.apache.distributedlog.api.LogReader;
+import org.apache.hadoop.fs.FSExceptionMessages;
 import org.apache.hadoop.fs.FSInputStream;
 
 /**
  * The input stream for a distributedlog stream.
+ *
+ * <p>The transaction id of a record is the file offset of the end of its payload. The stream indexes
+ * the DLSNs of the records it reads by their file offsets, so the readers reopened by seeks and
+ * positional reads are positioned by DLSN instead of looking up the transaction ids in the log.
+ *
+ * <p>The positional reads don't move the position of the stream: they read the records in bulk from
+ * a reader of their own, copying the data straight from the payloads of the records. The reader is kept
+ * for the next positional read, which reuses it if it reads further on in the file, or a few records
+ * back. A positional read further back reopens the reader, positioned by the offset index.
  */
 @Slf4j
 class DLInputStream extends FSInputStream {
 
     private static final long REOPEN_READER_SKIP_BYTES = 4 * 1024 * 1024; // 4MB
+    // the interval in bytes between the file offsets indexed
+    private static final long OFFSET_INDEX_INTERVAL_BYTES = 1024 * 1024; // 1MB
+    // the number of records read at once by positional reads
+    private static final int POSITIONED_READ_BULK_RECORDS = 64;
+    // the number of records kept once consumed by the positional reads, for the positional reads stepping back
+    private static final int POSITIONED_READ_WINDOW_RECORDS = 16;
 
     private static class RecordStream {
 
-        private final InputStream payloadStream;
+        private final ByteBuf payload;
         private final LogRecordWithDLSN record;
 
         RecordStream(LogRecordWithDLSN record) {
             checkNotNull(record);
 
             this.record = record;
-            this.payloadStream = record.getPayLoadInputStream();
+            this.payload = record.getPayloadBuf();
+        }
+
+        int available() {
+            return payload.readableBytes();
+        }
+
+        long startPos() {
+            return record.getTransactionId() - record.getPayloadBuf().readableBytes();
         }
 
     }
 
-    private static RecordStream nextRecordStream(LogReader reader) throws IOException {
+    private RecordStream nextRecordStream(LogReader reader) throws IOException {
         LogRecordWithDLSN record = reader.readNext(false);
         if (null != record) {
-            return new RecordStream(record);
+            return indexRecord(new RecordStream(record));
         }
         return null;
     }
 
     private final DistributedLogManager dlm;
+    // file offsets of the records indexed to their dlsns
+    private final NavigableMap<Long, DLSN> offsetIndex = new ConcurrentSkipListMap<>();
     private LogReader reader;
     private long pos;
     private long lastPos;
     private RecordStream currentRecord = null;
+    // the reader of the positional reads
+    private LogReader positionedReader = null;
+    // the records read by the positional reader, from the last few consumed by the positional reads
+    private final List<RecordStream> positionedRecords = new ArrayList<>();
+    // the file offset the positional reader is at, when it has no record
+    private long positionedReaderPos = -1L;
 
     DLInputStream(DistributedLogManager dlm,
                   LogReader reader,
@@ -78,6 +117,7 @@ class DLInputStream extends FSInputStream {
     @Override
     public void close() throws IOException {
         reader.close();
+        closePositionedReader();
         dlm.close();
     }
 
@@ -85,6 +125,26 @@ class DLInputStream extends FSInputStream {
         return dlm.getLastTxId();
     }
 
+    private RecordStream indexRecord(RecordStream recordStream) {
+        long startPos = recordStream.startPos();
+        Map.Entry<Long, DLSN> lastIndexed = offsetIndex.floorEntry(startPos);
+        if (null == lastIndexed || startPos - lastIndexed.getKey() >= OFFSET_INDEX_INTERVAL_BYTES) {
+            offsetIndex.put(startPos, recordStream.record.getDlsn());
+        }
+        return recordStream;
+    }
+
+    /**
+     * Open a reader positioned at or before the record containing the file offset <i>pos</i>.
+     */
+    private LogReader openLogReader(long pos) throws IOException {
+        Map.Entry<Long, DLSN> indexed = offsetIndex.floorEntry(pos);
+        if (null == indexed) {
+            return dlm.openLogReader(pos);
+        }
+        return dlm.openLogReader(indexed.getValue());
+    }
+
     //
     // FSInputStream
     //
@@ -98,7 +158,7 @@ class DLInputStream extends FSInputStream {
         if (this.pos > pos || (pos - this.pos) >= REOPEN_READER_SKIP_BYTES) {
             // close the previous reader
             this.reader.close();
-            this.reader = dlm.openLogReader(pos);
+            this.reader = openLogReader(pos);
             this.currentRecord = null;
         }
 
@@ -126,8 +186,8 @@ class DLInputStream extends FSInputStream {
                 this.currentRecord = null;
                 return true;
             } else {
-                this.currentRecord.payloadStream.skip(
-                    this.currentRecord.payloadStream.available() - (endPos - position));
+                ByteBuf payload = this.currentRecord.payload;
+                payload.skipBytes(payload.readableBytes() - (int) (endPos - position));
                 this.pos = position;
                 return true;
             }
@@ -144,6 +204,106 @@ class DLInputStream extends FSInputStream {
         return false;
     }
 
+    //
+    // Positioned Readable
+    //
+
+    @Override
+    public int read(long position, byte[] buffer, int offset, int length) throws IOException {
+        validatePositionedReadArgs(position, buffer, offset, length);
+        if (0 == length) {
+            return 0;
+        }
+        int numBytesRead = positionedRead(position, buffer, offset, length);
+        return 0 == numBytesRead ? -1 : numBytesRead;
+    }
+
+    @Override
+    public void readFully(long position, byte[] buffer, int offset, int length) throws IOException {
+        validatePositionedReadArgs(position, buffer, offset, length);
+        if (0 == length) {
+            return;
+        }
+        if (positionedRead(position, buffer, offset, length) < length) {
+            throw new EOFException(FSExceptionMessages.EOF_IN_READ_FULLY);
+        }
+    }
+
+    /**
+     * Read up to <i>length</i> bytes from the file offset <i>position</i> by the positional reader.
+     *
+     * @return the number of bytes read, which is less than <i>length</i> only at the end of the file.
+     */
+    private synchronized int positionedRead(long position, byte[] buffer, int offset, int length)
+            throws IOException {
+        if (null == positionedReader || position < positionedReaderStartPos()
+                || position - positionedReaderStartPos() >= REOPEN_READER_SKIP_BYTES) {
+            closePositionedReader();
+            positionedReader = openLogReader(position);
+            positionedReaderPos = position;
+        }
+        int numBytesRead = 0;
+        int index = 0;
+        while (numBytesRead < length) {
+            if (index == positionedRecords.size()) {
+                index = dropConsumedRecords(index);
+                List<LogRecordWithDLSN> records = positionedReader.readBulk(false, POSITIONED_READ_BULK_RECORDS);
+                if (records.isEmpty()) {
+                    break;
+                }
+                for (LogRecordWithDLSN record : records) {
+                    positionedRecords.add(indexRecord(new RecordStream(record)));
+                }
+                continue;
+            }
+            RecordStream recordStream = positionedRecords.get(index);
+            long readPos = position + numBytesRead;
+            if (recordStream.record.getTransactionId() <= readPos) {
+                index++;
+                continue;
+            }
+            // the payload is left as is, the next positional read may read the same record again
+            ByteBuf payload = recordStream.payload;
+            int skip = (int) Math.max(0L, readPos - recordStream.startPos());
+            int numBytes = Math.min(payload.readableBytes() - skip, length - numBytesRead);
+            payload.getBytes(payload.readerIndex() + skip, buffer, offset + numBytesRead, numBytes);
+            numBytesRead += numBytes;
+        }
+        dropConsumedRecords(index);
+        return numBytesRead;
+    }
+
+    /**
+     * Drop the records consumed by the positional reads before the window kept for stepping back.
+     *
+     * @param index the index of the first record not consumed
+     * @return the index of the first record not consumed once the records are dropped
+     */
+    private int dropConsumedRecords(int index) {
+        if (index <= POSITIONED_READ_WINDOW_RECORDS) {
+            return index;
+        }
+        List<RecordStream> dropped = positionedRecords.subList(0, index - POSITIONED_READ_WINDOW_RECORDS);
+        positionedReaderPos = dropped.get(dropped.size() - 1).record.getTransactionId();
+        dropped.clear();
+        return POSITIONED_READ_WINDOW_RECORDS;
+    }
+
+    /**
+     * Get the first file offset the positional reader can read.
+     */
+    private long positionedReaderStartPos() {
+        return positionedRecords.isEmpty() ? positionedReaderPos : positionedRecords.get(0).startPos();
+    }
+
+    private synchronized void closePositionedReader() throws IOException {
+        positionedRecords.clear();
+        if (null != positionedReader) {
+            positionedReader.close();
+            positionedReader = null;
+        }
+    }
+
     //
     // Input Stream
     //
@@ -164,20 +324,17 @@ class DLInputStream extends FSInputStream {
                 break;
             }
 
-            int bytesLeft = currentRecord.payloadStream.available();
+            int bytesLeft = currentRecord.available();
             if (bytesLeft <= 0) {
-                currentRecord.payloadStream.close();
                 currentRecord = null;
                 continue;
             }
 
-            int numBytesToRead = Math.min(bytesLeft, remaining);
-            int numBytes = currentRecord.payloadStream.read(b, off + numBytesRead, numBytesToRead);
-            if (numBytes < 0) {
-                continue;
-            }
+            int numBytes = Math.min(bytesLeft, remaining);
+            currentRecord.payload.readBytes(b, off + numBytesRead, numBytes);
             numBytesRead += numBytes;
             remaining -= numBytes;
+            this.pos += numBytes;
         }
         return numBytesRead;
     }
@@ -198,7 +355,7 @@ class DLInputStream extends FSInputStream {
                 return n - remaining;
             }
 
-            int bytesLeft = currentRecord.payloadStream.available();
+            int bytesLeft = currentRecord.available();
             long endPos = currentRecord.record.getTransactionId();
             if (remaining > bytesLeft) {
                 // skip the whole record
@@ -211,8 +368,8 @@ class DLInputStream extends FSInputStream {
                 this.currentRecord = null;
                 return n;
             } else {
-                currentRecord.payloadStream.skip(remaining);
-                this.pos = endPos - currentRecord.payloadStream.available();
+                currentRecord.payload.skipBytes((int) remaining);
+                this.pos = endPos - currentRecord.available();
                 return n;
             }
         }
@@ -23,12 +23,24 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import java.io.BufferedReader;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.InputStreamReader;
+import java.util.Arrays;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.distributedlog.DLSN;
+import org.apache.distributedlog.api.DistributedLogManager;
+import org.apache.distributedlog.api.namespace.Namespace;
+import org.apache.distributedlog.api.namespace.NamespaceBuilder;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileStatus;
@@ -230,4 +242,99 @@ public class TestDLFileSystem extends TestDLFSBase {
         }
     }
 
+    @Test
+    public void testPositionedRead() throws Exception {
+        Path path = new Path("/path/to/" + runtime.getMethodName());
+        StringBuilder sb = new StringBuilder();
+        try (FSDataOutputStream out = fs.create(path)) {
+            for (int i = 0; i < 100; i++) {
+                String line = "line-" + i + "\n";
+                out.writeBytes(line);
+                sb.append(line);
+            }
+            out.flush();
+        }
+        byte[] data = sb.toString().getBytes(UTF_8);
+
+        try (FSDataInputStream in = fs.open(path, 1024)) {
+            // read across the records of the file
+            byte[] readData = new byte[100];
+            assertEquals(readData.length, in.read(50L, readData, 0, readData.length));
+            assertArrayEquals(Arrays.copyOfRange(data, 50, 150), readData);
+            // positioned reads don't move the position of the stream
+            assertEquals(0L, in.getPos());
+
+            in.readFully(data.length - 20L, readData, 10, 20);
+            assertArrayEquals(Arrays.copyOfRange(data, data.length - 20, data.length),
+                    Arrays.copyOfRange(readData, 10, 30));
+
+            // read beyond the end of the file
+            assertEquals(10, in.read(data.length - 10L, readData, 0, readData.length));
+            assertEquals(-1, in.read(data.length, readData, 0, readData.length));
+            try {
+                in.readFully(data.length - 10L, readData, 0, readData.length);
+                fail("Should fail reading fully beyond the end of the file");
+            } catch (EOFException eofe) {
+                // expected
+            }
+
+            // the stream reads from its position
+            byte[] streamData = new byte[data.length];
+            in.readFully(streamData);
+            assertArrayEquals(data, streamData);
+        }
+    }
+
+    @Test
+    public void testPositionedReadsReuseReaderAndOffsetIndex() throws Exception {
+        Path path = new Path("/path/to/" + runtime.getMethodName());
+        StringBuilder sb = new StringBuilder();
+        // a small buffer, so the file is written in records of 8 bytes
+        try (FSDataOutputStream out = fs.create(path, true, 8)) {
+            for (int i = 0; i < 100; i++) {
+                String line = "line-" + i + "\n";
+                out.writeBytes(line);
+                sb.append(line);
+            }
+            out.flush();
+        }
+        byte[] data = sb.toString().getBytes(UTF_8);
+
+        try (Namespace namespace = NamespaceBuilder.newBuilder()
+                .conf(conf)
+                .uri(dlfsUri)
+                .build()) {
+            DistributedLogManager dlm = spy(namespace.openLog(path.toUri().getPath().substring(1)));
+            // the reader of the stream
+            try (DLInputStream in = new DLInputStream(dlm, dlm.openLogReader(DLSN.InitialDLSN), 0L)) {
+                byte[] readData = new byte[100];
+                // the first positional read looks up the file offset by transaction id, and indexes the
+                // record it starts at, at offset 48
+                in.readFully(50L, readData, 0, readData.length);
+                assertArrayEquals(Arrays.copyOfRange(data, 50, 150), readData);
+                verify(dlm, times(1)).openLogReader(anyLong());
+
+                // the positional reads further on, or a few records back, reuse the reader
+                in.readFully(150L, readData, 0, readData.length);
+                assertArrayEquals(Arrays.copyOfRange(data, 150, 250), readData);
+                in.readFully(200L, readData, 0, readData.length);
+                assertArrayEquals(Arrays.copyOfRange(data, 200, 300), readData);
+                verify(dlm, times(1)).openLogReader(anyLong());
+                verify(dlm, times(1)).openLogReader(any(DLSN.class));
+
+                // the positional reads further back reopen the reader, positioned by the offset index
+                in.readFully(60L, readData, 0, readData.length);
+                assertArrayEquals(Arrays.copyOfRange(data, 60, 160), readData);
+                verify(dlm, times(1)).openLogReader(anyLong());
+                verify(dlm, times(2)).openLogReader(any(DLSN.class));
+
+                // or by transaction id, before the first offset indexed
+                in.readFully(10L, readData, 0, readData.length);
+                assertArrayEquals(Arrays.copyOfRange(data, 10, 110), readData);
+                verify(dlm, times(2)).openLogReader(anyLong());
+                verify(dlm, times(2)).openLogReader(any(DLSN.class));
+            }
+        }
+    }
+
 }
@@ -48,8 +48,8 @@ import org.apache.distributedlog.io.CompressionCodec;
  *    -----------------
  *    00        : No Compression
  *    01        : LZ4 Compression
- *    10        : Unused
- *    11        : Unused
+ *    10        : ZSTD Compression
+ *    11        : Snappy Compression
  *
  * </pre>
  */